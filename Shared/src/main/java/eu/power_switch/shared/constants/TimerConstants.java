@@ -28,6 +28,12 @@ public class TimerConstants {
     // Timer
     public static final String TIMER_ACTIVATION_INTENT = "eu.power_switch.alarm";
     public static final String TIMER_URI_SCHEME = "timer";
+    public static final String TIMER_SCHEDULE_URI_HOST = "schedule";
+
+    // Timer schedule state
+    public static final String TIMER_SCHEDULE_SHARED_PREFS_NAME = "eu.power_switch.timer_schedule";
+    public static final String EXECUTED_UNTIL_KEY = "executedUntil";
+    public static final String NEXT_WAKEUP_KEY = "nextWakeup";
 
     /**
      * Private Constructor
@@ -27,18 +27,26 @@ public class WearableConstants {
 
     // Wear DataApi
     public static final String START_ACTIVITY_PATH = "/start_activity";
-    public static final String RECEIVER_ACTION_TRIGGER_PATH = "/receiver_action_trigger";
+    public static final String ACTION_PATH = "/action";
+    public static final String ACTION_ACK_PATH = "/action_ack";
     public static final String REQUEST_DATA_UPDATE_PATH = "/request_data_update";
     public static final String REQUEST_SETTINGS_UPDATE_PATH = "/request_settings_update";
     public static final String DATA_PATH = "/data";
+    public static final String DATA_DELTA_PATH = "/data_delta";
     public static final String EXTRA_DATA = "extra_data";
+    public static final String EXTRA_REMOVED_KEYS = "extra_removed_keys";
+    public static final String DATA_VERSION_KEY = "DATA_VERSION_KEY";
+    public static final String DATA_BASE_VERSION_KEY = "DATA_BASE_VERSION_KEY";
     public static final String SETTINGS_PATH = "/settings";
     public static final String EXTRA_SETTINGS = "extra_settings";
 
 
     // DataMap Keys
+    public static final String ENTITY_KEY_DATAMAP_KEY = "ENTITY_KEY_DATAMAP_KEY";
+
     public static final String ROOM_ID_DATAMAP_KEY = "ROOM_ID_DATAMAP_KEY";
     public static final String ROOM_NAME_DATAMAP_KEY = "ROOM_NAME_DATAMAP_KEY";
+    public static final String ROOM_POSITION_DATAMAP_KEY = "ROOM_POSITION_DATAMAP_KEY";
 
     public static final String RECEIVER_ID_DATAMAP_KEY = "RECEIVER_ID_DATAMAP_KEY";
     public static final String RECEIVER_NAME_DATAMAP_KEY = "RECEIVER_NAME_DATAMAP_KEY";
@@ -49,16 +57,11 @@ public class WearableConstants {
     public static final String BUTTON_ID_DATAMAP_KEY = "BUTTON_ID_DATAMAP_KEY";
     public static final String BUTTON_NAME_DATAMAP_KEY = "BUTTON_NAME_DATAMAP_KEY";
     public static final String BUTTON_RECEIVER_ID_DATAMAP_KEY = "BUTTON_RECEIVER_ID_DATAMAP_KEY";
+    public static final String BUTTON_POSITION_DATAMAP_KEY = "BUTTON_POSITION_DATAMAP_KEY";
 
     public static final String SCENE_ID_DATAMAP_KEY = "SCENE_ID_DATAMAP_KEY";
     public static final String SCENE_NAME_DATAMAP_KEY = "SCENE_NAME_DATAMAP_KEY";
-
-    // Action Intent Constants
-    public static final String APARTMENT_ID_KEY = "[ApartmentId]";
-    public static final String ROOM_ID_KEY = "[RoomId]";
-    public static final String RECEIVER_ID_KEY = "[ReceiverId]";
-    public static final String BUTTON_ID_KEY = "[ButtonId]";
-    public static final String SCENE_ID_KEY = "[SceneId]";
+    public static final String SCENE_POSITION_DATAMAP_KEY = "SCENE_POSITION_DATAMAP_KEY";
 
     /**
      * Private Constructor
@@ -0,0 +1,44 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.shared.log;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.RollingFileAppender;
+
+import java.io.IOException;
+
+/**
+ * RollingFileAppender that does not flush after every event, but only when {@link #flush()} is called
+ */
+class BatchedRollingFileAppender extends RollingFileAppender {
+
+    BatchedRollingFileAppender(Layout layout, String fileName) throws IOException {
+        super(layout, fileName, true);
+        setImmediateFlush(false);
+    }
+
+    /**
+     * Write all buffered events to the file
+     */
+    void flush() {
+        if (qw != null) {
+            qw.flush();
+        }
+    }
+}
@@ -24,8 +24,11 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import java.util.Locale;
+
 /**
  * Common Logger Class used by all classes in this application
  * <p/>
@@ -45,6 +48,17 @@ public class Log {
         throw new UnsupportedOperationException("This class is non-instantiable");
     }
 
+    /**
+     * Check if debug messages are logged at all
+     * <p/>
+     * Use this to avoid building expensive log messages that would be discarded anyway.
+     *
+     * @return true if debug logging is enabled
+     */
+    public static boolean isDebugEnabled() {
+        return log.isDebugEnabled();
+    }
+
     /**
      * Log Debug
      *
@@ -60,6 +74,10 @@ public class Log {
      * @param source any object
      */
     public static void d(@Nullable Object source) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+
         StringBuilder logMessage = new StringBuilder();
         if (source == null) {
             logMessage.append("null");
@@ -82,6 +100,10 @@ public class Log {
      * @param message any object used as description
      */
     public static void d(@Nullable Object source, @Nullable Object message) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+
         StringBuilder logMessage = new StringBuilder();
 
         if (source != null) {
@@ -112,6 +134,24 @@ public class Log {
         log.debug(logMessage);
     }
 
+    /**
+     * Log Debug
+     * <p/>
+     * The message is only formatted if debug messages are logged at all, so this can be used in frequently called
+     * code without checking {@link #isDebugEnabled()} first.
+     *
+     * @param source a source object
+     * @param format message format as used by {@link String#format(String, Object...)}
+     * @param args   arguments referenced by the format
+     */
+    public static void d(@Nullable Object source, @NonNull String format, @Nullable Object... args) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+
+        d(source, String.format(Locale.ROOT, format, args));
+    }
+
     private static String getIntentDescription(Intent intent) {
         String log = "Action: ";
         log += intent.getAction();
@@ -161,6 +201,10 @@ public class Log {
      * @param message any text message
      */
     public static void e(@Nullable Object source, @Nullable String message) {
+        if (!log.isEnabledFor(Level.ERROR)) {
+            return;
+        }
+
         StringBuilder logMessage = new StringBuilder();
 
         if (source != null) {
@@ -190,6 +234,10 @@ public class Log {
      * @param throwable any throwable
      */
     public static void e(@Nullable Object source, @Nullable Throwable throwable) {
+        if (!log.isEnabledFor(Level.ERROR)) {
+            return;
+        }
+
         StringBuilder logMessage = new StringBuilder();
 
         if (source != null) {
@@ -21,6 +21,8 @@ package eu.power_switch.shared.log;
 import android.os.Environment;
 
 import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -33,7 +35,18 @@ import de.mindpipe.android.logging.log4j.LogConfigurator;
  */
 public class Log4JConfiguration {
 
+    /**
+     * Maximum number of log entries waiting to be written to the log file
+     */
+    private static final int RING_BUFFER_CAPACITY = 4096;
+
     private static LogConfigurator logConfigurator;
+    private static volatile RingBufferAppender ringBufferAppender;
+
+    /**
+     * Level of the root logger, debug entries are only logged in debug builds
+     */
+    private static volatile Level rootLevel = Level.INFO;
 
     /**
      * Private Constructor
@@ -44,28 +57,46 @@ public class Log4JConfiguration {
         throw new UnsupportedOperationException("This class is non-instantiable. Use static one time init via configure() method instead");
     }
 
+    /**
+     * Enable or disable debug log entries
+     * <p/>
+     * This also applies if the logger has already been configured.
+     *
+     * @param enabled true to log everything, false to log info level and above only
+     */
+    public static void setDebugEnabled(boolean enabled) {
+        rootLevel = enabled ? Level.ALL : Level.INFO;
+        Logger.getRootLogger().setLevel(rootLevel);
+    }
+
     public static void configure() {
         if (logConfigurator != null) {
             return;
         }
 
         logConfigurator = new LogConfigurator();
+        // also applies if no log file can be written, so disabled debug entries are not formatted for nothing
+        Logger.getRootLogger().setLevel(rootLevel);
 
         if (LogHandler.createLogDirectory() && LogHandler.isExternalStorageReadable() && LogHandler
                 .isExternalStorageWritable()) {
-            logConfigurator.setFileName(Environment.getExternalStorageDirectory() + File.separator +
-                    LogHandler.LOG_FOLDER + File.separator + "PowerSwitch__" + getHumanReadableDate() + ".log");
+            String fileName = Environment.getExternalStorageDirectory() + File.separator +
+                    LogHandler.LOG_FOLDER + File.separator + "PowerSwitch__" + getHumanReadableDate() + ".log";
             String filePattern = "%d{dd-MM-yyyy HH:mm:ss,SSS} [%-5p] %m%n";
-            logConfigurator.setFilePattern(filePattern);
             String logCatPattern = "[%-5p] %m%n";
             logConfigurator.setLogCatPattern(logCatPattern);
-            logConfigurator.setRootLevel(Level.ALL);
-            logConfigurator.setImmediateFlush(true);
+            logConfigurator.setRootLevel(rootLevel);
             logConfigurator.setUseLogCatAppender(true);
-            logConfigurator.setUseFileAppender(true);
-            logConfigurator.setMaxFileSize(10 * 1024 * 1024); // 10 MB
+            // the file appender is added below, so it can be written asynchronously
+            logConfigurator.setUseFileAppender(false);
             try {
                 logConfigurator.configure();
+
+                BatchedRollingFileAppender fileAppender = new BatchedRollingFileAppender(new PatternLayout(filePattern), fileName);
+                fileAppender.setMaximumFileSize(10 * 1024 * 1024); // 10 MB
+                fileAppender.setMaxBackupIndex(5);
+                ringBufferAppender = new RingBufferAppender(fileAppender, RING_BUFFER_CAPACITY);
+                Logger.getRootLogger().addAppender(ringBufferAppender);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -85,6 +116,20 @@ public class Log4JConfiguration {
         }
     }
 
+    /**
+     * Get the number of log entries that were not written to the log file because they were logged faster than they
+     * could be written
+     *
+     * @return number of dropped log entries since the logger was configured
+     */
+    public static long getDroppedLogEntryCount() {
+        RingBufferAppender appender = ringBufferAppender;
+        if (appender == null) {
+            return 0;
+        }
+        return appender.getDroppedCount();
+    }
+
     private static String getHumanReadableDate() {
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
         return simpleDateFormat.format(new Date());
@@ -40,6 +40,7 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -59,6 +60,11 @@ public class LogHandler {
      */
     public static final String LOG_FOLDER = "PowerSwitch_Logs";
 
+    /**
+     * Providers of additional reports that are included in the log zip file
+     */
+    private static final List<DiagnosticsProvider> diagnosticsProviders = new CopyOnWriteArrayList<>();
+
     /**
      * Private Constructor
      *
@@ -72,6 +78,34 @@ public class LogHandler {
         Log4JConfiguration.configure();
     }
 
+    /**
+     * Enable or disable debug log entries, they are disabled by default
+     *
+     * @param enabled true to log debug entries
+     */
+    public static void setDebugLoggingEnabled(boolean enabled) {
+        Log4JConfiguration.setDebugEnabled(enabled);
+    }
+
+    /**
+     * Get the number of log entries that were dropped because they were logged faster than they could be written to
+     * the log file
+     *
+     * @return number of dropped log entries
+     */
+    public static long getDroppedLogEntryCount() {
+        return Log4JConfiguration.getDroppedLogEntryCount();
+    }
+
+    /**
+     * Add a provider of an additional report that is included in the log zip file
+     *
+     * @param diagnosticsProvider diagnostics provider
+     */
+    public static void addDiagnosticsProvider(@NonNull DiagnosticsProvider diagnosticsProvider) {
+        diagnosticsProviders.add(diagnosticsProvider);
+    }
+
     /**
      * Delete Logs older than 14 days
      */
@@ -133,6 +167,17 @@ public class LogHandler {
                 origin.close();
             }
 
+            for (DiagnosticsProvider diagnosticsProvider : diagnosticsProviders) {
+                try {
+                    byte[] report = diagnosticsProvider.getReport().getBytes("UTF-8");
+                    out.putNextEntry(new ZipEntry(diagnosticsProvider.getName()));
+                    out.write(report);
+                    out.closeEntry();
+                } catch (Exception e) {
+                    Log.e(e);
+                }
+            }
+
             out.close();
 
             return zipFile;
@@ -282,4 +327,26 @@ public class LogHandler {
 
         return stringBuilder.toString();
     }
+
+    /**
+     * Provider of an additional report that is included in the log zip file
+     */
+    public interface DiagnosticsProvider {
+
+        /**
+         * Get the file name of the report inside the zip file
+         *
+         * @return file name
+         */
+        @NonNull
+        String getName();
+
+        /**
+         * Get the current report
+         *
+         * @return report
+         */
+        @NonNull
+        String getReport();
+    }
 }
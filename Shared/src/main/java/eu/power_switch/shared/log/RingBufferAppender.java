@@ -0,0 +1,190 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.shared.log;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log4J Appender that hands events to a background thread, which writes them to a file in batches
+ * <p/>
+ * Logging threads only claim a slot in a bounded ring buffer using compare-and-set, they never block and never
+ * touch the file. If the buffer is full, the event is dropped and counted instead, see {@link #getDroppedCount()}.
+ * The writer thread drains the buffer every {@link #FLUSH_INTERVAL} milliseconds (or earlier if the buffer fills up
+ * or an error is logged) and flushes the file once per batch.
+ */
+class RingBufferAppender extends AppenderSkeleton {
+
+    /**
+     * Maximum time in milliseconds events are kept in memory before they are written
+     */
+    private static final long FLUSH_INTERVAL = 500;
+
+    private final BatchedRollingFileAppender target;
+
+    private final AtomicReferenceArray<LoggingEvent> slots;
+    private final int capacity;
+    private final int mask;
+
+    /**
+     * Sequence number of the next slot to be claimed by a logging thread
+     */
+    private final AtomicLong claimSequence = new AtomicLong();
+    /**
+     * Sequence number of the next slot to be read, only written by the writer thread
+     */
+    private volatile long readSequence = 0;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+    /**
+     * Number of dropped events already reported in the log file, only accessed by the writer thread
+     */
+    private long reportedDroppedCount = 0;
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * Create a new RingBufferAppender
+     *
+     * @param target   Appender that events are written to
+     * @param capacity maximum number of buffered events, rounded up to a power of two
+     */
+    RingBufferAppender(BatchedRollingFileAppender target, int capacity) {
+        this.target = target;
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    drain();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL));
+                }
+                drain();
+            }
+        }, "LogWriter");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (!running) {
+            return;
+        }
+
+        // render everything that depends on the logging thread or on mutable arguments now
+        event.getRenderedMessage();
+        event.getThreadName();
+
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - readSequence >= capacity) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        slots.lazySet((int) sequence & mask, event);
+
+        if (event.getLevel().isGreaterOrEqual(Level.ERROR) || sequence - readSequence >= capacity / 2) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Write all published events to the target and flush it, runs on the writer thread only
+     */
+    private void drain() {
+        boolean written = false;
+
+        while (true) {
+            int index = (int) readSequence & mask;
+            LoggingEvent event = slots.get(index);
+            if (event == null) {
+                // empty or claimed but not published yet
+                break;
+            }
+            slots.lazySet(index, null);
+            readSequence++;
+
+            target.doAppend(event);
+            written = true;
+        }
+
+        long dropped = droppedCount.get();
+        if (dropped > reportedDroppedCount) {
+            target.doAppend(new LoggingEvent(RingBufferAppender.class.getName(), Logger.getRootLogger(), Level.WARN,
+                    (dropped - reportedDroppedCount) + " log entries dropped because the log buffer was full", null));
+            reportedDroppedCount = dropped;
+            written = true;
+        }
+
+        if (written) {
+            target.flush();
+        }
+    }
+
+    /**
+     * Get the number of events that were dropped because the buffer was full
+     *
+     * @return number of dropped events since this Appender was created
+     */
+    long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+        closed = true;
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+}
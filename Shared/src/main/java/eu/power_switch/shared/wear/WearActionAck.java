@@ -0,0 +1,83 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.shared.wear;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Response of the Smartphone app to a {@link WearActionMessage}
+ * <p/>
+ * Binary layout (big endian, {@link #SIZE} bytes):
+ * <pre>
+ * [version:1][success:1][sequence:4]
+ * </pre>
+ */
+public class WearActionAck {
+
+    public static final int SIZE = 1 + 1 + 4;
+
+    private final int sequence;
+    private final boolean success;
+
+    public WearActionAck(int sequence, boolean success) {
+        this.sequence = sequence;
+        this.success = success;
+    }
+
+    /**
+     * Decode an acknowledgement
+     *
+     * @param bytes encoded acknowledgement
+     * @return acknowledgement
+     * @throws IllegalArgumentException if the acknowledgement is malformed or has an unknown version
+     */
+    public static WearActionAck fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != SIZE) {
+            throw new IllegalArgumentException("invalid action ack size: " + (bytes == null ? 0 : bytes.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != WearActionMessage.PROTOCOL_VERSION) {
+            throw new IllegalArgumentException("unsupported action ack version: " + version);
+        }
+        boolean success = buffer.get() != 0;
+        return new WearActionAck(buffer.getInt(), success);
+    }
+
+    /**
+     * Encode this acknowledgement
+     *
+     * @return encoded acknowledgement
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(SIZE)
+                .put(WearActionMessage.PROTOCOL_VERSION)
+                .put((byte) (success ? 1 : 0))
+                .putInt(sequence)
+                .array();
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.shared.wear;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Action triggered on the Wearable and executed by the Smartphone app
+ * <p/>
+ * Binary layout (big endian, {@link #SIZE} bytes):
+ * <pre>
+ * [version:1][type:1][sequence:4][id:8][buttonId:8]
+ * </pre>
+ * {@code id} is the ID of the Receiver, Room or Scene depending on the type, {@code buttonId} is unused for Scenes.
+ * The Smartphone app answers every action with a {@link WearActionAck} carrying the same sequence number.
+ */
+public class WearActionMessage {
+
+    public static final byte PROTOCOL_VERSION = 1;
+
+    public static final byte TYPE_RECEIVER = 1;
+    public static final byte TYPE_ROOM = 2;
+    public static final byte TYPE_SCENE = 3;
+
+    public static final int SIZE = 1 + 1 + 4 + 8 + 8;
+
+    private final byte type;
+    private final int sequence;
+    private final long id;
+    private final long buttonId;
+
+    private WearActionMessage(byte type, int sequence, long id, long buttonId) {
+        this.type = type;
+        this.sequence = sequence;
+        this.id = id;
+        this.buttonId = buttonId;
+    }
+
+    /**
+     * Create a message to activate a Button of a Receiver
+     *
+     * @param sequence   sequence number
+     * @param receiverId ID of Receiver
+     * @param buttonId   ID of Button
+     * @return message
+     */
+    public static WearActionMessage createReceiverAction(int sequence, long receiverId, long buttonId) {
+        return new WearActionMessage(TYPE_RECEIVER, sequence, receiverId, buttonId);
+    }
+
+    /**
+     * Create a message to activate a Button on all Receivers of a Room
+     *
+     * @param sequence sequence number
+     * @param roomId   ID of Room
+     * @param buttonId ID of Button
+     * @return message
+     */
+    public static WearActionMessage createRoomAction(int sequence, long roomId, long buttonId) {
+        return new WearActionMessage(TYPE_ROOM, sequence, roomId, buttonId);
+    }
+
+    /**
+     * Create a message to activate a Scene
+     *
+     * @param sequence sequence number
+     * @param sceneId  ID of Scene
+     * @return message
+     */
+    public static WearActionMessage createSceneAction(int sequence, long sceneId) {
+        return new WearActionMessage(TYPE_SCENE, sequence, sceneId, 0);
+    }
+
+    /**
+     * Decode a message
+     *
+     * @param bytes encoded message
+     * @return message
+     * @throws IllegalArgumentException if the message is malformed or has an unknown version or type
+     */
+    public static WearActionMessage fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != SIZE) {
+            throw new IllegalArgumentException("invalid action message size: " + (bytes == null ? 0 : bytes.length));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != PROTOCOL_VERSION) {
+            throw new IllegalArgumentException("unsupported action message version: " + version);
+        }
+        byte type = buffer.get();
+        if (type != TYPE_RECEIVER && type != TYPE_ROOM && type != TYPE_SCENE) {
+            throw new IllegalArgumentException("unknown action message type: " + type);
+        }
+        return new WearActionMessage(type, buffer.getInt(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Encode this message
+     *
+     * @return encoded message
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(SIZE)
+                .put(PROTOCOL_VERSION)
+                .put(type)
+                .putInt(sequence)
+                .putLong(id)
+                .putLong(buttonId)
+                .array();
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return ID of the Receiver, Room or Scene
+     */
+    public long getId() {
+        return id;
+    }
+
+    public long getButtonId() {
+        return buttonId;
+    }
+
+    @Override
+    public String toString() {
+        return "WearActionMessage{type=" + type + ", sequence=" + sequence + ", id=" + id + ", buttonId=" + buttonId + "}";
+    }
+}
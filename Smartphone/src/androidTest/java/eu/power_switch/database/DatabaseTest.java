@@ -18,6 +18,9 @@
 
 package eu.power_switch.database;
 
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -25,9 +28,15 @@ import java.util.Collections;
 
 import eu.power_switch.ApplicationTest;
 import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.database.handler.ModelCache;
+import eu.power_switch.database.table.apartment.ApartmentTable;
+import eu.power_switch.database.table.receiver.ReceiverTable;
+import eu.power_switch.database.table.room.RoomTable;
+import eu.power_switch.database.table.scene.SceneItemTable;
 import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.gateway.ConnAir;
+import eu.power_switch.obj.receiver.Receiver;
 import eu.power_switch.obj.receiver.device.intertechno.CMR1000;
 import eu.power_switch.shared.log.Log;
 
@@ -99,4 +108,195 @@ public class DatabaseTest extends ApplicationTest {
             }
         }
     }
+
+    @Test
+    public void testReadThroughputByConnectionMode() throws Exception {
+        long apartmentId = DatabaseHandler.addApartment(new Apartment((long) 0, true, "Benchmark Apartment"));
+        final long roomId = DatabaseHandler.addRoom(new Room((long) 0, apartmentId, "Benchmark Room", 0, false));
+        for (int k = 0; k < 20; k++) {
+            DatabaseHandler.addReceiver(new CMR1000(getContext(), (long) 0, "Receiver[" + k + "]", 'A', 1, roomId));
+        }
+        final Long receiverId = DatabaseHandler.getRoom(roomId).getReceivers().get(0).getId();
+
+        DatabaseHandler.setKeepConnectionOpen(false);
+        long openClose = measureParallelReads(roomId, receiverId);
+
+        DatabaseHandler.setKeepConnectionOpen(true);
+        long keepOpen = measureParallelReads(roomId, receiverId);
+
+        Log.d("getReceiverByRoomId/getButtons, open/close per access: " + openClose + "ms");
+        Log.d("getReceiverByRoomId/getButtons, connection kept open:  " + keepOpen + "ms");
+
+        DatabaseHandler.deleteApartment(apartmentId);
+    }
+
+    @Test
+    public void testModelCache() throws Exception {
+        long apartmentId = DatabaseHandler.addApartment(new Apartment((long) 0, true, "Cache Apartment"));
+        long roomId = DatabaseHandler.addRoom(new Room((long) 0, apartmentId, "Cache Room", 0, false));
+        DatabaseHandler.addReceiver(new CMR1000(getContext(), (long) 0, "Receiver", 'A', 1, roomId));
+
+        Room room = DatabaseHandler.getRoom(roomId);
+        Receiver receiver = room.getReceivers().get(0);
+
+        long hits = ModelCache.getHitCount();
+        Room cachedRoom = DatabaseHandler.getRoom(roomId);
+        assertNotSame(room, cachedRoom);
+        assertEquals(room.getId(), cachedRoom.getId());
+        assertEquals(room.getName(), cachedRoom.getName());
+        assertEquals(room.getReceivers(), cachedRoom.getReceivers());
+        assertSame(receiver, DatabaseHandler.getReceiver(receiver.getId()));
+        assertEquals(apartmentId, (long) DatabaseHandler.getContainingApartment(receiver).getId());
+        assertTrue(ModelCache.getHitCount() >= hits + 3);
+        assertTrue(ModelCache.getSize() > 0);
+
+        // Rooms are copies, modifying them does not affect the cache
+        cachedRoom.getReceivers().clear();
+        assertEquals(1, DatabaseHandler.getRoom(roomId).getReceivers().size());
+
+        // so are Apartments
+        DatabaseHandler.getApartment(apartmentId).setName("Modified Apartment");
+        assertEquals("Cache Apartment", DatabaseHandler.getApartment(apartmentId).getName());
+
+        // updated in place
+        Long buttonId = receiver.getButtons().get(0).getId();
+        DatabaseHandler.setLastActivatedButtonId(receiver.getId(), buttonId);
+        assertEquals(buttonId, DatabaseHandler.getReceiver(receiver.getId()).getLastActivatedButtonId());
+
+        // invalidated
+        DatabaseHandler.updateRoom(roomId, "Renamed Room");
+        Room renamedRoom = DatabaseHandler.getRoom(roomId);
+        assertNotSame(room, renamedRoom);
+        assertEquals("Renamed Room", renamedRoom.getName());
+
+        Log.d(ModelCache.getStatistics());
+
+        DatabaseHandler.deleteApartment(apartmentId);
+    }
+
+    @Test
+    public void testIndexesUsedByLookups() throws Exception {
+        // separate connection, only used to inspect query plans
+        Database database = new Database(getContext());
+        try {
+            SQLiteDatabase db = database.getReadableDatabase();
+            assertQueryPlanUses(db, "SELECT * FROM " + ReceiverTable.TABLE_NAME + " WHERE " + ReceiverTable.COLUMN_ROOM_ID +
+                    "=? ORDER BY " + ReceiverTable.COLUMN_POSITION_IN_ROOM, ReceiverTable.INDEX_ROOM_ID);
+            assertQueryPlanUses(db, "SELECT * FROM " + RoomTable.TABLE_NAME + " WHERE " + RoomTable.COLUMN_NAME +
+                    "=? COLLATE NOCASE", RoomTable.INDEX_NAME);
+            assertQueryPlanUses(db, "SELECT * FROM " + ApartmentTable.TABLE_NAME + " WHERE " + ApartmentTable.COLUMN_NAME +
+                    "=? COLLATE NOCASE", ApartmentTable.INDEX_NAME);
+            assertQueryPlanUses(db, "SELECT * FROM " + SceneItemTable.TABLE_NAME + " WHERE " + SceneItemTable.COLUMN_RECEIVER_ID +
+                    "=?", SceneItemTable.INDEX_RECEIVER_ID);
+        } finally {
+            database.close();
+        }
+    }
+
+    /**
+     * Loads a synthetic dataset of 20 apartments with 1,000 receivers and measures the hot lookups on it
+     */
+    @Test
+    public void testLookupPerformanceOnSyntheticDataset() throws Exception {
+        final int apartmentCount = 20;
+        final int roomsPerApartment = 5;
+        final int receiversPerRoom = 10;
+
+        long start = System.currentTimeMillis();
+        long[] apartmentIds = new long[apartmentCount];
+        for (int i = 0; i < apartmentCount; i++) {
+            apartmentIds[i] = DatabaseHandler.addApartment(new Apartment((long) 0, false, "Synthetic Apartment " + i));
+            for (int j = 0; j < roomsPerApartment; j++) {
+                long roomId = DatabaseHandler.addRoom(new Room((long) 0, apartmentIds[i], "Synthetic Room " + i + "-" + j, j, false));
+                for (int k = 0; k < receiversPerRoom; k++) {
+                    DatabaseHandler.addReceiver(new CMR1000(getContext(), (long) 0, "Receiver " + k, 'A', k + 1, roomId));
+                }
+            }
+        }
+        Log.d("synthetic dataset (" + apartmentCount * roomsPerApartment * receiversPerRoom + " receivers) created in " +
+                (System.currentTimeMillis() - start) + "ms");
+
+        final int iterations = 10;
+        int receiverCount = 0;
+        start = System.currentTimeMillis();
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < apartmentCount; i++) {
+                Long apartmentId = DatabaseHandler.getApartmentId("SYNTHETIC APARTMENT " + i);
+                DatabaseHandler.getApartmentName(apartmentId);
+                for (Long roomId : DatabaseHandler.getRoomIds(apartmentId)) {
+                    receiverCount += DatabaseHandler.getReceiverByRoomId(roomId).size();
+                }
+                DatabaseHandler.getRoomCaseInsensitive("synthetic room " + i + "-0");
+            }
+        }
+        long duration = System.currentTimeMillis() - start;
+        assertEquals(iterations * apartmentCount * roomsPerApartment * receiversPerRoom, receiverCount);
+        Log.d("name lookups and receiver loads: " + duration / iterations + "ms per pass over all apartments");
+
+        for (long apartmentId : apartmentIds) {
+            DatabaseHandler.deleteApartment(apartmentId);
+        }
+    }
+
+    private void assertQueryPlanUses(SQLiteDatabase db, String query, String index) {
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + query, new String[]{"1"});
+        StringBuilder plan = new StringBuilder();
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnCount() - 1)).append("\n");
+        }
+        cursor.close();
+        assertTrue(plan.toString(), plan.toString().contains(index));
+    }
+
+    /**
+     * Runs uncached reads (getReceiverByRoomId/getButtons) on 4 reader threads while another thread keeps writing
+     *
+     * @return time in milliseconds until all readers are finished
+     */
+    private long measureParallelReads(final long roomId, final Long receiverId) throws Exception {
+        final int iterations = 200;
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < iterations; i++) {
+                    try {
+                        DatabaseHandler.setLastActivatedButtonId(receiverId, (long) i);
+                    } catch (Exception e) {
+                        Log.e(e);
+                    }
+                }
+            }
+        });
+
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < iterations; i++) {
+                        try {
+                            DatabaseHandler.getReceiverByRoomId(roomId);
+                            DatabaseHandler.getButtons(receiverId);
+                        } catch (Exception e) {
+                            Log.e(e);
+                        }
+                    }
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        long duration = System.currentTimeMillis() - start;
+        writer.join();
+
+        return duration;
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.receivers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Map;
+
+import eu.power_switch.database.DatabaseTest;
+import eu.power_switch.database.handler.ReceiverFactoryRegistry;
+import eu.power_switch.database.handler.ReceiverReflectionMagic;
+import eu.power_switch.obj.UniversalButton;
+import eu.power_switch.obj.receiver.Receiver;
+
+public class ReceiverFactoryRegistryTest extends DatabaseTest {
+
+    @Test
+    public void testAllModelsRegistered() throws Exception {
+        for (Map.Entry<String, String> entry : Receiver.receiverMap.entrySet()) {
+            assertNotNull("No factory for " + entry.getKey(), ReceiverFactoryRegistry.get(entry.getKey(), null));
+            assertNotNull("No factory for " + entry.getValue(), ReceiverFactoryRegistry.get(null, entry.getValue()));
+        }
+    }
+
+    @Test
+    public void testFactoryMatchesReflection() throws Exception {
+        for (Map.Entry<String, String> entry : Receiver.receiverMap.entrySet()) {
+            Receiver dummy = ReceiverReflectionMagic.getDummy(getContext(), entry.getValue());
+            ReceiverFactoryRegistry.Factory factory = ReceiverFactoryRegistry.get(entry.getKey(), entry.getValue());
+
+            Receiver receiver = null;
+            switch (dummy.getType()) {
+                case DIPS:
+                    receiver = factory.createDipReceiver(getContext(), 1L, "test", new LinkedList<Boolean>(), 1L);
+                    break;
+                case MASTER_SLAVE:
+                    receiver = factory.createMasterSlaveReceiver(getContext(), 1L, "test", 'A', 1, 1L);
+                    break;
+                case AUTOPAIR:
+                    receiver = factory.createAutoPairReceiver(getContext(), 1L, "test", 1L, 1L);
+                    break;
+                case UNIVERSAL:
+                    receiver = factory.createUniversalReceiver(getContext(), 1L, "test", new ArrayList<UniversalButton>(), 1L);
+                    break;
+            }
+
+            assertEquals(dummy.getClass(), receiver.getClass());
+        }
+    }
+}
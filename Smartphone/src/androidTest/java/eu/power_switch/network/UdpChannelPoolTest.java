@@ -0,0 +1,148 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.power_switch.network;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Compares packages/second of the pooled UDP channels against a new socket per package, using a local UDP sink
+ */
+public class UdpChannelPoolTest {
+
+    private static final int PACKAGE_COUNT = 5000;
+    private static final byte[] MESSAGE = "TXP:0,0,10,5600,350,25,1,3,3,1,3,3,1,3,1,3,1,3,1,3,1,3,3,1,3,1,3,1,3,1,3,1,3,1,3,1,3,1,3,1,3,3,1,3,1,3,1,14;".getBytes();
+
+    private DatagramSocket sink;
+    private Thread sinkThread;
+    private final AtomicInteger receivedCount = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        sink = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+        sink.setReceiveBufferSize(1024 * 1024);
+        sink.setSoTimeout(500);
+
+        sinkThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buffer = new byte[1024];
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                while (!sink.isClosed()) {
+                    try {
+                        sink.receive(packet);
+                        receivedCount.incrementAndGet();
+                    } catch (SocketTimeoutException e) {
+                        // check if closed
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            }
+        });
+        sinkThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        sink.close();
+        sinkThread.join();
+    }
+
+    @Test
+    public void testThroughputComparedToSocketPerPackage() throws Exception {
+        int port = sink.getLocalPort();
+
+        // current path: resolve, create, connect, disconnect and close a socket for every package
+        receivedCount.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < PACKAGE_COUNT; i++) {
+            InetAddress host = InetAddress.getByName("127.0.0.1");
+            DatagramSocket socket = new DatagramSocket(null);
+            socket.setReuseAddress(true);
+            socket.connect(host, port);
+            socket.send(new DatagramPacket(MESSAGE, MESSAGE.length, host, port));
+            socket.disconnect();
+            socket.close();
+        }
+        long socketPerPackageNanos = System.nanoTime() - start;
+        Thread.sleep(500);
+        int socketPerPackageReceived = receivedCount.get();
+
+        // pooled path
+        UdpChannelPool udpChannelPool = new UdpChannelPool();
+        receivedCount.set(0);
+        start = System.nanoTime();
+        for (int i = 0; i < PACKAGE_COUNT; i++) {
+            udpChannelPool.send("127.0.0.1", port, MESSAGE);
+        }
+        long pooledNanos = System.nanoTime() - start;
+        Thread.sleep(500);
+        int pooledReceived = receivedCount.get();
+        udpChannelPool.invalidate();
+
+        double socketPerPackageRate = PACKAGE_COUNT / (socketPerPackageNanos / 1e9);
+        double pooledRate = PACKAGE_COUNT / (pooledNanos / 1e9);
+
+        Log.d("socket per package: " + (int) socketPerPackageRate + " packages/s (" + socketPerPackageReceived + " received)");
+        Log.d("pooled channel:     " + (int) pooledRate + " packages/s (" + pooledReceived + " received)");
+
+        Assert.assertTrue(pooledReceived > 0);
+        Assert.assertEquals(0, udpChannelPool.getOpenChannelCount());
+    }
+
+    @Test
+    public void testInvalidateReopensChannel() throws Exception {
+        UdpChannelPool udpChannelPool = new UdpChannelPool();
+        udpChannelPool.send("127.0.0.1", sink.getLocalPort(), MESSAGE);
+        Assert.assertEquals(1, udpChannelPool.getOpenChannelCount());
+
+        udpChannelPool.invalidate();
+        Assert.assertEquals(0, udpChannelPool.getOpenChannelCount());
+
+        udpChannelPool.send("127.0.0.1", sink.getLocalPort(), MESSAGE);
+        Assert.assertEquals(1, udpChannelPool.getOpenChannelCount());
+        udpChannelPool.invalidate();
+    }
+
+    @Test
+    public void testSendBufferKeepsPosition() throws Exception {
+        ByteBuffer payload = ByteBuffer.allocateDirect(MESSAGE.length);
+        payload.put(MESSAGE);
+        payload.flip();
+
+        UdpChannelPool udpChannelPool = new UdpChannelPool();
+        udpChannelPool.send("127.0.0.1", sink.getLocalPort(), payload);
+        udpChannelPool.send("127.0.0.1", sink.getLocalPort(), payload);
+
+        Assert.assertEquals(0, payload.position());
+        Assert.assertEquals(MESSAGE.length, payload.remaining());
+        udpChannelPool.invalidate();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.obj;
+
+import android.os.Debug;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import eu.power_switch.database.handler.ReceiverReflectionMagic;
+import eu.power_switch.obj.button.Button;
+import eu.power_switch.obj.gateway.Gateway;
+import eu.power_switch.obj.receiver.Receiver;
+import eu.power_switch.shared.exception.gateway.GatewayNotSupportedException;
+import eu.power_switch.shared.exception.receiver.ActionNotSupportedException;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Benchmark of signal generation for all receiver models
+ * <p/>
+ * Measures time and allocations per getSignal call, once with generating every signal from scratch
+ * and once with using the signal cache of the receiver.
+ */
+public class ReceiverSignalBenchmarkTest extends ReceiverTest {
+
+    private static final int WARMUP_ITERATIONS = 100;
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void testCachedSignalMatchesGeneratedSignal() throws Exception {
+        for (Map.Entry<String, String> entry : Receiver.receiverMap.entrySet()) {
+            Receiver receiver = ReceiverReflectionMagic.getDummy(getContext(), entry.getValue());
+            for (Gateway gateway : gateways) {
+                for (Button button : receiver.getButtons()) {
+                    try {
+                        String signal = receiver.getSignal(gateway, button.getName());
+                        assertEquals(entry.getKey(), signal, receiver.getCachedSignal(gateway, button.getName()));
+                        assertEquals(entry.getKey(), signal, receiver.getCachedSignal(gateway, button.getName()));
+                    } catch (GatewayNotSupportedException | ActionNotSupportedException e) {
+                        // combination not supported by this model
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void benchmarkGetSignal() throws Exception {
+        for (Map.Entry<String, String> entry : Receiver.receiverMap.entrySet()) {
+            Receiver receiver = ReceiverReflectionMagic.getDummy(getContext(), entry.getValue());
+            for (Gateway gateway : gateways) {
+                List<String> actions = getSupportedActions(receiver, gateway);
+                if (actions.isEmpty()) {
+                    continue;
+                }
+
+                measure(receiver, gateway, actions, false, WARMUP_ITERATIONS);
+                long[] uncached = measure(receiver, gateway, actions, false, ITERATIONS);
+
+                measure(receiver, gateway, actions, true, WARMUP_ITERATIONS);
+                long[] cached = measure(receiver, gateway, actions, true, ITERATIONS);
+
+                Log.d(entry.getKey() + " @ " + gateway.getClass().getSimpleName() + ": " +
+                        "getSignal " + uncached[0] + " ns/op, " + uncached[1] + " allocs/op; " +
+                        "getCachedSignal " + cached[0] + " ns/op, " + cached[1] + " allocs/op");
+            }
+        }
+    }
+
+    private List<String> getSupportedActions(Receiver receiver, Gateway gateway) throws Exception {
+        List<String> actions = new ArrayList<>();
+        for (Button button : receiver.getButtons()) {
+            try {
+                receiver.getSignal(gateway, button.getName());
+                actions.add(button.getName());
+            } catch (GatewayNotSupportedException | ActionNotSupportedException e) {
+                // combination not supported by this model
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * @return array of {ns per operation, allocations per operation}
+     */
+    @SuppressWarnings("deprecation")
+    private long[] measure(Receiver receiver, Gateway gateway, List<String> actions, boolean cached, int iterations) throws Exception {
+        int operations = iterations * actions.size();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String action : actions) {
+                if (cached) {
+                    receiver.getCachedSignal(gateway, action);
+                } else {
+                    receiver.getSignal(gateway, action);
+                }
+            }
+        }
+        long duration = System.nanoTime() - start;
+        Debug.stopAllocCounting();
+
+        return new long[]{duration / operations, Debug.getThreadAllocCount() / operations};
+    }
+}
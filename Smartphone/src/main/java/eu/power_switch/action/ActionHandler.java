@@ -22,17 +22,24 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.design.widget.Snackbar;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import eu.power_switch.R;
+import eu.power_switch.action.tracing.ActionTrace;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.google_play_services.geofence.Geofence;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.history.HistoryItem;
+import eu.power_switch.network.ConnectivityStateHandler;
 import eu.power_switch.network.NetworkHandler;
 import eu.power_switch.network.NetworkPackage;
 import eu.power_switch.obj.Apartment;
@@ -42,16 +49,12 @@ import eu.power_switch.obj.SceneItem;
 import eu.power_switch.obj.button.Button;
 import eu.power_switch.obj.gateway.Gateway;
 import eu.power_switch.obj.receiver.Receiver;
-import eu.power_switch.settings.SmartphonePreferencesHandler;
 import eu.power_switch.shared.constants.AlarmClockConstants;
 import eu.power_switch.shared.constants.SleepAsAndroidConstants;
 import eu.power_switch.shared.exception.gateway.GatewayNotSupportedException;
 import eu.power_switch.shared.exception.receiver.ActionNotSupportedException;
 import eu.power_switch.shared.log.Log;
-import eu.power_switch.shared.settings.WearablePreferencesHandler;
 import eu.power_switch.timer.Timer;
-import eu.power_switch.wear.service.UtilityService;
-import eu.power_switch.widget.provider.ReceiverWidgetProvider;
 
 /**
  * Created by Markus on 05.12.2015.
@@ -64,13 +67,15 @@ public class ActionHandler {
      * @param context  any suitable context
      * @param receiver receiver to execute on
      * @param button   button to activate
+     * @return true if the action has been sent to at least one Gateway
      */
-    public static void execute(@NonNull Context context, @NonNull Receiver receiver, @NonNull Button button) {
+    public static boolean execute(@NonNull Context context, @NonNull Receiver receiver, @NonNull Button button) {
         try {
-            executeReceiverAction(context, receiver, button);
+            boolean sent = executeReceiverAction(context, receiver, button);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.receiver_action_history_text, receiver.getName(), button.getName())));
+            return sent;
         } catch (ActionNotSupportedException e) {
             Log.e("Action not supported by Receiver!", e);
             StatusMessageHandler.showInfoMessage(context,
@@ -87,50 +92,46 @@ public class ActionHandler {
                 Log.e(e1);
             }
         }
+        return false;
     }
 
-    private static void executeReceiverAction(@NonNull Context context, @NonNull Receiver receiver, @NonNull Button button) throws Exception {
-        NetworkHandler.init(context);
+    private static boolean executeReceiverAction(@NonNull Context context, @NonNull Receiver receiver, @NonNull Button button) throws Exception {
+        ActionTrace trace = ActionTracer.start();
+        try {
+            NetworkHandler.init(context);
 
-        List<NetworkPackage> networkPackages = new ArrayList<>();
-        Apartment apartment = DatabaseHandler.getContainingApartment(receiver);
+            List<NetworkPackage> networkPackages = new ArrayList<>();
+            Apartment apartment = DatabaseHandler.getContainingApartment(receiver);
+            List<Gateway> activeGateways = getActiveGateways(apartment);
 
-        if (apartment.getAssociatedGateways().isEmpty()) {
-            StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
-                    Snackbar.LENGTH_LONG);
-            return;
-        } else {
-            boolean hasActiveGateway = false;
-            for (Gateway gateway : apartment.getAssociatedGateways()) {
-                if (gateway.isActive()) {
-                    hasActiveGateway = true;
-                    break;
-                }
-            }
-
-            if (!hasActiveGateway) {
+            if (apartment.getAssociatedGateways().isEmpty()) {
+                StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
+                        Snackbar.LENGTH_LONG);
+                return false;
+            } else if (activeGateways.isEmpty()) {
                 StatusMessageHandler.showInfoMessage(context, R.string.no_active_gateway, Snackbar.LENGTH_LONG);
-                return;
+                return false;
             }
-        }
+            trace.lookupDone();
 
-        for (Gateway gateway : apartment.getAssociatedGateways()) {
-            if (gateway.isActive()) {
-                networkPackages.add(getNetworkPackage(apartment, gateway, receiver, button));
+            List<Receiver> unavailableReceivers = new ArrayList<>();
+            if (!addNetworkPackages(networkPackages, apartment, activeGateways, receiver, button, unavailableReceivers)) {
+                showPreferredGatewayUnavailable(context, unavailableReceivers);
+                return false;
             }
-        }
 
-        NetworkHandler.send(networkPackages);
-
-        // set on object, as well as in database
-        receiver.setLastActivatedButtonId(button.getId());
-        DatabaseHandler.setLastActivatedButtonId(receiver.getId(), button.getId());
-
-        if (SmartphonePreferencesHandler.getHighlightLastActivatedButton()) {
-            ReceiverWidgetProvider.forceWidgetUpdate(context);
-        }
-        if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
-            UtilityService.forceWearDataUpdate(context);
+            send(networkPackages, trace);
+            trace = null;
+
+            // set on object, as well as in database
+            receiver.setLastActivatedButtonId(button.getId());
+            LastActivatedButtonWriter.write(context, Collections.singletonMap(receiver.getId(), button.getId()));
+            return true;
+        } finally {
+            if (trace != null) {
+                // action was not handed to the network queue
+                ActionTracer.abort(trace);
+            }
         }
     }
 
@@ -163,13 +164,15 @@ public class ActionHandler {
      * @param context  any suitable context
      * @param room     room to execute on
      * @param buttonId button ID to execute on each receiver
+     * @return true if the action has been sent to at least one Gateway
      */
-    public static void execute(@NonNull Context context, @NonNull Room room, @NonNull long buttonId) {
+    public static boolean execute(@NonNull Context context, @NonNull Room room, @NonNull long buttonId) {
         try {
-            executeRoomAction(context, room, buttonId);
+            boolean sent = executeRoomAction(context, room, buttonId);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.room_action_history_text, room.getName(), Button.getName(context, buttonId))));
+            return sent;
         } catch (Exception e) {
             StatusMessageHandler.showErrorMessage(context, e);
             try {
@@ -178,139 +181,137 @@ public class ActionHandler {
                 Log.e(e1);
             }
         }
+        return false;
     }
 
     private static void executeRoomAction(@NonNull Context context, @NonNull Room room, @NonNull String buttonName) throws Exception {
-        NetworkHandler.init(context);
-
-        Apartment apartment = DatabaseHandler.getContainingApartment(room);
-        if (apartment.getAssociatedGateways().isEmpty()) {
-            StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
-                    Snackbar.LENGTH_LONG);
-            return;
-        } else {
-            boolean hasActiveGateway = false;
-            for (Gateway gateway : apartment.getAssociatedGateways()) {
-                if (gateway.isActive()) {
-                    hasActiveGateway = true;
-                    break;
-                }
-            }
+        ActionTrace trace = ActionTracer.start();
+        try {
+            NetworkHandler.init(context);
 
-            if (!hasActiveGateway) {
+            Apartment apartment = DatabaseHandler.getContainingApartment(room);
+            List<Gateway> activeGateways = getActiveGateways(apartment);
+            if (apartment.getAssociatedGateways().isEmpty()) {
+                StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
+                        Snackbar.LENGTH_LONG);
+                return;
+            } else if (activeGateways.isEmpty()) {
                 StatusMessageHandler.showInfoMessage(context, R.string.no_active_gateway, Snackbar.LENGTH_LONG);
                 return;
             }
-        }
-
-        List<NetworkPackage> networkPackages = new ArrayList<>();
-        for (Receiver receiver : room.getReceivers()) {
-            try {
-                Button button = receiver.getButtonCaseInsensitive(buttonName);
-                for (Gateway gateway : apartment.getAssociatedGateways()) {
-                    if (gateway.isActive()) {
-                        try {
-                            networkPackages.add(getNetworkPackage(apartment, gateway, receiver, button));
-
+            trace.lookupDone();
+
+            List<NetworkPackage> networkPackages = new ArrayList<>();
+            List<Receiver> unavailableReceivers = new ArrayList<>();
+            Map<Long, Long> lastActivatedButtonIds = new HashMap<>();
+            for (Receiver receiver : room.getReceivers()) {
+                try {
+                    Button button = receiver.getButtonCaseInsensitive(buttonName);
+                    try {
+                        if (addNetworkPackages(networkPackages, apartment, activeGateways, receiver, button,
+                                unavailableReceivers)) {
                             // set on object, as well as in database
                             receiver.setLastActivatedButtonId(button.getId());
-                            DatabaseHandler.setLastActivatedButtonId(receiver.getId(), button.getId());
-                        } catch (ActionNotSupportedException e) {
-                            Log.e("Action not supported by Receiver!", e);
-                            StatusMessageHandler.showInfoMessage(context,
-                                    context.getString(R.string.action_not_supported_by_receiver), 5000);
-                        } catch (GatewayNotSupportedException e) {
-                            Log.e("Gateway not supported by Receiver!", e);
-                            StatusMessageHandler.showInfoMessage(context,
-                                    context.getString(R.string.gateway_not_supported_by_receiver), 5000);
+                            lastActivatedButtonIds.put(receiver.getId(), button.getId());
                         }
+                    } catch (ActionNotSupportedException e) {
+                        Log.e("Action not supported by Receiver!", e);
+                        StatusMessageHandler.showInfoMessage(context,
+                                context.getString(R.string.action_not_supported_by_receiver), 5000);
+                    } catch (GatewayNotSupportedException e) {
+                        Log.e("Gateway not supported by Receiver!", e);
+                        StatusMessageHandler.showInfoMessage(context,
+                                context.getString(R.string.gateway_not_supported_by_receiver), 5000);
                     }
+                } catch (NoSuchElementException e) {
+                    // ignore if Receiver doesnt support this action
                 }
-            } catch (NoSuchElementException e) {
-                // ignore if Receiver doesnt support this action
             }
-        }
-
-        if (networkPackages.size() <= 0) {
-            Log.d(context.getString(R.string.no_receiver_supports_this_action));
-            StatusMessageHandler.showInfoMessage(context,
-                    context.getString(R.string.no_receiver_supports_this_action), Snackbar.LENGTH_LONG);
-        } else {
-            NetworkHandler.send(networkPackages);
-        }
 
-        if (SmartphonePreferencesHandler.getHighlightLastActivatedButton()) {
-            ReceiverWidgetProvider.forceWidgetUpdate(context);
-        }
-        if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
-            UtilityService.forceWearDataUpdate(context);
-        }
-    }
-
-    private static void executeRoomAction(@NonNull Context context, @NonNull Room room, @NonNull long buttonId) throws Exception {
-        NetworkHandler.init(context);
-
-        Apartment apartment = DatabaseHandler.getContainingApartment(room);
-        if (apartment.getAssociatedGateways().isEmpty()) {
-            StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
-                    Snackbar.LENGTH_LONG);
-            return;
-        } else {
-            boolean hasActiveGateway = false;
-            for (Gateway gateway : apartment.getAssociatedGateways()) {
-                if (gateway.isActive()) {
-                    hasActiveGateway = true;
-                    break;
+            if (networkPackages.size() <= 0) {
+                if (unavailableReceivers.isEmpty()) {
+                    Log.d(context.getString(R.string.no_receiver_supports_this_action));
+                    StatusMessageHandler.showInfoMessage(context,
+                            context.getString(R.string.no_receiver_supports_this_action), Snackbar.LENGTH_LONG);
                 }
+            } else {
+                send(networkPackages, trace);
+                trace = null;
             }
+            showPreferredGatewayUnavailable(context, unavailableReceivers);
 
-            if (!hasActiveGateway) {
-                StatusMessageHandler.showInfoMessage(context, R.string.no_active_gateway, Snackbar.LENGTH_LONG);
-                return;
+            LastActivatedButtonWriter.write(context, lastActivatedButtonIds);
+        } finally {
+            if (trace != null) {
+                // action was not handed to the network queue
+                ActionTracer.abort(trace);
             }
         }
+    }
 
-        List<NetworkPackage> networkPackages = new ArrayList<>();
-        for (Receiver receiver : room.getReceivers()) {
-            try {
-                Button button = receiver.getButton(buttonId);
-                for (Gateway gateway : apartment.getAssociatedGateways()) {
-                    if (gateway.isActive()) {
-                        try {
-                            networkPackages.add(getNetworkPackage(apartment, gateway, receiver, button));
-                        } catch (ActionNotSupportedException e) {
-                            Log.e("Action not supported by Receiver!", e);
-                            StatusMessageHandler.showInfoMessage(context,
-                                    context.getString(R.string.action_not_supported_by_receiver), 5000);
-                        } catch (GatewayNotSupportedException e) {
-                            Log.e("Gateway not supported by Receiver!", e);
-                            StatusMessageHandler.showInfoMessage(context,
-                                    context.getString(R.string.gateway_not_supported_by_receiver), 5000);
+    private static boolean executeRoomAction(@NonNull Context context, @NonNull Room room, @NonNull long buttonId) throws Exception {
+        ActionTrace trace = ActionTracer.start();
+        try {
+            NetworkHandler.init(context);
+
+            Apartment apartment = DatabaseHandler.getContainingApartment(room);
+            List<Gateway> activeGateways = getActiveGateways(apartment);
+            if (apartment.getAssociatedGateways().isEmpty()) {
+                StatusMessageHandler.showInfoMessage(context, R.string.apartment_has_no_associated_gateways,
+                        Snackbar.LENGTH_LONG);
+                return false;
+            } else if (activeGateways.isEmpty()) {
+                StatusMessageHandler.showInfoMessage(context, R.string.no_active_gateway, Snackbar.LENGTH_LONG);
+                return false;
+            }
+            trace.lookupDone();
+
+            List<NetworkPackage> networkPackages = new ArrayList<>();
+            List<Receiver> unavailableReceivers = new ArrayList<>();
+            Map<Long, Long> lastActivatedButtonIds = new HashMap<>();
+            for (Receiver receiver : room.getReceivers()) {
+                try {
+                    Button button = receiver.getButton(buttonId);
+                    try {
+                        if (addNetworkPackages(networkPackages, apartment, activeGateways, receiver, button,
+                                unavailableReceivers)) {
+                            // set on object, as well as in database
+                            receiver.setLastActivatedButtonId(button.getId());
+                            lastActivatedButtonIds.put(receiver.getId(), button.getId());
                         }
+                    } catch (ActionNotSupportedException e) {
+                        Log.e("Action not supported by Receiver!", e);
+                        StatusMessageHandler.showInfoMessage(context,
+                                context.getString(R.string.action_not_supported_by_receiver), 5000);
+                    } catch (GatewayNotSupportedException e) {
+                        Log.e("Gateway not supported by Receiver!", e);
+                        StatusMessageHandler.showInfoMessage(context,
+                                context.getString(R.string.gateway_not_supported_by_receiver), 5000);
                     }
+                } catch (NoSuchElementException e) {
+                    // ignore if Receiver doesnt support this action
                 }
-
-                // set on object, as well as in database
-                receiver.setLastActivatedButtonId(button.getId());
-                DatabaseHandler.setLastActivatedButtonId(receiver.getId(), button.getId());
-            } catch (NoSuchElementException e) {
-                // ignore if Receiver doesnt support this action
             }
-        }
 
-        if (networkPackages.size() <= 0) {
-            Log.d(context.getString(R.string.no_receiver_supports_this_action));
-            StatusMessageHandler.showInfoMessage(context,
-                    context.getString(R.string.no_receiver_supports_this_action), Snackbar.LENGTH_LONG);
-        } else {
-            NetworkHandler.send(networkPackages);
-        }
-
-        if (SmartphonePreferencesHandler.getHighlightLastActivatedButton()) {
-            ReceiverWidgetProvider.forceWidgetUpdate(context);
-        }
-        if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
-            UtilityService.forceWearDataUpdate(context);
+            if (networkPackages.size() <= 0) {
+                if (unavailableReceivers.isEmpty()) {
+                    Log.d(context.getString(R.string.no_receiver_supports_this_action));
+                    StatusMessageHandler.showInfoMessage(context,
+                            context.getString(R.string.no_receiver_supports_this_action), Snackbar.LENGTH_LONG);
+                }
+            } else {
+                send(networkPackages, trace);
+                trace = null;
+            }
+            showPreferredGatewayUnavailable(context, unavailableReceivers);
+
+            LastActivatedButtonWriter.write(context, lastActivatedButtonIds);
+            return !networkPackages.isEmpty();
+        } finally {
+            if (trace != null) {
+                // action was not handed to the network queue
+                ActionTracer.abort(trace);
+            }
         }
     }
 
@@ -319,13 +320,15 @@ public class ActionHandler {
      *
      * @param context any suitable context
      * @param scene   scene to execute
+     * @return true if the action has been sent to at least one Gateway
      */
-    public static void execute(@NonNull Context context, @NonNull Scene scene) {
+    public static boolean execute(@NonNull Context context, @NonNull Scene scene) {
         try {
-            executeScene(context, scene);
+            boolean sent = executeScene(context, scene);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.scene_action_history_text, scene.getName())));
+            return sent;
         } catch (Exception e) {
             StatusMessageHandler.showErrorMessage(context, e);
             try {
@@ -334,53 +337,58 @@ public class ActionHandler {
                 Log.e(e1);
             }
         }
+        return false;
     }
 
-    private static void executeScene(@NonNull Context context, @NonNull Scene scene) throws Exception {
-        NetworkHandler.init(context);
+    private static boolean executeScene(@NonNull Context context, @NonNull Scene scene) throws Exception {
+        ActionTrace trace = ActionTracer.start();
+        try {
+            NetworkHandler.init(context);
 
-        List<NetworkPackage> networkPackages = new ArrayList<>();
+            List<NetworkPackage> networkPackages = new ArrayList<>();
 
-        Apartment apartment = DatabaseHandler.getContainingApartment(scene);
-        if (apartment.getAssociatedGateways().isEmpty()) {
-            StatusMessageHandler.showInfoMessage(context,
-                    R.string.apartment_has_no_associated_gateways, Snackbar.LENGTH_LONG);
-            return;
-        } else {
-            boolean hasActiveGateway = false;
-            for (Gateway gateway : apartment.getAssociatedGateways()) {
-                if (gateway.isActive()) {
-                    hasActiveGateway = true;
-                    break;
-                }
-            }
-
-            if (!hasActiveGateway) {
+            Apartment apartment = DatabaseHandler.getContainingApartment(scene);
+            List<Gateway> activeGateways = getActiveGateways(apartment);
+            if (apartment.getAssociatedGateways().isEmpty()) {
+                StatusMessageHandler.showInfoMessage(context,
+                        R.string.apartment_has_no_associated_gateways, Snackbar.LENGTH_LONG);
+                return false;
+            } else if (activeGateways.isEmpty()) {
                 StatusMessageHandler.showInfoMessage(context, R.string.no_active_gateway, Snackbar.LENGTH_LONG);
-                return;
+                return false;
             }
-        }
-
-        for (SceneItem sceneItem : scene.getSceneItems()) {
-            for (Gateway gateway : apartment.getAssociatedGateways()) {
-                if (gateway.isActive()) {
-                    networkPackages.add(getNetworkPackage(apartment, gateway, sceneItem.getReceiver(), sceneItem.getActiveButton()));
+            trace.lookupDone();
 
+            List<Receiver> unavailableReceivers = new ArrayList<>();
+            Map<Long, Long> lastActivatedButtonIds = new HashMap<>();
+            for (SceneItem sceneItem : scene.getSceneItems()) {
+                if (addNetworkPackages(networkPackages, apartment, activeGateways,
+                        sceneItem.getReceiver(), sceneItem.getActiveButton(), unavailableReceivers)) {
                     // set on object, as well as in database
                     sceneItem.getReceiver().setLastActivatedButtonId(sceneItem.getActiveButton().getId());
-                    DatabaseHandler.setLastActivatedButtonId(sceneItem.getReceiver()
-                            .getId(), sceneItem.getActiveButton().getId());
+                    lastActivatedButtonIds.put(sceneItem.getReceiver().getId(), sceneItem.getActiveButton().getId());
                 }
             }
-        }
-
-        NetworkHandler.send(networkPackages);
 
-        if (SmartphonePreferencesHandler.getHighlightLastActivatedButton()) {
-            ReceiverWidgetProvider.forceWidgetUpdate(context);
-        }
-        if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
-            UtilityService.forceWearDataUpdate(context);
+            if (networkPackages.size() <= 0) {
+                if (unavailableReceivers.isEmpty()) {
+                    Log.d(context.getString(R.string.no_receiver_supports_this_action));
+                    StatusMessageHandler.showInfoMessage(context,
+                            context.getString(R.string.no_receiver_supports_this_action), Snackbar.LENGTH_LONG);
+                }
+            } else {
+                send(networkPackages, trace);
+                trace = null;
+            }
+            showPreferredGatewayUnavailable(context, unavailableReceivers);
+
+            LastActivatedButtonWriter.write(context, lastActivatedButtonIds);
+            return !networkPackages.isEmpty();
+        } finally {
+            if (trace != null) {
+                // action was not handed to the network queue
+                ActionTracer.abort(trace);
+            }
         }
     }
 
@@ -392,7 +400,7 @@ public class ActionHandler {
      */
     public static void execute(@NonNull Context context, @NonNull Timer timer) {
         try {
-            executeActions(context, timer.getActions());
+            executeActions(context, timer.getActions(), ActionTracer.Source.TIMER);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.timer_action_history_text, timer.getName())));
@@ -415,7 +423,7 @@ public class ActionHandler {
     public static void execute(@NonNull Context context, @NonNull SleepAsAndroidConstants.SLEEP_AS_ANDROID_ALARM_EVENT event) {
         try {
             List<Action> actions = DatabaseHandler.getAlarmActions(event);
-            executeActions(context, actions);
+            executeActions(context, actions, ActionTracer.Source.SLEEP_AS_ANDROID);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.sleep_as_android_action_history_text, event.toString())));
@@ -438,7 +446,7 @@ public class ActionHandler {
     public static void execute(@NonNull Context context, @NonNull AlarmClockConstants.Event event) {
         try {
             List<Action> actions = DatabaseHandler.getAlarmActions(event);
-            executeActions(context, actions);
+            executeActions(context, actions, ActionTracer.Source.ALARM_CLOCK);
 
             HistoryHelper.add(context, new HistoryItem((long) -1, Calendar.getInstance(),
                     context.getString(R.string.alarm_clock_action_history_text, event.toString())));
@@ -461,7 +469,7 @@ public class ActionHandler {
      */
     public static void execute(@NonNull Context context, @NonNull Geofence geofence, @NonNull Geofence.EventType eventType) {
         try {
-            executeActions(context, geofence.getActions(eventType));
+            executeActions(context, geofence.getActions(eventType), ActionTracer.Source.GEOFENCE);
 
             HistoryItem historyItem;
             if (Geofence.EventType.ENTER.equals(eventType)) {
@@ -486,78 +494,182 @@ public class ActionHandler {
         }
     }
 
-    private static void executeActions(@NonNull Context context, @NonNull List<Action> actions) throws Exception {
-        for (Action action : actions) {
-            switch (action.getActionType()) {
-                case Action.ACTION_TYPE_RECEIVER:
-                    ReceiverAction receiverAction = (ReceiverAction) action;
-                    executeReceiverAction(context, receiverAction.getReceiver(), receiverAction.getButton());
-                    break;
-                case Action.ACTION_TYPE_ROOM:
-                    RoomAction roomAction = (RoomAction) action;
-                    executeRoomAction(context, roomAction.getRoom(), roomAction.getButtonName());
-                    break;
-                case Action.ACTION_TYPE_SCENE:
-                    SceneAction sceneAction = (SceneAction) action;
-                    executeScene(context, sceneAction.getScene());
+    private static void executeActions(@NonNull Context context, @NonNull List<Action> actions,
+                                       @NonNull ActionTracer.Source source) throws Exception {
+        ActionTracer.markTrigger(source);
+        try {
+            for (Action action : actions) {
+                switch (action.getActionType()) {
+                    case Action.ACTION_TYPE_RECEIVER:
+                        ReceiverAction receiverAction = (ReceiverAction) action;
+                        executeReceiverAction(context, receiverAction.getReceiver(), receiverAction.getButton());
+                        break;
+                    case Action.ACTION_TYPE_ROOM:
+                        RoomAction roomAction = (RoomAction) action;
+                        executeRoomAction(context, roomAction.getRoom(), roomAction.getButtonName());
+                        break;
+                    case Action.ACTION_TYPE_SCENE:
+                        SceneAction sceneAction = (SceneAction) action;
+                        executeScene(context, sceneAction.getScene());
+                        break;
+                }
+            }
+        } finally {
+            ActionTracer.clearTrigger();
+        }
+    }
+
+    /**
+     * Hand NetworkPackages of a traced action to the network queue
+     * <p/>
+     * The trace must not be used by the caller afterwards.
+     *
+     * @param networkPackages packages of the action
+     * @param trace           trace of the action
+     */
+    private static void send(List<NetworkPackage> networkPackages, ActionTrace trace) {
+        for (NetworkPackage networkPackage : networkPackages) {
+            networkPackage.setTrace(trace);
+        }
+        trace.signalDone(networkPackages.size());
+        NetworkHandler.send(networkPackages);
+    }
+
+    /**
+     * Get all active Gateways of an Apartment
+     *
+     * @param apartment Apartment
+     * @return active Gateways
+     */
+    private static List<Gateway> getActiveGateways(Apartment apartment) {
+        List<Gateway> activeGateways = new ArrayList<>(apartment.getAssociatedGateways().size());
+        for (Gateway gateway : apartment.getAssociatedGateways()) {
+            if (gateway.isActive()) {
+                activeGateways.add(gateway);
+            }
+        }
+        return activeGateways;
+    }
+
+    /**
+     * Add the NetworkPackages of a Receiver action, honouring the gateway affinity of the Receiver
+     * <p/>
+     * A Receiver with a preferred Gateway is only sent to that Gateway. If it is not active, not associated with
+     * the Apartment or not supported by the Receiver, the Receiver is sent to all active Gateways if its broadcast
+     * fallback is enabled and not sent at all otherwise. Receivers without a preferred Gateway are sent to all
+     * active Gateways supporting them.
+     * <p/>
+     * Receivers that are not sent because of an unavailable preferred Gateway are collected, so the caller can
+     * report them once per action (see {@link #showPreferredGatewayUnavailable(Context, List)}).
+     *
+     * @param networkPackages      list to add the NetworkPackages to
+     * @param apartment            Apartment of the Receiver
+     * @param activeGateways       active Gateways of the Apartment
+     * @param receiver             Receiver
+     * @param button               Button to activate
+     * @param unavailableReceivers list to add the Receiver to if its preferred Gateway is unavailable
+     * @return true if at least one NetworkPackage was added
+     * @throws GatewayNotSupportedException if none of the Gateways is supported by the Receiver
+     * @throws ActionNotSupportedException  if the Button is not supported by the Receiver
+     */
+    private static boolean addNetworkPackages(List<NetworkPackage> networkPackages, Apartment apartment,
+                                              List<Gateway> activeGateways, Receiver receiver, Button button,
+                                              List<Receiver> unavailableReceivers) throws Exception {
+        Long preferredGatewayId = receiver.getPreferredGatewayId();
+        if (preferredGatewayId != null) {
+            for (Gateway gateway : activeGateways) {
+                if (preferredGatewayId.equals(gateway.getId())) {
+                    try {
+                        networkPackages.add(getNetworkPackage(apartment, gateway, receiver, button));
+                        return true;
+                    } catch (GatewayNotSupportedException e) {
+                        if (!receiver.isBroadcastFallback()) {
+                            throw e;
+                        }
+                    }
                     break;
+                }
+            }
+
+            if (!receiver.isBroadcastFallback()) {
+                unavailableReceivers.add(receiver);
+                return false;
+            }
+            Log.d(ActionHandler.class, "Preferred Gateway of %s unavailable, sending to all active Gateways", receiver.getName());
+        }
+
+        GatewayNotSupportedException notSupportedException = null;
+        boolean added = false;
+        for (Gateway gateway : activeGateways) {
+            try {
+                networkPackages.add(getNetworkPackage(apartment, gateway, receiver, button));
+                added = true;
+            } catch (GatewayNotSupportedException e) {
+                notSupportedException = e;
             }
         }
+
+        if (!added && notSupportedException != null) {
+            throw notSupportedException;
+        }
+        return added;
+    }
+
+    /**
+     * Show a single message for all Receivers of an action that were not sent because their preferred Gateway is
+     * unavailable
+     *
+     * @param context              any suitable context
+     * @param unavailableReceivers Receivers that were not sent
+     */
+    private static void showPreferredGatewayUnavailable(Context context, List<Receiver> unavailableReceivers) {
+        if (unavailableReceivers.isEmpty()) {
+            return;
+        }
+
+        String message;
+        if (unavailableReceivers.size() == 1) {
+            message = context.getString(R.string.preferred_gateway_unavailable, unavailableReceivers.get(0).getName());
+        } else {
+            message = context.getString(R.string.preferred_gateways_unavailable, unavailableReceivers.size());
+        }
+        StatusMessageHandler.showInfoMessage(context, message, Snackbar.LENGTH_LONG);
     }
 
     private static NetworkPackage getNetworkPackage(Apartment apartment, Gateway gateway, Receiver receiver, Button button) throws Exception {
-        String signal = receiver.getSignal(gateway, button.getName());
+        ByteBuffer signal = receiver.getEncodedSignal(gateway, button.getName());
 
+        NetworkPackage networkPackage;
         if (gateway.hasValidLocalAddress() && !gateway.hasValidWanAddress()) {
             // only valid local address
             Log.d("Using local address");
-            return getLocalNetworkPackage(gateway, signal);
+            networkPackage = getLocalNetworkPackage(gateway, signal);
         } else if (!gateway.hasValidLocalAddress() && gateway.hasValidWanAddress()) {
             // only valid WAN address
             Log.d("Using WAN address");
-            return getWanNetworkPackage(gateway, signal);
+            networkPackage = getWanNetworkPackage(gateway, signal);
         } else if (gateway.hasValidLocalAddress() && gateway.hasValidWanAddress()) {
             // decide if local or WAN address should be used
-            if (NetworkHandler.isWifiConnected() || NetworkHandler.isEthernetConnected()) {
-                if (NetworkHandler.isInternetConnected()) {
-                    if (!gateway.getSsids().isEmpty()) {
-                        if (gateway.getSsids().contains(NetworkHandler.getConnectedWifiSSID())) {
-                            Log.d("Using local address, connected to SSID specified in Gateway");
-                            return getLocalNetworkPackage(gateway, signal);
-                        } else {
-                            Log.d("Using WAN address, connected to unspecified SSID");
-                            return getWanNetworkPackage(gateway, signal);
-                        }
-                    } else {
-                        if (apartment.getGeofence() != null &&
-                                apartment.getGeofence().isActive() &&
-                                Geofence.STATE_INSIDE.equals(apartment.getGeofence().getState())) {
-                            Log.d("Using local address, inside geofence");
-                            return getLocalNetworkPackage(gateway, signal);
-                        } else {
-                            Log.d("Using WAN address, outside or missing geofence data");
-                            return getWanNetworkPackage(gateway, signal);
-                        }
-                    }
-                } else {
-                    Log.d("Using local address, no WAN (Internet connection) available");
-                    return getLocalNetworkPackage(gateway, signal);
-                }
+            if (ConnectivityStateHandler.shouldUseLocalAddress(apartment, gateway)) {
+                networkPackage = getLocalNetworkPackage(gateway, signal);
             } else {
-                Log.d("Using WAN address, no WiFi or LAN available");
-                return getWanNetworkPackage(gateway, signal);
+                networkPackage = getWanNetworkPackage(gateway, signal);
             }
         } else {
             throw new Exception("Invalid Gateway configuration!");
         }
+
+        // allows the queue to supersede older, unsent packages for the same receiver
+        networkPackage.setReceiverId(receiver.getId());
+        return networkPackage;
     }
 
-    private static NetworkPackage getLocalNetworkPackage(Gateway gateway, String signal) {
+    private static NetworkPackage getLocalNetworkPackage(Gateway gateway, ByteBuffer signal) {
         return new NetworkPackage(gateway.getCommunicationType(),
                 gateway.getLocalHost(), gateway.getLocalPort(), signal, gateway.getTimeout());
     }
 
-    private static NetworkPackage getWanNetworkPackage(Gateway gateway, String signal) {
+    private static NetworkPackage getWanNetworkPackage(Gateway gateway, ByteBuffer signal) {
         return new NetworkPackage(gateway.getCommunicationType(),
                 gateway.getWanHost(), gateway.getWanPort(), signal, gateway.getTimeout());
     }
@@ -0,0 +1,112 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.power_switch.action;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.settings.SmartphonePreferencesHandler;
+import eu.power_switch.shared.log.Log;
+import eu.power_switch.shared.settings.WearablePreferencesHandler;
+import eu.power_switch.wear.service.UtilityService;
+import eu.power_switch.widget.provider.ReceiverWidgetProvider;
+
+/**
+ * Collects "last activated button" updates of executed actions and writes them to the database in the background
+ * <p/>
+ * All updates that arrive before a pending write has started are merged into it, so repeated updates of the same
+ * Receiver collapse into one and a whole room or scene action is committed in a single transaction.
+ * Widgets and the wearable are updated after each write.
+ */
+public class LastActivatedButtonWriter {
+
+    /**
+     * Receiver ID -> ID of last activated Button, waiting to be written
+     */
+    private static final Map<Long, Long> pendingLastActivatedButtonIds = new HashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private static boolean writeScheduled = false;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private LastActivatedButtonWriter() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Queue updates of last activated Buttons
+     *
+     * @param context                any suitable context
+     * @param lastActivatedButtonIds Map of Receiver ID -> ID of last activated Button
+     */
+    public static void write(@NonNull Context context, @NonNull Map<Long, Long> lastActivatedButtonIds) {
+        if (lastActivatedButtonIds.isEmpty()) {
+            return;
+        }
+
+        final Context applicationContext = context.getApplicationContext();
+
+        synchronized (pendingLastActivatedButtonIds) {
+            pendingLastActivatedButtonIds.putAll(lastActivatedButtonIds);
+            if (writeScheduled) {
+                return;
+            }
+            writeScheduled = true;
+        }
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                flush(applicationContext);
+            }
+        });
+    }
+
+    private static void flush(Context context) {
+        Map<Long, Long> lastActivatedButtonIds;
+        synchronized (pendingLastActivatedButtonIds) {
+            lastActivatedButtonIds = new HashMap<>(pendingLastActivatedButtonIds);
+            pendingLastActivatedButtonIds.clear();
+            writeScheduled = false;
+        }
+
+        try {
+            DatabaseHandler.setLastActivatedButtonIds(lastActivatedButtonIds);
+        } catch (Exception e) {
+            Log.e(e);
+        }
+
+        if (SmartphonePreferencesHandler.getHighlightLastActivatedButton()) {
+            ReceiverWidgetProvider.forceWidgetUpdate(context);
+        }
+        if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
+            UtilityService.forceWearDataUpdate(context);
+        }
+    }
+}
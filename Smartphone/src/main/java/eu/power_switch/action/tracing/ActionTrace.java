@@ -0,0 +1,86 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.action.tracing;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timestamps of a single action on its way from the trigger to the Gateways
+ * <p/>
+ * Instances are pooled by {@link ActionTracer} and reused, so they must not be referenced after the action has
+ * completed. All timestamps are taken from {@link System#nanoTime()}.
+ */
+public class ActionTrace {
+
+    /**
+     * Shared instance used when tracing is not possible, ignores all calls
+     */
+    static final ActionTrace NOOP = new ActionTrace();
+
+    final AtomicBoolean inUse = new AtomicBoolean();
+    final AtomicInteger pendingPackages = new AtomicInteger();
+
+    ActionTracer.Source source;
+    long triggerTime;
+    long startTime;
+    long lookupTime;
+    long signalTime;
+    volatile boolean failed;
+
+    ActionTrace() {
+    }
+
+    /**
+     * Mark the end of all database lookups needed for this action
+     */
+    public void lookupDone() {
+        if (this != NOOP) {
+            lookupTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Mark the end of signal generation, all packages of this action are handed to the network queue afterwards
+     *
+     * @param packageCount number of packages that will be sent for this action
+     */
+    public void signalDone(int packageCount) {
+        if (this == NOOP) {
+            return;
+        }
+
+        signalTime = System.nanoTime();
+        if (packageCount <= 0) {
+            ActionTracer.abort(this);
+        } else {
+            pendingPackages.set(packageCount);
+        }
+    }
+
+    void reset() {
+        source = null;
+        triggerTime = 0;
+        startTime = 0;
+        lookupTime = 0;
+        signalTime = 0;
+        failed = false;
+        pendingPackages.set(0);
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.action.tracing;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import eu.power_switch.network.NetworkPackage;
+
+/**
+ * Lightweight tracing of actions from their trigger (widget, wearable, NFC tag, ...) through ActionHandler and the
+ * network queue to the final send, aggregated into latency histograms
+ * <p/>
+ * Trigger entry points call {@link #markTrigger(Source)} on the thread that will execute the action and
+ * {@link #clearTrigger()} when they are done. ActionHandler starts a trace for every executed action and marks its
+ * stages, the network lanes report every sent or discarded package. Traces are taken from a fixed pool, so tracing
+ * does not allocate while an action is executed.
+ * <p/>
+ * Stages:
+ * <ul>
+ * <li>DISPATCH: trigger to start of action execution (including name resolution)</li>
+ * <li>LOOKUP: database lookups of the action target and its Gateways</li>
+ * <li>SIGNAL: generation of all network packages</li>
+ * <li>QUEUE: time a package waited in its lane</li>
+ * <li>SEND: time sending a single package took</li>
+ * </ul>
+ */
+public abstract class ActionTracer {
+
+    /**
+     * Maximum number of concurrently traced actions, further actions are not traced
+     */
+    private static final int POOL_SIZE = 32;
+
+    private static final ActionTrace[] pool = new ActionTrace[POOL_SIZE];
+    private static final AtomicInteger poolCursor = new AtomicInteger();
+
+    private static final LatencyHistogram[] sourceHistograms = new LatencyHistogram[Source.values().length];
+    private static final AtomicLong[] sourceFailures = new AtomicLong[Source.values().length];
+    private static final LatencyHistogram[] stageHistograms = new LatencyHistogram[Stage.values().length];
+    private static final ConcurrentHashMap<String, LatencyHistogram> gatewayHistograms = new ConcurrentHashMap<>();
+    private static final AtomicLong untracedCount = new AtomicLong();
+    private static final AtomicLong elidedCount = new AtomicLong();
+
+    private static final ThreadLocal<Trigger> trigger = new ThreadLocal<Trigger>() {
+        @Override
+        protected Trigger initialValue() {
+            return new Trigger();
+        }
+    };
+
+    static {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pool[i] = new ActionTrace();
+        }
+        for (int i = 0; i < sourceHistograms.length; i++) {
+            sourceHistograms[i] = new LatencyHistogram();
+            sourceFailures[i] = new AtomicLong();
+        }
+        for (int i = 0; i < stageHistograms.length; i++) {
+            stageHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private ActionTracer() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Remember the source and time of a trigger for the actions executed on the current thread
+     *
+     * @param source trigger source
+     */
+    public static void markTrigger(@NonNull Source source) {
+        markTrigger(source, System.nanoTime());
+    }
+
+    /**
+     * Remember the source and time of a trigger for the actions executed on the current thread
+     *
+     * @param source      trigger source
+     * @param triggerTime time of the trigger as returned by {@link System#nanoTime()}
+     */
+    public static void markTrigger(@NonNull Source source, long triggerTime) {
+        Trigger current = trigger.get();
+        current.source = source;
+        current.time = triggerTime;
+    }
+
+    /**
+     * Forget the trigger of the current thread, actions executed afterwards are attributed to {@link Source#APP}
+     */
+    public static void clearTrigger() {
+        trigger.get().source = null;
+    }
+
+    /**
+     * Get the source of the trigger of the current thread
+     *
+     * @return trigger source, null if none
+     */
+    @Nullable
+    public static Source getTriggerSource() {
+        return trigger.get().source;
+    }
+
+    /**
+     * Start tracing an action on the current thread
+     *
+     * @return trace of the action, never null
+     */
+    @NonNull
+    public static ActionTrace start() {
+        long now = System.nanoTime();
+
+        ActionTrace trace = acquire();
+        if (trace == ActionTrace.NOOP) {
+            untracedCount.incrementAndGet();
+            return trace;
+        }
+
+        Trigger current = trigger.get();
+        if (current.source != null) {
+            trace.source = current.source;
+            trace.triggerTime = current.time;
+        } else {
+            trace.source = Source.APP;
+            trace.triggerTime = now;
+        }
+        trace.startTime = now;
+        trace.lookupTime = now;
+        return trace;
+    }
+
+    /**
+     * Stop tracing an action that did not send any packages
+     *
+     * @param trace trace of the action
+     */
+    public static void abort(@NonNull ActionTrace trace) {
+        release(trace);
+    }
+
+    /**
+     * Report that a package was taken from its lane and sent (or failed to be sent)
+     *
+     * @param networkPackage package
+     * @param destination    destination of the lane ("host:port")
+     * @param dequeueTime    time the package was taken from its lane as returned by {@link System#nanoTime()}
+     * @param success        true if the package was sent successfully
+     */
+    public static void onPackageSent(@NonNull NetworkPackage networkPackage, @NonNull String destination,
+                                     long dequeueTime, boolean success) {
+        ActionTrace trace = networkPackage.getTrace();
+        if (trace == null || trace == ActionTrace.NOOP) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        stageHistograms[Stage.QUEUE.ordinal()].record(dequeueTime - trace.signalTime);
+        stageHistograms[Stage.SEND.ordinal()].record(now - dequeueTime);
+
+        LatencyHistogram gatewayHistogram = gatewayHistograms.get(destination);
+        if (gatewayHistogram == null) {
+            gatewayHistograms.putIfAbsent(destination, new LatencyHistogram());
+            gatewayHistogram = gatewayHistograms.get(destination);
+        }
+        gatewayHistogram.record(now - trace.signalTime);
+
+        if (!success) {
+            trace.failed = true;
+        }
+        onPackageDone(trace);
+    }
+
+    /**
+     * Report that a package was removed from its lane without being sent
+     *
+     * @param networkPackage package
+     */
+    public static void onPackageDiscarded(@NonNull NetworkPackage networkPackage) {
+        ActionTrace trace = networkPackage.getTrace();
+        if (trace == null || trace == ActionTrace.NOOP) {
+            return;
+        }
+
+        trace.failed = true;
+        onPackageDone(trace);
+    }
+
+    /**
+     * Report that a package was removed from its lane because a newer package for the same target superseded it
+     * <p/>
+     * Unlike discarded packages this does not count as a failure of the action.
+     *
+     * @param networkPackage package
+     */
+    public static void onPackageElided(@NonNull NetworkPackage networkPackage) {
+        elidedCount.incrementAndGet();
+
+        ActionTrace trace = networkPackage.getTrace();
+        if (trace == null || trace == ActionTrace.NOOP) {
+            return;
+        }
+
+        onPackageDone(trace);
+    }
+
+    private static void onPackageDone(ActionTrace trace) {
+        if (trace.pendingPackages.decrementAndGet() != 0) {
+            return;
+        }
+
+        long end = System.nanoTime();
+        int source = trace.source.ordinal();
+        if (trace.failed) {
+            sourceFailures[source].incrementAndGet();
+        } else {
+            sourceHistograms[source].record(end - trace.triggerTime);
+        }
+        stageHistograms[Stage.DISPATCH.ordinal()].record(trace.startTime - trace.triggerTime);
+        stageHistograms[Stage.LOOKUP.ordinal()].record(trace.lookupTime - trace.startTime);
+        stageHistograms[Stage.SIGNAL.ordinal()].record(trace.signalTime - trace.lookupTime);
+
+        release(trace);
+    }
+
+    private static ActionTrace acquire() {
+        for (int i = 0; i < POOL_SIZE; i++) {
+            ActionTrace trace = pool[(poolCursor.getAndIncrement() & Integer.MAX_VALUE) % POOL_SIZE];
+            if (trace.inUse.compareAndSet(false, true)) {
+                return trace;
+            }
+        }
+        return ActionTrace.NOOP;
+    }
+
+    private static void release(ActionTrace trace) {
+        if (trace == ActionTrace.NOOP) {
+            return;
+        }
+        trace.reset();
+        trace.inUse.set(false);
+    }
+
+    /**
+     * Remove all recorded latencies
+     */
+    public static void reset() {
+        for (int i = 0; i < sourceHistograms.length; i++) {
+            sourceHistograms[i].reset();
+            sourceFailures[i].set(0);
+        }
+        for (LatencyHistogram histogram : stageHistograms) {
+            histogram.reset();
+        }
+        gatewayHistograms.clear();
+        untracedCount.set(0);
+        elidedCount.set(0);
+    }
+
+    /**
+     * Get a human readable report of all recorded latencies
+     *
+     * @return report
+     */
+    @NonNull
+    public static String getReport() {
+        StringBuilder report = new StringBuilder();
+
+        report.append("End to end latency by trigger source:\n");
+        for (Source source : Source.values()) {
+            LatencyHistogram histogram = sourceHistograms[source.ordinal()];
+            long failures = sourceFailures[source.ordinal()].get();
+            if (histogram.getCount() > 0 || failures > 0) {
+                report.append(String.format(Locale.ROOT, "  %-16s %s failed=%d\n", source, histogram.getSummary(), failures));
+            }
+        }
+
+        report.append("\nLatency by stage:\n");
+        for (Stage stage : Stage.values()) {
+            report.append(String.format(Locale.ROOT, "  %-16s %s\n", stage, stageHistograms[stage.ordinal()].getSummary()));
+        }
+
+        report.append("\nQueue + send latency by gateway:\n");
+        Map<String, LatencyHistogram> sortedGatewayHistograms = new TreeMap<>(gatewayHistograms);
+        for (Map.Entry<String, LatencyHistogram> entry : sortedGatewayHistograms.entrySet()) {
+            report.append("  ").append(entry.getKey()).append(" ").append(entry.getValue().getSummary()).append("\n");
+        }
+
+        report.append("\nElided packages (superseded in queue): ").append(elidedCount.get()).append("\n");
+        report.append("Untraced actions (pool exhausted): ").append(untracedCount.get()).append("\n");
+        return report.toString();
+    }
+
+    /**
+     * Sources of action triggers
+     */
+    public enum Source {
+        APP,
+        WIDGET,
+        WEAR,
+        NFC,
+        TASKER,
+        API,
+        TIMER,
+        GEOFENCE,
+        ALARM_CLOCK,
+        SLEEP_AS_ANDROID
+    }
+
+    /**
+     * Stages of an action
+     */
+    public enum Stage {
+        DISPATCH,
+        LOOKUP,
+        SIGNAL,
+        QUEUE,
+        SEND
+    }
+
+    /**
+     * Mutable trigger information of a single thread
+     */
+    private static class Trigger {
+        Source source;
+        long time;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.action.tracing;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe histogram of latencies with logarithmic buckets
+ * <p/>
+ * Bucket i counts latencies in [2^i, 2^(i+1)) microseconds, the last bucket also contains everything above.
+ * Recording a value does not allocate or lock.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of buckets, the last one starts at about 16 seconds
+     */
+    private static final int BUCKET_COUNT = 25;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a latency
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+
+        long micros = nanos / 1000;
+        int bucket = micros <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max;
+        do {
+            max = maxNanos.get();
+        } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get an upper bound for a percentile of all recorded latencies
+     *
+     * @param percentile percentile (0-100)
+     * @return upper bound of the bucket containing the percentile in milliseconds, 0 if nothing was recorded
+     */
+    public double getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100);
+        long sum = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            sum += buckets.get(i);
+            if (sum >= threshold) {
+                if (i == BUCKET_COUNT - 1) {
+                    return maxNanos.get() / 1e6;
+                }
+                return (1L << (i + 1)) / 1e3;
+            }
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * Remove all recorded latencies
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * Get a one line summary of this histogram
+     *
+     * @return summary, f.e. "n=12 avg=3.1ms p50<=4.1ms p90<=8.2ms p99<=16.4ms max=12.7ms"
+     */
+    public String getSummary() {
+        long n = count.get();
+        if (n == 0) {
+            return "n=0";
+        }
+        return String.format(Locale.ROOT, "n=%d avg=%.1fms p50<=%.1fms p90<=%.1fms p99<=%.1fms max=%.1fms",
+                n, totalNanos.get() / 1e6 / n, getPercentile(50), getPercentile(90), getPercentile(99),
+                maxNanos.get() / 1e6);
+    }
+}
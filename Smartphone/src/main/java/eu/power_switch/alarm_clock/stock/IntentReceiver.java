@@ -23,6 +23,7 @@ import android.content.Context;
 import android.content.Intent;
 
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.settings.SmartphonePreferencesHandler;
 import eu.power_switch.shared.constants.AlarmClockConstants;
 import eu.power_switch.shared.log.Log;
@@ -62,6 +63,8 @@ public class IntentReceiver extends BroadcastReceiver {
 
         } catch (Exception e) {
             Log.e(e);
+        } finally {
+            HistoryHelper.flush(context, goAsync());
         }
     }
 }
@@ -29,9 +29,11 @@ import java.util.NoSuchElementException;
 
 import eu.power_switch.R;
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.database.handler.NameIndex;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.network.NetworkHandler;
-import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
 import eu.power_switch.obj.button.Button;
@@ -51,6 +53,7 @@ public class IntentReceiver extends BroadcastReceiver {
 
         Log.d(this, intent);
 
+        ActionTracer.markTrigger(ActionTracer.Source.API);
         try {
             if (intent.getAction().equals("android.appwidget.action.APPWIDGET_UPDATE")) {
                 Log.d("IntentReceiver", "appwidget update");
@@ -66,6 +69,9 @@ public class IntentReceiver extends BroadcastReceiver {
             }
         } catch (Exception e) {
             Log.e(e);
+        } finally {
+            ActionTracer.clearTrigger();
+            HistoryHelper.flush(context, goAsync());
         }
     }
 
@@ -87,9 +93,14 @@ public class IntentReceiver extends BroadcastReceiver {
                 // Receiver:<ReceiverName>
                 // Button:<ButtonName>
 
-                Room room = DatabaseHandler.getRoomCaseInsensitive(extras.getString(ApiConstants.KEY_ROOM).trim());
-                Receiver receiver = room.getReceiverCaseInsensitive(extras.getString(ApiConstants.KEY_RECEIVER).trim());
-                Button button = receiver.getButtonCaseInsensitive(extras.getString(ApiConstants.KEY_BUTTON).trim());
+                String roomName = extras.getString(ApiConstants.KEY_ROOM);
+                String receiverName = extras.getString(ApiConstants.KEY_RECEIVER);
+                Long receiverId = NameIndex.resolve(NameIndex.Type.RECEIVER, roomName, receiverName);
+                Long buttonId = NameIndex.resolve(NameIndex.Type.BUTTON, roomName, receiverName,
+                        extras.getString(ApiConstants.KEY_BUTTON));
+
+                Receiver receiver = DatabaseHandler.getReceiver(receiverId);
+                Button button = receiver.getButton(buttonId);
 
                 ActionHandler.execute(context, receiver, button);
             } else if (extras.containsKey(ApiConstants.KEY_APARTMENT) &&
@@ -102,8 +113,9 @@ public class IntentReceiver extends BroadcastReceiver {
                 // Where ButtonName is the name of the Button that is
                 // pressed for each Receiver in the specified Room
 
-                Apartment apartment = DatabaseHandler.getApartmentCaseInsensitive(extras.getString(ApiConstants.KEY_APARTMENT).trim());
-                Room room = apartment.getRoomCaseInsensitive(extras.getString(ApiConstants.KEY_ROOM).trim());
+                Long roomId = NameIndex.resolve(NameIndex.Type.ROOM,
+                        extras.getString(ApiConstants.KEY_APARTMENT), extras.getString(ApiConstants.KEY_ROOM));
+                Room room = DatabaseHandler.getRoom(roomId);
                 String buttonName = extras.getString(ApiConstants.KEY_BUTTON).trim();
 
                 ActionHandler.execute(context, room, buttonName);
@@ -112,8 +124,10 @@ public class IntentReceiver extends BroadcastReceiver {
                 // Expects the following Extras:
                 // Scene:<SceneName>
 
-                Apartment apartment = DatabaseHandler.getApartmentCaseInsensitive(extras.getString(ApiConstants.KEY_APARTMENT).trim());
-                Scene scene = apartment.getSceneCaseInsensitive(extras.getString(ApiConstants.KEY_SCENE).trim());
+                String apartmentName = extras.getString(ApiConstants.KEY_APARTMENT);
+                Long apartmentId = NameIndex.resolve(NameIndex.Type.APARTMENT, apartmentName);
+                Long sceneId = NameIndex.resolve(NameIndex.Type.SCENE, apartmentName, extras.getString(ApiConstants.KEY_SCENE));
+                Scene scene = DatabaseHandler.getApartment(apartmentId).getScene(sceneId);
 
                 ActionHandler.execute(context, scene);
             } else {
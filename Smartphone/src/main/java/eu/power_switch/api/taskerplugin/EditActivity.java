@@ -28,7 +28,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
-import android.widget.EditText;
+import android.widget.AutoCompleteTextView;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
@@ -47,6 +47,7 @@ import eu.power_switch.action.Action;
 import eu.power_switch.api.taskerplugin.bundle.BundleScrubber;
 import eu.power_switch.api.taskerplugin.bundle.PluginBundleManager;
 import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.database.handler.NameIndex;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.gui.listener.SpinnerInteractionListener;
 import eu.power_switch.obj.Apartment;
@@ -81,7 +82,7 @@ public class EditActivity extends AbstractPluginActivity {
     private ArrayList<String> sceneNames = new ArrayList<>();
 
     private Spinner spinner_apartment;
-    private EditText editText_apartment;
+    private AutoCompleteTextView editText_apartment;
 
     private LinearLayout linearLayoutRoom;
     private LinearLayout linearLayoutReceiver;
@@ -89,22 +90,28 @@ public class EditActivity extends AbstractPluginActivity {
     private LinearLayout linearLayoutScene;
 
     private Spinner spinner_room;
-    private EditText editText_room;
+    private AutoCompleteTextView editText_room;
 
     private Spinner spinner_receiver;
-    private EditText editText_receiver;
+    private AutoCompleteTextView editText_receiver;
 
     private Spinner spinner_button;
-    private EditText editText_button;
+    private AutoCompleteTextView editText_button;
 
     private Spinner spinner_scene;
-    private EditText editText_scene;
+    private AutoCompleteTextView editText_scene;
 
     private ArrayAdapter<String> roomSpinnerArrayAdapter;
     private ArrayAdapter<String> receiverSpinnerArrayAdapter;
     private ArrayAdapter<String> buttonSpinnerArrayAdapter;
     private ArrayAdapter<String> sceneSpinnerArrayAdapter;
 
+    private NameCompletionAdapter apartmentCompletionAdapter;
+    private NameCompletionAdapter roomCompletionAdapter;
+    private NameCompletionAdapter receiverCompletionAdapter;
+    private NameCompletionAdapter buttonCompletionAdapter;
+    private NameCompletionAdapter sceneCompletionAdapter;
+
     private Apartment currentApartment;
     private String currentActionType = Action.ACTION_TYPE_RECEIVER;
 
@@ -127,6 +134,7 @@ public class EditActivity extends AbstractPluginActivity {
 
         @Override
         public void afterTextChanged(Editable s) {
+            updateCompletionParents();
             setPositiveButtonVisibility(checkValidity());
         }
     };
@@ -137,6 +145,13 @@ public class EditActivity extends AbstractPluginActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_tasker_plugin);
 
+        // manual inputs suggest names of the elements selected (or entered) above them
+        apartmentCompletionAdapter = new NameCompletionAdapter(this, NameIndex.Type.APARTMENT);
+        roomCompletionAdapter = new NameCompletionAdapter(this, NameIndex.Type.ROOM);
+        receiverCompletionAdapter = new NameCompletionAdapter(this, NameIndex.Type.RECEIVER);
+        buttonCompletionAdapter = new NameCompletionAdapter(this, NameIndex.Type.BUTTON);
+        sceneCompletionAdapter = new NameCompletionAdapter(this, NameIndex.Type.SCENE);
+
         View.OnClickListener actionTypeOnClickListener = new View.OnClickListener() {
             @Override
             public void onClick(View v) {
@@ -207,8 +222,9 @@ public class EditActivity extends AbstractPluginActivity {
         spinner_apartment.setOnTouchListener(spinnerInteractionListener);
         spinner_apartment.setOnItemSelectedListener(spinnerInteractionListener);
 
-        editText_apartment = (EditText) findViewById(R.id.editText_apartment);
+        editText_apartment = (AutoCompleteTextView) findViewById(R.id.editText_apartment);
         editText_apartment.addTextChangedListener(editTextTextWatcher);
+        editText_apartment.setAdapter(apartmentCompletionAdapter);
 
         linearLayoutRoom = (LinearLayout) findViewById(R.id.linearLayout_room);
         linearLayoutReceiver = (LinearLayout) findViewById(R.id.linearLayout_receiver);
@@ -251,8 +267,9 @@ public class EditActivity extends AbstractPluginActivity {
         spinner_room.setOnTouchListener(spinnerInteractionListener);
         spinner_room.setOnItemSelectedListener(spinnerInteractionListener);
 
-        editText_room = (EditText) findViewById(R.id.editText_room);
+        editText_room = (AutoCompleteTextView) findViewById(R.id.editText_room);
         editText_room.addTextChangedListener(editTextTextWatcher);
+        editText_room.setAdapter(roomCompletionAdapter);
 
         ImageButton imageButtonSwitchReceiver = (ImageButton) findViewById(R.id.imageButton_switchReceiver);
         imageButtonSwitchReceiver.setImageDrawable(new IconicsDrawable(this, MaterialDesignIconic.Icon.gmi_shuffle)
@@ -290,8 +307,9 @@ public class EditActivity extends AbstractPluginActivity {
         spinner_receiver.setOnTouchListener(spinnerInteractionListener);
         spinner_receiver.setOnItemSelectedListener(spinnerInteractionListener);
 
-        editText_receiver = (EditText) findViewById(R.id.editText_receiver);
+        editText_receiver = (AutoCompleteTextView) findViewById(R.id.editText_receiver);
         editText_receiver.addTextChangedListener(editTextTextWatcher);
+        editText_receiver.setAdapter(receiverCompletionAdapter);
 
         ImageButton imageButtonSwitchButton = (ImageButton) findViewById(R.id.imageButton_switchButton);
         imageButtonSwitchButton.setImageDrawable(new IconicsDrawable(this, MaterialDesignIconic.Icon.gmi_shuffle)
@@ -328,8 +346,9 @@ public class EditActivity extends AbstractPluginActivity {
         spinner_button.setOnTouchListener(spinnerInteractionListener);
         spinner_button.setOnItemSelectedListener(spinnerInteractionListener);
 
-        editText_button = (EditText) findViewById(R.id.editText_button);
+        editText_button = (AutoCompleteTextView) findViewById(R.id.editText_button);
         editText_button.addTextChangedListener(editTextTextWatcher);
+        editText_button.setAdapter(buttonCompletionAdapter);
 
         ImageButton imageButtonSwitchScene = (ImageButton) findViewById(R.id.imageButton_switchScene);
         imageButtonSwitchScene.setImageDrawable(new IconicsDrawable(this, MaterialDesignIconic.Icon.gmi_shuffle)
@@ -366,8 +385,9 @@ public class EditActivity extends AbstractPluginActivity {
         spinner_scene.setOnTouchListener(spinnerInteractionListener);
         spinner_scene.setOnItemSelectedListener(spinnerInteractionListener);
 
-        editText_scene = (EditText) findViewById(R.id.editText_scene);
+        editText_scene = (AutoCompleteTextView) findViewById(R.id.editText_scene);
         editText_scene.addTextChangedListener(editTextTextWatcher);
+        editText_scene.setAdapter(sceneCompletionAdapter);
 
 
         updateLists();
@@ -460,6 +480,7 @@ public class EditActivity extends AbstractPluginActivity {
             spinner_apartment.setVisibility(View.VISIBLE);
             editText_apartment.setVisibility(View.GONE);
         }
+        updateCompletionParents();
     }
 
     private void setRoomInputType(InputType inputType) {
@@ -472,6 +493,7 @@ public class EditActivity extends AbstractPluginActivity {
             spinner_room.setVisibility(View.VISIBLE);
             editText_room.setVisibility(View.GONE);
         }
+        updateCompletionParents();
     }
 
     private void setReceiverInputType(InputType inputType) {
@@ -484,6 +506,7 @@ public class EditActivity extends AbstractPluginActivity {
             spinner_receiver.setVisibility(View.VISIBLE);
             editText_receiver.setVisibility(View.GONE);
         }
+        updateCompletionParents();
     }
 
     private void setButtonInputType(InputType inputType) {
@@ -496,6 +519,7 @@ public class EditActivity extends AbstractPluginActivity {
             spinner_button.setVisibility(View.VISIBLE);
             editText_button.setVisibility(View.GONE);
         }
+        updateCompletionParents();
     }
 
     private void setSceneInputType(InputType inputType) {
@@ -508,6 +532,35 @@ public class EditActivity extends AbstractPluginActivity {
             spinner_scene.setVisibility(View.VISIBLE);
             editText_scene.setVisibility(View.GONE);
         }
+        updateCompletionParents();
+    }
+
+    /**
+     * Update the parent names used for name completion of all manual inputs
+     */
+    private void updateCompletionParents() {
+        if (sceneCompletionAdapter == null) {
+            // not initialized yet
+            return;
+        }
+
+        try {
+            String apartmentName = getApartmentName();
+            apartmentCompletionAdapter.setParentNames();
+            roomCompletionAdapter.setParentNames(apartmentName);
+            sceneCompletionAdapter.setParentNames(apartmentName);
+
+            String roomName = getRoomName();
+            receiverCompletionAdapter.setParentNames(apartmentName, roomName);
+            if (Action.ACTION_TYPE_RECEIVER.equals(currentActionType)) {
+                buttonCompletionAdapter.setParentNames(apartmentName, roomName, getReceiverName());
+            } else {
+                // Buttons of Room actions are matched by name on all Receivers of the Room
+                buttonCompletionAdapter.setParentNames((String[]) null);
+            }
+        } catch (Exception e) {
+            Log.e(e);
+        }
     }
 
     protected void updateLists() {
@@ -536,6 +589,7 @@ public class EditActivity extends AbstractPluginActivity {
 
         Collections.sort(sceneNames, compareToIgnoreCase);
         sceneSpinnerArrayAdapter.notifyDataSetChanged();
+        updateCompletionParents();
     }
 
     private void updateRoomList() {
@@ -596,6 +650,7 @@ public class EditActivity extends AbstractPluginActivity {
         Collections.sort(buttonNames, compareToIgnoreCase);
 
         buttonSpinnerArrayAdapter.notifyDataSetChanged();
+        updateCompletionParents();
     }
 
     private void updateReceiverButtonList() throws Exception {
@@ -667,6 +722,7 @@ public class EditActivity extends AbstractPluginActivity {
             linearLayoutButton.setVisibility(View.GONE);
             linearLayoutScene.setVisibility(View.VISIBLE);
         }
+        updateCompletionParents();
     }
 
     private boolean checkValidity() {
@@ -28,8 +28,10 @@ import java.util.NoSuchElementException;
 
 import eu.power_switch.R;
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
-import eu.power_switch.obj.Apartment;
+import eu.power_switch.database.handler.NameIndex;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
 import eu.power_switch.obj.button.Button;
@@ -51,7 +53,13 @@ public class FireReceiver extends BroadcastReceiver {
         if (com.twofortyfouram.locale.Intent.ACTION_FIRE_SETTING.equals(intent.getAction())) {
             // no validation check done here,
             // because the intent contains more extras (added by tasker) than before
-            parseActionIntent(context, intent);
+            ActionTracer.markTrigger(ActionTracer.Source.TASKER);
+            try {
+                parseActionIntent(context, intent);
+            } finally {
+                ActionTracer.clearTrigger();
+                HistoryHelper.flush(context, goAsync());
+            }
         }
     }
 
@@ -64,26 +72,34 @@ public class FireReceiver extends BroadcastReceiver {
                     extras.containsKey(ApiConstants.KEY_RECEIVER) &&
                     extras.containsKey(ApiConstants.KEY_BUTTON)) {
 
-                Apartment apartment = DatabaseHandler.getApartmentCaseInsensitive(extras.getString(ApiConstants.KEY_APARTMENT).trim());
-                Room room = apartment.getRoomCaseInsensitive(extras.getString(ApiConstants.KEY_ROOM).trim());
-                Receiver receiver = room.getReceiverCaseInsensitive(extras.getString(ApiConstants.KEY_RECEIVER).trim());
-                Button button = receiver.getButtonCaseInsensitive(extras.getString(ApiConstants.KEY_BUTTON).trim());
+                String apartmentName = extras.getString(ApiConstants.KEY_APARTMENT);
+                String roomName = extras.getString(ApiConstants.KEY_ROOM);
+                String receiverName = extras.getString(ApiConstants.KEY_RECEIVER);
+                Long receiverId = NameIndex.resolve(NameIndex.Type.RECEIVER, apartmentName, roomName, receiverName);
+                Long buttonId = NameIndex.resolve(NameIndex.Type.BUTTON, apartmentName, roomName, receiverName,
+                        extras.getString(ApiConstants.KEY_BUTTON));
+
+                Receiver receiver = DatabaseHandler.getReceiver(receiverId);
+                Button button = receiver.getButton(buttonId);
 
                 ActionHandler.execute(context, receiver, button);
             } else if (extras.containsKey(ApiConstants.KEY_APARTMENT) &&
                     extras.containsKey(ApiConstants.KEY_ROOM) &&
                     extras.containsKey(ApiConstants.KEY_BUTTON)) {
 
-                Apartment apartment = DatabaseHandler.getApartmentCaseInsensitive(extras.getString(ApiConstants.KEY_APARTMENT).trim());
-                Room room = apartment.getRoomCaseInsensitive(extras.getString(ApiConstants.KEY_ROOM).trim());
+                Long roomId = NameIndex.resolve(NameIndex.Type.ROOM,
+                        extras.getString(ApiConstants.KEY_APARTMENT), extras.getString(ApiConstants.KEY_ROOM));
+                Room room = DatabaseHandler.getRoom(roomId);
                 String buttonName = extras.getString(ApiConstants.KEY_BUTTON).trim();
 
                 ActionHandler.execute(context, room, buttonName);
             } else if (extras.containsKey(ApiConstants.KEY_APARTMENT) &&
                     extras.containsKey(ApiConstants.KEY_SCENE)) {
 
-                Apartment apartment = DatabaseHandler.getApartmentCaseInsensitive(extras.getString(ApiConstants.KEY_APARTMENT).trim());
-                Scene scene = apartment.getSceneCaseInsensitive(extras.getString(ApiConstants.KEY_SCENE).trim());
+                String apartmentName = extras.getString(ApiConstants.KEY_APARTMENT);
+                Long apartmentId = NameIndex.resolve(NameIndex.Type.APARTMENT, apartmentName);
+                Long sceneId = NameIndex.resolve(NameIndex.Type.SCENE, apartmentName, extras.getString(ApiConstants.KEY_SCENE));
+                Scene scene = DatabaseHandler.getApartment(apartmentId).getScene(sceneId);
 
                 ActionHandler.execute(context, scene);
             } else {
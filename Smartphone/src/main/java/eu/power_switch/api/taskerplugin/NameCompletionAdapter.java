@@ -0,0 +1,119 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.api.taskerplugin;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import eu.power_switch.database.handler.NameIndex;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Adapter for name completion of manual inputs in the Tasker plugin configuration
+ * <p/>
+ * Suggestions are looked up in the {@link NameIndex} in the background, using the names of the parent elements set
+ * by {@link #setParentNames(String...)}. Tasker variables are not completed.
+ */
+class NameCompletionAdapter extends ArrayAdapter<String> {
+
+    private static final String TASKER_VARIABLE_PREFIX = "%";
+
+    private final NameIndex.Type type;
+    private final Filter filter = new NameFilter();
+
+    /**
+     * Names of the parent elements, null if names can not be completed
+     * <p/>
+     * Set on the main thread, read by the background filter thread.
+     */
+    private volatile String[] parentNames;
+
+    /**
+     * Constructor
+     *
+     * @param context any suitable context
+     * @param type    type of completed elements
+     */
+    NameCompletionAdapter(@NonNull Context context, @NonNull NameIndex.Type type) {
+        super(context, android.R.layout.simple_dropdown_item_1line, new ArrayList<String>());
+        this.type = type;
+    }
+
+    /**
+     * Set the names of all elements on the path to the parent of the completed element
+     *
+     * @param parentNames names starting with the Apartment, null to disable completion
+     */
+    void setParentNames(@Nullable String... parentNames) {
+        if (parentNames != null) {
+            for (String parentName : parentNames) {
+                if (parentName == null || parentName.isEmpty() || parentName.contains(TASKER_VARIABLE_PREFIX)) {
+                    // parent can't be resolved before the action is executed
+                    this.parentNames = null;
+                    return;
+                }
+            }
+        }
+        this.parentNames = parentNames;
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    private class NameFilter extends Filter {
+
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> names = Collections.emptyList();
+
+            String[] parentNames = NameCompletionAdapter.this.parentNames;
+            if (parentNames != null && constraint != null && !constraint.toString().startsWith(TASKER_VARIABLE_PREFIX)) {
+                try {
+                    names = NameIndex.complete(type, parentNames, constraint.toString());
+                } catch (Exception e) {
+                    Log.e(e);
+                }
+            }
+
+            FilterResults results = new FilterResults();
+            results.values = names;
+            results.count = names.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            setNotifyOnChange(false);
+            clear();
+            addAll((List<String>) results.values);
+            notifyDataSetChanged();
+        }
+    }
+}
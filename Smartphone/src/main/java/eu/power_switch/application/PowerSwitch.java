@@ -34,6 +34,8 @@ import java.text.SimpleDateFormat;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import eu.power_switch.BuildConfig;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.google_play_services.geofence.Geofence;
 import eu.power_switch.gui.StatusMessageHandler;
@@ -151,7 +153,8 @@ public class PowerSwitch extends MultiDexApplication {
     public void onCreate() {
         super.onCreate();
 
-        // Configure Log4J Logger
+        // Configure Log4J Logger, debug entries are only logged in debug builds
+        LogHandler.setDebugLoggingEnabled(BuildConfig.DEBUG);
         LogHandler.configureLogger();
 
         Log.d("Application init...");
@@ -169,6 +172,21 @@ public class PowerSwitch extends MultiDexApplication {
 
         DeveloperPreferencesHandler.init(this);
 
+        // include action latencies in log exports
+        LogHandler.addDiagnosticsProvider(new LogHandler.DiagnosticsProvider() {
+            @NonNull
+            @Override
+            public String getName() {
+                return "action_latency.txt";
+            }
+
+            @NonNull
+            @Override
+            public String getReport() {
+                return ActionTracer.getReport();
+            }
+        });
+
         new Thread(new Runnable() {
             @Override
             public void run() {
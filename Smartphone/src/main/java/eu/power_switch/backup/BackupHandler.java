@@ -33,6 +33,8 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.settings.SmartphonePreferencesHandler;
 import eu.power_switch.shared.exception.backup.BackupAlreadyExistsException;
 import eu.power_switch.shared.exception.backup.BackupNotFoundException;
@@ -136,6 +138,9 @@ public class BackupHandler {
             }
 
             try {
+                // close database connection, so all changes are written to the database file
+                DatabaseHandler.closeConnection();
+
                 // copy database
                 src = new File(context.getFilesDir().getParent() + File.separator + "databases");
                 dst = new File(SmartphonePreferencesHandler.getBackupPath() + File.separator
@@ -151,6 +156,15 @@ public class BackupHandler {
                 if (src.exists()) {
                     copyDirectory(src, dst);
                 }
+
+                // copy geofence snapshots
+                src = GeofenceSnapshotStore.getFolder(context);
+                dst = new File(SmartphonePreferencesHandler.getBackupPath() + File.separator
+                        + name + File.separator + context.getFilesDir().getName() + File.separator
+                        + GeofenceSnapshotStore.SNAPSHOT_FOLDER);
+                if (src.exists()) {
+                    copyDirectory(src, dst);
+                }
             } catch (Exception e) {
                 Log.e(e);
                 throw new CreateBackupException(e);
@@ -217,6 +231,9 @@ public class BackupHandler {
                 // create destination path object
                 File dst = new File(context.getFilesDir().getParent());
 
+                // close database connection before its files are replaced
+                DatabaseHandler.closeConnection();
+
                 // delete existing files
                 for (File fileOrFolder : dst.listFiles()) {
                     if (fileOrFolder.getPath().equals(context.getFilesDir().getParent() + File.separator
@@ -226,6 +243,11 @@ public class BackupHandler {
                         deleteRecursive(fileOrFolder);
                     }
                 }
+                File snapshotFolder = GeofenceSnapshotStore.getFolder(context);
+                if (snapshotFolder.exists()) {
+                    deleteRecursive(snapshotFolder);
+                }
+                GeofenceSnapshotStore.clearCache();
                 // copy directory to system folder
                 copyDirectory(src, dst);
             } catch (Exception e) {
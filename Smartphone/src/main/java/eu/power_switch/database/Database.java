@@ -38,6 +38,7 @@ import eu.power_switch.database.table.gateway.GatewayTable;
 import eu.power_switch.database.table.geofence.GeofenceActionTable;
 import eu.power_switch.database.table.geofence.GeofenceTable;
 import eu.power_switch.database.table.history.HistoryTable;
+import eu.power_switch.database.table.model_version.ModelVersionTable;
 import eu.power_switch.database.table.receiver.AutoPairTable;
 import eu.power_switch.database.table.receiver.DipTable;
 import eu.power_switch.database.table.receiver.MasterSlaveTable;
@@ -52,6 +53,7 @@ import eu.power_switch.database.table.timer.TimerWeekdayTable;
 import eu.power_switch.database.table.widget.ReceiverWidgetTable;
 import eu.power_switch.database.table.widget.RoomWidgetTable;
 import eu.power_switch.database.table.widget.SceneWidgetTable;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.gui.StatusMessageHandler;
 
 /**
@@ -60,7 +62,7 @@ import eu.power_switch.gui.StatusMessageHandler;
 public class Database extends SQLiteOpenHelper {
 
     private static final String DATABASE_NAME = "PSdatabase.db";
-    private static final int DATABASE_VERSION = 17;
+    private static final int DATABASE_VERSION = 21;
 
     private Context context;
 
@@ -118,6 +120,7 @@ public class Database extends SQLiteOpenHelper {
             RoomWidgetTable.onCreate(db);
             SceneWidgetTable.onCreate(db);
 
+            ModelVersionTable.onCreate(db);
 
             db.setTransactionSuccessful();
         } catch (Exception e) {
@@ -186,6 +189,8 @@ public class Database extends SQLiteOpenHelper {
 
             HistoryTable.onUpgrade(db, oldVersion, newVersion);
 
+            ModelVersionTable.onUpgrade(db, oldVersion, newVersion);
+
             switch (oldVersion) {
                 case 1:
                     db.execSQL("DROP TABLE IF EXISTS " + "widgets");
@@ -297,6 +302,27 @@ public class Database extends SQLiteOpenHelper {
                 case 10:
                 case 11:
                 case 12:
+                case 13:
+                case 14:
+                case 15:
+                case 16:
+                case 17:
+                    // secondary indexes for foreign keys, ordered lookups and case insensitive name lookups
+                    ReceiverTable.createIndexes(db);
+                    DipTable.createIndexes(db);
+                    MasterSlaveTable.createIndexes(db);
+                    AutoPairTable.createIndexes(db);
+                    UniversalButtonTable.createIndexes(db);
+                    ApartmentTable.createIndexes(db);
+                    ApartmentGatewayRelationTable.createIndexes(db);
+                    RoomTable.createIndexes(db);
+                    SceneTable.createIndexes(db);
+                    SceneItemTable.createIndexes(db);
+                    TimerActionTable.createIndexes(db);
+                    HistoryTable.createIndexes(db);
+                case 18:
+                    // geofence snapshots are stored as files
+                    moveGeofenceSnapshotsToFiles(db);
                     break;
             }
 
@@ -307,4 +333,37 @@ public class Database extends SQLiteOpenHelper {
             db.endTransaction();
         }
     }
+
+    /**
+     * Moves geofence snapshots stored as BLOBs into the {@link GeofenceSnapshotStore} and clears the column
+     *
+     * @param db database
+     */
+    private void moveGeofenceSnapshotsToFiles(SQLiteDatabase db) throws Exception {
+        GeofenceSnapshotStore.init(context);
+
+        Cursor cursor = db.query(GeofenceTable.TABLE_NAME, new String[]{GeofenceTable.COLUMN_ID},
+                GeofenceTable.COLUMN_SNAPSHOT + " IS NOT NULL", null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                long geofenceId = cursor.getLong(0);
+                // read one blob at a time to keep cursor windows small
+                Cursor snapshotCursor = db.query(GeofenceTable.TABLE_NAME, new String[]{GeofenceTable.COLUMN_SNAPSHOT},
+                        GeofenceTable.COLUMN_ID + "=?", new String[]{String.valueOf(geofenceId)}, null, null, null);
+                try {
+                    if (snapshotCursor.moveToFirst()) {
+                        GeofenceSnapshotStore.put(geofenceId, snapshotCursor.getBlob(0));
+                    }
+                } finally {
+                    snapshotCursor.close();
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        ContentValues values = new ContentValues();
+        values.putNull(GeofenceTable.COLUMN_SNAPSHOT);
+        db.update(GeofenceTable.TABLE_NAME, values, null, null);
+    }
 }
@@ -31,6 +31,7 @@ import eu.power_switch.database.table.apartment.ApartmentGatewayRelationTable;
 import eu.power_switch.database.table.apartment.ApartmentGeofenceRelationTable;
 import eu.power_switch.database.table.apartment.ApartmentTable;
 import eu.power_switch.google_play_services.geofence.Geofence;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
@@ -43,6 +44,13 @@ import eu.power_switch.settings.SmartphonePreferencesHandler;
  */
 abstract class ApartmentHandler {
 
+    private static final String SQL_GET_NAME = "SELECT " + ApartmentTable.COLUMN_NAME +
+            " FROM " + ApartmentTable.TABLE_NAME + " WHERE " + ApartmentTable.COLUMN_ID + "=?";
+    private static final String SQL_GET_ID_CASE_INSENSITIVE = "SELECT " + ApartmentTable.COLUMN_ID +
+            " FROM " + ApartmentTable.TABLE_NAME + " WHERE " + ApartmentTable.COLUMN_NAME + "=? COLLATE NOCASE";
+    private static final String SQL_GET_GEOFENCE_ID = "SELECT " + ApartmentGeofenceRelationTable.COLUMN_GEOFENCE_ID +
+            " FROM " + ApartmentGeofenceRelationTable.TABLE_NAME + " WHERE " + ApartmentGeofenceRelationTable.COLUMN_APARTMENT_ID + "=?";
+
     /**
      * Private Constructor
      *
@@ -70,9 +78,9 @@ abstract class ApartmentHandler {
         return apartmentId;
     }
 
-    private static void addGeofence(long apartmentId, Apartment apartment) throws Exception {
+    private static Long addGeofence(long apartmentId, Apartment apartment) throws Exception {
         if (apartment.getGeofence() == null) {
-            return;
+            return null;
         }
         Long geofenceId = GeofenceHandler.add(apartment.getGeofence());
 
@@ -80,6 +88,8 @@ abstract class ApartmentHandler {
         values.put(ApartmentGeofenceRelationTable.COLUMN_APARTMENT_ID, apartmentId);
         values.put(ApartmentGeofenceRelationTable.COLUMN_GEOFENCE_ID, geofenceId);
         DatabaseHandler.database.insert(ApartmentGeofenceRelationTable.TABLE_NAME, null, values);
+
+        return geofenceId;
     }
 
     /**
@@ -94,8 +104,17 @@ abstract class ApartmentHandler {
                 ApartmentTable.COLUMN_ID + "==" + apartment.getId(), null);
 
         // update associated geofence (delete old, add new)
-        GeofenceHandler.deleteByApartmentId(apartment.getId());
-        addGeofence(apartment.getId(), apartment);
+        // the stored snapshot is moved to the new geofence if it has not been replaced
+        Long oldGeofenceId = getAssociatedGeofenceId(apartment.getId());
+        boolean keepSnapshot = oldGeofenceId != null && apartment.getGeofence() != null &&
+                apartment.getGeofence().getSnapshot() == null;
+        if (oldGeofenceId != null) {
+            GeofenceHandler.delete(oldGeofenceId, !keepSnapshot);
+        }
+        Long newGeofenceId = addGeofence(apartment.getId(), apartment);
+        if (keepSnapshot) {
+            GeofenceSnapshotStore.move(oldGeofenceId, newGeofenceId);
+        }
 
         // update associated gateways
         removeAssociatedGateways(apartment.getId());
@@ -135,8 +154,8 @@ abstract class ApartmentHandler {
     protected static Apartment get(String name) throws Exception {
         Apartment apartment = null;
         Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME,
-                ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_NAME + "=='" + name + "'",
-                null, null, null, null);
+                ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_NAME + "=?",
+                new String[]{name}, null, null, null);
 
         if (cursor.moveToFirst()) {
             apartment = dbToApartment(cursor);
@@ -158,8 +177,8 @@ abstract class ApartmentHandler {
     @NonNull
     protected static Apartment getCaseInsensitive(String name) throws Exception {
         Apartment apartment = null;
-        Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME, ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_NAME + "=='" +
-                name + "' COLLATE NOCASE", null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME, ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_NAME + "=? COLLATE NOCASE",
+                new String[]{name}, null, null, null);
 
         if (cursor.moveToFirst()) {
             apartment = dbToApartment(cursor);
@@ -182,8 +201,8 @@ abstract class ApartmentHandler {
     protected static Apartment get(Long id) throws Exception {
         Apartment apartment = null;
         Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME,
-                ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_ID + "==" + id,
-                null, null, null, null);
+                ApartmentTable.ALL_COLUMNS, ApartmentTable.COLUMN_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             apartment = dbToApartment(cursor);
@@ -196,6 +215,26 @@ abstract class ApartmentHandler {
         return apartment;
     }
 
+    /**
+     * Gets Apartment from Database without its Rooms and Scenes
+     * <p/>
+     * The returned Apartment only contains what is needed to send an action:
+     * its associated Gateways and the state of its Geofence (without snapshot and actions).
+     *
+     * @param id ID of Apartment
+     * @return Apartment without Rooms and Scenes
+     */
+    @NonNull
+    protected static Apartment getWithoutChildren(Long id) throws Exception {
+        String name = getName(id);
+        LinkedList<Gateway> gateways = getAssociatedGateways(id);
+        Geofence geofence = GeofenceHandler.getWithoutDetails(getAssociatedGeofenceId(id));
+
+        boolean isActive = SmartphonePreferencesHandler.getCurrentApartmentId().equals(id);
+
+        return new Apartment(id, isActive, name, gateways, geofence);
+    }
+
     /**
      * Gets the containing Apartment of a receiver
      *
@@ -203,7 +242,7 @@ abstract class ApartmentHandler {
      * @return containing Apartment
      */
     public static Apartment get(Receiver receiver) throws Exception {
-        return get(RoomHandler.get(receiver.getRoomId()).getApartmentId());
+        return get(RoomHandler.getApartmentId(receiver.getRoomId()));
     }
 
     /**
@@ -234,19 +273,7 @@ abstract class ApartmentHandler {
      */
     @NonNull
     protected static String getName(Long apartmentId) throws Exception {
-        String[] columns = {ApartmentTable.COLUMN_NAME};
-        Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME, columns, ApartmentTable.COLUMN_ID + "==" + apartmentId, null, null, null, null);
-
-        String name = null;
-        if (cursor.moveToFirst()) {
-            name = cursor.getString(0);
-        } else {
-            cursor.close();
-            throw new NoSuchElementException(String.valueOf(apartmentId));
-        }
-
-        cursor.close();
-        return name;
+        return StatementCache.queryForString(SQL_GET_NAME, apartmentId);
     }
 
     /**
@@ -257,20 +284,7 @@ abstract class ApartmentHandler {
      */
     @NonNull
     public static Long getId(String name) throws Exception {
-        String[] columns = {ApartmentTable.COLUMN_ID};
-        Cursor cursor = DatabaseHandler.database.query(ApartmentTable.TABLE_NAME, columns, ApartmentTable.COLUMN_NAME + "=='" +
-                name + "' COLLATE NOCASE", null, null, null, null);
-
-        Long id = null;
-        if (cursor.moveToFirst()) {
-            id = cursor.getLong(0);
-        } else {
-            cursor.close();
-            throw new NoSuchElementException(name);
-        }
-
-        cursor.close();
-        return id;
+        return StatementCache.queryForLong(SQL_GET_ID_CASE_INSENSITIVE, name);
     }
 
     /**
@@ -315,18 +329,11 @@ abstract class ApartmentHandler {
     }
 
     private static Long getAssociatedGeofenceId(Long apartmentId) throws Exception {
-        String[] columns = {ApartmentGeofenceRelationTable.COLUMN_APARTMENT_ID,
-                ApartmentGeofenceRelationTable.COLUMN_GEOFENCE_ID};
-        Cursor cursor = DatabaseHandler.database.query(ApartmentGeofenceRelationTable.TABLE_NAME,
-                columns, ApartmentGeofenceRelationTable.COLUMN_APARTMENT_ID + "=" + apartmentId,
-                null, null, null, null);
-        if (!cursor.moveToFirst()) {
+        try {
+            return StatementCache.queryForLong(SQL_GET_GEOFENCE_ID, apartmentId);
+        } catch (NoSuchElementException e) {
             return null;
         }
-
-        Long geofenceId = cursor.getLong(1);
-        cursor.close();
-        return geofenceId;
     }
 
     /**
@@ -343,7 +350,7 @@ abstract class ApartmentHandler {
                 ApartmentGatewayRelationTable.COLUMN_GATEWAY_ID
         };
         Cursor cursor = DatabaseHandler.database.query(ApartmentGatewayRelationTable.TABLE_NAME, columns,
-                ApartmentGatewayRelationTable.COLUMN_APARTMENT_ID + "==" + apartmentId, null, null, null, null);
+                ApartmentGatewayRelationTable.COLUMN_APARTMENT_ID + "=?", new String[]{String.valueOf(apartmentId)}, null, null, null);
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
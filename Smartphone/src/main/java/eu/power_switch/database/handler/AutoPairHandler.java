@@ -20,7 +20,11 @@ package eu.power_switch.database.handler;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.text.TextUtils;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import eu.power_switch.database.table.receiver.AutoPairTable;
@@ -73,7 +77,7 @@ abstract class AutoPairHandler {
         long seed;
         String[] columns = {AutoPairTable.COLUMN_SEED};
         Cursor cursor = DatabaseHandler.database.query(AutoPairTable.TABLE_NAME, columns,
-                AutoPairTable.COLUMN_RECEIVER_ID + "==" + receiverID, null, null, null, null);
+                AutoPairTable.COLUMN_RECEIVER_ID + "=?", new String[]{String.valueOf(receiverID)}, null, null, null);
         if (cursor.moveToFirst()) {
             seed = cursor.getLong(0);
         } else {
@@ -84,4 +88,25 @@ abstract class AutoPairHandler {
         cursor.close();
         return seed;
     }
+
+    /**
+     * Returns the seeds of multiple AutoPairReceivers with a single query.
+     *
+     * @param receiverIDs The IDs of the receivers.
+     * @return Map of Receiver ID -> seed
+     */
+    protected static Map<Long, Long> getSeeds(List<Long> receiverIDs) throws Exception {
+        Map<Long, Long> seeds = new HashMap<>();
+        String[] columns = {AutoPairTable.COLUMN_RECEIVER_ID, AutoPairTable.COLUMN_SEED};
+        Cursor cursor = DatabaseHandler.database.query(AutoPairTable.TABLE_NAME, columns,
+                AutoPairTable.COLUMN_RECEIVER_ID + " IN (" + TextUtils.join(",", receiverIDs) + ")", null, null, null, null);
+        cursor.moveToFirst();
+        while (!cursor.isAfterLast()) {
+            seeds.put(cursor.getLong(0), cursor.getLong(1));
+            cursor.moveToNext();
+        }
+
+        cursor.close();
+        return seeds;
+    }
 }
@@ -27,14 +27,17 @@ import android.support.annotation.WorkerThread;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import eu.power_switch.action.Action;
 import eu.power_switch.database.Database;
 import eu.power_switch.google_play_services.geofence.Geofence;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.history.HistoryItem;
+import eu.power_switch.network.ConnectivityStateHandler;
 import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
@@ -43,11 +46,13 @@ import eu.power_switch.obj.button.Button;
 import eu.power_switch.obj.gateway.Gateway;
 import eu.power_switch.obj.receiver.Receiver;
 import eu.power_switch.phone.call.CallEvent;
+import eu.power_switch.settings.SmartphonePreferencesHandler;
 import eu.power_switch.shared.constants.AlarmClockConstants;
 import eu.power_switch.shared.constants.SleepAsAndroidConstants;
 import eu.power_switch.shared.exception.gateway.GatewayAlreadyExistsException;
 import eu.power_switch.shared.log.Log;
 import eu.power_switch.timer.Timer;
+import eu.power_switch.timer.alarm.AlarmHandler;
 import eu.power_switch.widget.ReceiverWidget;
 import eu.power_switch.widget.RoomWidget;
 import eu.power_switch.widget.SceneWidget;
@@ -80,11 +85,41 @@ public final class DatabaseHandler {
     /**
      * Database Object
      */
-    protected static SQLiteDatabase database;
+    protected static volatile SQLiteDatabase database;
     /**
-     * Lock Object to monitor and prevent parallel database access
+     * Lock Object to serialize write access (and all access if the connection is not kept open)
      */
-    private static Lock lock;
+    private static ReentrantLock lock;
+    /**
+     * Lock guarding the long-lived connection
+     * <p/>
+     * Readers hold the read lock while they use the connection, opening and closing the connection takes the write
+     * lock, so the connection is never closed while a read is in progress.
+     */
+    private static final ReentrantReadWriteLock connectionLock = new ReentrantReadWriteLock();
+    /**
+     * Connection lifecycle mode
+     * <p/>
+     * true: the database is opened once (with write-ahead logging enabled) and kept open for the process lifetime,
+     * reads only share the connection lock and can run in parallel with each other and with a single writer.
+     * false: the database is opened and closed for every access and all access is serialized.
+     */
+    private static volatile boolean keepConnectionOpen = true;
+    /**
+     * Access types used to pair open and close calls
+     */
+    private static final int ACCESS_READ_SHARED = 0;
+    private static final int ACCESS_READ_LOCKED = 1;
+    private static final int ACCESS_WRITE = 2;
+    /**
+     * Access types of the currently open accesses of each thread
+     */
+    private static final ThreadLocal<LinkedList<Integer>> openAccesses = new ThreadLocal<LinkedList<Integer>>() {
+        @Override
+        protected LinkedList<Integer> initialValue() {
+            return new LinkedList<>();
+        }
+    };
 
     /**
      * Private Constructor
@@ -113,16 +148,105 @@ public final class DatabaseHandler {
         lock = new ReentrantLock();
 
         DatabaseHandler.context = context;
+        GeofenceSnapshotStore.init(context);
         dbHelper = new Database(context);
     }
 
+    /**
+     * Set connection lifecycle mode
+     *
+     * @param keepOpen true to keep the database open for the process lifetime, false to open/close it on every access
+     * @see #keepConnectionOpen
+     */
+    public static void setKeepConnectionOpen(boolean keepOpen) {
+        lock.lock();
+        try {
+            boolean wasKeptOpen = keepConnectionOpen;
+            // switch first, so readers don't reopen the long-lived connection after it has been closed
+            keepConnectionOpen = keepOpen;
+            if (wasKeptOpen && !keepOpen) {
+                closeConnection();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the database connection
+     * <p/>
+     * This has to be done before the database files are copied or replaced (e.g. Backups).
+     * The connection will be reopened on next access.
+     */
+    public static void closeConnection() {
+        lock.lock();
+        try {
+            // waits for all running reads
+            connectionLock.writeLock().lock();
+            try {
+                StatementCache.clear();
+                if (database != null && database.isOpen()) {
+                    dbHelper.close();
+                }
+                database = null;
+            } finally {
+                connectionLock.writeLock().unlock();
+            }
+            ModelCache.invalidate();
+        } catch (Exception e) {
+            Log.e("Error closing Database", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Make sure the long-lived connection is open
+     */
+    private static void ensureConnectionOpen() {
+        if (database != null && database.isOpen()) {
+            return;
+        }
+
+        connectionLock.writeLock().lock();
+        try {
+            if (keepConnectionOpen && (database == null || !database.isOpen())) {
+                SQLiteDatabase db = dbHelper.getWritableDatabase();
+                db.enableWriteAheadLogging();
+                // keep as many prepared statements of parameterized queries as possible
+                db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+                database = db;
+            }
+        } finally {
+            connectionLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Open Database for read-only access
      */
-    synchronized private static void openReadable() throws Exception {
+    private static void openReadable() throws Exception {
+        while (keepConnectionOpen) {
+            connectionLock.readLock().lock();
+            if (database != null && database.isOpen()) {
+                openAccesses.get().push(ACCESS_READ_SHARED);
+                return;
+            }
+
+            // the read lock can't be upgraded, so (re)open the connection without holding it and check again
+            connectionLock.readLock().unlock();
+            try {
+                ensureConnectionOpen();
+            } catch (Exception e) {
+                Log.e("Error getting read-only Database", e);
+                throw e;
+            }
+        }
+
         lock.lock();
         try {
             database = dbHelper.getReadableDatabase();
+            openAccesses.get().push(ACCESS_READ_LOCKED);
         } catch (Exception e) {
             Log.e("Error getting read-only Database", e);
             lock.unlock();
@@ -133,11 +257,16 @@ public final class DatabaseHandler {
     /**
      * Open Database for read-write access
      */
-    synchronized private static void openWritable() throws Exception {
+    private static void openWritable() throws Exception {
         lock.lock();
         try {
-            database = dbHelper.getWritableDatabase();
+            if (keepConnectionOpen) {
+                ensureConnectionOpen();
+            } else {
+                database = dbHelper.getWritableDatabase();
+            }
             database.beginTransaction();
+            openAccesses.get().push(ACCESS_WRITE);
         } catch (Exception e) {
             Log.e("Error getting writable Database", e);
             lock.unlock();
@@ -149,11 +278,18 @@ public final class DatabaseHandler {
      * Close Database
      */
     private static void close() {
+        int access = openAccesses.get().pop();
+        if (access == ACCESS_READ_SHARED) {
+            connectionLock.readLock().unlock();
+            return;
+        }
+
         try {
-            if (database.inTransaction()) {
+            if (access == ACCESS_WRITE && database.inTransaction()) {
                 database.endTransaction();
             }
-            if (database.isOpen()) {
+            if (!keepConnectionOpen && database.isOpen()) {
+                StatementCache.clear();
                 dbHelper.close();
             }
         } catch (Exception e) {
@@ -163,6 +299,44 @@ public final class DatabaseHandler {
         }
     }
 
+    /**
+     * Invalidate the ModelCache if the model has been changed by another process since it was filled
+     * <p/>
+     * Components like the Tasker plugin run in their own process, with their own ModelCache and NameIndex.
+     */
+    protected static void syncModelCache() throws Exception {
+        openReadable();
+        try {
+            ModelCache.validate(ModelVersionHandler.get());
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Invalidate the ModelCache of this process and increment the model version, so the caches of other processes
+     * are invalidated on their next access
+     * <p/>
+     * This has to be called after every structural change of the database.
+     */
+    private static void invalidateModelCache() {
+        ModelCache.invalidate();
+        try {
+            openWritable();
+            try {
+                ModelVersionHandler.increment();
+                database.setTransactionSuccessful();
+            } finally {
+                close();
+            }
+        } catch (Exception e) {
+            Log.e("Error incrementing model version", e);
+        }
+    }
+
     /**
      * /////////////////////////
      * // Apartment functions //
@@ -187,6 +361,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
 
         return id;
@@ -208,6 +383,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -227,6 +403,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -283,8 +460,14 @@ public final class DatabaseHandler {
     @Nullable
     @WorkerThread
     public static Apartment getApartment(Long id) throws Exception {
+        syncModelCache();
+        Apartment apartment = ModelCache.getApartment(id);
+        if (apartment != null) {
+            return apartment;
+        }
+
+        long generation = ModelCache.getGeneration();
         openReadable();
-        Apartment apartment = null;
         try {
             apartment = ApartmentHandler.get(id);
         } catch (Exception e) {
@@ -293,7 +476,7 @@ public final class DatabaseHandler {
         } finally {
             close();
         }
-        return apartment;
+        return ModelCache.putApartment(apartment, generation);
     }
 
     /**
@@ -386,68 +569,88 @@ public final class DatabaseHandler {
 
     /**
      * Get Apartment that contains a specific Receiver
+     * <p/>
+     * This is a lightweight lookup for executing actions, the returned Apartment is only guaranteed to contain its
+     * associated Gateways and the state of its Geofence. Rooms and Scenes might be empty.
      *
      * @param receiver Receiver
      * @return Apartment
      */
-    @Nullable
+    @NonNull
     @WorkerThread
     public static Apartment getContainingApartment(Receiver receiver) throws Exception {
-        openReadable();
-        Apartment apartment = null;
-        try {
-            apartment = ApartmentHandler.get(receiver);
-        } catch (Exception e) {
-            Log.e(e);
-            throw e;
-        } finally {
-            close();
+        Long apartmentId = ModelCache.getApartmentIdOfRoom(receiver.getRoomId());
+        if (apartmentId == null) {
+            long generation = ModelCache.getGeneration();
+            openReadable();
+            try {
+                apartmentId = RoomHandler.getApartmentId(receiver.getRoomId());
+            } catch (Exception e) {
+                Log.e(e);
+                throw e;
+            } finally {
+                close();
+            }
+            ModelCache.putApartmentIdOfRoom(receiver.getRoomId(), apartmentId, generation);
         }
-        return apartment;
+        return getApartmentSummary(apartmentId);
     }
 
     /**
      * Get Apartment that contains a specific Room
+     * <p/>
+     * This is a lightweight lookup for executing actions, the returned Apartment is only guaranteed to contain its
+     * associated Gateways and the state of its Geofence. Rooms and Scenes might be empty.
      *
      * @param room Room
      * @return Apartment
      */
-    @Nullable
+    @NonNull
     @WorkerThread
     public static Apartment getContainingApartment(Room room) throws Exception {
-        openReadable();
-        Apartment apartment = null;
-        try {
-            apartment = ApartmentHandler.get(room);
-        } catch (Exception e) {
-            Log.e(e);
-            throw e;
-        } finally {
-            close();
-        }
-        return apartment;
+        return getApartmentSummary(room.getApartmentId());
     }
 
     /**
      * Get Apartment that contains a specific Scene
+     * <p/>
+     * This is a lightweight lookup for executing actions, the returned Apartment is only guaranteed to contain its
+     * associated Gateways and the state of its Geofence. Rooms and Scenes might be empty.
      *
      * @param scene Scene
      * @return Apartment
      */
-    @Nullable
+    @NonNull
     @WorkerThread
     public static Apartment getContainingApartment(Scene scene) throws Exception {
+        return getApartmentSummary(scene.getApartmentId());
+    }
+
+    /**
+     * Get an Apartment by ID without loading its Rooms and Scenes
+     *
+     * @param id ID of Apartment
+     * @return Apartment, Rooms and Scenes might be empty
+     */
+    @NonNull
+    private static Apartment getApartmentSummary(Long id) throws Exception {
+        syncModelCache();
+        Apartment apartment = ModelCache.getApartmentSummary(id);
+        if (apartment != null) {
+            return apartment;
+        }
+
+        long generation = ModelCache.getGeneration();
         openReadable();
-        Apartment apartment = null;
         try {
-            apartment = ApartmentHandler.get(scene);
+            apartment = ApartmentHandler.getWithoutChildren(id);
         } catch (Exception e) {
             Log.e(e);
             throw e;
         } finally {
             close();
         }
-        return apartment;
+        return ModelCache.putApartmentSummary(apartment, generation);
     }
 
     /**
@@ -476,6 +679,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
 
         return id;
@@ -498,6 +702,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -518,6 +723,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -538,6 +744,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -557,6 +764,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -613,17 +821,28 @@ public final class DatabaseHandler {
     @NonNull
     @WorkerThread
     public static Room getRoom(Long id) throws Exception {
-        openReadable();
-        Room room = null;
-        try {
-            room = RoomHandler.get(id);
-        } catch (Exception e) {
-            Log.e(e);
-            throw e;
-        } finally {
-            close();
+        syncModelCache();
+        Room room = ModelCache.getRoom(id);
+        if (room == null) {
+            long generation = ModelCache.getGeneration();
+            openReadable();
+            Apartment apartment = null;
+            try {
+                apartment = ApartmentHandler.get(RoomHandler.getApartmentId(id));
+            } catch (Exception e) {
+                Log.e(e);
+                throw e;
+            } finally {
+                close();
+            }
+            room = ModelCache.putApartment(apartment, generation).getRoom(id);
         }
-        return room;
+
+        // the cached Room is shared, so every caller gets its own instance with its own list of Receivers
+        Room copy = new Room(room.getId(), room.getApartmentId(), room.getName(), room.getPositionInApartment(),
+                SmartphonePreferencesHandler.getAutoCollapseRooms());
+        copy.addReceivers(room.getReceivers());
+        return copy;
     }
 
     /**
@@ -713,6 +932,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -732,6 +952,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -744,17 +965,25 @@ public final class DatabaseHandler {
     @NonNull
     @WorkerThread
     public static Receiver getReceiver(Long id) throws Exception {
+        syncModelCache();
+        Receiver receiver = ModelCache.getReceiver(id);
+        if (receiver != null) {
+            return receiver;
+        }
+
+        long generation = ModelCache.getGeneration();
         openReadable();
-        Receiver receiver = null;
+        Apartment apartment = null;
         try {
             receiver = ReceiverHandler.get(id);
+            apartment = ApartmentHandler.get(RoomHandler.getApartmentId(receiver.getRoomId()));
         } catch (Exception e) {
             Log.e(e);
             throw e;
         } finally {
             close();
         }
-        return receiver;
+        return ModelCache.putApartment(apartment, generation).getRoom(receiver.getRoomId()).getReceiver(id);
     }
 
     /**
@@ -819,6 +1048,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -859,6 +1089,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -918,6 +1149,35 @@ public final class DatabaseHandler {
         try {
             ReceiverHandler.setLastActivatedButtonId(receiverId, buttonId);
             database.setTransactionSuccessful();
+            ModelCache.updateLastActivatedButtonId(receiverId, buttonId);
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Sets IDs of last activated Buttons of multiple Receivers in a single transaction
+     *
+     * @param lastActivatedButtonIds Map of Receiver ID -> ID of last activated Button
+     */
+    @WorkerThread
+    public static void setLastActivatedButtonIds(Map<Long, Long> lastActivatedButtonIds) throws Exception {
+        if (lastActivatedButtonIds.isEmpty()) {
+            return;
+        }
+
+        openWritable();
+        try {
+            for (Map.Entry<Long, Long> entry : lastActivatedButtonIds.entrySet()) {
+                ReceiverHandler.setLastActivatedButtonId(entry.getKey(), entry.getValue());
+            }
+            database.setTransactionSuccessful();
+            for (Map.Entry<Long, Long> entry : lastActivatedButtonIds.entrySet()) {
+                ModelCache.updateLastActivatedButtonId(entry.getKey(), entry.getValue());
+            }
         } catch (Exception e) {
             Log.e(e);
             throw e;
@@ -950,6 +1210,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -969,6 +1230,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -988,6 +1250,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -1104,6 +1367,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
         return id;
     }
@@ -1124,6 +1388,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -1143,6 +1408,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -1168,6 +1434,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -1187,6 +1454,7 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
         }
     }
 
@@ -1462,6 +1730,66 @@ public final class DatabaseHandler {
         return sceneWidget;
     }
 
+    /**
+     * Get all ReceiverWidgets from Database
+     *
+     * @return List of ReceiverWidgets
+     */
+    @WorkerThread
+    public static List<ReceiverWidget> getAllReceiverWidgets() throws Exception {
+        openReadable();
+        List<ReceiverWidget> receiverWidgets = null;
+        try {
+            receiverWidgets = WidgetHandler.getAllReceiverWidgets();
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+        return receiverWidgets;
+    }
+
+    /**
+     * Get all RoomWidgets from Database
+     *
+     * @return List of RoomWidgets
+     */
+    @WorkerThread
+    public static List<RoomWidget> getAllRoomWidgets() throws Exception {
+        openReadable();
+        List<RoomWidget> roomWidgets = null;
+        try {
+            roomWidgets = WidgetHandler.getAllRoomWidgets();
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+        return roomWidgets;
+    }
+
+    /**
+     * Get all SceneWidgets from Database
+     *
+     * @return List of SceneWidgets
+     */
+    @WorkerThread
+    public static List<SceneWidget> getAllSceneWidgets() throws Exception {
+        openReadable();
+        List<SceneWidget> sceneWidgets = null;
+        try {
+            sceneWidgets = WidgetHandler.getAllSceneWidgets();
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+        return sceneWidgets;
+    }
+
 
     /**
      * Get Timer from Database
@@ -1547,6 +1875,9 @@ public final class DatabaseHandler {
             close();
         }
 
+        // the timer schedule has changed
+        AlarmHandler.reschedule(context);
+
         return id;
     }
 
@@ -1567,6 +1898,9 @@ public final class DatabaseHandler {
         } finally {
             close();
         }
+
+        // the timer schedule has changed
+        AlarmHandler.reschedule(context);
     }
 
     /**
@@ -1586,6 +1920,9 @@ public final class DatabaseHandler {
         } finally {
             close();
         }
+
+        // the timer schedule has changed
+        AlarmHandler.reschedule(context);
     }
 
     /**
@@ -1605,6 +1942,9 @@ public final class DatabaseHandler {
         } finally {
             close();
         }
+
+        // the timer schedule has changed
+        AlarmHandler.reschedule(context);
     }
 
     /**
@@ -1624,6 +1964,9 @@ public final class DatabaseHandler {
         } finally {
             close();
         }
+
+        // the timer schedule has changed
+        AlarmHandler.reschedule(context);
     }
 
     /**
@@ -1733,17 +2076,25 @@ public final class DatabaseHandler {
      */
 
     /**
-     * Gets all HistoryItems in Database, sorted by date/time
+     * Gets the HistoryItems directly preceding a given HistoryItem, sorted by date/time
+     * <p/>
+     * The returned HistoryItems don't contain their long description, see {@link #getHistoryItemLongDescription(Long)}.
      *
-     * @return List of HistoryItems
+     * @param historyItem HistoryItem to start from (exclusive), null to get the newest HistoryItems
+     * @param limit       maximum number of HistoryItems
+     * @return List of HistoryItems, oldest first
      */
     @NonNull
     @WorkerThread
-    public static LinkedList<HistoryItem> getHistory() throws Exception {
+    public static List<HistoryItem> getHistoryItemsBefore(@Nullable HistoryItem historyItem, int limit) throws Exception {
         openReadable();
-        LinkedList<HistoryItem> historyItems = new LinkedList<>();
+        List<HistoryItem> historyItems = new ArrayList<>();
         try {
-            historyItems = HistoryHandler.getHistory();
+            if (historyItem == null) {
+                historyItems = HistoryHandler.getBefore(null, null, limit);
+            } else {
+                historyItems = HistoryHandler.getBefore(historyItem.getTime().getTimeInMillis(), historyItem.getId(), limit);
+            }
         } catch (Exception e) {
             Log.e(e);
             throw e;
@@ -1753,6 +2104,53 @@ public final class DatabaseHandler {
         return historyItems;
     }
 
+    /**
+     * Gets the HistoryItems directly following a given HistoryItem, sorted by date/time
+     * <p/>
+     * The returned HistoryItems don't contain their long description, see {@link #getHistoryItemLongDescription(Long)}.
+     *
+     * @param historyItem HistoryItem to start from (exclusive)
+     * @param limit       maximum number of HistoryItems
+     * @return List of HistoryItems, oldest first
+     */
+    @NonNull
+    @WorkerThread
+    public static List<HistoryItem> getHistoryItemsAfter(@NonNull HistoryItem historyItem, int limit) throws Exception {
+        openReadable();
+        List<HistoryItem> historyItems = new ArrayList<>();
+        try {
+            historyItems = HistoryHandler.getAfter(historyItem.getTime().getTimeInMillis(), historyItem.getId(), limit);
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+        return historyItems;
+    }
+
+    /**
+     * Gets the long description of a HistoryItem
+     *
+     * @param id ID of HistoryItem
+     * @return long description, empty if there is none
+     */
+    @NonNull
+    @WorkerThread
+    public static String getHistoryItemLongDescription(Long id) throws Exception {
+        openReadable();
+        String longDescription = "";
+        try {
+            longDescription = HistoryHandler.getLongDescription(id);
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+        return longDescription;
+    }
+
     /**
      * Delete entire History from Database
      */
@@ -1771,15 +2169,34 @@ public final class DatabaseHandler {
     }
 
     /**
-     * Adds a HistoryItem to database
+     * Adds HistoryItems to database in a single transaction
      *
-     * @param historyItem HistoryItem
+     * @param historyItems HistoryItems
+     */
+    @WorkerThread
+    public static void addHistoryItems(List<HistoryItem> historyItems) throws Exception {
+        openWritable();
+        try {
+            for (HistoryItem historyItem : historyItems) {
+                HistoryHandler.add(historyItem);
+            }
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(e);
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Delete HistoryItems that are older than the "Keep History" duration selected by the user
      */
     @WorkerThread
-    public static void addHistoryItem(HistoryItem historyItem) throws Exception {
+    public static void deleteOldHistoryItems() throws Exception {
         openWritable();
         try {
-            HistoryHandler.add(historyItem);
+            HistoryHandler.deleteOldEntries();
             database.setTransactionSuccessful();
         } catch (Exception e) {
             Log.e(e);
@@ -1899,6 +2316,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
         return id;
     }
@@ -1919,6 +2338,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -1938,6 +2359,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -1957,6 +2380,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -1974,6 +2399,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -1991,6 +2418,9 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            // route decisions depend on the state of the Apartment Geofence
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -2010,6 +2440,8 @@ public final class DatabaseHandler {
             throw e;
         } finally {
             close();
+            invalidateModelCache();
+            ConnectivityStateHandler.invalidateRouteDecisions();
         }
     }
 
@@ -21,7 +21,12 @@ package eu.power_switch.database.handler;
 import android.content.ContentValues;
 import android.database.Cursor;
 
+import android.text.TextUtils;
+
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import eu.power_switch.database.table.receiver.DipTable;
 import eu.power_switch.obj.receiver.DipReceiver;
@@ -79,7 +84,7 @@ abstract class DipHandler {
 
         String[] dipColumns = {DipTable.COLUMN_STATE};
         Cursor dipCursor = DatabaseHandler.database.query(DipTable.TABLE_NAME, dipColumns,
-                DipTable.COLUMN_RECEIVER_ID + "==" + receiverId, null, null, null, DipTable.COLUMN_POSITION);
+                DipTable.COLUMN_RECEIVER_ID + "=?", new String[]{String.valueOf(receiverId)}, null, null, DipTable.COLUMN_POSITION);
         dipCursor.moveToFirst();
         while (!dipCursor.isAfterLast()) {
             int state = dipCursor.getInt(0);
@@ -94,4 +99,30 @@ abstract class DipHandler {
         dipCursor.close();
         return dips;
     }
+
+    /**
+     * Gets associated Dips of multiple DipReceivers with a single query
+     *
+     * @param receiverIds IDs of the receivers
+     * @return Map of Receiver ID -> List of Dip positions
+     */
+    protected static Map<Long, LinkedList<Boolean>> getDips(List<Long> receiverIds) throws Exception {
+        Map<Long, LinkedList<Boolean>> dipsMap = new HashMap<>();
+        for (Long receiverId : receiverIds) {
+            dipsMap.put(receiverId, new LinkedList<Boolean>());
+        }
+
+        String[] dipColumns = {DipTable.COLUMN_RECEIVER_ID, DipTable.COLUMN_STATE};
+        Cursor dipCursor = DatabaseHandler.database.query(DipTable.TABLE_NAME, dipColumns,
+                DipTable.COLUMN_RECEIVER_ID + " IN (" + TextUtils.join(",", receiverIds) + ")", null, null, null,
+                DipTable.COLUMN_RECEIVER_ID + "," + DipTable.COLUMN_POSITION);
+        dipCursor.moveToFirst();
+        while (!dipCursor.isAfterLast()) {
+            dipsMap.get(dipCursor.getLong(0)).add(dipCursor.getInt(1) != 0);
+            dipCursor.moveToNext();
+        }
+
+        dipCursor.close();
+        return dipsMap;
+    }
 }
@@ -142,6 +142,7 @@ abstract class GatewayHandler {
         // delete from associations with apartments
         DatabaseHandler.database.delete(ApartmentGatewayRelationTable.TABLE_NAME, ApartmentGatewayRelationTable
                 .COLUMN_GATEWAY_ID + "=" + id, null);
+        ReceiverHandler.clearPreferredGateway(id);
 
         deleteSSIDs(id);
         DatabaseHandler.database.delete(GatewayTable.TABLE_NAME, GatewayTable.COLUMN_ID + "=" + id, null);
@@ -156,8 +157,8 @@ abstract class GatewayHandler {
     @NonNull
     protected static Gateway get(Long id) throws Exception {
         Gateway gateway = null;
-        Cursor cursor = DatabaseHandler.database.query(GatewayTable.TABLE_NAME, GatewayTable.ALL_COLUMNS, GatewayTable.COLUMN_ID + "=" + id, null, null,
-                null, null);
+        Cursor cursor = DatabaseHandler.database.query(GatewayTable.TABLE_NAME, GatewayTable.ALL_COLUMNS, GatewayTable.COLUMN_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             gateway = dbToGateway(cursor);
@@ -193,7 +194,7 @@ abstract class GatewayHandler {
         Set<String> ssids = new HashSet<>();
 
         Cursor cursor = DatabaseHandler.database.query(GatewaySsidTable.TABLE_NAME, GatewaySsidTable.ALL_COLUMNS,
-                GatewaySsidTable.COLUMN_GATEWAY_ID + "=" + id, null, null, null, null);
+                GatewaySsidTable.COLUMN_GATEWAY_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
@@ -232,8 +233,8 @@ abstract class GatewayHandler {
     protected static List<Gateway> getAll(boolean isActive) throws Exception {
         List<Gateway> gateways = new ArrayList<>();
         int isActiveInt = isActive ? 1 : 0;
-        Cursor cursor = DatabaseHandler.database.query(GatewayTable.TABLE_NAME, GatewayTable.ALL_COLUMNS, GatewayTable.COLUMN_ACTIVE + "=" + isActiveInt,
-                null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(GatewayTable.TABLE_NAME, GatewayTable.ALL_COLUMNS, GatewayTable.COLUMN_ACTIVE + "=?",
+                new String[]{String.valueOf(isActiveInt)}, null, null, null);
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
@@ -253,7 +254,8 @@ abstract class GatewayHandler {
      */
     public static boolean isAssociatedWithAnyApartment(Long id) throws Exception {
         Cursor cursor = DatabaseHandler.database.query(ApartmentGatewayRelationTable.TABLE_NAME,
-                ApartmentGatewayRelationTable.ALL_COLUMNS, ApartmentGatewayRelationTable.COLUMN_GATEWAY_ID + "=" + id, null, null, null, null);
+                ApartmentGatewayRelationTable.ALL_COLUMNS, ApartmentGatewayRelationTable.COLUMN_GATEWAY_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         boolean hasElement = cursor.moveToFirst();
         cursor.close();
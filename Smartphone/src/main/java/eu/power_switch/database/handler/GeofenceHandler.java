@@ -20,14 +20,12 @@ package eu.power_switch.database.handler;
 
 import android.content.ContentValues;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.support.annotation.Nullable;
 
 import com.google.android.gms.maps.model.LatLng;
 
-import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -36,6 +34,7 @@ import eu.power_switch.action.Action;
 import eu.power_switch.database.table.apartment.ApartmentGeofenceRelationTable;
 import eu.power_switch.database.table.geofence.GeofenceTable;
 import eu.power_switch.google_play_services.geofence.Geofence;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 
 /**
  * Provides database methods for managing Geofences
@@ -66,11 +65,14 @@ abstract class GeofenceHandler {
         values.put(GeofenceTable.COLUMN_LATITUDE, geofence.getCenterLocation().latitude);
         values.put(GeofenceTable.COLUMN_LONGITUDE, geofence.getCenterLocation().longitude);
         values.put(GeofenceTable.COLUMN_RADIUS, geofence.getRadius());
-        values.put(GeofenceTable.COLUMN_SNAPSHOT, getBytes(geofence.getSnapshot()));
         values.put(GeofenceTable.COLUMN_STATE, geofence.getState());
 
         long newId = DatabaseHandler.database.insert(GeofenceTable.TABLE_NAME, null, values);
 
+        if (geofence.getSnapshot() != null) {
+            GeofenceSnapshotStore.put(newId, geofence.getSnapshot());
+        }
+
         for (Geofence.EventType eventType : Geofence.EventType.values()) {
             GeofenceActionHandler.add(geofence.getActions(eventType), newId, eventType);
         }
@@ -105,6 +107,48 @@ abstract class GeofenceHandler {
         return geofence;
     }
 
+    /**
+     * Get a Geofence from Database without its actions
+     * <p/>
+     * This is enough to evaluate the active state and the current state of a Geofence.
+     *
+     * @param id ID of Geofence
+     * @return Geofence
+     */
+    @Nullable
+    protected static Geofence getWithoutDetails(Long id) throws Exception {
+        if (id == null) {
+            return null;
+        }
+
+        Cursor cursor = DatabaseHandler.database.query(GeofenceTable.TABLE_NAME, GeofenceTable.ALL_COLUMNS,
+                GeofenceTable.COLUMN_ID + "=" + id, null, null, null, null);
+
+        if (!cursor.moveToFirst()) {
+            cursor.close();
+            throw new NoSuchElementException(String.valueOf(id));
+        }
+
+        boolean active = cursor.getInt(1) > 0;
+        String name = cursor.getString(2);
+        double latitude = cursor.getDouble(3);
+        double longitude = cursor.getDouble(4);
+        double radius = cursor.getDouble(5);
+        @Geofence.State
+        String state = cursor.getString(6);
+        cursor.close();
+
+        LatLng location;
+        if (latitude == Integer.MAX_VALUE || longitude == Integer.MAX_VALUE) {
+            location = null;
+        } else {
+            location = new LatLng(latitude, longitude);
+        }
+
+        return new Geofence(id, active, name, location, radius, null,
+                Collections.<Action>emptyList(), Collections.<Action>emptyList(), state);
+    }
+
     /**
      * Enables an existing Geofence
      *
@@ -148,6 +192,16 @@ abstract class GeofenceHandler {
      * @param id ID of Geofence
      */
     protected static void delete(Long id) throws Exception {
+        delete(id, true);
+    }
+
+    /**
+     * Deletes Geofence information from Database
+     *
+     * @param id             ID of Geofence
+     * @param deleteSnapshot true to delete the stored snapshot too
+     */
+    protected static void delete(Long id, boolean deleteSnapshot) throws Exception {
         // delete from associations with apartments
         DatabaseHandler.database.delete(ApartmentGeofenceRelationTable.TABLE_NAME, ApartmentGeofenceRelationTable
                 .COLUMN_GEOFENCE_ID + "=" + id, null);
@@ -155,6 +209,10 @@ abstract class GeofenceHandler {
         GeofenceActionHandler.delete(id);
 
         DatabaseHandler.database.delete(GeofenceTable.TABLE_NAME, GeofenceTable.COLUMN_ID + "=" + id, null);
+
+        if (deleteSnapshot) {
+            GeofenceSnapshotStore.delete(id);
+        }
     }
 
     public static void deleteByApartmentId(Long apartmentId) throws Exception {
@@ -251,7 +309,6 @@ abstract class GeofenceHandler {
         values.put(GeofenceTable.COLUMN_LATITUDE, geofence.getCenterLocation().latitude);
         values.put(GeofenceTable.COLUMN_LONGITUDE, geofence.getCenterLocation().longitude);
         values.put(GeofenceTable.COLUMN_RADIUS, geofence.getRadius());
-        values.put(GeofenceTable.COLUMN_SNAPSHOT, getBytes(geofence.getSnapshot()));
         values.put(GeofenceTable.COLUMN_STATE, geofence.getState());
 
         // delete old actions
@@ -263,6 +320,11 @@ abstract class GeofenceHandler {
 
         DatabaseHandler.database.update(GeofenceTable.TABLE_NAME, values,
                 GeofenceTable.COLUMN_ID + "=" + geofence.getId(), null);
+
+        // the stored snapshot is only replaced if a new one has been taken
+        if (geofence.getSnapshot() != null) {
+            GeofenceSnapshotStore.put(geofence.getId(), geofence.getSnapshot());
+        }
     }
 
     /**
@@ -279,13 +341,8 @@ abstract class GeofenceHandler {
         double latitude = c.getDouble(3);
         double longitude = c.getDouble(4);
         double radius = c.getDouble(5);
-        Bitmap snapshot = null;
-        if (!c.isNull(6)) {
-            snapshot = getImage(c.getBlob(6));
-        }
-
         @Geofence.State
-        String state = c.getString(7);
+        String state = c.getString(6);
 
         LatLng location;
         if (latitude == Integer.MAX_VALUE || longitude == Integer.MAX_VALUE) {
@@ -299,19 +356,8 @@ abstract class GeofenceHandler {
             actionsMap.put(eventType, GeofenceActionHandler.get(id, eventType));
         }
 
-        geofence = new Geofence(id, active, name, location, radius, snapshot, actionsMap, state);
+        // the snapshot is loaded from the GeofenceSnapshotStore when it is displayed
+        geofence = new Geofence(id, active, name, location, radius, null, actionsMap, state);
         return geofence;
     }
-
-    // convert from bitmap to byte array
-    public static byte[] getBytes(Bitmap bitmap) throws Exception {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
-        return stream.toByteArray();
-    }
-
-    // convert from byte array to bitmap
-    public static Bitmap getImage(byte[] image) throws Exception {
-        return BitmapFactory.decodeByteArray(image, 0, image.length);
-    }
 }
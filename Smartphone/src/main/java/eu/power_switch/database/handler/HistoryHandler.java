@@ -21,8 +21,10 @@ package eu.power_switch.database.handler;
 import android.content.ContentValues;
 import android.database.Cursor;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedList;
+import java.util.List;
 
 import eu.power_switch.database.table.history.HistoryTable;
 import eu.power_switch.history.HistoryItem;
@@ -47,16 +49,65 @@ abstract class HistoryHandler {
     }
 
     /**
-     * Gets all history items from database, sorted by date/time
+     * Columns needed to display a HistoryItem in a list, the long description is loaded on demand
+     */
+    private static final String[] LIST_COLUMNS = {HistoryTable.COLUMN_ID, HistoryTable.COLUMN_DESCRIPTION, HistoryTable.COLUMN_TIME};
+
+    private static final String ORDER_DESCENDING = HistoryTable.COLUMN_TIME + " DESC, " + HistoryTable.COLUMN_ID + " DESC";
+    private static final String ORDER_ASCENDING = HistoryTable.COLUMN_TIME + " ASC, " + HistoryTable.COLUMN_ID + " ASC";
+
+    /**
+     * Gets the history items directly preceding a given item, sorted by date/time
+     * <p/>
+     * Uses keyset pagination on (time, id), so the cost of a page does not depend on its position in the history.
+     * The returned items don't contain their long description.
      *
-     * @return List of History Items
+     * @param time  time of the item to start from (exclusive), null to get the newest items
+     * @param id    ID of the item to start from (exclusive)
+     * @param limit maximum number of items
+     * @return List of History Items, oldest first
      */
-    public static LinkedList<HistoryItem> getHistory() throws Exception {
-        LinkedList<HistoryItem> historyItems = new LinkedList<>();
+    public static List<HistoryItem> getBefore(Long time, Long id, int limit) throws Exception {
+        Cursor cursor;
+        if (time == null) {
+            cursor = DatabaseHandler.database.query(HistoryTable.TABLE_NAME, LIST_COLUMNS, null, null,
+                    null, null, ORDER_DESCENDING, String.valueOf(limit));
+        } else {
+            cursor = DatabaseHandler.database.query(HistoryTable.TABLE_NAME, LIST_COLUMNS,
+                    HistoryTable.COLUMN_TIME + "<? OR (" + HistoryTable.COLUMN_TIME + "=? AND " + HistoryTable.COLUMN_ID + "<?)",
+                    new String[]{String.valueOf(time), String.valueOf(time), String.valueOf(id)},
+                    null, null, ORDER_DESCENDING, String.valueOf(limit));
+        }
 
-        Cursor cursor = DatabaseHandler.database.query(HistoryTable.TABLE_NAME, HistoryTable.ALL_COLUMNS, null, null, null, null, HistoryTable.COLUMN_TIME + " ASC");
+        LinkedList<HistoryItem> historyItems = new LinkedList<>();
         cursor.moveToFirst();
+        while (!cursor.isAfterLast()) {
+            historyItems.addFirst(dbToHistoryItem(cursor));
+            cursor.moveToNext();
+        }
+        cursor.close();
+
+        return historyItems;
+    }
+
+    /**
+     * Gets the history items directly following a given item, sorted by date/time
+     * <p/>
+     * The returned items don't contain their long description.
+     *
+     * @param time  time of the item to start from (exclusive)
+     * @param id    ID of the item to start from (exclusive)
+     * @param limit maximum number of items
+     * @return List of History Items, oldest first
+     */
+    public static List<HistoryItem> getAfter(Long time, Long id, int limit) throws Exception {
+        Cursor cursor = DatabaseHandler.database.query(HistoryTable.TABLE_NAME, LIST_COLUMNS,
+                HistoryTable.COLUMN_TIME + ">? OR (" + HistoryTable.COLUMN_TIME + "=? AND " + HistoryTable.COLUMN_ID + ">?)",
+                new String[]{String.valueOf(time), String.valueOf(time), String.valueOf(id)},
+                null, null, ORDER_ASCENDING, String.valueOf(limit));
 
+        List<HistoryItem> historyItems = new ArrayList<>();
+        cursor.moveToFirst();
         while (!cursor.isAfterLast()) {
             historyItems.add(dbToHistoryItem(cursor));
             cursor.moveToNext();
@@ -66,22 +117,42 @@ abstract class HistoryHandler {
         return historyItems;
     }
 
+    /**
+     * Gets the long description of a history item
+     *
+     * @param id ID of History Item
+     * @return long description, empty if there is none
+     */
+    public static String getLongDescription(Long id) throws Exception {
+        Cursor cursor = DatabaseHandler.database.query(HistoryTable.TABLE_NAME, new String[]{HistoryTable.COLUMN_DESCRIPTION_LONG},
+                HistoryTable.COLUMN_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
+
+        String longDescription = "";
+        if (cursor.moveToFirst() && !cursor.isNull(0)) {
+            longDescription = cursor.getString(0);
+        }
+        cursor.close();
+
+        return longDescription;
+    }
+
     /**
      * Adds a HistoryItem to Database
      *
-     * @return List of History Items
+     * @return ID of inserted History Item
      */
     public static Long add(HistoryItem historyItem) throws Exception {
         ContentValues values = new ContentValues();
         values.put(HistoryTable.COLUMN_DESCRIPTION, historyItem.getShortDescription());
         values.put(HistoryTable.COLUMN_DESCRIPTION_LONG, historyItem.getLongDescription());
         values.put(HistoryTable.COLUMN_TIME, historyItem.getTime().getTimeInMillis());
-        long id = DatabaseHandler.database.insert(HistoryTable.TABLE_NAME, null, values);
-        deleteOldEntries();
-        return id;
+        return DatabaseHandler.database.insert(HistoryTable.TABLE_NAME, null, values);
     }
 
-    private static void deleteOldEntries() throws Exception {
+    /**
+     * Deletes all HistoryItems that are older than the "Keep History" duration selected by the user
+     */
+    public static void deleteOldEntries() throws Exception {
         Calendar calendar = Calendar.getInstance();
 
         switch (SmartphonePreferencesHandler.getKeepHistoryDuration()) {
@@ -118,10 +189,9 @@ abstract class HistoryHandler {
     private static HistoryItem dbToHistoryItem(Cursor cursor) throws Exception {
         Long id = cursor.getLong(0);
         String shortDescription = cursor.getString(1);
-        String longDescription = !cursor.isNull(2) ? cursor.getString(2) : "";
-        Long time = cursor.getLong(3);
+        Long time = cursor.getLong(2);
 
-        return new HistoryItem(id, time, shortDescription, longDescription);
+        return new HistoryItem(id, time, shortDescription);
     }
 
 }
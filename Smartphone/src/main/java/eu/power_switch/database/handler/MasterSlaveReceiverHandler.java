@@ -20,7 +20,12 @@ package eu.power_switch.database.handler;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.text.TextUtils;
+import android.util.Pair;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import eu.power_switch.database.table.receiver.MasterSlaveTable;
@@ -73,7 +78,7 @@ abstract class MasterSlaveReceiverHandler {
         Character master;
         String[] columns = {MasterSlaveTable.COLUMN_MASTER};
         Cursor cursor = DatabaseHandler.database.query(MasterSlaveTable.TABLE_NAME, columns,
-                MasterSlaveTable.COLUMN_RECEIVER_ID + "==" + receiverID, null, null, null, null);
+                MasterSlaveTable.COLUMN_RECEIVER_ID + "=?", new String[]{String.valueOf(receiverID)}, null, null, null);
         if (cursor.moveToFirst()) {
             master = cursor.getString(0).charAt(0);
         } else {
@@ -95,7 +100,7 @@ abstract class MasterSlaveReceiverHandler {
         int slave;
         String[] columns = {MasterSlaveTable.COLUMN_SLAVE};
         Cursor cursor = DatabaseHandler.database.query(MasterSlaveTable.TABLE_NAME, columns,
-                MasterSlaveTable.COLUMN_RECEIVER_ID + "==" + receiverID, null, null, null, null);
+                MasterSlaveTable.COLUMN_RECEIVER_ID + "=?", new String[]{String.valueOf(receiverID)}, null, null, null);
         if (cursor.moveToFirst()) {
             slave = cursor.getInt(0);
         } else {
@@ -106,4 +111,25 @@ abstract class MasterSlaveReceiverHandler {
         cursor.close();
         return slave;
     }
+
+    /**
+     * Returns the master and slave channels of multiple MasterSlaveReceivers with a single query.
+     *
+     * @param receiverIDs The IDs of the receivers.
+     * @return Map of Receiver ID -> (master channel, slave channel)
+     */
+    protected static Map<Long, Pair<Character, Integer>> getChannels(List<Long> receiverIDs) throws Exception {
+        Map<Long, Pair<Character, Integer>> channels = new HashMap<>();
+        String[] columns = {MasterSlaveTable.COLUMN_RECEIVER_ID, MasterSlaveTable.COLUMN_MASTER, MasterSlaveTable.COLUMN_SLAVE};
+        Cursor cursor = DatabaseHandler.database.query(MasterSlaveTable.TABLE_NAME, columns,
+                MasterSlaveTable.COLUMN_RECEIVER_ID + " IN (" + TextUtils.join(",", receiverIDs) + ")", null, null, null, null);
+        cursor.moveToFirst();
+        while (!cursor.isAfterLast()) {
+            channels.put(cursor.getLong(0), new Pair<>(cursor.getString(1).charAt(0), cursor.getInt(2)));
+            cursor.moveToNext();
+        }
+
+        cursor.close();
+        return channels;
+    }
 }
@@ -0,0 +1,545 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.power_switch.google_play_services.geofence.Geofence;
+import eu.power_switch.obj.Apartment;
+import eu.power_switch.obj.Room;
+import eu.power_switch.obj.Scene;
+import eu.power_switch.obj.SceneItem;
+import eu.power_switch.obj.button.Button;
+import eu.power_switch.obj.gateway.Gateway;
+import eu.power_switch.obj.receiver.Receiver;
+import eu.power_switch.settings.SmartphonePreferencesHandler;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Process wide in-memory cache of Apartment object graphs (including their Rooms, Receivers, Scenes, Gateways and
+ * Geofence).
+ * <p/>
+ * The cache is filled by DatabaseHandler read methods and kept consistent by DatabaseHandler write methods, which
+ * either update cached objects in place (last activated buttons) or invalidate the whole cache (structural changes).
+ * Structural changes also increment a model version stored in the database, which is validated before every lookup,
+ * so changes made by other processes invalidate the cache as well.
+ * Apartments (including their Rooms and Geofence) are handed out as copies, since callers regularly modify them
+ * before they are saved. Receivers, Scenes and Gateways are shared between all callers, so they must only be modified
+ * through DatabaseHandler.
+ * <p/>
+ * The estimated memory footprint of all cached graphs is bounded by {@link #MAX_SIZE}, least recently used
+ * Apartments are evicted first.
+ */
+public abstract class ModelCache {
+
+    /**
+     * Maximum estimated size of all cached Apartments in bytes
+     */
+    public static final long MAX_SIZE = 2 * 1024 * 1024;
+
+    /**
+     * Rough per object overhead (header, fields, references) used for size estimation
+     */
+    private static final int OBJECT_OVERHEAD = 48;
+
+    /**
+     * Cached Apartments by ID in access order
+     */
+    private static final LinkedHashMap<Long, Entry> apartments = new LinkedHashMap<>(8, 0.75f, true);
+    /**
+     * Index Room ID -> cached Room
+     */
+    private static final HashMap<Long, Room> rooms = new HashMap<>();
+    /**
+     * Index Receiver ID -> cached Receiver
+     */
+    private static final HashMap<Long, Receiver> receivers = new HashMap<>();
+    /**
+     * Cached Apartments without Rooms and Scenes by ID, used to resolve the Gateways of an action target
+     */
+    private static final HashMap<Long, Entry> apartmentSummaries = new HashMap<>();
+    /**
+     * Index Room ID -> Apartment ID, also for Rooms of Apartments that are not cached completely
+     */
+    private static final HashMap<Long, Long> roomApartmentIds = new HashMap<>();
+
+    /**
+     * Incremented on every invalidation, used to discard graphs that were loaded from an outdated database state
+     */
+    private static long generation;
+    /**
+     * Model version stored in the database the cache was last validated against
+     */
+    private static long modelVersion = -1;
+    private static long size;
+
+    private static long hitCount;
+    private static long missCount;
+    private static long evictionCount;
+    private static long invalidationCount;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private ModelCache() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Get the current generation of the cache
+     * <p/>
+     * This has to be read before loading data from the database that will be put into the cache afterwards.
+     *
+     * @return current generation
+     */
+    protected static synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get a cached Apartment
+     *
+     * @param id ID of Apartment
+     * @return cached Apartment, null if not cached
+     */
+    @Nullable
+    protected static synchronized Apartment getApartment(Long id) {
+        Entry entry = apartments.get(id);
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return copyOf(entry.apartment);
+    }
+
+    /**
+     * Get a cached Apartment, which might not contain its Rooms and Scenes
+     *
+     * @param id ID of Apartment
+     * @return cached Apartment (complete or without Rooms and Scenes), null if not cached
+     */
+    @Nullable
+    protected static synchronized Apartment getApartmentSummary(Long id) {
+        Entry entry = apartments.get(id);
+        if (entry == null) {
+            entry = apartmentSummaries.get(id);
+        }
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return copyOf(entry.apartment);
+    }
+
+    /**
+     * Get the ID of the Apartment a Room belongs to
+     *
+     * @param roomId ID of Room
+     * @return ID of Apartment, null if unknown
+     */
+    @Nullable
+    protected static synchronized Long getApartmentIdOfRoom(Long roomId) {
+        Room room = rooms.get(roomId);
+        if (room != null) {
+            return room.getApartmentId();
+        }
+        return roomApartmentIds.get(roomId);
+    }
+
+    /**
+     * Get a cached Room
+     *
+     * @param id ID of Room
+     * @return cached Room, null if not cached
+     */
+    @Nullable
+    protected static synchronized Room getRoom(Long id) {
+        Room room = rooms.get(id);
+        if (room == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        apartments.get(room.getApartmentId());
+        return room;
+    }
+
+    /**
+     * Get a cached Receiver
+     *
+     * @param id ID of Receiver
+     * @return cached Receiver, null if not cached
+     */
+    @Nullable
+    protected static synchronized Receiver getReceiver(Long id) {
+        Receiver receiver = receivers.get(id);
+        if (receiver == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        Room room = rooms.get(receiver.getRoomId());
+        if (room != null) {
+            apartments.get(room.getApartmentId());
+        }
+        return receiver;
+    }
+
+    /**
+     * Put an Apartment graph into the cache
+     *
+     * @param apartment  Apartment loaded from database
+     * @param generation generation of the cache at the time loading from database started
+     * @return copy of the cached Apartment (which might be a different one if another thread was faster)
+     */
+    @NonNull
+    protected static synchronized Apartment putApartment(@NonNull Apartment apartment, long generation) {
+        if (generation != ModelCache.generation) {
+            // database has changed while loading
+            return apartment;
+        }
+
+        Entry existing = apartments.get(apartment.getId());
+        if (existing != null) {
+            return copyOf(existing.apartment);
+        }
+
+        Entry entry = new Entry(apartment, estimateSize(apartment));
+        if (entry.size > MAX_SIZE) {
+            Log.d(ModelCache.class, "Apartment " + apartment.getId() + " is too large to be cached (" + entry.size + " bytes)");
+            return apartment;
+        }
+
+        apartments.put(apartment.getId(), entry);
+        for (Room room : apartment.getRooms()) {
+            rooms.put(room.getId(), room);
+            for (Receiver receiver : room.getReceivers()) {
+                receivers.put(receiver.getId(), receiver);
+            }
+        }
+        size += entry.size;
+
+        trimToSize();
+        return copyOf(apartment);
+    }
+
+    /**
+     * Put an Apartment without Rooms and Scenes into the cache
+     *
+     * @param apartment  Apartment loaded from database
+     * @param generation generation of the cache at the time loading from database started
+     * @return copy of the cached Apartment (which might be a different one if another thread was faster)
+     */
+    @NonNull
+    protected static synchronized Apartment putApartmentSummary(@NonNull Apartment apartment, long generation) {
+        if (generation != ModelCache.generation) {
+            return apartment;
+        }
+
+        Entry existing = apartmentSummaries.get(apartment.getId());
+        if (existing != null) {
+            return copyOf(existing.apartment);
+        }
+
+        Entry entry = new Entry(apartment, estimateSize(apartment));
+        apartmentSummaries.put(apartment.getId(), entry);
+        size += entry.size;
+
+        trimToSize();
+        return copyOf(apartment);
+    }
+
+    /**
+     * Remember the ID of the Apartment a Room belongs to
+     *
+     * @param roomId      ID of Room
+     * @param apartmentId ID of Apartment
+     * @param generation  generation of the cache at the time loading from database started
+     */
+    protected static synchronized void putApartmentIdOfRoom(Long roomId, Long apartmentId, long generation) {
+        if (generation != ModelCache.generation) {
+            return;
+        }
+
+        if (roomApartmentIds.put(roomId, apartmentId) == null) {
+            size += 2 * OBJECT_OVERHEAD;
+        }
+    }
+
+    /**
+     * Update the last activated button of a Receiver in all cached objects referring to it
+     *
+     * @param receiverId ID of Receiver
+     * @param buttonId   ID of Button
+     */
+    protected static synchronized void updateLastActivatedButtonId(Long receiverId, Long buttonId) {
+        Receiver receiver = receivers.get(receiverId);
+        if (receiver == null) {
+            return;
+        }
+        receiver.setLastActivatedButtonId(buttonId);
+
+        // Scenes use their own Receiver instances
+        Room room = rooms.get(receiver.getRoomId());
+        if (room == null) {
+            return;
+        }
+        Entry entry = apartments.get(room.getApartmentId());
+        if (entry == null) {
+            return;
+        }
+        for (Scene scene : entry.apartment.getScenes()) {
+            for (SceneItem sceneItem : scene.getSceneItems()) {
+                if (receiverId.equals(sceneItem.getReceiver().getId())) {
+                    sceneItem.getReceiver().setLastActivatedButtonId(buttonId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy a cached Apartment, so callers can modify it without affecting the cache
+     * <p/>
+     * Rooms and Geofence are copied as well, Receivers, Scenes and Gateways are shared.
+     *
+     * @param apartment cached Apartment
+     * @return copy of the Apartment
+     */
+    private static Apartment copyOf(Apartment apartment) {
+        List<Room> rooms = new ArrayList<>(apartment.getRooms().size());
+        for (Room room : apartment.getRooms()) {
+            Room copy = new Room(room.getId(), room.getApartmentId(), room.getName(), room.getPositionInApartment(),
+                    room.isCollapsed());
+            copy.addReceivers(room.getReceivers());
+            rooms.add(copy);
+        }
+
+        Geofence geofence = apartment.getGeofence();
+        if (geofence != null) {
+            geofence = new Geofence(geofence.getId(), geofence.isActive(), geofence.getName(),
+                    geofence.getCenterLocation(), geofence.getRadius(), geofence.getSnapshot(),
+                    new ArrayList<>(geofence.getActions(Geofence.EventType.ENTER)),
+                    new ArrayList<>(geofence.getActions(Geofence.EventType.EXIT)), geofence.getState());
+        }
+
+        // active state is not part of the database but depends on the current user selection
+        boolean active = SmartphonePreferencesHandler.getCurrentApartmentId().equals(apartment.getId());
+        return new Apartment(apartment.getId(), active, apartment.getName(), rooms,
+                new ArrayList<>(apartment.getScenes()), new ArrayList<>(apartment.getAssociatedGateways()), geofence);
+    }
+
+    /**
+     * Remove all cached objects if the model has been changed (by any process) since the last validation
+     *
+     * @param modelVersion current model version stored in the database
+     */
+    protected static synchronized void validate(long modelVersion) {
+        if (modelVersion != ModelCache.modelVersion) {
+            invalidate();
+            ModelCache.modelVersion = modelVersion;
+        }
+    }
+
+    /**
+     * Remove all cached objects
+     * <p/>
+     * This has to be called after every structural change of the database.
+     */
+    protected static synchronized void invalidate() {
+        generation++;
+        invalidationCount++;
+
+        apartments.clear();
+        rooms.clear();
+        receivers.clear();
+        apartmentSummaries.clear();
+        roomApartmentIds.clear();
+        size = 0;
+    }
+
+    /**
+     * Evict least recently used Apartments until the cache fits into {@link #MAX_SIZE}
+     * <p/>
+     * Apartments without Rooms and Scenes are small and never evicted, they are only removed on invalidation.
+     */
+    private static void trimToSize() {
+        Iterator<Map.Entry<Long, Entry>> iterator = apartments.entrySet().iterator();
+        while (size > MAX_SIZE && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+
+            for (Room room : eldest.apartment.getRooms()) {
+                rooms.remove(room.getId());
+                for (Receiver receiver : room.getReceivers()) {
+                    receivers.remove(receiver.getId());
+                }
+            }
+            size -= eldest.size;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Estimate the memory footprint of an Apartment graph
+     *
+     * @param apartment Apartment
+     * @return estimated size in bytes
+     */
+    private static long estimateSize(Apartment apartment) {
+        long size = OBJECT_OVERHEAD + sizeOf(apartment.getName());
+
+        for (Room room : apartment.getRooms()) {
+            size += OBJECT_OVERHEAD + sizeOf(room.getName());
+            for (Receiver receiver : room.getReceivers()) {
+                size += sizeOf(receiver);
+            }
+        }
+
+        for (Scene scene : apartment.getScenes()) {
+            size += OBJECT_OVERHEAD + sizeOf(scene.getName());
+            for (SceneItem sceneItem : scene.getSceneItems()) {
+                size += OBJECT_OVERHEAD + sizeOf(sceneItem.getReceiver());
+            }
+        }
+
+        for (Gateway gateway : apartment.getAssociatedGateways()) {
+            size += OBJECT_OVERHEAD + sizeOf(gateway.getName()) + sizeOf(gateway.getModel()) +
+                    sizeOf(gateway.getFirmware()) + sizeOf(gateway.getLocalHost()) + sizeOf(gateway.getWanHost());
+            for (String ssid : gateway.getSsids()) {
+                size += sizeOf(ssid);
+            }
+        }
+
+        Geofence geofence = apartment.getGeofence();
+        if (geofence != null) {
+            size += OBJECT_OVERHEAD + sizeOf(geofence.getName());
+        }
+
+        return size;
+    }
+
+    private static long sizeOf(Receiver receiver) {
+        long size = OBJECT_OVERHEAD + sizeOf(receiver.getName()) + sizeOf(receiver.getModel());
+        for (Button button : receiver.getButtons()) {
+            size += OBJECT_OVERHEAD + sizeOf(button.getName());
+        }
+        return size;
+    }
+
+    private static long sizeOf(@Nullable String string) {
+        if (string == null) {
+            return 0;
+        }
+        return OBJECT_OVERHEAD + 2 * string.length();
+    }
+
+    /**
+     * Get number of cache hits
+     *
+     * @return number of reads served from cache
+     */
+    public static synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get number of cache misses
+     *
+     * @return number of reads that had to go to the database
+     */
+    public static synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get number of evicted Apartments
+     *
+     * @return number of Apartments removed because the cache exceeded its maximum size
+     */
+    public static synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get number of invalidations
+     *
+     * @return number of times the cache was cleared because of database changes
+     */
+    public static synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Get estimated memory footprint of all cached objects
+     *
+     * @return size in bytes
+     */
+    public static synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Get number of cached Apartments
+     *
+     * @return number of cached Apartments
+     */
+    public static synchronized int getApartmentCount() {
+        return apartments.size();
+    }
+
+    /**
+     * @return String representation of the cache statistics
+     */
+    @NonNull
+    public static synchronized String getStatistics() {
+        return "ModelCache: " + apartments.size() + " apartments, " + apartmentSummaries.size() +
+                " apartment summaries, " + rooms.size() + " rooms, " + receivers.size() +
+                " receivers, " + size + "/" + MAX_SIZE + " bytes, hits: " + hitCount + ", misses: " + missCount +
+                ", evictions: " + evictionCount + ", invalidations: " + invalidationCount;
+    }
+
+    /**
+     * A cached Apartment graph and its estimated size
+     */
+    private static class Entry {
+        private final Apartment apartment;
+        private final long size;
+
+        private Entry(Apartment apartment, long size) {
+            this.apartment = apartment;
+            this.size = size;
+        }
+    }
+}
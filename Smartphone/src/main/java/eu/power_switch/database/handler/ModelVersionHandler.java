@@ -0,0 +1,59 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import eu.power_switch.database.table.model_version.ModelVersionTable;
+
+/**
+ * Handler for the model version, which is used to detect structural changes made by other processes
+ */
+abstract class ModelVersionHandler {
+
+    private static final String SQL_GET = "SELECT " + ModelVersionTable.COLUMN_VERSION + " FROM " +
+            ModelVersionTable.TABLE_NAME + " WHERE " + ModelVersionTable.COLUMN_ID + "=?";
+    private static final String SQL_INCREMENT = "UPDATE " + ModelVersionTable.TABLE_NAME + " SET " +
+            ModelVersionTable.COLUMN_VERSION + "=" + ModelVersionTable.COLUMN_VERSION + "+1 WHERE " +
+            ModelVersionTable.COLUMN_ID + "=?";
+    private static final String[] ROW_ID = new String[]{"0"};
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private ModelVersionHandler() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Get the current model version
+     *
+     * @return model version
+     */
+    protected static long get() throws Exception {
+        return StatementCache.queryForLong(SQL_GET, 0L);
+    }
+
+    /**
+     * Increment the model version
+     */
+    protected static void increment() throws Exception {
+        DatabaseHandler.database.execSQL(SQL_INCREMENT, ROW_ID);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import eu.power_switch.obj.Apartment;
+import eu.power_switch.obj.Room;
+import eu.power_switch.obj.Scene;
+import eu.power_switch.obj.button.Button;
+import eu.power_switch.obj.receiver.Receiver;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Process wide in-memory index of Apartment, Room, Receiver, Button and Scene names, ignoring case.
+ * <p/>
+ * Names are resolved by their full path (f.e. "apartment/room/receiver/button") using a hash lookup, a sorted copy
+ * of the same entries is used for prefix matching (name completion in the Tasker plugin configuration).
+ * <p/>
+ * The index is bound to the generation of the {@link ModelCache}, which is incremented by every structural change
+ * made through DatabaseHandler in any process. The first lookup after such a change rebuilds the index from the
+ * database, all other lookups only read the model version from the database.
+ */
+public abstract class NameIndex {
+
+    /**
+     * Separator of path elements in index keys, a control character that can not be part of a name typed by the user
+     */
+    private static final char SEPARATOR = '\u001F';
+
+    private static final HashMap<String, Long> ids = new HashMap<>();
+    private static final TreeMap<String, String> names = new TreeMap<>();
+
+    /**
+     * Generation of the ModelCache this index was built for
+     */
+    private static long generation = -1;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private NameIndex() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Get the ID of an element by its path, ignoring case
+     *
+     * @param type type of element
+     * @param path names of all elements on the path to the element, starting with the Apartment.
+     *             For Rooms the Apartment name may be omitted, in which case the first matching Room of any Apartment
+     *             is returned.
+     * @return ID of the element
+     * @throws NoSuchElementException if there is no element with this path
+     */
+    @NonNull
+    @WorkerThread
+    public static Long resolve(@NonNull Type type, @NonNull String... path) throws Exception {
+        String key = createKey(type, path);
+
+        Long id;
+        synchronized (NameIndex.class) {
+            ensureUpToDate();
+            id = ids.get(key);
+        }
+
+        if (id == null) {
+            throw new NoSuchElementException(type.displayName + " \"" + path[path.length - 1] + "\" not found");
+        }
+        return id;
+    }
+
+    /**
+     * Get the names of all elements whose name starts with a given prefix, ignoring case
+     *
+     * @param type   type of element
+     * @param parent names of all elements on the path to the parent of the element, starting with the Apartment
+     * @param prefix prefix of the element name
+     * @return names of matching elements in alphabetical order, as they were entered by the user
+     */
+    @NonNull
+    @WorkerThread
+    public static List<String> complete(@NonNull Type type, @NonNull String[] parent, @NonNull String prefix) throws Exception {
+        String[] path = new String[parent.length + 1];
+        System.arraycopy(parent, 0, path, 0, parent.length);
+        path[parent.length] = prefix;
+        String fromKey = createKey(type, path);
+
+        synchronized (NameIndex.class) {
+            ensureUpToDate();
+            // all keys of the same type have the same depth, so every key in this range belongs to the parent
+            SortedMap<String, String> matches = names.subMap(fromKey, fromKey + Character.MAX_VALUE);
+            return new ArrayList<>(matches.values());
+        }
+    }
+
+    /**
+     * Rebuild the index if the database has changed since it was built
+     */
+    private static void ensureUpToDate() throws Exception {
+        // picks up changes made by other processes
+        DatabaseHandler.syncModelCache();
+        long currentGeneration = ModelCache.getGeneration();
+        if (currentGeneration == generation) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        ids.clear();
+        names.clear();
+
+        for (Apartment apartment : DatabaseHandler.getAllApartments()) {
+            String apartmentName = apartment.getName();
+            put(apartment.getId(), Type.APARTMENT, apartmentName);
+
+            for (Room room : apartment.getRooms()) {
+                put(room.getId(), Type.ROOM, apartmentName, room.getName());
+                put(room.getId(), Type.ROOM, room.getName());
+
+                for (Receiver receiver : room.getReceivers()) {
+                    put(receiver.getId(), Type.RECEIVER, apartmentName, room.getName(), receiver.getName());
+
+                    for (Button button : receiver.getButtons()) {
+                        put(button.getId(), Type.BUTTON, apartmentName, room.getName(), receiver.getName(), button.getName());
+                        put(button.getId(), Type.BUTTON, room.getName(), receiver.getName(), button.getName());
+                    }
+                    put(receiver.getId(), Type.RECEIVER, room.getName(), receiver.getName());
+                }
+            }
+
+            for (Scene scene : apartment.getScenes()) {
+                put(scene.getId(), Type.SCENE, apartmentName, scene.getName());
+            }
+        }
+
+        generation = currentGeneration;
+        Log.d(NameIndex.class, "rebuilt index with " + ids.size() + " entries in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Add an element to the index, the first element with a specific path wins
+     *
+     * @param id   ID of element
+     * @param type type of element
+     * @param path names of all elements on the path to the element
+     */
+    private static void put(Long id, Type type, String... path) {
+        String key = createKey(type, path);
+        if (!ids.containsKey(key)) {
+            ids.put(key, id);
+            names.put(key, path[path.length - 1]);
+        }
+    }
+
+    /**
+     * Create the case folded index key of a path
+     *
+     * @param type type of element
+     * @param path names of all elements on the path to the element
+     * @return index key
+     */
+    private static String createKey(Type type, String... path) {
+        StringBuilder key = new StringBuilder();
+        key.append(type.name()).append(path.length);
+        for (String name : path) {
+            key.append(SEPARATOR).append(name.trim().toLowerCase(Locale.ROOT));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Types of indexed elements
+     */
+    public enum Type {
+        APARTMENT("Apartment"),
+        ROOM("Room"),
+        RECEIVER("Receiver"),
+        BUTTON("Button"),
+        SCENE("Scene");
+
+        private final String displayName;
+
+        Type(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import android.database.Cursor;
+import android.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import eu.power_switch.obj.UniversalButton;
+import eu.power_switch.obj.receiver.Receiver;
+
+/**
+ * Type specific details (dips, master/slave channels, seeds and universal buttons) of a set of Receivers.
+ * <p/>
+ * All details are prefetched with a single query per Receiver type instead of one query per Receiver.
+ * Details of Receivers that were not part of the prefetched set are loaded on demand.
+ */
+class ReceiverDetails {
+
+    private Map<Long, LinkedList<Boolean>> dips = Collections.emptyMap();
+    private Map<Long, Pair<Character, Integer>> masterSlaveChannels = Collections.emptyMap();
+    private Map<Long, Long> seeds = Collections.emptyMap();
+    private Map<Long, List<UniversalButton>> universalButtons = Collections.emptyMap();
+
+    private ReceiverDetails() {
+    }
+
+    /**
+     * Get details without prefetching, every detail will be loaded on demand
+     *
+     * @return empty details
+     */
+    protected static ReceiverDetails onDemand() {
+        return new ReceiverDetails();
+    }
+
+    /**
+     * Prefetch details of all Receivers a cursor points to
+     * <p/>
+     * The cursor will be moved to its first entry afterwards.
+     *
+     * @param cursor cursor containing Receiver database entries (see {@link eu.power_switch.database.table.receiver.ReceiverTable#ALL_COLUMNS})
+     * @return prefetched details
+     */
+    protected static ReceiverDetails prefetch(Cursor cursor) throws Exception {
+        List<Long> dipIds = new ArrayList<>();
+        List<Long> masterSlaveIds = new ArrayList<>();
+        List<Long> autoPairIds = new ArrayList<>();
+        List<Long> universalIds = new ArrayList<>();
+
+        cursor.moveToFirst();
+        while (!cursor.isAfterLast()) {
+            Long id = cursor.getLong(0);
+            switch (Receiver.Type.getEnum(cursor.getString(3))) {
+                case DIPS:
+                    dipIds.add(id);
+                    break;
+                case MASTER_SLAVE:
+                    masterSlaveIds.add(id);
+                    break;
+                case AUTOPAIR:
+                    autoPairIds.add(id);
+                    break;
+                case UNIVERSAL:
+                    universalIds.add(id);
+                    break;
+            }
+            cursor.moveToNext();
+        }
+        cursor.moveToFirst();
+
+        ReceiverDetails details = new ReceiverDetails();
+        if (!dipIds.isEmpty()) {
+            details.dips = DipHandler.getDips(dipIds);
+        }
+        if (!masterSlaveIds.isEmpty()) {
+            details.masterSlaveChannels = MasterSlaveReceiverHandler.getChannels(masterSlaveIds);
+        }
+        if (!autoPairIds.isEmpty()) {
+            details.seeds = AutoPairHandler.getSeeds(autoPairIds);
+        }
+        if (!universalIds.isEmpty()) {
+            details.universalButtons = UniversalButtonHandler.getUniversalButtons(universalIds);
+        }
+        return details;
+    }
+
+    protected LinkedList<Boolean> getDips(Long receiverId) throws Exception {
+        LinkedList<Boolean> receiverDips = dips.get(receiverId);
+        if (receiverDips == null) {
+            return DipHandler.getDips(receiverId);
+        }
+        return receiverDips;
+    }
+
+    protected char getMaster(Long receiverId) throws Exception {
+        Pair<Character, Integer> channels = masterSlaveChannels.get(receiverId);
+        if (channels == null) {
+            return MasterSlaveReceiverHandler.getMaster(receiverId);
+        }
+        return channels.first;
+    }
+
+    protected int getSlave(Long receiverId) throws Exception {
+        Pair<Character, Integer> channels = masterSlaveChannels.get(receiverId);
+        if (channels == null) {
+            return MasterSlaveReceiverHandler.getSlave(receiverId);
+        }
+        return channels.second;
+    }
+
+    protected long getSeed(Long receiverId) throws Exception {
+        Long seed = seeds.get(receiverId);
+        if (seed == null) {
+            return AutoPairHandler.getSeed(receiverId);
+        }
+        return seed;
+    }
+
+    protected List<UniversalButton> getUniversalButtons(Long receiverId) throws Exception {
+        List<UniversalButton> buttons = universalButtons.get(receiverId);
+        if (buttons == null) {
+            return UniversalButtonHandler.getUniversalButtons(receiverId);
+        }
+        return buttons;
+    }
+}
@@ -0,0 +1,548 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import eu.power_switch.obj.UniversalButton;
+import eu.power_switch.obj.receiver.Receiver;
+import eu.power_switch.obj.receiver.UniversalReceiver;
+import eu.power_switch.obj.receiver.device.bat.RC3500_A_IP44_DE;
+import eu.power_switch.obj.receiver.device.bat.RC_AAA1000_A_IP44_Outdoor;
+import eu.power_switch.obj.receiver.device.bat.RC_AAA3680_A_IP20;
+import eu.power_switch.obj.receiver.device.brennenstuhl.RC3600;
+import eu.power_switch.obj.receiver.device.brennenstuhl.RCS1000NComfort;
+import eu.power_switch.obj.receiver.device.brennenstuhl.RCS1044NComfort;
+import eu.power_switch.obj.receiver.device.elro.AB440D_200W;
+import eu.power_switch.obj.receiver.device.elro.AB440D_300W;
+import eu.power_switch.obj.receiver.device.elro.AB440ID;
+import eu.power_switch.obj.receiver.device.elro.AB440IS;
+import eu.power_switch.obj.receiver.device.elro.AB440L;
+import eu.power_switch.obj.receiver.device.elro.AB440S;
+import eu.power_switch.obj.receiver.device.elro.AB440SC;
+import eu.power_switch.obj.receiver.device.elro.AB440WD;
+import eu.power_switch.obj.receiver.device.hama.Hama;
+import eu.power_switch.obj.receiver.device.intertechno.CMR1000;
+import eu.power_switch.obj.receiver.device.intertechno.CMR1224;
+import eu.power_switch.obj.receiver.device.intertechno.CMR300;
+import eu.power_switch.obj.receiver.device.intertechno.CMR500;
+import eu.power_switch.obj.receiver.device.intertechno.GRR300;
+import eu.power_switch.obj.receiver.device.intertechno.GRR3500;
+import eu.power_switch.obj.receiver.device.intertechno.IT1500;
+import eu.power_switch.obj.receiver.device.intertechno.IT2300;
+import eu.power_switch.obj.receiver.device.intertechno.ITDL1000;
+import eu.power_switch.obj.receiver.device.intertechno.ITDM250;
+import eu.power_switch.obj.receiver.device.intertechno.ITL1000;
+import eu.power_switch.obj.receiver.device.intertechno.ITL150;
+import eu.power_switch.obj.receiver.device.intertechno.ITL210;
+import eu.power_switch.obj.receiver.device.intertechno.ITL230;
+import eu.power_switch.obj.receiver.device.intertechno.ITL250;
+import eu.power_switch.obj.receiver.device.intertechno.ITL300;
+import eu.power_switch.obj.receiver.device.intertechno.ITL3500;
+import eu.power_switch.obj.receiver.device.intertechno.ITL500;
+import eu.power_switch.obj.receiver.device.intertechno.ITLR300;
+import eu.power_switch.obj.receiver.device.intertechno.ITLR3500;
+import eu.power_switch.obj.receiver.device.intertechno.ITLR3500T;
+import eu.power_switch.obj.receiver.device.intertechno.ITR1500;
+import eu.power_switch.obj.receiver.device.intertechno.ITR300;
+import eu.power_switch.obj.receiver.device.intertechno.ITR3500;
+import eu.power_switch.obj.receiver.device.intertechno.ITR7000;
+import eu.power_switch.obj.receiver.device.intertechno.ITWR3500;
+import eu.power_switch.obj.receiver.device.intertechno.LBUR100;
+import eu.power_switch.obj.receiver.device.intertechno.PA3_1000;
+import eu.power_switch.obj.receiver.device.intertechno.PAR_1500;
+import eu.power_switch.obj.receiver.device.intertechno.YCR1000;
+import eu.power_switch.obj.receiver.device.intertek.Model_1919361;
+import eu.power_switch.obj.receiver.device.mumbi.m_FS300;
+import eu.power_switch.obj.receiver.device.pollin_electronic.Set2605;
+import eu.power_switch.obj.receiver.device.rev.Ritter;
+import eu.power_switch.obj.receiver.device.rev.Telecontrol;
+import eu.power_switch.obj.receiver.device.rohrmotor24.RMF_Motor;
+import eu.power_switch.obj.receiver.device.rohrmotor24.RMF_R1;
+import eu.power_switch.obj.receiver.device.rohrmotor24.RMF_R1_UP;
+import eu.power_switch.obj.receiver.device.unitec.Unitec_EIM_209_48110;
+import eu.power_switch.obj.receiver.device.universal.HX2262_Comp;
+import eu.power_switch.obj.receiver.device.vivanco.FSS31000W;
+import eu.power_switch.obj.receiver.device.vivanco.FSS33600W;
+
+/**
+ * Registry of factories used to create Receiver objects from database information without using reflection.
+ * <p/>
+ * Every Receiver class has to be registered here, otherwise it will be created using the (much slower)
+ * reflection fallback in {@link ReceiverReflectionMagic}.
+ */
+public abstract class ReceiverFactoryRegistry {
+
+    /**
+     * Map <Receiver Model> -> Factory
+     */
+    private static final HashMap<String, Factory> factoriesByModel = new HashMap<>();
+    /**
+     * Map <ClassName> -> Factory
+     */
+    private static final HashMap<String, Factory> factoriesByClassName = new HashMap<>();
+
+    static {
+        // bat
+        register(RC3500_A_IP44_DE.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new RC3500_A_IP44_DE(context, id, name, dips, roomId);
+            }
+        });
+        register(RC_AAA1000_A_IP44_Outdoor.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new RC_AAA1000_A_IP44_Outdoor(context, id, name, dips, roomId);
+            }
+        });
+        register(RC_AAA3680_A_IP20.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new RC_AAA3680_A_IP20(context, id, name, seed, roomId);
+            }
+        });
+        // brennenstuhl
+        register(RC3600.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new RC3600(context, id, name, seed, roomId);
+            }
+        });
+        register(RCS1000NComfort.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new RCS1000NComfort(context, id, name, dips, roomId);
+            }
+        });
+        register(RCS1044NComfort.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new RCS1044NComfort(context, id, name, dips, roomId);
+            }
+        });
+        // elro
+        register(AB440D_200W.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440D_200W(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440D_300W.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440D_300W(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440ID.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440ID(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440IS.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440IS(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440L.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440L(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440S.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440S(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440SC.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440SC(context, id, name, dips, roomId);
+            }
+        });
+        register(AB440WD.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new AB440WD(context, id, name, dips, roomId);
+            }
+        });
+        // hama
+        register(Hama.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new Hama(context, id, name, seed, roomId);
+            }
+        });
+        // intertechno
+        register(CMR1000.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new CMR1000(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(CMR1224.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new CMR1224(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(CMR300.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new CMR300(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(CMR500.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new CMR500(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(GRR300.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new GRR300(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(GRR3500.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new GRR3500(context, id, name, seed, roomId);
+            }
+        });
+        register(IT1500.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new IT1500(context, id, name, channelMaster, channelSlave, roomId);
+            }
+
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new IT1500(context, id, name, seed, roomId);
+            }
+        });
+        register(IT2300.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new IT2300(context, id, name, seed, roomId);
+            }
+        });
+        register(ITDL1000.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITDL1000(context, id, name, seed, roomId);
+            }
+        });
+        register(ITDM250.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITDM250(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL1000.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL1000(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL150.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL150(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL210.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL210(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL230.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL230(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL250.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL250(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL300.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL300(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL3500.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL3500(context, id, name, seed, roomId);
+            }
+        });
+        register(ITL500.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITL500(context, id, name, seed, roomId);
+            }
+        });
+        register(ITLR300.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITLR300(context, id, name, seed, roomId);
+            }
+        });
+        register(ITLR3500.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITLR3500(context, id, name, seed, roomId);
+            }
+        });
+        register(ITLR3500T.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITLR3500T(context, id, name, seed, roomId);
+            }
+        });
+        register(ITR1500.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new ITR1500(context, id, name, channelMaster, channelSlave, roomId);
+            }
+
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITR1500(context, id, name, seed, roomId);
+            }
+        });
+        register(ITR300.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new ITR300(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(ITR3500.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new ITR3500(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(ITR7000.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITR7000(context, id, name, seed, roomId);
+            }
+        });
+        register(ITWR3500.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new ITWR3500(context, id, name, seed, roomId);
+            }
+        });
+        register(LBUR100.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new LBUR100(context, id, name, seed, roomId);
+            }
+        });
+        register(PA3_1000.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new PA3_1000(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(PAR_1500.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new PAR_1500(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        register(YCR1000.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new YCR1000(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        // intertek
+        register(Model_1919361.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new Model_1919361(context, id, name, dips, roomId);
+            }
+        });
+        // mumbi
+        register(m_FS300.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new m_FS300(context, id, name, dips, roomId);
+            }
+        });
+        // pollin_electronic
+        register(Set2605.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new Set2605(context, id, name, dips, roomId);
+            }
+        });
+        // rev
+        register(Ritter.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new Ritter(context, id, name, dips, roomId);
+            }
+        });
+        register(Telecontrol.class, new Factory() {
+            @Override
+            public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+                return new Telecontrol(context, id, name, channelMaster, channelSlave, roomId);
+            }
+        });
+        // rohrmotor24
+        register(RMF_Motor.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new RMF_Motor(context, id, name, seed, roomId);
+            }
+        });
+        register(RMF_R1.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new RMF_R1(context, id, name, seed, roomId);
+            }
+        });
+        register(RMF_R1_UP.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new RMF_R1_UP(context, id, name, seed, roomId);
+            }
+        });
+        // unitec
+        register(Unitec_EIM_209_48110.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new Unitec_EIM_209_48110(context, id, name, seed, roomId);
+            }
+        });
+        // universal
+        register(HX2262_Comp.class, new Factory() {
+            @Override
+            public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+                return new HX2262_Comp(context, id, name, seed, roomId);
+            }
+        });
+        // vivanco
+        register(FSS31000W.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new FSS31000W(context, id, name, dips, roomId);
+            }
+        });
+        register(FSS33600W.class, new Factory() {
+            @Override
+            public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+                return new FSS33600W(context, id, name, dips, roomId);
+            }
+        });
+        // universal
+        register(UniversalReceiver.class, new Factory() {
+            @Override
+            public Receiver createUniversalReceiver(Context context, Long id, String name, List<UniversalButton> buttons, Long roomId) {
+                return new UniversalReceiver(context, id, name, buttons, roomId);
+            }
+        });
+    }
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private ReceiverFactoryRegistry() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Register a Factory for a Receiver class
+     *
+     * @param receiverClass Receiver class
+     * @param factory       Factory creating instances of this class
+     */
+    private static void register(Class<? extends Receiver> receiverClass, Factory factory) {
+        factoriesByClassName.put(receiverClass.getName(), factory);
+
+        String model = Receiver.getModelName(receiverClass.getCanonicalName());
+        if (model != null) {
+            factoriesByModel.put(model, factory);
+        }
+    }
+
+    /**
+     * Get the Factory for a Receiver
+     *
+     * @param model     Model of Receiver, as stored in database
+     * @param className Class name of Receiver, as stored in database
+     * @return Factory, null if no Factory is registered for this Receiver
+     */
+    @Nullable
+    public static Factory get(@Nullable String model, @Nullable String className) {
+        Factory factory = null;
+        if (model != null) {
+            factory = factoriesByModel.get(model);
+        }
+        if (factory == null && className != null) {
+            factory = factoriesByClassName.get(className);
+        }
+        return factory;
+    }
+
+    /**
+     * Creates Receivers of a specific class
+     * <p/>
+     * Only the methods matching the constructors of the class are overridden,
+     * all others throw an IllegalArgumentException.
+     */
+    public abstract static class Factory {
+
+        public Receiver createDipReceiver(Context context, Long id, String name, LinkedList<Boolean> dips, Long roomId) {
+            throw new IllegalArgumentException("Receiver doesn't support type " + Receiver.Type.DIPS);
+        }
+
+        public Receiver createMasterSlaveReceiver(Context context, Long id, String name, char channelMaster, int channelSlave, Long roomId) {
+            throw new IllegalArgumentException("Receiver doesn't support type " + Receiver.Type.MASTER_SLAVE);
+        }
+
+        public Receiver createAutoPairReceiver(Context context, Long id, String name, long seed, Long roomId) {
+            throw new IllegalArgumentException("Receiver doesn't support type " + Receiver.Type.AUTOPAIR);
+        }
+
+        public Receiver createUniversalReceiver(Context context, Long id, String name, List<UniversalButton> buttons, Long roomId) {
+            throw new IllegalArgumentException("Receiver doesn't support type " + Receiver.Type.UNIVERSAL);
+        }
+    }
+}
@@ -39,6 +39,9 @@ import eu.power_switch.shared.log.Log;
  */
 abstract class ReceiverHandler {
 
+    private static final String SQL_GET_TYPE = "SELECT " + ReceiverTable.COLUMN_TYPE +
+            " FROM " + ReceiverTable.TABLE_NAME + " WHERE " + ReceiverTable.COLUMN_ID + "=?";
+
     /**
      * Private Constructor
      *
@@ -61,6 +64,8 @@ abstract class ReceiverHandler {
         values.put(ReceiverTable.COLUMN_CLASSNAME, receiver.getClass().getName());
         values.put(ReceiverTable.COLUMN_TYPE, receiver.getType().toString());
         values.put(ReceiverTable.COLUMN_POSITION_IN_ROOM, RoomHandler.get(receiver.getRoomId()).getReceivers().size());
+        values.put(ReceiverTable.COLUMN_PREFERRED_GATEWAY_ID, receiver.getPreferredGatewayId());
+        values.put(ReceiverTable.COLUMN_BROADCAST_FALLBACK, receiver.isBroadcastFallback());
 
         Long dbInsertReturnValue = DatabaseHandler.database.insert(ReceiverTable.TABLE_NAME, null, values);
 
@@ -114,6 +119,8 @@ abstract class ReceiverHandler {
         values.put(ReceiverTable.COLUMN_MODEL, receiver.getModel());
         values.put(ReceiverTable.COLUMN_CLASSNAME, receiver.getClass().getName());
         values.put(ReceiverTable.COLUMN_TYPE, receiver.getType().toString());
+        values.put(ReceiverTable.COLUMN_PREFERRED_GATEWAY_ID, receiver.getPreferredGatewayId());
+        values.put(ReceiverTable.COLUMN_BROADCAST_FALLBACK, receiver.isBroadcastFallback());
 
         DatabaseHandler.database.update(ReceiverTable.TABLE_NAME, values,
                 ReceiverTable.COLUMN_ID + "=" + receiver.getId(), null);
@@ -142,8 +149,8 @@ abstract class ReceiverHandler {
     @NonNull
     protected static Receiver get(Long id) throws Exception {
         Receiver receiver = null;
-        Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, ReceiverTable.ALL_COLUMNS, ReceiverTable.COLUMN_ID + "="
-                + id, null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, ReceiverTable.ALL_COLUMNS, ReceiverTable.COLUMN_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             receiver = dbToReceiver(cursor);
@@ -181,12 +188,12 @@ abstract class ReceiverHandler {
      */
     protected static ArrayList<Receiver> getByRoom(Long roomId) throws Exception {
         ArrayList<Receiver> receivers = new ArrayList<>();
-        Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, ReceiverTable.ALL_COLUMNS, ReceiverTable.COLUMN_ROOM_ID +
-                "=" + roomId, null, null, null, ReceiverTable.COLUMN_POSITION_IN_ROOM + " ASC");
-        cursor.moveToFirst();
+        Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, ReceiverTable.ALL_COLUMNS, ReceiverTable.COLUMN_ROOM_ID + "=?",
+                new String[]{String.valueOf(roomId)}, null, null, ReceiverTable.COLUMN_POSITION_IN_ROOM + " ASC");
+        ReceiverDetails details = ReceiverDetails.prefetch(cursor);
 
         while (!cursor.isAfterLast()) {
-            receivers.add(dbToReceiver(cursor));
+            receivers.add(dbToReceiver(cursor, details));
             cursor.moveToNext();
         }
         cursor.close();
@@ -202,10 +209,10 @@ abstract class ReceiverHandler {
     protected static List<Receiver> getAll() throws Exception {
         List<Receiver> receivers = new ArrayList<>();
         Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, ReceiverTable.ALL_COLUMNS, null, null, null, null, null);
-        cursor.moveToFirst();
+        ReceiverDetails details = ReceiverDetails.prefetch(cursor);
 
         while (!cursor.isAfterLast()) {
-            receivers.add(dbToReceiver(cursor));
+            receivers.add(dbToReceiver(cursor, details));
             cursor.moveToNext();
         }
         cursor.close();
@@ -260,18 +267,7 @@ abstract class ReceiverHandler {
      * @return Type of Receiver
      */
     protected static Receiver.Type getType(Long id) throws Exception {
-        Receiver.Type type;
-        String[] columns = {ReceiverTable.COLUMN_ID, ReceiverTable.COLUMN_TYPE};
-        Cursor cursor = DatabaseHandler.database.query(ReceiverTable.TABLE_NAME, columns, ReceiverTable.COLUMN_ID +
-                "=" + id, null, null, null, null);
-        if (cursor.moveToFirst()) {
-            type = Receiver.Type.getEnum(cursor.getString(1));
-        } else {
-            cursor.close();
-            throw new NoSuchElementException(String.valueOf(id));
-        }
-        cursor.close();
-        return type;
+        return Receiver.Type.getEnum(StatementCache.queryForString(SQL_GET_TYPE, id));
     }
 
 //    /**
@@ -295,6 +291,21 @@ abstract class ReceiverHandler {
 //        return buttonId;
 //    }
 
+    /**
+     * Removes a Gateway as preferred Gateway from all Receivers
+     * <p/>
+     * Affected Receivers are sent to all active Gateways afterwards.
+     *
+     * @param gatewayId ID of Gateway
+     */
+    protected static void clearPreferredGateway(Long gatewayId) throws Exception {
+        ContentValues values = new ContentValues();
+        values.putNull(ReceiverTable.COLUMN_PREFERRED_GATEWAY_ID);
+
+        DatabaseHandler.database.update(ReceiverTable.TABLE_NAME, values,
+                ReceiverTable.COLUMN_PREFERRED_GATEWAY_ID + "=?", new String[]{String.valueOf(gatewayId)});
+    }
+
     /**
      * Sets ID of last activated Button of a Receiver
      *
@@ -353,4 +364,15 @@ abstract class ReceiverHandler {
     private static Receiver dbToReceiver(Cursor c) throws Exception {
         return ReceiverReflectionMagic.fromDatabase(DatabaseHandler.context, c);
     }
+
+    /**
+     * Creates a Receiver Object out of Database information
+     *
+     * @param c       cursor pointing to a Receiver database entry
+     * @param details prefetched details of all Receivers of the cursor
+     * @return Receiver
+     */
+    private static Receiver dbToReceiver(Cursor c, ReceiverDetails details) throws Exception {
+        return ReceiverReflectionMagic.fromDatabase(DatabaseHandler.context, c, details);
+    }
 }
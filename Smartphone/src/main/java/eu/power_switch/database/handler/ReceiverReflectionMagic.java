@@ -31,6 +31,7 @@ import eu.power_switch.obj.receiver.DipReceiver;
 import eu.power_switch.obj.receiver.MasterSlaveReceiver;
 import eu.power_switch.obj.receiver.Receiver;
 import eu.power_switch.obj.receiver.UniversalReceiver;
+import eu.power_switch.shared.log.Log;
 
 /**
  *
@@ -54,6 +55,21 @@ public abstract class ReceiverReflectionMagic {
      * @return The complete Receiver object.
      */
     public static Receiver fromDatabase(Context context, Cursor cursor) throws Exception {
+        return fromDatabase(context, cursor, ReceiverDetails.onDemand());
+    }
+
+    /**
+     * Creates a Receiver based on a database cursor.
+     * <p/>
+     * The Receiver is created by its registered {@link ReceiverFactoryRegistry.Factory},
+     * reflection is only used for Receivers without a registered Factory.
+     *
+     * @param context The application context for all database operations.
+     * @param cursor  A database cursor pointing to a Receiver entry.
+     * @param details Prefetched type specific details of the Receiver
+     * @return The complete Receiver object.
+     */
+    protected static Receiver fromDatabase(Context context, Cursor cursor, ReceiverDetails details) throws Exception {
         Long id = cursor.getLong(0);
         String name = cursor.getString(1);
         String model = cursor.getString(2);
@@ -68,32 +84,54 @@ public abstract class ReceiverReflectionMagic {
 
         Long lastActivatedButtonId = cursor.getLong(7);
 
-        Receiver receiver = null;
+        Long preferredGatewayId = null;
+        if (!cursor.isNull(8)) {
+            preferredGatewayId = cursor.getLong(8);
+        }
+        boolean broadcastFallback = cursor.getInt(9) > 0;
 
-        Constructor<?> constructor = getConstructor(className, type);
+        Receiver receiver = null;
 
-        switch (type) {
-            case MASTER_SLAVE:
-                Character channelMaster = MasterSlaveReceiverHandler.getMaster(id);
-                int channelSlave = MasterSlaveReceiverHandler.getSlave(id);
-                receiver = (Receiver) constructor.newInstance(context, id, name, channelMaster, channelSlave, roomId);
-                break;
-            case DIPS:
-                LinkedList<Boolean> dips = DipHandler.getDips(id);
-                receiver = (Receiver) constructor.newInstance(context, id, name, dips, roomId);
-                break;
-            case UNIVERSAL:
-                List<UniversalButton> buttons = UniversalButtonHandler.getUniversalButtons(id);
-                receiver = (Receiver) constructor.newInstance(context, id, name, buttons, roomId);
-                break;
-            case AUTOPAIR:
-                long seed = AutoPairHandler.getSeed(id);
-                receiver = (Receiver) constructor.newInstance(context, id, name, seed, roomId);
-                break;
+        ReceiverFactoryRegistry.Factory factory = ReceiverFactoryRegistry.get(model, className);
+        if (factory != null) {
+            switch (type) {
+                case MASTER_SLAVE:
+                    receiver = factory.createMasterSlaveReceiver(context, id, name, details.getMaster(id), details.getSlave(id), roomId);
+                    break;
+                case DIPS:
+                    receiver = factory.createDipReceiver(context, id, name, details.getDips(id), roomId);
+                    break;
+                case UNIVERSAL:
+                    receiver = factory.createUniversalReceiver(context, id, name, details.getUniversalButtons(id), roomId);
+                    break;
+                case AUTOPAIR:
+                    receiver = factory.createAutoPairReceiver(context, id, name, details.getSeed(id), roomId);
+                    break;
+            }
+        } else {
+            Log.w("No factory registered for " + className + ", using reflection");
+            Constructor<?> constructor = getConstructor(className, type);
+
+            switch (type) {
+                case MASTER_SLAVE:
+                    receiver = (Receiver) constructor.newInstance(context, id, name, details.getMaster(id), details.getSlave(id), roomId);
+                    break;
+                case DIPS:
+                    receiver = (Receiver) constructor.newInstance(context, id, name, details.getDips(id), roomId);
+                    break;
+                case UNIVERSAL:
+                    receiver = (Receiver) constructor.newInstance(context, id, name, details.getUniversalButtons(id), roomId);
+                    break;
+                case AUTOPAIR:
+                    receiver = (Receiver) constructor.newInstance(context, id, name, details.getSeed(id), roomId);
+                    break;
+            }
         }
 
         receiver.setPositionInRoom(positionInRoom);
         receiver.setLastActivatedButtonId(lastActivatedButtonId);
+        receiver.setPreferredGatewayId(preferredGatewayId);
+        receiver.setBroadcastFallback(broadcastFallback);
 
         return receiver;
     }
@@ -37,6 +37,9 @@ import eu.power_switch.settings.SmartphonePreferencesHandler;
  */
 abstract class RoomHandler {
 
+    private static final String SQL_GET_APARTMENT_ID = "SELECT " + RoomTable.COLUMN_APARTMENT_ID +
+            " FROM " + RoomTable.TABLE_NAME + " WHERE " + RoomTable.COLUMN_ID + "=?";
+
     /**
      * Private Constructor
      *
@@ -131,8 +134,8 @@ abstract class RoomHandler {
     @NonNull
     protected static Room get(String name) throws Exception {
         Room room = null;
-        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_NAME + "=='" +
-                name + "'", null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_NAME + "=?",
+                new String[]{name}, null, null, null);
 
         if (cursor.moveToFirst()) {
             room = dbToRoom(cursor);
@@ -154,8 +157,8 @@ abstract class RoomHandler {
     @NonNull
     protected static Room getCaseInsensitive(String name) throws Exception {
         Room room = null;
-        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_NAME + "=='" +
-                name.toLowerCase() + "' COLLATE NOCASE", null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_NAME + "=? COLLATE NOCASE",
+                new String[]{name}, null, null, null);
         cursor.moveToFirst();
 
         if (cursor.moveToFirst()) {
@@ -179,7 +182,7 @@ abstract class RoomHandler {
     protected static Room get(Long id) throws Exception {
         Room room = null;
         Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS,
-                RoomTable.COLUMN_ID + "==" + id, null, null, null, null);
+                RoomTable.COLUMN_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             room = dbToRoom(cursor);
@@ -193,6 +196,17 @@ abstract class RoomHandler {
         return room;
     }
 
+    /**
+     * Gets the ID of the Apartment a Room belongs to
+     *
+     * @param id ID of Room
+     * @return ID of Apartment
+     */
+    @NonNull
+    protected static Long getApartmentId(Long id) throws Exception {
+        return StatementCache.queryForLong(SQL_GET_APARTMENT_ID, id);
+    }
+
     /**
      * Get Rooms of a specific Apartment
      *
@@ -201,9 +215,8 @@ abstract class RoomHandler {
      */
     public static LinkedList<Room> getByApartment(Long apartmentId) throws Exception {
         LinkedList<Room> rooms = new LinkedList<>();
-        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_APARTMENT_ID +
-                        "==" + apartmentId,
-                null, null, null, RoomTable.COLUMN_POSITION + " ASC");
+        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, RoomTable.ALL_COLUMNS, RoomTable.COLUMN_APARTMENT_ID + "=?",
+                new String[]{String.valueOf(apartmentId)}, null, null, RoomTable.COLUMN_POSITION + " ASC");
         cursor.moveToFirst();
 
         boolean autoCollapseRooms = SmartphonePreferencesHandler.getAutoCollapseRooms();
@@ -226,8 +239,8 @@ abstract class RoomHandler {
     public static ArrayList<Long> getIdsByApartment(Long apartmentId) throws Exception {
         ArrayList<Long> roomIds = new ArrayList<>();
         String[] columns = new String[]{RoomTable.COLUMN_ID};
-        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, columns, RoomTable.COLUMN_APARTMENT_ID +
-                "==" + apartmentId, null, null, null, RoomTable.COLUMN_POSITION + " ASC");
+        Cursor cursor = DatabaseHandler.database.query(RoomTable.TABLE_NAME, columns, RoomTable.COLUMN_APARTMENT_ID + "=?",
+                new String[]{String.valueOf(apartmentId)}, null, null, RoomTable.COLUMN_POSITION + " ASC");
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
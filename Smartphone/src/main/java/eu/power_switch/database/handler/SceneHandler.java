@@ -105,8 +105,8 @@ abstract class SceneHandler {
     @NonNull
     protected static Scene get(String name) throws Exception {
         Scene scene = null;
-        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_NAME + "=='" + name + "'", null,
-                null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_NAME + "=?",
+                new String[]{name}, null, null, null);
 
         if (cursor.moveToFirst()) {
             scene = dbToScene(cursor);
@@ -128,8 +128,8 @@ abstract class SceneHandler {
     @NonNull
     protected static Scene get(Long id) throws Exception {
         Scene scene = null;
-        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_ID + "==" + id, null, null, null,
-                null);
+        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             scene = dbToScene(cursor);
@@ -144,8 +144,8 @@ abstract class SceneHandler {
 
     public static LinkedList<Scene> getByApartment(Long id) throws Exception {
         LinkedList<Scene> scenes = new LinkedList<>();
-        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_APARTMENT_ID +
-                "==" + id, null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(SceneTable.TABLE_NAME, SceneTable.ALL_COLUMNS, SceneTable.COLUMN_APARTMENT_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
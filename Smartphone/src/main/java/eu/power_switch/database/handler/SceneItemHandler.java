@@ -79,7 +79,7 @@ abstract class SceneItemHandler {
      */
     protected static void update(Long receiverId) throws Exception {
         Cursor cursor = DatabaseHandler.database.query(SceneItemTable.TABLE_NAME, SceneItemTable.ALL_COLUMNS,
-                SceneItemTable.COLUMN_RECEIVER_ID + "==" + receiverId, null, null, null, null);
+                SceneItemTable.COLUMN_RECEIVER_ID + "=?", new String[]{String.valueOf(receiverId)}, null, null, null);
         cursor.moveToFirst();
         while (!cursor.isAfterLast()) {
             long sceneItemId = cursor.getLong(0);
@@ -119,7 +119,7 @@ abstract class SceneItemHandler {
         LinkedList<SceneItem> sceneItems = new LinkedList<>();
 
         Cursor cursor = DatabaseHandler.database.query(SceneItemTable.TABLE_NAME, SceneItemTable.ALL_COLUMNS,
-                SceneItemTable.COLUMN_SCENE_ID + "==" + sceneId, null, null, null, null);
+                SceneItemTable.COLUMN_SCENE_ID + "=?", new String[]{String.valueOf(sceneId)}, null, null, null);
         cursor.moveToFirst();
         while (!cursor.isAfterLast()) {
             sceneItems.add(dbToSceneItem(cursor));
@@ -0,0 +1,147 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.handler;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Cache of compiled, parameterized statements used for hot single value lookups
+ * <p/>
+ * Statements are compiled once per database connection and reused for every following lookup, only the arguments
+ * are bound again. All cached statements are released when the connection changes or is closed.
+ * <p/>
+ * Cursor based queries should use selection arguments ("?") instead of concatenated values as well, so the
+ * prepared statement cache of the connection can reuse their compiled form too.
+ */
+abstract class StatementCache {
+
+    /**
+     * Compiled statements by SQL
+     */
+    private static final Map<String, SQLiteStatement> statements = new HashMap<>();
+
+    /**
+     * Database the cached statements were compiled for
+     */
+    private static SQLiteDatabase compiledFor;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private StatementCache() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Execute a statement that returns a single number
+     *
+     * @param sql  SQL query with "?" placeholders
+     * @param args arguments for the placeholders (Long, Integer or String)
+     * @return value of first column of first row
+     * @throws NoSuchElementException if the query returned no rows
+     */
+    protected static synchronized long queryForLong(String sql, Object... args) throws Exception {
+        SQLiteStatement statement = getStatement(sql, args);
+        try {
+            return statement.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            throw new NoSuchElementException(toString(args));
+        }
+    }
+
+    /**
+     * Execute a statement that returns a single text value
+     *
+     * @param sql  SQL query with "?" placeholders
+     * @param args arguments for the placeholders (Long, Integer or String)
+     * @return value of first column of first row
+     * @throws NoSuchElementException if the query returned no rows
+     */
+    protected static synchronized String queryForString(String sql, Object... args) throws Exception {
+        SQLiteStatement statement = getStatement(sql, args);
+        try {
+            return statement.simpleQueryForString();
+        } catch (SQLiteDoneException e) {
+            throw new NoSuchElementException(toString(args));
+        }
+    }
+
+    /**
+     * Releases all compiled statements
+     */
+    protected static synchronized void clear() {
+        for (SQLiteStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (Exception e) {
+                Log.e("Error closing statement", e);
+            }
+        }
+        statements.clear();
+        compiledFor = null;
+    }
+
+    private static SQLiteStatement getStatement(String sql, Object[] args) {
+        SQLiteDatabase database = DatabaseHandler.database;
+        if (database != compiledFor) {
+            clear();
+            compiledFor = database;
+        }
+
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = database.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+
+        statement.clearBindings();
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg == null) {
+                statement.bindNull(i + 1);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                statement.bindLong(i + 1, ((Number) arg).longValue());
+            } else {
+                statement.bindString(i + 1, arg.toString());
+            }
+        }
+        return statement;
+    }
+
+    private static String toString(Object[] args) {
+        StringBuilder stringBuilder = new StringBuilder();
+        for (Object arg : args) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append(", ");
+            }
+            stringBuilder.append(arg);
+        }
+        return stringBuilder.toString();
+    }
+}
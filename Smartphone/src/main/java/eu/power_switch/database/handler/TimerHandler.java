@@ -34,7 +34,6 @@ import eu.power_switch.database.table.timer.TimerWeekdayTable;
 import eu.power_switch.timer.IntervalTimer;
 import eu.power_switch.timer.Timer;
 import eu.power_switch.timer.WeekdayTimer;
-import eu.power_switch.timer.alarm.AlarmHandler;
 
 /**
  * Provides database methods for managing Timers
@@ -76,8 +75,6 @@ abstract class TimerHandler {
             throw new RuntimeException();
         }
 
-        // activate alarm
-        AlarmHandler.createAlarm(DatabaseHandler.context, get(timerId));
         return timerId;
     }
 
@@ -97,8 +94,6 @@ abstract class TimerHandler {
      * @param timerId ID of Timer
      */
     protected static void delete(Long timerId) throws Exception {
-        AlarmHandler.cancelAlarm(DatabaseHandler.context, get(timerId));
-
         TimerActionHandler.delete(timerId);
 
         deleteWeekdayDetails(timerId);
@@ -118,8 +113,6 @@ abstract class TimerHandler {
      * @param timer new Timer Object with same ID as existing one
      */
     protected static void update(Timer timer) throws Exception {
-        AlarmHandler.cancelAlarm(DatabaseHandler.context, get(timer.getId()));
-
         TimerActionHandler.update(timer);
 
         deleteWeekdayDetails(timer.getId());
@@ -137,11 +130,6 @@ abstract class TimerHandler {
         if (Timer.EXECUTION_TYPE_WEEKDAY.equals(timer.getExecutionType())) {
             insertWeekdayDetails((WeekdayTimer) timer, timer.getId());
         }
-
-        // activate new alarm if timer is active
-        if (timer.isActive()) {
-            AlarmHandler.createAlarm(DatabaseHandler.context, timer);
-        }
     }
 
     /**
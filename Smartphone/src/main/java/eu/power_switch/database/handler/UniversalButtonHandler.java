@@ -20,9 +20,12 @@ package eu.power_switch.database.handler;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.text.TextUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import eu.power_switch.database.table.receiver.UniversalButtonTable;
@@ -98,8 +101,8 @@ abstract class UniversalButtonHandler {
      */
     protected static UniversalButton getUniversalButton(Long id) throws Exception {
         UniversalButton universalButton;
-        Cursor cursor = DatabaseHandler.database.query(UniversalButtonTable.TABLE_NAME, UniversalButtonTable.ALL_COLUMNS, UniversalButtonTable.COLUMN_ID + "=" + id, null, null,
-                null, null);
+        Cursor cursor = DatabaseHandler.database.query(UniversalButtonTable.TABLE_NAME, UniversalButtonTable.ALL_COLUMNS, UniversalButtonTable.COLUMN_ID + "=?",
+                new String[]{String.valueOf(id)}, null, null, null);
 
         if (cursor.moveToFirst()) {
             universalButton = dbToUniversalButton(cursor);
@@ -120,8 +123,8 @@ abstract class UniversalButtonHandler {
      */
     protected static List<UniversalButton> getUniversalButtons(Long receiverId) throws Exception {
         List<UniversalButton> buttons = new ArrayList<>();
-        Cursor cursor = DatabaseHandler.database.query(UniversalButtonTable.TABLE_NAME, UniversalButtonTable.ALL_COLUMNS, UniversalButtonTable.COLUMN_RECEIVER_ID +
-                "=" + receiverId, null, null, null, null);
+        Cursor cursor = DatabaseHandler.database.query(UniversalButtonTable.TABLE_NAME, UniversalButtonTable.ALL_COLUMNS, UniversalButtonTable.COLUMN_RECEIVER_ID + "=?",
+                new String[]{String.valueOf(receiverId)}, null, null, null);
         cursor.moveToFirst();
 
         while (!cursor.isAfterLast()) {
@@ -132,6 +135,31 @@ abstract class UniversalButtonHandler {
         return buttons;
     }
 
+    /**
+     * Gets all Buttons associated with multiple Receivers with a single query
+     *
+     * @param receiverIds IDs of Receivers
+     * @return Map of Receiver ID -> List of Buttons
+     */
+    protected static Map<Long, List<UniversalButton>> getUniversalButtons(List<Long> receiverIds) throws Exception {
+        Map<Long, List<UniversalButton>> buttons = new HashMap<>();
+        for (Long receiverId : receiverIds) {
+            buttons.put(receiverId, new ArrayList<UniversalButton>());
+        }
+
+        Cursor cursor = DatabaseHandler.database.query(UniversalButtonTable.TABLE_NAME, UniversalButtonTable.ALL_COLUMNS,
+                UniversalButtonTable.COLUMN_RECEIVER_ID + " IN (" + TextUtils.join(",", receiverIds) + ")", null, null, null, UniversalButtonTable.COLUMN_ID);
+        cursor.moveToFirst();
+
+        while (!cursor.isAfterLast()) {
+            UniversalButton button = dbToUniversalButton(cursor);
+            buttons.get(button.getReceiverId()).add(button);
+            cursor.moveToNext();
+        }
+        cursor.close();
+        return buttons;
+    }
+
     /**
      * Creates a Button Object out of Database information
      *
@@ -22,6 +22,8 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import eu.power_switch.database.table.widget.ReceiverWidgetTable;
@@ -186,6 +188,67 @@ abstract class WidgetHandler {
         return sceneWidget;
     }
 
+    /**
+     * Returns all ReceiverWidget containers
+     *
+     * @return List of ReceiverWidgets
+     */
+    protected static List<ReceiverWidget> getAllReceiverWidgets() throws Exception {
+        List<ReceiverWidget> receiverWidgets = new ArrayList<>();
+        String[] widgetColumns = {ReceiverWidgetTable.COLUMN_WIDGET_APP_ID, ReceiverWidgetTable.COLUMN_ROOM_ID,
+                ReceiverWidgetTable.COLUMN_RECEIVER_ID};
+        Cursor cursor = DatabaseHandler.database.query(ReceiverWidgetTable.TABLE_NAME, widgetColumns,
+                null, null, null, null, null);
+        cursor.moveToFirst();
+
+        while (!cursor.isAfterLast()) {
+            receiverWidgets.add(dbToReceiverWidgetInfo(cursor));
+            cursor.moveToNext();
+        }
+        cursor.close();
+        return receiverWidgets;
+    }
+
+    /**
+     * Returns all RoomWidget containers
+     *
+     * @return List of RoomWidgets
+     */
+    protected static List<RoomWidget> getAllRoomWidgets() throws Exception {
+        List<RoomWidget> roomWidgets = new ArrayList<>();
+        String[] widgetColumns = {RoomWidgetTable.COLUMN_WIDGET_APP_ID, RoomWidgetTable.COLUMN_ROOM_ID};
+        Cursor cursor = DatabaseHandler.database.query(RoomWidgetTable.TABLE_NAME, widgetColumns,
+                null, null, null, null, null);
+        cursor.moveToFirst();
+
+        while (!cursor.isAfterLast()) {
+            roomWidgets.add(dbToRoomWidgetInfo(cursor));
+            cursor.moveToNext();
+        }
+        cursor.close();
+        return roomWidgets;
+    }
+
+    /**
+     * Returns all SceneWidget containers
+     *
+     * @return List of SceneWidgets
+     */
+    protected static List<SceneWidget> getAllSceneWidgets() throws Exception {
+        List<SceneWidget> sceneWidgets = new ArrayList<>();
+        String[] widgetColumns = {SceneWidgetTable.COLUMN_WIDGET_APP_ID, SceneWidgetTable.COLUMN_SCENE_ID};
+        Cursor cursor = DatabaseHandler.database.query(SceneWidgetTable.TABLE_NAME, widgetColumns,
+                null, null, null, null, null);
+        cursor.moveToFirst();
+
+        while (!cursor.isAfterLast()) {
+            sceneWidgets.add(dbToSceneWidgetInfo(cursor));
+            cursor.moveToNext();
+        }
+        cursor.close();
+        return sceneWidgets;
+    }
+
     /**
      * Creates a ReceiverWidget Object out of Database information
      *
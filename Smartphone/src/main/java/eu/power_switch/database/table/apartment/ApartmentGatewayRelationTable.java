@@ -35,6 +35,8 @@ public class ApartmentGatewayRelationTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_APARTMENT_ID, COLUMN_GATEWAY_ID};
 
+    public static final String INDEX_GATEWAY_ID = "apartment_gateway_relation_gateway_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_APARTMENT_ID + " integer not null," +
@@ -45,10 +47,21 @@ public class ApartmentGatewayRelationTable {
                 GatewayTable.TABLE_NAME + "(" + GatewayTable.COLUMN_ID + "), " +
             "PRIMARY KEY (" + COLUMN_APARTMENT_ID + ", " + COLUMN_GATEWAY_ID + ")" +
             ");";
+    private static final String INDEX_GATEWAY_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_GATEWAY_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_GATEWAY_ID + ", " + COLUMN_APARTMENT_ID +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_GATEWAY_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
@@ -35,16 +35,29 @@ public class ApartmentTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_NAME, COLUMN_POSITION};
 
+    public static final String INDEX_NAME = "apartment_name_nocase_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
             COLUMN_NAME + " text not null, " +
             COLUMN_POSITION + " integer" +
             ");";
+    private static final String INDEX_NAME_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_NAME + " ON " + TABLE_NAME + "(" +
+            COLUMN_NAME + " COLLATE NOCASE" +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_NAME_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
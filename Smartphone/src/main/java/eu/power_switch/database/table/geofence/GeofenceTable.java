@@ -34,10 +34,13 @@ public class GeofenceTable {
     public static final String COLUMN_LATITUDE = "latitude";
     public static final String COLUMN_LONGITUDE = "longitude";
     public static final String COLUMN_RADIUS = "radius";
+    /**
+     * Legacy snapshot BLOB column, snapshots are stored in the GeofenceSnapshotStore since database version 19
+     */
     public static final String COLUMN_SNAPSHOT = "snapshot";
     public static final String COLUMN_STATE = "state";
 
-    public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_ACTIVE, COLUMN_NAME, COLUMN_LATITUDE, COLUMN_LONGITUDE, COLUMN_RADIUS, COLUMN_SNAPSHOT, COLUMN_STATE};
+    public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_ACTIVE, COLUMN_NAME, COLUMN_LATITUDE, COLUMN_LONGITUDE, COLUMN_RADIUS, COLUMN_STATE};
 
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
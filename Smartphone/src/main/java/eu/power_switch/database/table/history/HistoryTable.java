@@ -33,6 +33,8 @@ public class HistoryTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_DESCRIPTION, COLUMN_DESCRIPTION_LONG, COLUMN_TIME};
 
+    public static final String INDEX_TIME = "history_time_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -40,10 +42,21 @@ public class HistoryTable {
             COLUMN_DESCRIPTION + " text not null," +
             COLUMN_DESCRIPTION_LONG + " text not null" +
         ");";
+    private static final String INDEX_TIME_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_TIME + " ON " + TABLE_NAME + "(" +
+            COLUMN_TIME +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_TIME_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
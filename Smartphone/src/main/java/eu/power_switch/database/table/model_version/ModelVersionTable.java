@@ -0,0 +1,77 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.database.table.model_version;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Model version table description
+ * <p/>
+ * Contains a single row with a counter that is incremented on every structural change of Apartments, Rooms,
+ * Receivers, Scenes, Gateways or Geofences, so in-memory caches of all processes can detect changes made by other
+ * processes.
+ */
+public class ModelVersionTable {
+
+    public static final String TABLE_NAME = "model_version";
+    public static final String COLUMN_ID = "_id";
+    public static final String COLUMN_VERSION = "version";
+
+    //@formatter:off
+    private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
+            COLUMN_ID + " integer primary key," +
+            COLUMN_VERSION + " integer not null" +
+        ");";
+    private static final String INSERT_ROW = "INSERT INTO " + TABLE_NAME + "(" +
+            COLUMN_ID + "," + COLUMN_VERSION +
+        ") VALUES (0, 0);";
+    //@formatter:on
+
+    public static void onCreate(SQLiteDatabase db) {
+        db.execSQL(TABLE_CREATE);
+        db.execSQL(INSERT_ROW);
+    }
+
+    public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        switch (oldVersion) {
+            case 1:
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+            case 8:
+            case 9:
+            case 10:
+            case 11:
+            case 12:
+            case 13:
+            case 14:
+            case 15:
+            case 16:
+            case 17:
+            case 18:
+            case 19:
+            case 20:
+                onCreate(db);
+                break;
+        }
+    }
+}
@@ -33,6 +33,8 @@ public class AutoPairTable {
     public static final String COLUMN_SEED = "seed";
 
 
+    public static final String INDEX_RECEIVER_ID = "auto_pair_receiver_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -42,10 +44,21 @@ public class AutoPairTable {
                 ReceiverTable.TABLE_NAME + "(" + ReceiverTable.COLUMN_ID +
             ")" +
     ");";
+    private static final String INDEX_RECEIVER_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_RECEIVER_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_RECEIVER_ID +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_RECEIVER_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
@@ -40,10 +40,15 @@ public class ReceiverTable {
     public static final String COLUMN_ROOM_ID = "room";
     public static final String COLUMN_POSITION_IN_ROOM = "positionInRoom";
     public static final String COLUMN_LAST_ACTIVATED_BUTTON_ID = "lastActivatedButton";
+    public static final String COLUMN_PREFERRED_GATEWAY_ID = "preferredGateway";
+    public static final String COLUMN_BROADCAST_FALLBACK = "broadcastFallback";
 
     public static final String[] ALL_COLUMNS = {
             COLUMN_ID, COLUMN_NAME, COLUMN_MODEL, COLUMN_TYPE, COLUMN_CLASSNAME, COLUMN_ROOM_ID,
-            COLUMN_POSITION_IN_ROOM, COLUMN_LAST_ACTIVATED_BUTTON_ID};
+            COLUMN_POSITION_IN_ROOM, COLUMN_LAST_ACTIVATED_BUTTON_ID, COLUMN_PREFERRED_GATEWAY_ID,
+            COLUMN_BROADCAST_FALLBACK};
+
+    public static final String INDEX_ROOM_ID = "receiver_room_idx";
 
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
@@ -55,14 +60,27 @@ public class ReceiverTable {
             COLUMN_ROOM_ID + " integer not null," +
             COLUMN_POSITION_IN_ROOM + " integer," +
             COLUMN_LAST_ACTIVATED_BUTTON_ID + " integer," +
+            COLUMN_PREFERRED_GATEWAY_ID + " integer," +
+            COLUMN_BROADCAST_FALLBACK + " integer not null default 1," +
                 "FOREIGN KEY(" + COLUMN_ROOM_ID + ") REFERENCES " +
                 RoomTable.TABLE_NAME + "(" + RoomTable.COLUMN_ID +
             ")" +
     ");";
+    private static final String INDEX_ROOM_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_ROOM_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_ROOM_ID + ", " + COLUMN_POSITION_IN_ROOM +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_ROOM_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
@@ -112,6 +130,16 @@ public class ReceiverTable {
                 }
 
                 cursor.close();
+            case 13:
+            case 14:
+            case 15:
+            case 16:
+            case 17:
+            case 18:
+            case 19:
+                // gateway affinity
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_PREFERRED_GATEWAY_ID + " integer;");
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_BROADCAST_FALLBACK + " integer not null default 1;");
         }
     }
 }
@@ -33,6 +33,8 @@ public class UniversalButtonTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_RECEIVER_ID, COLUMN_NAME, COLUMN_SIGNAL};
 
+    public static final String INDEX_RECEIVER_ID = "universal_button_receiver_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -43,10 +45,21 @@ public class UniversalButtonTable {
                 ReceiverTable.TABLE_NAME + "(" + ReceiverTable.COLUMN_ID +
             ")" +
     ");";
+    private static final String INDEX_RECEIVER_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_RECEIVER_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_RECEIVER_ID +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_RECEIVER_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
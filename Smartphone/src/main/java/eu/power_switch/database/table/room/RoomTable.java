@@ -34,6 +34,9 @@ public class RoomTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_APARTMENT_ID, COLUMN_NAME, COLUMN_POSITION, COLUMN_COLLAPSED};
 
+    public static final String INDEX_APARTMENT_ID = "room_apartment_idx";
+    public static final String INDEX_NAME = "room_name_nocase_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -42,10 +45,25 @@ public class RoomTable {
             COLUMN_APARTMENT_ID + " integer not null, " +
             COLUMN_COLLAPSED + " integer not null" +
             ");";
+    private static final String INDEX_APARTMENT_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_APARTMENT_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_APARTMENT_ID + ", " + COLUMN_POSITION +
+        ");";
+    private static final String INDEX_NAME_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_NAME + " ON " + TABLE_NAME + "(" +
+            COLUMN_NAME + " COLLATE NOCASE" +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_APARTMENT_ID_CREATE);
+        db.execSQL(INDEX_NAME_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
@@ -33,6 +33,9 @@ public class SceneItemTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_SCENE_ID, COLUMN_RECEIVER_ID, COLUMN_ACTIVE_BUTTON_ID};
 
+    public static final String INDEX_SCENE_ID = "scene_item_scene_idx";
+    public static final String INDEX_RECEIVER_ID = "scene_item_receiver_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -43,10 +46,25 @@ public class SceneItemTable {
                 SceneTable.TABLE_NAME + "(" + SceneTable.COLUMN_ID +
             ")" +
     ");";
+    private static final String INDEX_SCENE_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_SCENE_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_SCENE_ID +
+        ");";
+    private static final String INDEX_RECEIVER_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_RECEIVER_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_RECEIVER_ID +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_SCENE_ID_CREATE);
+        db.execSQL(INDEX_RECEIVER_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
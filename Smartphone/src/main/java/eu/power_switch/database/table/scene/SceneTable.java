@@ -33,6 +33,8 @@ public class SceneTable {
 
     public static final String[] ALL_COLUMNS = {COLUMN_ID, COLUMN_APARTMENT_ID, COLUMN_NAME, COLUMN_POSITION};
 
+    public static final String INDEX_APARTMENT_ID = "scene_apartment_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_ID + " integer primary key autoincrement," +
@@ -40,10 +42,21 @@ public class SceneTable {
             COLUMN_POSITION + " integer," +
             COLUMN_APARTMENT_ID + " integer not null " +
             ");";
+    private static final String INDEX_APARTMENT_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_APARTMENT_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_APARTMENT_ID + ", " + COLUMN_POSITION +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_APARTMENT_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
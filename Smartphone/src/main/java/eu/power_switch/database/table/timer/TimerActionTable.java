@@ -33,6 +33,8 @@ public class TimerActionTable {
     public static final String COLUMN_TIMER_ID = "timer_id";
     public static final String COLUMN_ACTION_ID = "action_id";
 
+    public static final String INDEX_ACTION_ID = "timer_action_action_idx";
+
     //@formatter:off
     private static final String TABLE_CREATE = "CREATE TABLE " + TABLE_NAME + "(" +
             COLUMN_TIMER_ID + " integer not null," +
@@ -43,10 +45,21 @@ public class TimerActionTable {
                 ActionTable.TABLE_NAME + "(" + ActionTable.COLUMN_ID + "), " +
             "PRIMARY KEY (" + COLUMN_TIMER_ID + ", " + COLUMN_ACTION_ID + ")" +
         ");";
+    private static final String INDEX_ACTION_ID_CREATE = "CREATE INDEX IF NOT EXISTS " + INDEX_ACTION_ID + " ON " + TABLE_NAME + "(" +
+            COLUMN_ACTION_ID +
+        ");";
     //@formatter:on
 
     public static void onCreate(SQLiteDatabase db) {
         db.execSQL(TABLE_CREATE);
+        createIndexes(db);
+    }
+
+    /**
+     * Creates the secondary indexes of this table, if they don't exist yet
+     */
+    public static void createIndexes(SQLiteDatabase db) {
+        db.execSQL(INDEX_ACTION_ID_CREATE);
     }
 
     public static void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
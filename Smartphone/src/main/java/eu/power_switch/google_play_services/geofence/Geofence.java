@@ -71,7 +71,9 @@ public class Geofence {
      */
     private Map<EventType, List<Action>> actionsMap;
     /**
-     * Snapshot of this Geofence
+     * New snapshot of this Geofence that should be stored
+     * <p/>
+     * Geofences loaded from Database don't carry their snapshot, use {@link GeofenceSnapshotStore} to display it.
      */
     private Bitmap snapshot;
     /**
@@ -205,9 +207,9 @@ public class Geofence {
     }
 
     /**
-     * Get snapshot of this Geofence
+     * Get new snapshot of this Geofence
      *
-     * @return snapshot
+     * @return snapshot, null if it has not been changed
      */
     public Bitmap getSnapshot() {
         return snapshot;
@@ -32,6 +32,7 @@ import eu.power_switch.R;
 import eu.power_switch.action.ActionHandler;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.gui.fragment.geofences.GeofencesTabFragment;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.shared.log.Log;
 
 /**
@@ -131,6 +132,13 @@ public class GeofenceIntentService extends IntentService {
                 Log.e(e);
             }
         }
+
+        // the service might be stopped right after this method returns
+        try {
+            HistoryHelper.flushAndWait(getApplicationContext());
+        } catch (Exception e) {
+            Log.e(e);
+        }
         GeofencesTabFragment.sendGeofencesChangedBroadcast(getApplicationContext());
     }
 
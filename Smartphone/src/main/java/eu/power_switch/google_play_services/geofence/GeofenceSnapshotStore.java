@@ -0,0 +1,293 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.google_play_services.geofence;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import eu.power_switch.shared.log.Log;
+
+/**
+ * File backed store for Geofence map snapshots
+ * <p/>
+ * Snapshots are kept as PNG files (one per Geofence ID) instead of being stored in the database, so loading a
+ * Geofence (e.g. when executing its actions or syncing with the wearable) never reads or decodes image data.
+ * Thumbnails are decoded downsampled to the requested size when a UI element binds them and are kept in a
+ * memory cache that is bounded in bytes.
+ */
+public abstract class GeofenceSnapshotStore {
+
+    /**
+     * Name of the folder (inside the app files folder) containing the snapshot files
+     */
+    public static final String SNAPSHOT_FOLDER = "geofence_snapshots";
+
+    /**
+     * Upper bound of the thumbnail memory cache in bytes
+     */
+    private static final int MAX_CACHE_SIZE = 4 * 1024 * 1024;
+
+    private static File folder;
+
+    /**
+     * Decoded thumbnails by "geofenceId:width:height"
+     */
+    private static final LruCache<String, Bitmap> thumbnailCache =
+            new LruCache<String, Bitmap>((int) Math.min(MAX_CACHE_SIZE, Runtime.getRuntime().maxMemory() / 16)) {
+                @Override
+                protected int sizeOf(String key, Bitmap value) {
+                    return value.getRowBytes() * value.getHeight();
+                }
+            };
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private GeofenceSnapshotStore() {
+        throw new UnsupportedOperationException("This class is non-instantiable. Use static one time initialization via init() method instead.");
+    }
+
+    /**
+     * Initialize GeofenceSnapshotStore
+     * <p/>
+     * You can call this method multiple times but it will only initialize once.
+     *
+     * @param context any suitable context
+     */
+    synchronized public static void init(@NonNull Context context) {
+        if (folder != null) {
+            return;
+        }
+        folder = getFolder(context);
+    }
+
+    /**
+     * Get the folder containing the snapshot files
+     *
+     * @param context any suitable context
+     * @return snapshot folder
+     */
+    @NonNull
+    public static File getFolder(@NonNull Context context) {
+        return new File(context.getFilesDir(), SNAPSHOT_FOLDER);
+    }
+
+    private static File getFile(long geofenceId) {
+        if (folder == null) {
+            throw new IllegalStateException("GeofenceSnapshotStore has not been initialized");
+        }
+        return new File(folder, geofenceId + ".png");
+    }
+
+    /**
+     * Check if a snapshot is stored for a Geofence
+     *
+     * @param geofenceId ID of Geofence
+     * @return true if a snapshot exists
+     */
+    public static boolean contains(long geofenceId) {
+        return getFile(geofenceId).exists();
+    }
+
+    /**
+     * Store the snapshot of a Geofence, replacing any existing one
+     *
+     * @param geofenceId ID of Geofence
+     * @param snapshot   snapshot
+     */
+    @WorkerThread
+    public static void put(long geofenceId, @NonNull Bitmap snapshot) throws IOException {
+        OutputStream outputStream = null;
+        try {
+            outputStream = openOutputStream(geofenceId);
+            snapshot.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
+        } finally {
+            if (outputStream != null) {
+                outputStream.close();
+            }
+        }
+        evictThumbnails(geofenceId);
+    }
+
+    /**
+     * Store already PNG encoded snapshot data of a Geofence, replacing any existing one
+     *
+     * @param geofenceId ID of Geofence
+     * @param png        PNG encoded snapshot
+     */
+    @WorkerThread
+    public static void put(long geofenceId, @NonNull byte[] png) throws IOException {
+        OutputStream outputStream = openOutputStream(geofenceId);
+        try {
+            outputStream.write(png);
+        } finally {
+            outputStream.close();
+        }
+        evictThumbnails(geofenceId);
+    }
+
+    private static OutputStream openOutputStream(long geofenceId) throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+        return new FileOutputStream(getFile(geofenceId));
+    }
+
+    /**
+     * Get the snapshot of a Geofence in its original size
+     *
+     * @param geofenceId ID of Geofence
+     * @return snapshot, null if none is stored
+     */
+    @Nullable
+    @WorkerThread
+    public static Bitmap get(long geofenceId) {
+        File file = getFile(geofenceId);
+        if (!file.exists()) {
+            return null;
+        }
+        return BitmapFactory.decodeFile(file.getPath());
+    }
+
+    /**
+     * Get a thumbnail of the snapshot of a Geofence
+     * <p/>
+     * The snapshot is decoded with the largest power of two sample size that keeps it at least as big as the
+     * requested size, the result is cached in memory.
+     *
+     * @param geofenceId ID of Geofence
+     * @param reqWidth   requested width in pixels
+     * @param reqHeight  requested height in pixels, 0 if only the width should be considered
+     * @return thumbnail, null if no snapshot is stored
+     */
+    @Nullable
+    @WorkerThread
+    public static Bitmap getThumbnail(long geofenceId, int reqWidth, int reqHeight) {
+        String key = geofenceId + ":" + reqWidth + ":" + reqHeight;
+        Bitmap thumbnail = thumbnailCache.get(key);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+
+        File file = getFile(geofenceId);
+        if (!file.exists()) {
+            return null;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        options.inJustDecodeBounds = false;
+        thumbnail = BitmapFactory.decodeFile(file.getPath(), options);
+
+        if (thumbnail == null) {
+            Log.w("Could not decode geofence snapshot " + file);
+            return null;
+        }
+
+        thumbnailCache.put(key, thumbnail);
+        return thumbnail;
+    }
+
+    /**
+     * Get a cached thumbnail without touching the file system
+     *
+     * @param geofenceId ID of Geofence
+     * @param reqWidth   requested width in pixels
+     * @param reqHeight  requested height in pixels
+     * @return cached thumbnail, null if it has not been decoded yet
+     */
+    @Nullable
+    public static Bitmap getCachedThumbnail(long geofenceId, int reqWidth, int reqHeight) {
+        return thumbnailCache.get(geofenceId + ":" + reqWidth + ":" + reqHeight);
+    }
+
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        if (reqWidth <= 0) {
+            return inSampleSize;
+        }
+
+        while (width / (inSampleSize * 2) >= reqWidth &&
+                (reqHeight <= 0 || height / (inSampleSize * 2) >= reqHeight)) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * Delete the snapshot of a Geofence
+     *
+     * @param geofenceId ID of Geofence
+     */
+    public static void delete(long geofenceId) {
+        File file = getFile(geofenceId);
+        if (file.exists() && !file.delete()) {
+            Log.w("Could not delete " + file);
+        }
+        evictThumbnails(geofenceId);
+    }
+
+    /**
+     * Move the snapshot of a Geofence to another Geofence ID
+     *
+     * @param fromGeofenceId current ID of Geofence
+     * @param toGeofenceId   new ID of Geofence
+     */
+    public static void move(long fromGeofenceId, long toGeofenceId) {
+        File file = getFile(fromGeofenceId);
+        if (file.exists() && !file.renameTo(getFile(toGeofenceId))) {
+            Log.w("Could not move " + file);
+        }
+        evictThumbnails(fromGeofenceId);
+        evictThumbnails(toGeofenceId);
+    }
+
+    /**
+     * Clear the thumbnail memory cache
+     * <p/>
+     * This has to be done when the snapshot files are replaced (e.g. Backups).
+     */
+    public static void clearCache() {
+        thumbnailCache.evictAll();
+    }
+
+    private static void evictThumbnails(long geofenceId) {
+        String prefix = geofenceId + ":";
+        for (String key : thumbnailCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                thumbnailCache.remove(key);
+            }
+        }
+    }
+}
@@ -62,7 +62,7 @@ import com.mikepenz.materialdrawer.model.SecondaryDrawerItem;
 import com.mikepenz.materialdrawer.model.interfaces.IDrawerItem;
 
 import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
 
@@ -84,6 +84,7 @@ import eu.power_switch.gui.fragment.geofences.GeofencesTabFragment;
 import eu.power_switch.gui.fragment.main.RoomSceneTabFragment;
 import eu.power_switch.gui.fragment.phone.PhoneTabFragment;
 import eu.power_switch.gui.fragment.settings.SettingsTabFragment;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.history.HistoryItem;
 import eu.power_switch.network.NetworkHandler;
 import eu.power_switch.nfc.NfcHandler;
@@ -125,7 +126,6 @@ public class MainActivity extends AppCompatActivity {
 
     private static AppBarLayout appBarLayout;
     private static MainActivity activity;
-    private LinkedList<HistoryItem> historyItems = new LinkedList<>();
     private RecyclerView recyclerViewHistory;
     private HistoryItemRecyclerViewAdapter historyItemArrayAdapter;
     private BroadcastReceiver broadcastReceiver;
@@ -817,7 +817,7 @@ public class MainActivity extends AppCompatActivity {
                     @Override
                     protected Exception doInBackground(Void... params) {
                         try {
-                            DatabaseHandler.clearHistory();
+                            HistoryHelper.clear();
                         } catch (Exception e) {
                             return e;
                         }
@@ -841,20 +841,11 @@ public class MainActivity extends AppCompatActivity {
         layoutLoadingHistory = (LinearLayout) historyView.findViewById(R.id.layoutLoading);
 
         recyclerViewHistory = (RecyclerView) historyView.findViewById(R.id.recyclerview_history);
-        historyItemArrayAdapter = new HistoryItemRecyclerViewAdapter(this, historyItems);
+        historyItemArrayAdapter = new HistoryItemRecyclerViewAdapter(this);
         historyItemArrayAdapter.setOnItemClickListener(new HistoryItemRecyclerViewAdapter.OnItemClickListener() {
             @Override
             public void onItemClick(View itemView, int position) {
-                HistoryItem historyItem = historyItems.get(position);
-
-                SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy - HH:mm:ss");
-                new AlertDialog.Builder(getActivity())
-                        .setTitle(R.string.details)
-                        .setMessage(simpleDateFormat.format(historyItem.getTime().getTime()) + "\n\n" +
-                                historyItem.getShortDescription() + "\n\n" +
-                                historyItem.getLongDescription())
-                        .setNeutralButton(R.string.close, null)
-                        .show();
+                showHistoryItemDetails(historyItemArrayAdapter.getItem(position));
             }
         });
         recyclerViewHistory.setAdapter(historyItemArrayAdapter);
@@ -869,30 +860,68 @@ public class MainActivity extends AppCompatActivity {
                 .append(navigationDrawer);
     }
 
+    /**
+     * Show all details of a HistoryItem, its long description is loaded from database on demand
+     *
+     * @param historyItem HistoryItem
+     */
+    private void showHistoryItemDetails(final HistoryItem historyItem) {
+        new AsyncTask<Void, Void, String>() {
+            private Exception exception;
+
+            @Override
+            protected String doInBackground(Void... params) {
+                try {
+                    return DatabaseHandler.getHistoryItemLongDescription(historyItem.getId());
+                } catch (Exception e) {
+                    exception = e;
+                    return null;
+                }
+            }
+
+            @Override
+            protected void onPostExecute(String longDescription) {
+                if (exception != null) {
+                    StatusMessageHandler.showErrorMessage(getActivity(), exception);
+                    return;
+                }
+
+                SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy - HH:mm:ss");
+                new AlertDialog.Builder(getActivity())
+                        .setTitle(R.string.details)
+                        .setMessage(simpleDateFormat.format(historyItem.getTime().getTime()) + "\n\n" +
+                                historyItem.getShortDescription() + "\n\n" +
+                                longDescription)
+                        .setNeutralButton(R.string.close, null)
+                        .show();
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     private void updateHistory() {
         layoutLoadingHistory.setVisibility(View.VISIBLE);
         recyclerViewHistory.setVisibility(View.GONE);
 
-        new AsyncTask<Void, Void, Exception>() {
+        new AsyncTask<Void, Void, List<HistoryItem>>() {
+            private Exception exception;
+
             @Override
-            protected Exception doInBackground(Void... params) {
+            protected List<HistoryItem> doInBackground(Void... params) {
                 try {
-                    historyItems.clear();
-                    historyItems.addAll(DatabaseHandler.getHistory());
-
-                    return null;
+                    return DatabaseHandler.getHistoryItemsBefore(null, HistoryItemRecyclerViewAdapter.PAGE_SIZE);
                 } catch (Exception e) {
-                    return e;
+                    exception = e;
+                    return new ArrayList<>();
                 }
             }
 
             @Override
-            protected void onPostExecute(Exception exception) {
-                historyItemArrayAdapter.notifyDataSetChanged();
+            protected void onPostExecute(List<HistoryItem> newestItems) {
+                historyItemArrayAdapter.setItems(newestItems);
                 layoutLoadingHistory.setVisibility(View.GONE);
                 recyclerViewHistory.setVisibility(View.VISIBLE);
 
-                recyclerViewHistory.scrollToPosition(historyItems.size() - 1);
+                recyclerViewHistory.scrollToPosition(historyItemArrayAdapter.getItemCount() - 1);
 
                 if (exception != null) {
                     StatusMessageHandler.showErrorMessage(getActivity(), exception);
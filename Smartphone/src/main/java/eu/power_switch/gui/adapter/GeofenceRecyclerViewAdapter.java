@@ -19,6 +19,8 @@
 package eu.power_switch.gui.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
 import android.support.v7.widget.AppCompatTextView;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
@@ -36,6 +38,7 @@ import eu.power_switch.action.Action;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.google_play_services.geofence.Geofence;
 import eu.power_switch.google_play_services.geofence.GeofenceApiHandler;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.shared.log.Log;
 import eu.power_switch.shared.permission.PermissionHelper;
@@ -49,6 +52,7 @@ public class GeofenceRecyclerViewAdapter extends RecyclerView.Adapter<GeofenceRe
     private GeofenceApiHandler geofenceApiHandler;
     private ArrayList<Geofence> geofences;
     private Context context;
+    private int thumbnailWidth;
 
     private OnItemClickListener onItemClickListener;
     private OnItemLongClickListener onItemLongClickListener;
@@ -57,6 +61,8 @@ public class GeofenceRecyclerViewAdapter extends RecyclerView.Adapter<GeofenceRe
         this.geofences = geofences;
         this.context = context;
         this.geofenceApiHandler = geofenceApiHandler;
+        this.thumbnailWidth = context.getResources().getDisplayMetrics().widthPixels /
+                context.getResources().getInteger(R.integer.geofence_grid_span_count);
     }
 
     public void setOnItemClickListener(OnItemClickListener onItemClickListener) {
@@ -119,7 +125,7 @@ public class GeofenceRecyclerViewAdapter extends RecyclerView.Adapter<GeofenceRe
             holder.geofenceSwitchActive.setEnabled(true);
         }
 
-        holder.geofenceSnapshot.setImageBitmap(geofence.getSnapshot());
+        bindSnapshot(holder.geofenceSnapshot, geofence.getId());
 
         holder.linearLayoutEnterActions.removeAllViews();
         for (Action action : geofence.getActions(Geofence.EventType.ENTER)) {
@@ -144,6 +150,38 @@ public class GeofenceRecyclerViewAdapter extends RecyclerView.Adapter<GeofenceRe
         }
     }
 
+    /**
+     * Shows the snapshot thumbnail of a Geofence, decoding it in background if it is not cached yet
+     *
+     * @param imageView  ImageView of the bound row
+     * @param geofenceId ID of Geofence
+     */
+    private void bindSnapshot(final ImageView imageView, final Long geofenceId) {
+        imageView.setTag(geofenceId);
+
+        Bitmap thumbnail = GeofenceSnapshotStore.getCachedThumbnail(geofenceId, thumbnailWidth, 0);
+        if (thumbnail != null) {
+            imageView.setImageBitmap(thumbnail);
+            return;
+        }
+
+        imageView.setImageDrawable(null);
+        new AsyncTask<Void, Void, Bitmap>() {
+            @Override
+            protected Bitmap doInBackground(Void... params) {
+                return GeofenceSnapshotStore.getThumbnail(geofenceId, thumbnailWidth, 0);
+            }
+
+            @Override
+            protected void onPostExecute(Bitmap bitmap) {
+                // the row might have been rebound to another Geofence in the meantime
+                if (geofenceId.equals(imageView.getTag())) {
+                    imageView.setImageBitmap(bitmap);
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @Override
     public int getItemCount() {
         return geofences.size();
@@ -19,6 +19,8 @@
 package eu.power_switch.gui.adapter;
 
 import android.content.Context;
+import android.os.AsyncTask;
+import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -27,23 +29,54 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import java.text.SimpleDateFormat;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.List;
 
 import eu.power_switch.R;
+import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.history.HistoryItem;
 
 /**
  * Adapter to visualize Action items in RecyclerView
  * <p/>
+ * Only a window of at most {@link #MAX_LOADED_ITEMS} items is kept in memory. Older or newer pages are loaded from
+ * the database when the user scrolls close to the start or end of this window, items on the opposite side are
+ * dropped again.
+ * <p/>
  * Created by Markus on 04.12.2015.
  */
 public class HistoryItemRecyclerViewAdapter extends RecyclerView.Adapter<HistoryItemRecyclerViewAdapter.ViewHolder> {
-    private LinkedList<HistoryItem> historyItems;
+
+    /**
+     * Number of items loaded at once
+     */
+    public static final int PAGE_SIZE = 50;
+
+    /**
+     * Maximum number of items kept in memory
+     */
+    private static final int MAX_LOADED_ITEMS = 4 * PAGE_SIZE;
+
+    /**
+     * Distance to the start or end of the loaded items at which the next page is loaded
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    private final ArrayList<HistoryItem> historyItems = new ArrayList<>();
     private Context context;
     private OnItemClickListener onItemClickListener;
 
-    public HistoryItemRecyclerViewAdapter(Context context, LinkedList<HistoryItem> historyItems) {
-        this.historyItems = historyItems;
+    private boolean hasOlderItems = false;
+    private boolean hasNewerItems = false;
+    private boolean isLoading = false;
+
+    /**
+     * Incremented whenever the items are replaced, used to discard pages that were loaded for outdated items
+     */
+    private int generation = 0;
+
+    public HistoryItemRecyclerViewAdapter(Context context) {
         this.context = context;
     }
 
@@ -51,6 +84,34 @@ public class HistoryItemRecyclerViewAdapter extends RecyclerView.Adapter<History
         this.onItemClickListener = onItemClickListener;
     }
 
+    /**
+     * Replace all items with the newest page of the history
+     *
+     * @param newestItems newest items of the history as returned by
+     *                    {@link DatabaseHandler#getHistoryItemsBefore(HistoryItem, int)}, oldest first
+     */
+    public void setItems(@NonNull List<HistoryItem> newestItems) {
+        generation++;
+        isLoading = false;
+
+        historyItems.clear();
+        historyItems.addAll(newestItems);
+        hasOlderItems = newestItems.size() >= PAGE_SIZE;
+        hasNewerItems = false;
+
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Get the item at a specific position
+     *
+     * @param position adapter position
+     * @return HistoryItem without its long description
+     */
+    public HistoryItem getItem(int position) {
+        return historyItems.get(position);
+    }
+
     @Override
     public HistoryItemRecyclerViewAdapter.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         View itemView = LayoutInflater.from(context).inflate(R.layout.list_item_history_item, parent, false);
@@ -65,11 +126,17 @@ public class HistoryItemRecyclerViewAdapter extends RecyclerView.Adapter<History
         holder.time.setText(simpleDateFormat.format(historyItem.getTime().getTime()));
         holder.description.setText(historyItem.getShortDescription());
 
-        if (holder.getAdapterPosition() == getItemCount() - 1) {
+        if (holder.getAdapterPosition() == getItemCount() - 1 && !hasNewerItems) {
             holder.footer.setVisibility(View.VISIBLE);
         } else {
             holder.footer.setVisibility(View.GONE);
         }
+
+        if (position < PREFETCH_DISTANCE && hasOlderItems) {
+            loadOlderItems();
+        } else if (position >= getItemCount() - PREFETCH_DISTANCE && hasNewerItems) {
+            loadNewerItems();
+        }
     }
 
     // Return the total count of items
@@ -78,6 +145,107 @@ public class HistoryItemRecyclerViewAdapter extends RecyclerView.Adapter<History
         return historyItems.size();
     }
 
+    private void loadOlderItems() {
+        if (isLoading || historyItems.isEmpty()) {
+            return;
+        }
+        isLoading = true;
+
+        final int requestGeneration = generation;
+        final HistoryItem oldestItem = historyItems.get(0);
+        new AsyncTask<Void, Void, List<HistoryItem>>() {
+            private Exception exception;
+
+            @Override
+            protected List<HistoryItem> doInBackground(Void... params) {
+                try {
+                    return DatabaseHandler.getHistoryItemsBefore(oldestItem, PAGE_SIZE);
+                } catch (Exception e) {
+                    exception = e;
+                    return null;
+                }
+            }
+
+            @Override
+            protected void onPostExecute(List<HistoryItem> page) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                isLoading = false;
+
+                if (exception != null) {
+                    hasOlderItems = false;
+                    StatusMessageHandler.showErrorMessage(context, exception);
+                    return;
+                }
+
+                hasOlderItems = page.size() >= PAGE_SIZE;
+                historyItems.addAll(0, page);
+                notifyItemRangeInserted(0, page.size());
+
+                int excess = historyItems.size() - MAX_LOADED_ITEMS;
+                if (excess > 0) {
+                    int start = historyItems.size() - excess;
+                    historyItems.subList(start, historyItems.size()).clear();
+                    notifyItemRangeRemoved(start, excess);
+                    hasNewerItems = true;
+                    notifyItemChanged(start - 1);
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    private void loadNewerItems() {
+        if (isLoading || historyItems.isEmpty()) {
+            return;
+        }
+        isLoading = true;
+
+        final int requestGeneration = generation;
+        final HistoryItem newestItem = historyItems.get(historyItems.size() - 1);
+        new AsyncTask<Void, Void, List<HistoryItem>>() {
+            private Exception exception;
+
+            @Override
+            protected List<HistoryItem> doInBackground(Void... params) {
+                try {
+                    return DatabaseHandler.getHistoryItemsAfter(newestItem, PAGE_SIZE);
+                } catch (Exception e) {
+                    exception = e;
+                    return null;
+                }
+            }
+
+            @Override
+            protected void onPostExecute(List<HistoryItem> page) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                isLoading = false;
+
+                if (exception != null) {
+                    hasNewerItems = false;
+                    StatusMessageHandler.showErrorMessage(context, exception);
+                    return;
+                }
+
+                hasNewerItems = page.size() >= PAGE_SIZE;
+                int previousLast = historyItems.size() - 1;
+                historyItems.addAll(page);
+                notifyItemRangeInserted(previousLast + 1, page.size());
+                // footer is only shown below the newest item
+                notifyItemChanged(previousLast);
+
+                int excess = historyItems.size() - MAX_LOADED_ITEMS;
+                if (excess > 0) {
+                    historyItems.subList(0, excess).clear();
+                    notifyItemRangeRemoved(0, excess);
+                    hasOlderItems = true;
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     public interface OnItemClickListener {
         void onItemClick(View itemView, int position);
     }
@@ -38,7 +38,6 @@ import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.settings.SmartphonePreferencesHandler;
 import eu.power_switch.timer.Timer;
 import eu.power_switch.timer.WeekdayTimer;
-import eu.power_switch.timer.alarm.AlarmHandler;
 
 /**
  * Adapter to visualize Timer items in RecyclerView
@@ -138,10 +137,8 @@ public class TimerRecyclerViewAdapter extends RecyclerView.Adapter<TimerRecycler
                     try {
                         if (isChecked) {
                             DatabaseHandler.enableTimer(timer.getId());
-                            AlarmHandler.createAlarm(context, timer);
                         } else {
                             DatabaseHandler.disableTimer(timer.getId());
-                            AlarmHandler.cancelAlarm(context, timer);
                         }
                         timer.setActive(isChecked);
                     } catch (Exception e) {
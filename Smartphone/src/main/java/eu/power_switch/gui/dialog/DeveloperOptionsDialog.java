@@ -19,6 +19,7 @@
 package eu.power_switch.gui.dialog;
 
 import android.app.Dialog;
+import android.content.DialogInterface;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
@@ -35,6 +36,7 @@ import android.widget.Spinner;
 import java.util.Locale;
 
 import eu.power_switch.R;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.google_play_services.geofence.GeofenceApiHandler;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.settings.DeveloperPreferencesHandler;
@@ -81,6 +83,14 @@ public class DeveloperOptionsDialog extends DialogFragment {
             }
         });
 
+        Button actionLatency = (Button) rootView.findViewById(R.id.button_actionLatency);
+        actionLatency.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showActionLatencyDialog();
+            }
+        });
+
         Button forceUnknownExceptionDialog = (Button) rootView.findViewById(R.id.button_forceUnknownExceptionDialog);
         forceUnknownExceptionDialog.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -136,6 +146,20 @@ public class DeveloperOptionsDialog extends DialogFragment {
         return dialog;
     }
 
+    private void showActionLatencyDialog() {
+        new AlertDialog.Builder(getActivity())
+                .setTitle("Action Latency")
+                .setMessage(ActionTracer.getReport())
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton("Reset", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        ActionTracer.reset();
+                    }
+                })
+                .show();
+    }
+
     //private method of your class
     private int getIndex(Spinner spinner, String myString) {
         int index = 0;
@@ -23,6 +23,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.graphics.Bitmap;
+import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
 import android.support.design.widget.Snackbar;
@@ -44,6 +45,7 @@ import eu.power_switch.action.Action;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.google_play_services.geofence.Geofence;
 import eu.power_switch.google_play_services.geofence.GeofenceApiHandler;
+import eu.power_switch.google_play_services.geofence.GeofenceSnapshotStore;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.gui.dialog.ConfigurationDialogFragment;
 import eu.power_switch.gui.dialog.ConfigurationDialogTabbedSummaryFragment;
@@ -72,6 +74,7 @@ public class ConfigureGeofenceDialogPage4SummaryFragment extends ConfigurationDi
     private LatLng currentLocation;
     private double currentGeofenceRadius;
     private Bitmap currentSnapshot;
+    private boolean hasStoredSnapshot;
     private TextView textViewName;
     private TextView textViewLocation;
     private ImageView imageViewLocationSnapshot;
@@ -147,7 +150,7 @@ public class ConfigureGeofenceDialogPage4SummaryFragment extends ConfigurationDi
             currentName = geofence.getName();
             currentGeofenceRadius = geofence.getRadius();
             currentLocation = geofence.getCenterLocation();
-            currentSnapshot = geofence.getSnapshot();
+            hasStoredSnapshot = GeofenceSnapshotStore.contains(geofenceId);
             currentEnterActions = geofence.getActions(Geofence.EventType.ENTER);
             currentExitActions = geofence.getActions(Geofence.EventType.EXIT);
         } catch (Exception e) {
@@ -166,6 +169,8 @@ public class ConfigureGeofenceDialogPage4SummaryFragment extends ConfigurationDi
 
         if (currentSnapshot != null) {
             imageViewLocationSnapshot.setImageBitmap(currentSnapshot);
+        } else if (hasStoredSnapshot && imageViewLocationSnapshot.getDrawable() == null) {
+            loadStoredSnapshot();
         }
 
         if (currentGeofenceRadius != -1) {
@@ -189,6 +194,28 @@ public class ConfigureGeofenceDialogPage4SummaryFragment extends ConfigurationDi
         textViewExitActions.setText(exitActionText);
     }
 
+    /**
+     * Shows the stored snapshot of the edited Geofence, decoding it in background
+     */
+    private void loadStoredSnapshot() {
+        final long geofenceId = currentId;
+        final int width = getResources().getDisplayMetrics().widthPixels;
+        new AsyncTask<Void, Void, Bitmap>() {
+            @Override
+            protected Bitmap doInBackground(Void... params) {
+                return GeofenceSnapshotStore.getThumbnail(geofenceId, width, 0);
+            }
+
+            @Override
+            protected void onPostExecute(Bitmap bitmap) {
+                // a new snapshot might have been taken in the meantime
+                if (currentSnapshot == null) {
+                    imageViewLocationSnapshot.setImageBitmap(bitmap);
+                }
+            }
+        }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
     @Override
     public boolean checkSetupValidity() {
         if (currentName == null || currentName.length() <= 0) {
@@ -203,7 +230,7 @@ public class ConfigureGeofenceDialogPage4SummaryFragment extends ConfigurationDi
             return false;
         }
 
-        if (currentSnapshot == null) {
+        if (currentSnapshot == null && !hasStoredSnapshot) {
             return false;
         }
 
@@ -32,7 +32,12 @@ import android.support.v7.widget.SwitchCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 
 import java.lang.reflect.Constructor;
@@ -54,6 +59,7 @@ import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.UniversalButton;
 import eu.power_switch.obj.button.Button;
+import eu.power_switch.obj.gateway.Gateway;
 import eu.power_switch.obj.receiver.AutoPairReceiver;
 import eu.power_switch.obj.receiver.DipReceiver;
 import eu.power_switch.obj.receiver.DipSwitch;
@@ -83,6 +89,10 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
     private int currentSlave;
     private long currentSeed;
     private List<UniversalButton> currentUniversalButtons = new ArrayList<>();
+    private Long currentPreferredGatewayId;
+    private boolean currentBroadcastFallback = true;
+
+    private List<Gateway> gateways = new ArrayList<>();
 
     private BroadcastReceiver broadcastReceiver;
 
@@ -99,6 +109,8 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
     private LinearLayout linearLayoutUniversalButtons;
     private LinearLayout linearLayoutAutoPairReceiver;
     private TextView seed;
+    private Spinner preferredGateway;
+    private CheckBox broadcastFallback;
 
     @Nullable
     @Override
@@ -168,18 +180,71 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
         linearLayoutUniversalReceiver = (LinearLayout) rootView.findViewById(R.id.linearLayout_universalReceiver);
         linearLayoutUniversalButtons = (LinearLayout) rootView.findViewById(R.id.linearLayout_universalButtons);
 
-        updateUi();
+        preferredGateway = (Spinner) rootView.findViewById(R.id.spinner_preferredGateway);
+        broadcastFallback = (CheckBox) rootView.findViewById(R.id.checkBox_broadcastFallback);
 
         Bundle args = getArguments();
         if (args != null && args.containsKey(ConfigureReceiverDialog.RECEIVER_ID_KEY)) {
             long receiverId = args.getLong(ConfigureReceiverDialog.RECEIVER_ID_KEY);
             currentId = receiverId;
-            initializeReceiverData(receiverId);
+        }
+        initializeGatewayData();
+
+        updateUi();
+
+        if (currentId != -1) {
+            initializeReceiverData(currentId);
         }
 
         return rootView;
     }
 
+    private void initializeGatewayData() {
+        List<String> gatewayNames = new ArrayList<>();
+        gatewayNames.add(getString(R.string.all_active_gateways));
+        try {
+            // an existing Receiver can only use the Gateways of the Apartment it belongs to
+            Apartment apartment;
+            if (currentId == -1) {
+                apartment = DatabaseHandler.getApartment(SmartphonePreferencesHandler.getCurrentApartmentId());
+            } else {
+                apartment = DatabaseHandler.getContainingApartment(DatabaseHandler.getReceiver(currentId));
+            }
+            for (Gateway gateway : apartment.getAssociatedGateways()) {
+                gateways.add(gateway);
+                gatewayNames.add(gateway.getName());
+            }
+        } catch (Exception e) {
+            StatusMessageHandler.showErrorMessage(getActivity(), e);
+        }
+
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(getActivity(), android.R.layout.simple_spinner_item, gatewayNames);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        preferredGateway.setAdapter(adapter);
+        preferredGateway.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (position == 0) {
+                    currentPreferredGatewayId = null;
+                } else {
+                    currentPreferredGatewayId = gateways.get(position - 1).getId();
+                }
+                broadcastFallback.setEnabled(currentPreferredGatewayId != null);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        broadcastFallback.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                currentBroadcastFallback = isChecked;
+            }
+        });
+    }
+
     private void initializeReceiverData(long receiverId) {
         try {
             final Receiver receiver = DatabaseHandler.getReceiver(receiverId);
@@ -190,6 +255,8 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
             currentType = receiver.getType();
             currentBrand = receiver.getBrand();
             currentModel = receiver.getModel();
+            currentPreferredGatewayId = receiver.getPreferredGatewayId();
+            currentBroadcastFallback = receiver.isBroadcastFallback();
 
             switch (currentType) {
                 case DIPS:
@@ -253,6 +320,17 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
 
         seed.setText(String.valueOf(currentSeed));
 
+        int preferredGatewayPosition = 0;
+        for (int i = 0; i < gateways.size(); i++) {
+            if (gateways.get(i).getId().equals(currentPreferredGatewayId)) {
+                preferredGatewayPosition = i + 1;
+                break;
+            }
+        }
+        preferredGateway.setSelection(preferredGatewayPosition);
+        broadcastFallback.setChecked(currentBroadcastFallback);
+        broadcastFallback.setEnabled(currentPreferredGatewayId != null);
+
         if (currentUniversalButtons != null) {
             linearLayoutUniversalButtons.removeAllViews();
             for (Button button : currentUniversalButtons) {
@@ -387,6 +465,9 @@ public class ConfigureReceiverDialogPage4TabbedSummaryFragment extends Configura
                 break;
         }
 
+        receiver.setPreferredGatewayId(currentPreferredGatewayId);
+        receiver.setBroadcastFallback(currentBroadcastFallback);
+
         if (currentId == -1) {
             DatabaseHandler.addReceiver(receiver);
         } else {
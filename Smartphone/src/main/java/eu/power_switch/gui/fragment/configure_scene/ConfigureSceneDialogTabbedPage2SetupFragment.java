@@ -127,15 +127,17 @@ public class ConfigureSceneDialogTabbedPage2SetupFragment extends ConfigurationD
 
                 boolean roomFound = false;
                 for (Room room : checkedReceivers) {
-                    if (room.getId() == sceneItem.getReceiver().getRoomId()) {
+                    if (room.getId().equals(sceneItem.getReceiver().getRoomId())) {
                         room.addReceiver(sceneItem.getReceiver());
                         roomFound = true;
                     }
                 }
 
                 if (!roomFound) {
-                    Room room = DatabaseHandler.getRoom(sceneItem.getReceiver().getRoomId());
-                    room.getReceivers().clear();
+                    // only contains the Receivers used in this Scene
+                    Room originalRoom = DatabaseHandler.getRoom(sceneItem.getReceiver().getRoomId());
+                    Room room = new Room(originalRoom.getId(), originalRoom.getApartmentId(), originalRoom.getName(),
+                            originalRoom.getPositionInApartment(), originalRoom.isCollapsed());
                     room.addReceiver(sceneItem.getReceiver());
                     checkedReceivers.add(room);
                 }
@@ -18,14 +18,15 @@
 
 package eu.power_switch.history;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.support.annotation.WorkerThread;
 import android.support.v4.content.LocalBroadcastManager;
 
 import java.util.Calendar;
 
 import eu.power_switch.R;
-import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.shared.constants.LocalBroadcastConstants;
 import eu.power_switch.shared.log.Log;
 
@@ -46,13 +47,52 @@ public class HistoryHelper {
         LocalBroadcastManager.getInstance(context).sendBroadcast(intent);
     }
 
+    /**
+     * Add a HistoryItem
+     * <p/>
+     * The item is written to the database asynchronously, listeners are notified via
+     * {@link #sendHistoryChangedBroadcast(Context)} once it has been written.
+     *
+     * @param context     any suitable context
+     * @param historyItem HistoryItem
+     */
     public static void add(Context context, HistoryItem historyItem) throws Exception {
-        DatabaseHandler.addHistoryItem(historyItem);
-        sendHistoryChangedBroadcast(context);
+        HistoryJournal.append(context, historyItem);
     }
 
     public static void add(Context context, Exception e) throws Exception {
-        DatabaseHandler.addHistoryItem(new HistoryItem((long) -1, Calendar.getInstance(), context.getString(R.string.unknown_error), Log.getStackTraceText(e)));
-        sendHistoryChangedBroadcast(context);
+        HistoryJournal.append(context, new HistoryItem((long) -1, Calendar.getInstance(), context.getString(R.string.unknown_error), Log.getStackTraceText(e)));
+    }
+
+    /**
+     * Write all pending HistoryItems to the database and finish a broadcast afterwards
+     * <p/>
+     * BroadcastReceivers that execute actions call this at the end of
+     * {@link BroadcastReceiver#onReceive(Context, Intent)}, so their process is kept alive until the items have been
+     * written.
+     *
+     * @param context       any suitable context
+     * @param pendingResult result of {@link BroadcastReceiver#goAsync()}
+     */
+    public static void flush(Context context, BroadcastReceiver.PendingResult pendingResult) {
+        HistoryJournal.flush(context, pendingResult);
+    }
+
+    /**
+     * Write all pending HistoryItems to the database and wait until they have been written
+     *
+     * @param context any suitable context
+     */
+    @WorkerThread
+    public static void flushAndWait(Context context) throws Exception {
+        HistoryJournal.flushAndWait(context);
+    }
+
+    /**
+     * Delete the entire History, including items that have not been written yet
+     */
+    @WorkerThread
+    public static void clear() throws Exception {
+        HistoryJournal.clear();
     }
 }
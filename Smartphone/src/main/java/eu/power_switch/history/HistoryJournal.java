@@ -0,0 +1,201 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.history;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Append only in-memory journal of HistoryItems that is written to the database in the background
+ * <p/>
+ * All items that are added within {@link #FLUSH_DELAY} are inserted in a single transaction, followed by a single
+ * "history changed" broadcast. Old entries are deleted at most once every {@link #RETENTION_INTERVAL} instead of on
+ * every insert.
+ * <p/>
+ * Components that might be stopped right after executing actions (BroadcastReceivers, IntentServices) have to
+ * flush the journal explicitly, otherwise their items might get lost together with the process.
+ */
+abstract class HistoryJournal {
+
+    /**
+     * Time in milliseconds items are collected before they are written to the database
+     */
+    private static final long FLUSH_DELAY = 500;
+
+    /**
+     * Minimum time in milliseconds between two runs of the retention sweep
+     */
+    private static final long RETENTION_INTERVAL = 60 * 60 * 1000;
+
+    private static final List<HistoryItem> pendingItems = new ArrayList<>();
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private static boolean flushScheduled = false;
+
+    /**
+     * Time of the last retention sweep, only accessed on the executor thread
+     */
+    private static long lastRetentionRun = 0;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private HistoryJournal() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Append a HistoryItem to the journal
+     *
+     * @param context     any suitable context
+     * @param historyItem HistoryItem
+     */
+    public static void append(@NonNull Context context, @NonNull HistoryItem historyItem) {
+        final Context applicationContext = context.getApplicationContext();
+
+        synchronized (pendingItems) {
+            pendingItems.add(historyItem);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush(applicationContext);
+            }
+        }, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write all pending items to the database without waiting for {@link #FLUSH_DELAY} and finish a broadcast
+     * afterwards
+     *
+     * @param context       any suitable context
+     * @param pendingResult result of {@link BroadcastReceiver#goAsync()}, finished once the items have been written
+     */
+    public static void flush(@NonNull Context context, @NonNull final BroadcastReceiver.PendingResult pendingResult) {
+        final Context applicationContext = context.getApplicationContext();
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    flush(applicationContext);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Write all pending items to the database without waiting for {@link #FLUSH_DELAY} and wait until they have
+     * been written
+     *
+     * @param context any suitable context
+     */
+    @WorkerThread
+    public static void flushAndWait(@NonNull Context context) throws Exception {
+        final Context applicationContext = context.getApplicationContext();
+
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                flush(applicationContext);
+            }
+        }).get();
+    }
+
+    /**
+     * Discard all pending items and delete the entire History from the database
+     * <p/>
+     * This runs on the journal thread, so no item that was added before can be written after the History was cleared.
+     */
+    @WorkerThread
+    public static void clear() throws Exception {
+        synchronized (pendingItems) {
+            pendingItems.clear();
+        }
+
+        try {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    DatabaseHandler.clearHistory();
+                    return null;
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void flush(Context context) {
+        List<HistoryItem> historyItems;
+        synchronized (pendingItems) {
+            historyItems = new ArrayList<>(pendingItems);
+            pendingItems.clear();
+            flushScheduled = false;
+        }
+
+        if (historyItems.isEmpty()) {
+            return;
+        }
+
+        try {
+            DatabaseHandler.addHistoryItems(historyItems);
+        } catch (Exception e) {
+            Log.e(e);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastRetentionRun >= RETENTION_INTERVAL) {
+            try {
+                DatabaseHandler.deleteOldHistoryItems();
+                lastRetentionRun = now;
+            } catch (Exception e) {
+                Log.e(e);
+            }
+        }
+
+        HistoryHelper.sendHistoryChangedBroadcast(context);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.power_switch.network;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import eu.power_switch.google_play_services.geofence.Geofence;
+import eu.power_switch.obj.Apartment;
+import eu.power_switch.obj.gateway.Gateway;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Holds a cached snapshot of the current connectivity state, which is updated by connectivity change broadcasts
+ * instead of being queried for every NetworkPackage.
+ * <p/>
+ * The decision whether the local or WAN address of a Gateway should be used is cached per Apartment/Gateway for
+ * {@link #ROUTE_DECISION_TTL} milliseconds. WAN reachability is probed asynchronously against the Gateway's WAN
+ * address itself.
+ */
+public abstract class ConnectivityStateHandler {
+
+    /**
+     * Time in milliseconds a local/WAN route decision is reused
+     */
+    public static final long ROUTE_DECISION_TTL = 30 * 1000;
+
+    /**
+     * Time in milliseconds a WAN reachability probe result is reused
+     */
+    public static final long WAN_PROBE_TTL = 5 * 60 * 1000;
+
+    /**
+     * Timeout in milliseconds of a single WAN reachability probe
+     */
+    private static final int WAN_PROBE_TIMEOUT = 2000;
+
+    private static Context context;
+
+    // cached connectivity snapshot
+    private static boolean networkConnected;
+    private static boolean wifiConnected;
+    private static boolean ethernetConnected;
+    private static String connectedWifiSsid = "";
+
+    /**
+     * Route decisions by "apartmentId:gatewayId"
+     */
+    private static final Map<String, RouteDecision> routeDecisions = new HashMap<>();
+
+    /**
+     * WAN probe results by WAN host
+     */
+    private static final Map<String, WanProbe> wanProbes = new HashMap<>();
+
+    /**
+     * WAN hosts that are currently being probed
+     */
+    private static final Set<String> runningWanProbes = new HashSet<>();
+
+    private static final ExecutorService probeExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private ConnectivityStateHandler() {
+        throw new UnsupportedOperationException("This class is non-instantiable. Use static one time initialization via init() method instead.");
+    }
+
+    /**
+     * Initialize the cached connectivity state and register for connectivity changes
+     *
+     * @param context any suitable context
+     */
+    public static synchronized void init(@NonNull Context context) {
+        if (ConnectivityStateHandler.context != null) {
+            return;
+        }
+        ConnectivityStateHandler.context = context.getApplicationContext();
+
+        refresh();
+
+        IntentFilter intentFilter = new IntentFilter();
+        intentFilter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        intentFilter.addAction(WifiManager.NETWORK_STATE_CHANGED_ACTION);
+        ConnectivityStateHandler.context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                Log.d(ConnectivityStateHandler.class, intent);
+                onConnectivityChanged();
+            }
+        }, intentFilter);
+    }
+
+    /**
+     * Update cached state after the connectivity has changed
+     */
+    private static void onConnectivityChanged() {
+        refresh();
+
+        synchronized (routeDecisions) {
+            routeDecisions.clear();
+        }
+        synchronized (wanProbes) {
+            wanProbes.clear();
+        }
+
+        // pooled UDP channels are bound to the old interface
+        NetworkPackageQueueHandler networkPackageQueueHandler = NetworkHandler.getNetworkPackageQueueHandler();
+        if (networkPackageQueueHandler != null) {
+            networkPackageQueueHandler.getUdpChannelPool().invalidate();
+        }
+    }
+
+    /**
+     * Query the system for the current connectivity state and store it
+     */
+    private static synchronized void refresh() {
+        ConnectivityManager connMgr = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+
+        networkConnected = networkInfo != null && networkInfo.isConnectedOrConnecting();
+        wifiConnected = networkConnected && ConnectivityManager.TYPE_WIFI == networkInfo.getType();
+        ethernetConnected = networkConnected && ConnectivityManager.TYPE_ETHERNET == networkInfo.getType();
+
+        connectedWifiSsid = "";
+        if (wifiConnected) {
+            WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+            WifiInfo info = wifiManager.getConnectionInfo();
+            if (info != null && info.getSSID() != null) {
+                String ssid = info.getSSID();
+                // remove unnecessary quotation marks
+                if (ssid.startsWith("\"") && ssid.endsWith("\"")) {
+                    ssid = ssid.substring(1, ssid.length() - 1);
+                }
+                connectedWifiSsid = ssid;
+            }
+        }
+
+        Log.d(ConnectivityStateHandler.class, "network: " + networkConnected + ", wifi: " + wifiConnected +
+                " (" + connectedWifiSsid + "), ethernet: " + ethernetConnected);
+    }
+
+    public static synchronized boolean isNetworkConnected() {
+        return networkConnected;
+    }
+
+    public static synchronized boolean isWifiConnected() {
+        return wifiConnected;
+    }
+
+    public static synchronized boolean isEthernetConnected() {
+        return ethernetConnected;
+    }
+
+    @NonNull
+    public static synchronized String getConnectedWifiSSID() {
+        return connectedWifiSsid;
+    }
+
+    /**
+     * Decide if the local address of a Gateway with valid local and WAN address should be used
+     *
+     * @param apartment Apartment the Gateway is used in
+     * @param gateway   Gateway with valid local and WAN address
+     * @return true if local address should be used, false if WAN address should be used
+     */
+    public static boolean shouldUseLocalAddress(@NonNull Apartment apartment, @NonNull Gateway gateway) {
+        String key = apartment.getId() + ":" + gateway.getId();
+        long now = SystemClock.elapsedRealtime();
+
+        synchronized (routeDecisions) {
+            RouteDecision routeDecision = routeDecisions.get(key);
+            if (routeDecision != null && now - routeDecision.timestamp < ROUTE_DECISION_TTL) {
+                return routeDecision.useLocalAddress;
+            }
+        }
+
+        boolean useLocalAddress = decide(apartment, gateway);
+
+        synchronized (routeDecisions) {
+            routeDecisions.put(key, new RouteDecision(useLocalAddress, now));
+        }
+        return useLocalAddress;
+    }
+
+    /**
+     * Discard all cached route decisions, f.e. after the state of a Geofence has changed
+     */
+    public static void invalidateRouteDecisions() {
+        synchronized (routeDecisions) {
+            routeDecisions.clear();
+        }
+    }
+
+    private static boolean decide(Apartment apartment, Gateway gateway) {
+        if (isWifiConnected() || isEthernetConnected()) {
+            if (isWanReachable(gateway)) {
+                if (!gateway.getSsids().isEmpty()) {
+                    if (gateway.getSsids().contains(getConnectedWifiSSID())) {
+                        Log.d("Using local address, connected to SSID specified in Gateway");
+                        return true;
+                    } else {
+                        Log.d("Using WAN address, connected to unspecified SSID");
+                        return false;
+                    }
+                } else {
+                    if (apartment.getGeofence() != null &&
+                            apartment.getGeofence().isActive() &&
+                            Geofence.STATE_INSIDE.equals(apartment.getGeofence().getState())) {
+                        Log.d("Using local address, inside geofence");
+                        return true;
+                    } else {
+                        Log.d("Using WAN address, outside or missing geofence data");
+                        return false;
+                    }
+                }
+            } else {
+                Log.d("Using local address, WAN address of Gateway not reachable");
+                return true;
+            }
+        } else {
+            Log.d("Using WAN address, no WiFi or LAN available");
+            return false;
+        }
+    }
+
+    /**
+     * Get the last known WAN reachability of a Gateway and start a new probe in the background if it is outdated
+     * <p/>
+     * Until the first probe has finished the WAN address is assumed to be reachable.
+     *
+     * @param gateway Gateway
+     * @return true if the WAN address of the Gateway is (assumed to be) reachable
+     */
+    private static boolean isWanReachable(Gateway gateway) {
+        final String wanHost = gateway.getWanHost();
+        long now = SystemClock.elapsedRealtime();
+
+        WanProbe wanProbe;
+        synchronized (wanProbes) {
+            wanProbe = wanProbes.get(wanHost);
+            if ((wanProbe == null || now - wanProbe.timestamp >= WAN_PROBE_TTL) && runningWanProbes.add(wanHost)) {
+                probeExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        probeWan(wanHost);
+                    }
+                });
+            }
+        }
+
+        return wanProbe == null || wanProbe.reachable;
+    }
+
+    private static void probeWan(String wanHost) {
+        boolean reachable;
+        try {
+            reachable = InetAddress.getByName(wanHost).isReachable(WAN_PROBE_TIMEOUT);
+        } catch (Exception e) {
+            reachable = false;
+        }
+        Log.d(ConnectivityStateHandler.class, "WAN probe " + wanHost + ": " + reachable);
+
+        synchronized (wanProbes) {
+            WanProbe previous = wanProbes.put(wanHost, new WanProbe(reachable, SystemClock.elapsedRealtime()));
+            runningWanProbes.remove(wanHost);
+
+            if (previous == null || previous.reachable != reachable) {
+                synchronized (routeDecisions) {
+                    routeDecisions.clear();
+                }
+            }
+        }
+    }
+
+    private static class RouteDecision {
+        private final boolean useLocalAddress;
+        private final long timestamp;
+
+        private RouteDecision(boolean useLocalAddress, long timestamp) {
+            this.useLocalAddress = useLocalAddress;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class WanProbe {
+        private final boolean reachable;
+        private final long timestamp;
+
+        private WanProbe(boolean reachable, long timestamp) {
+            this.reachable = reachable;
+            this.timestamp = timestamp;
+        }
+    }
+}
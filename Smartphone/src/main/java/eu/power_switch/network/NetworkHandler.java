@@ -23,8 +23,6 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.wifi.WifiInfo;
 import android.net.wifi.WifiManager;
-import android.os.AsyncTask;
-import android.os.Build;
 import android.support.annotation.WorkerThread;
 
 import java.io.IOException;
@@ -52,7 +50,6 @@ import eu.power_switch.shared.log.Log;
  */
 public abstract class NetworkHandler {
 
-    protected static final List<NetworkPackage> networkPackagesQueue = new LinkedList<>();
     protected static final Object lockObject = new Object();
     protected static NetworkPackageQueueHandler networkPackageQueueHandler;
     protected static Context context;
@@ -77,19 +74,14 @@ public abstract class NetworkHandler {
             networkPackageQueueHandler = new NetworkPackageQueueHandler(context);
         }
 
-        if (networkPackageQueueHandler.getStatus() != AsyncTask.Status.RUNNING) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-                networkPackageQueueHandler.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-            } else {
-                networkPackageQueueHandler.execute();
-            }
-        }
+        ConnectivityStateHandler.init(context);
     }
 
     /**
      * Checks if Internet access is connected
      * <p/>
-     * Works by pinging the Google DNS
+     * Works by pinging the Google DNS. This blocks until the ping process has finished, use
+     * {@link ConnectivityStateHandler} for anything time critical.
      *
      * @return true if connected, false otherwise
      * @see <a href="http://google.com">http://stackoverflow.com/questions/1560788/how-to-check-internet-access-on-android-inetaddress-never-timeouts</a>
@@ -108,7 +100,7 @@ public abstract class NetworkHandler {
             e.printStackTrace();
         }
 
-        Log.d("isInternetConnected: " + isInternetconnected);
+        Log.d(NetworkHandler.class, "isInternetConnected: %s", isInternetconnected);
         return isInternetconnected;
     }
 
@@ -123,7 +115,7 @@ public abstract class NetworkHandler {
 
         boolean isWificonnected = (networkInfo != null &&
                 ConnectivityManager.TYPE_WIFI == networkInfo.getType() && networkInfo.isConnectedOrConnecting());
-        Log.d("isWifiConnected: " + isWificonnected);
+        Log.d(NetworkHandler.class, "isWifiConnected: %s", isWificonnected);
         return isWificonnected;
     }
 
@@ -138,7 +130,7 @@ public abstract class NetworkHandler {
 
         boolean isWificonnected = (networkInfo != null &&
                 ConnectivityManager.TYPE_ETHERNET == networkInfo.getType() && networkInfo.isConnectedOrConnecting());
-        Log.d("isEthernetConnected: " + isWificonnected);
+        Log.d(NetworkHandler.class, "isEthernetConnected: %s", isWificonnected);
         return isWificonnected;
     }
 
@@ -153,7 +145,7 @@ public abstract class NetworkHandler {
 
         boolean isGprsconnected = (networkInfo != null &&
                 ConnectivityManager.TYPE_MOBILE == networkInfo.getType() && networkInfo.isConnectedOrConnecting());
-        Log.d("isGprsConnected: " + isGprsconnected);
+        Log.d(NetworkHandler.class, "isGprsConnected: %s", isGprsconnected);
         return isGprsconnected;
     }
 
@@ -167,7 +159,7 @@ public abstract class NetworkHandler {
         NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
 
         boolean isconnected = (networkInfo != null && networkInfo.isConnectedOrConnecting());
-        Log.d("isNetworkConnected: " + isconnected);
+        Log.d(NetworkHandler.class, "isNetworkConnected: %s", isconnected);
         return isconnected;
     }
 
@@ -187,7 +179,7 @@ public abstract class NetworkHandler {
                 ssid = ssid.substring(1, ssid.length() - 1);
             }
 
-            Log.d("connected SSID: " + ssid);
+            Log.d(NetworkHandler.class, "connected SSID: %s", ssid);
             return ssid;
         } else {
             return "";
@@ -196,6 +188,8 @@ public abstract class NetworkHandler {
 
     /**
      * sends a list of NetworkPackages
+     * <p/>
+     * Queued packages that were not sent yet are superseded by packages for the same Receiver and destination.
      *
      * @param networkPackages list of network packages
      */
@@ -204,14 +198,17 @@ public abstract class NetworkHandler {
             return;
         }
 
-        // add NetworkPackages to queue
-        synchronized (networkPackagesQueue) {
-            networkPackagesQueue.addAll(networkPackages);
-        }
-        // notify worker thread to handle new packages
-        synchronized (NetworkPackageQueueHandler.lock) {
-            NetworkPackageQueueHandler.lock.notify();
-        }
+        // add NetworkPackages to the lanes of their destination
+        networkPackageQueueHandler.add(networkPackages);
+    }
+
+    /**
+     * Get the handler responsible for sending queued NetworkPackages
+     *
+     * @return NetworkPackageQueueHandler
+     */
+    public static NetworkPackageQueueHandler getNetworkPackageQueueHandler() {
+        return networkPackageQueueHandler;
     }
 
     /**
@@ -18,6 +18,11 @@
 
 package eu.power_switch.network;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import eu.power_switch.action.tracing.ActionTrace;
+
 /**
  * Internal representation of a network package that is used in NetworkHandler
  */
@@ -31,10 +36,23 @@ public class NetworkPackage {
      * Destination localPort of this network package
      */
     private int port;
+    /**
+     * Charset used to convert between message and payload
+     */
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
     /**
      * Message of this network package
+     * <p/>
+     * Decoded from payload on first use if this package was created with an encoded payload
      */
     private String message;
+    /**
+     * Encoded message of this network package (read-only)
+     * <p/>
+     * Encoded from message on first use if this package was created with a message string
+     */
+    private ByteBuffer payload;
     /**
      * Time to wait after sending this package before sending the next one
      */
@@ -43,6 +61,14 @@ public class NetworkPackage {
      * Type of this Network Package
      */
     private CommunicationType communicationType;
+    /**
+     * Trace of the action this package belongs to, null if not traced
+     */
+    private ActionTrace trace;
+    /**
+     * ID of the Receiver this package is addressed to, null if not addressed to a Receiver
+     */
+    private Long receiverId;
 
     /**
      * Default Constructor
@@ -60,6 +86,24 @@ public class NetworkPackage {
         this.timeout = timeout;
     }
 
+    /**
+     * Constructor for an already encoded message
+     * <p/>
+     * The payload is not copied, its content must not be modified afterwards.
+     *
+     * @param host    Host address
+     * @param port    Port
+     * @param payload encoded Message
+     * @param timeout Timeout
+     */
+    public NetworkPackage(CommunicationType communicationType, String host, int port, ByteBuffer payload, int timeout) {
+        this.communicationType = communicationType;
+        this.host = host;
+        this.port = port;
+        this.payload = payload.asReadOnlyBuffer();
+        this.timeout = timeout;
+    }
+
     /**
      * Get Type of this Network Package
      *
@@ -92,10 +136,28 @@ public class NetworkPackage {
      *
      * @return message
      */
-    public String getMessage() {
+    public synchronized String getMessage() {
+        if (message == null) {
+            message = CHARSET.decode(payload.duplicate()).toString();
+        }
         return message;
     }
 
+    /**
+     * Get encoded message that should be sent
+     * <p/>
+     * The returned buffer is a read-only view sharing the content of this package,
+     * its position and limit can be changed independently.
+     *
+     * @return encoded message
+     */
+    public synchronized ByteBuffer getPayload() {
+        if (payload == null) {
+            payload = ByteBuffer.wrap(message.getBytes(CHARSET)).asReadOnlyBuffer();
+        }
+        return payload.duplicate();
+    }
+
     /**
      * Get time to wait after sending the NetworkPackage
      * <p/>
@@ -109,6 +171,56 @@ public class NetworkPackage {
         return timeout;
     }
 
+    /**
+     * Get destination of this NetworkPackage in the form "host:port"
+     * <p/>
+     * Packages with the same destination are sent by the same {@link NetworkPackageLane}
+     *
+     * @return destination key
+     */
+    public String getDestination() {
+        return host + ":" + port;
+    }
+
+    /**
+     * Get trace of the action this package belongs to
+     *
+     * @return trace, null if not traced
+     */
+    public ActionTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Set trace of the action this package belongs to
+     *
+     * @param trace trace
+     */
+    public void setTrace(ActionTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Get ID of the Receiver this package is addressed to
+     * <p/>
+     * A queued package that was not sent yet is superseded by a newer package for the same Receiver and
+     * destination, see {@link NetworkPackageLane}.
+     *
+     * @return ID of Receiver, null if not addressed to a Receiver
+     */
+    public Long getReceiverId() {
+        return receiverId;
+    }
+
+    /**
+     * Set ID of the Receiver this package is addressed to
+     *
+     * @param receiverId ID of Receiver
+     */
+    public void setReceiverId(Long receiverId) {
+        this.receiverId = receiverId;
+    }
+
     public enum CommunicationType {
         UDP,
         HTTP
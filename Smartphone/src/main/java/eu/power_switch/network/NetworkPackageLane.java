@@ -0,0 +1,267 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.power_switch.network;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import eu.power_switch.action.tracing.ActionTracer;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * A Lane holds all queued NetworkPackages for a single destination (host:port) in the order they were added.
+ * <p/>
+ * Every lane is worked off on its own thread, so different Gateways are served in parallel while packages to the
+ * same Gateway are still sent one after another, paced by the gateway specific timeout.
+ * <p/>
+ * A lane holds at most one unsent package per Receiver. A newer package for the same Receiver supersedes the queued
+ * one and takes its place, so repeated commands and exact duplicates are elided and the time to work off a lane is
+ * bounded by the number of distinct Receivers instead of the number of commands.
+ */
+public class NetworkPackageLane implements Runnable {
+
+    /**
+     * Queue handler this lane belongs to
+     */
+    private NetworkPackageQueueHandler queueHandler;
+
+    /**
+     * Destination of this lane ("host:port")
+     */
+    private String destination;
+
+    /**
+     * Packages waiting to be sent over this lane
+     */
+    private final LinkedList<NetworkPackage> queue = new LinkedList<>();
+
+    /**
+     * Queued packages addressed to a Receiver, by Receiver ID
+     */
+    private final Map<Long, NetworkPackage> queuedByReceiver = new HashMap<>();
+
+    /**
+     * true while a worker thread is draining this lane
+     */
+    private boolean running = false;
+
+    /**
+     * Time (elapsed realtime) the current drain has started
+     */
+    private long drainStartTime;
+
+    /**
+     * Time in milliseconds the last complete drain of this lane took, -1 if never drained
+     */
+    private long lastDrainLatency = -1;
+
+    /**
+     * Number of packages sent over this lane since it was created
+     */
+    private long sentCount = 0;
+
+    /**
+     * Number of queued packages superseded by a newer package for the same Receiver since this lane was created
+     */
+    private long elidedCount = 0;
+
+    public NetworkPackageLane(NetworkPackageQueueHandler queueHandler, String destination) {
+        this.queueHandler = queueHandler;
+        this.destination = destination;
+    }
+
+    /**
+     * Add NetworkPackages to the end of this lane
+     *
+     * @param networkPackages packages with the same destination as this lane
+     * @return true if the lane was idle and has to be scheduled on a worker thread
+     */
+    protected synchronized boolean add(List<NetworkPackage> networkPackages) {
+        for (NetworkPackage networkPackage : networkPackages) {
+            enqueue(networkPackage);
+        }
+
+        if (running) {
+            return false;
+        } else {
+            running = true;
+            drainStartTime = SystemClock.elapsedRealtime();
+            return true;
+        }
+    }
+
+    /**
+     * Add a single NetworkPackage to this lane, superseding a queued package for the same Receiver
+     *
+     * @param networkPackage package with the same destination as this lane
+     */
+    private void enqueue(NetworkPackage networkPackage) {
+        Long receiverId = networkPackage.getReceiverId();
+        if (receiverId == null) {
+            queue.add(networkPackage);
+            return;
+        }
+
+        NetworkPackage superseded = queuedByReceiver.put(receiverId, networkPackage);
+        if (superseded == null) {
+            queue.add(networkPackage);
+            return;
+        }
+
+        // take the place of the superseded package, so the receiver keeps its position in the lane
+        ListIterator<NetworkPackage> iterator = queue.listIterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == superseded) {
+                iterator.set(networkPackage);
+                break;
+            }
+        }
+
+        elidedCount++;
+        if (Log.isDebugEnabled()) {
+            // avoids boxing the counters while holding the lane lock
+            Log.d(this, "%s: package for receiver %d superseded, %d elided", destination, receiverId, elidedCount);
+        }
+        ActionTracer.onPackageElided(superseded);
+    }
+
+    @Override
+    public void run() {
+        queueHandler.onLaneStarted(this);
+
+        while (true) {
+            NetworkPackage currentNetworkPackage;
+            synchronized (this) {
+                if (queue.isEmpty()) {
+                    running = false;
+                    lastDrainLatency = SystemClock.elapsedRealtime() - drainStartTime;
+                    break;
+                }
+                // a package that is being sent can not be superseded anymore
+                currentNetworkPackage = queue.removeFirst();
+                if (currentNetworkPackage.getReceiverId() != null) {
+                    queuedByReceiver.remove(currentNetworkPackage.getReceiverId());
+                }
+            }
+
+            long dequeueTime = System.nanoTime();
+            boolean success = queueHandler.send(this, currentNetworkPackage);
+            ActionTracer.onPackageSent(currentNetworkPackage, destination, dequeueTime, success);
+
+            int delay;
+            synchronized (this) {
+                sentCount++;
+
+                if (queue.isEmpty()) {
+                    delay = 0;
+                } else if (success) {
+                    // wait gateway-specific time before sending the next signal to the same gateway
+                    delay = currentNetworkPackage.getTimeout();
+                } else {
+                    delay = 2000;
+                }
+            }
+
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    clear();
+                }
+            }
+        }
+
+        queueHandler.onLaneFinished(this);
+    }
+
+    /**
+     * Remove all queued packages from this lane
+     */
+    protected synchronized void clear() {
+        for (NetworkPackage networkPackage : queue) {
+            ActionTracer.onPackageDiscarded(networkPackage);
+        }
+        queue.clear();
+        queuedByReceiver.clear();
+    }
+
+    /**
+     * Get destination of this lane
+     *
+     * @return destination ("host:port")
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Get number of packages currently waiting in this lane
+     *
+     * @return queue depth
+     */
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Get time the last complete drain of this lane took
+     *
+     * @return time in milliseconds, -1 if this lane was never drained
+     */
+    public synchronized long getLastDrainLatency() {
+        return lastDrainLatency;
+    }
+
+    /**
+     * Get number of packages sent over this lane
+     *
+     * @return number of sent packages
+     */
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * Get number of queued packages that were superseded by a newer package for the same Receiver
+     *
+     * @return number of elided packages
+     */
+    public synchronized long getElidedCount() {
+        return elidedCount;
+    }
+
+    /**
+     * Check if this lane is currently being worked off
+     *
+     * @return true if running
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Lane " + destination + " (queued: " + queue.size() + ", sent: " + sentCount +
+                ", elided: " + elidedCount + ", last drain: " + lastDrainLatency + "ms)";
+    }
+}
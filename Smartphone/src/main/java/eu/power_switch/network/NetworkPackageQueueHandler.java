@@ -15,21 +15,24 @@
  *     You should have received a copy of the GNU General Public License
  *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package eu.power_switch.network;
 
 import android.content.Context;
-import android.os.AsyncTask;
 import android.support.design.widget.Snackbar;
 
 import java.io.BufferedInputStream;
 import java.io.InputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.HttpURLConnection;
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import eu.power_switch.R;
 import eu.power_switch.gui.StatusMessageHandler;
@@ -38,166 +41,195 @@ import eu.power_switch.shared.log.Log;
 /**
  * This Class is responsible for sending NetworkPackages that are queued up to be sent
  * <p/>
+ * Packages are sorted into one {@link NetworkPackageLane} per destination (host:port). Lanes are worked off in
+ * parallel, so only packages to the same Gateway have to wait for each other.
+ * <p/>
  * Created by Markus on 29.10.2015.
  */
-public class NetworkPackageQueueHandler extends AsyncTask<Void, Void, Void> {
+public class NetworkPackageQueueHandler {
 
     /**
-     * Lock Object used to lock thread on empty queue and wakeup again on notify
+     * Context
      */
-    public static final Object lock = new Object();
+    private Context context;
 
     /**
-     * Context
+     * Lanes by destination ("host:port")
      */
-    private Context context;
+    private final Map<String, NetworkPackageLane> lanes = new LinkedHashMap<>();
 
     /**
-     * Socket used to send NetworkPackages over UDP
+     * Executor used to work off lanes
      */
-    private DatagramSocket socket;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Pool of connected UDP channels
+     */
+    private final UdpChannelPool udpChannelPool = new UdpChannelPool();
+
+    /**
+     * Number of lanes that are currently being worked off
+     */
+    private int activeLanes = 0;
 
     public NetworkPackageQueueHandler(Context context) {
         this.context = context;
     }
 
-    @Override
-    protected Void doInBackground(Void... voids) {
-        while (true) {
-            // start working
-
-            Log.d(this, "start working");
+    /**
+     * Add NetworkPackages to the queue of their destination lane
+     *
+     * @param networkPackages list of network packages
+     */
+    public void add(List<NetworkPackage> networkPackages) {
+        // group by destination, keeping the original order within each destination
+        Map<String, List<NetworkPackage>> packagesByDestination = new HashMap<>();
+        for (NetworkPackage networkPackage : networkPackages) {
+            List<NetworkPackage> destinationPackages = packagesByDestination.get(networkPackage.getDestination());
+            if (destinationPackages == null) {
+                destinationPackages = new ArrayList<>();
+                packagesByDestination.put(networkPackage.getDestination(), destinationPackages);
+            }
+            destinationPackages.add(networkPackage);
+        }
 
-            int queueSize;
-            synchronized (NetworkHandler.networkPackagesQueue) {
-                queueSize = NetworkHandler.networkPackagesQueue.size();
+        for (Map.Entry<String, List<NetworkPackage>> entry : packagesByDestination.entrySet()) {
+            NetworkPackageLane lane;
+            synchronized (lanes) {
+                lane = lanes.get(entry.getKey());
+                if (lane == null) {
+                    lane = new NetworkPackageLane(this, entry.getKey());
+                    lanes.put(entry.getKey(), lane);
+                }
             }
 
-            if (queueSize > 0) {
-                processQueue();
+            if (lane.add(entry.getValue())) {
+                executor.execute(lane);
             }
+        }
+    }
 
-            // queue is empty
-            Log.d(this, "queue is empty, wait for notify...");
+    /**
+     * Get a snapshot of all lanes known to this handler
+     *
+     * @return list of lanes
+     */
+    public List<NetworkPackageLane> getLanes() {
+        synchronized (lanes) {
+            return new ArrayList<>(lanes.values());
+        }
+    }
 
-            // Put Thread asleep and wait for wakeup from NetworkHandler
-            synchronized (lock) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                    return null;
-                }
-                Log.d(this, "waking up");
-            }
+    /**
+     * Get number of packages waiting in all lanes
+     *
+     * @return total queue depth
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (NetworkPackageLane lane : getLanes()) {
+            size += lane.getQueueSize();
         }
+        return size;
     }
 
-    private void processQueue() {
-        if (NetworkHandler.isNetworkConnected()) {
-            StatusMessageHandler.showInfoMessage(context, R.string.sending, Snackbar.LENGTH_INDEFINITE);
+    /**
+     * Get number of queued packages that were superseded by a newer package for the same Receiver in all lanes
+     *
+     * @return number of elided packages
+     */
+    public long getElidedCount() {
+        long count = 0;
+        for (NetworkPackageLane lane : getLanes()) {
+            count += lane.getElidedCount();
+        }
+        return count;
+    }
 
-            NetworkPackage currentNetworkPackage;
-            while (NetworkHandler.networkPackagesQueue.size() > 0) {
+    /**
+     * Get the pool of UDP channels used to send UDP packages
+     *
+     * @return UdpChannelPool
+     */
+    public UdpChannelPool getUdpChannelPool() {
+        return udpChannelPool;
+    }
 
-                synchronized (NetworkHandler.networkPackagesQueue) {
-                    currentNetworkPackage = NetworkHandler.networkPackagesQueue.get(0);
-                }
-                try {
-                    send(currentNetworkPackage);
-
-                    int delay = 1000;
-                    synchronized (NetworkHandler.networkPackagesQueue) {
-                        // calculate time to wait before sending next package
-                        if (NetworkHandler.networkPackagesQueue.size() > 1) {
-                            NetworkPackage nextNetworkPackage = NetworkHandler.networkPackagesQueue.get(1);
-                            if (currentNetworkPackage.getHost().equals(nextNetworkPackage.getHost()) &&
-                                    currentNetworkPackage.getPort() == nextNetworkPackage.getPort()) {
-                                // if same gateway, wait gateway-specific time
-                                Log.d("Waiting Gateway specific time (" + currentNetworkPackage.getTimeout() + "ms) " +
-                                        "before sending next signal...");
-                                delay = currentNetworkPackage.getTimeout();
-                            }
-                        }
-
-                        // remove NetworkPackage from queue
-                        NetworkHandler.networkPackagesQueue.remove(0);
-                    }
-
-                    Log.d("Waiting for Gateway to finish sending Signal before sending next...");
-                    Thread.sleep(delay);
-                } catch (UnknownHostException e) {
-                    removeQueueHead();
-
-                    StatusMessageHandler.showInfoMessage(context, R.string.unknown_host, Snackbar.LENGTH_LONG);
-                    Log.e("UDP Sender", e);
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException e1) {
-                        e1.printStackTrace();
-                        Log.e("UDP Sender", e1);
-                    }
-                } catch (Exception e) {
-                    removeQueueHead();
-
-                    StatusMessageHandler.showErrorMessage(context, e);
-                    Log.e("UDP Sender: Unknown error while sending message in background:", e);
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException e1) {
-                        e1.printStackTrace();
-                        Log.e("UDP Sender", e1);
-                    }
-                } finally {
-                    if (socket != null) {
-                        socket.disconnect();
-                        socket.close();
-                    }
-                }
-            }
+    /**
+     * Called by a lane when it starts working off its queue
+     *
+     * @param lane lane
+     */
+    protected void onLaneStarted(NetworkPackageLane lane) {
+        Log.d(this, "start working on %s", lane.getDestination());
 
-            // queue worked off
-            StatusMessageHandler.showInfoMessage(context, R.string.sent, Snackbar.LENGTH_SHORT);
-        } else {
-            clearQueue();
+        boolean firstActiveLane;
+        synchronized (lanes) {
+            firstActiveLane = activeLanes == 0;
+            activeLanes++;
+        }
 
+        if (!ConnectivityStateHandler.isNetworkConnected()) {
+            lane.clear();
             StatusMessageHandler.showInfoMessage(context, R.string.missing_network_connection, Snackbar.LENGTH_LONG);
+        } else if (firstActiveLane) {
+            StatusMessageHandler.showInfoMessage(context, R.string.sending, Snackbar.LENGTH_INDEFINITE);
         }
     }
 
-    private void removeQueueHead() {
-        synchronized (NetworkHandler.networkPackagesQueue) {
-            // remove NetworkPackage from queue
-            NetworkHandler.networkPackagesQueue.remove(0);
+    /**
+     * Called by a lane when its queue is empty
+     *
+     * @param lane lane
+     */
+    protected void onLaneFinished(NetworkPackageLane lane) {
+        Log.d(this, "finished %s", lane);
+
+        boolean lastActiveLane;
+        synchronized (lanes) {
+            activeLanes--;
+            lastActiveLane = activeLanes == 0;
+        }
+
+        if (lastActiveLane && lane.getSentCount() > 0 && ConnectivityStateHandler.isNetworkConnected()) {
+            // all lanes worked off
+            StatusMessageHandler.showInfoMessage(context, R.string.sent, Snackbar.LENGTH_SHORT);
         }
     }
 
-    private void clearQueue() {
-        synchronized (NetworkHandler.networkPackagesQueue) {
-            // remove NetworkPackage from queue
-            NetworkHandler.networkPackagesQueue.clear();
+    /**
+     * Send a single NetworkPackage
+     *
+     * @param lane           lane the package belongs to
+     * @param networkPackage package to send
+     * @return true if the package was sent successfully, false otherwise
+     */
+    protected boolean send(NetworkPackageLane lane, NetworkPackage networkPackage) {
+        try {
+            send(networkPackage);
+            return true;
+        } catch (UnknownHostException e) {
+            StatusMessageHandler.showInfoMessage(context, R.string.unknown_host, Snackbar.LENGTH_LONG);
+            Log.e("UDP Sender (" + lane.getDestination() + ")", e);
+        } catch (Exception e) {
+            StatusMessageHandler.showErrorMessage(context, e);
+            Log.e("UDP Sender: Unknown error while sending message in background:", e);
         }
+        return false;
     }
 
     private void send(NetworkPackage networkPackage) throws Exception {
         switch (networkPackage.getCommunicationType()) {
             case UDP:
-                InetAddress host = InetAddress.getByName(networkPackage.getHost());
-                int port = networkPackage.getPort();
-
-                socket = new DatagramSocket(null);
-                socket.setReuseAddress(true);
-                socket.connect(host, port);
+                InetSocketAddress address = udpChannelPool.send(networkPackage.getHost(), networkPackage.getPort(),
+                        networkPackage.getPayload());
 
-                byte[] messageBuffer = networkPackage.getMessage().getBytes();
-                DatagramPacket messagePacket = new DatagramPacket(messageBuffer, messageBuffer.length, host, port);
-                socket.send(messagePacket);
-
-                Log.d("UDP Sender", "Host: " + host.getHostAddress() + ":" + port
-                        + " Message: \"" + new String(messageBuffer) + "\" sent.");
-
-                socket.disconnect();
-                socket.close();
+                if (Log.isDebugEnabled()) {
+                    // avoids decoding the payload and boxing the port on every send
+                    Log.d("UDP Sender", "Host: %s:%d Message: \"%s\" sent.",
+                            address.getAddress().getHostAddress(), address.getPort(), networkPackage.getMessage());
+                }
                 break;
             case HTTP:
                 URL url = new URL("http://" + networkPackage.getHost() + ":" + networkPackage.getPort() + "/" +
@@ -0,0 +1,266 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package eu.power_switch.network;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Pool of long-lived, connected UDP channels, one per destination (host:port)
+ * <p/>
+ * Host addresses are resolved once and cached. Channels (and cached addresses) are dropped when the network
+ * connection changes and when they have not been used for {@link #IDLE_TIMEOUT} milliseconds.
+ */
+public class UdpChannelPool {
+
+    /**
+     * Time in milliseconds after which an unused channel is released
+     */
+    public static final long IDLE_TIMEOUT = 60 * 1000;
+
+    /**
+     * Connected channels by destination ("host:port")
+     */
+    private final Map<String, PooledChannel> channels = new HashMap<>();
+
+    /**
+     * Resolved addresses by host name
+     */
+    private final Map<String, InetAddress> addressCache = new HashMap<>();
+
+    /**
+     * Executor used to release idle channels
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private ScheduledFuture<?> releaseFuture;
+
+    /**
+     * Send a message to the given destination, reusing a connected channel if possible
+     *
+     * @param host    host address
+     * @param port    port
+     * @param message message
+     * @return address the message was sent to
+     * @throws IOException if the message could not be sent
+     * @see #send(String, int, ByteBuffer)
+     */
+    public InetSocketAddress send(String host, int port, byte[] message) throws IOException {
+        return send(host, port, ByteBuffer.wrap(message));
+    }
+
+    /**
+     * Send a message to the given destination, reusing a connected channel if possible
+     * <p/>
+     * The remaining content of the buffer is written as is, without copying it. Position and limit of the given
+     * buffer are not modified.
+     * <p/>
+     * If sending over a pooled channel fails, the channel is reopened (and the host resolved again) once before
+     * giving up.
+     *
+     * @param host    host address
+     * @param port    port
+     * @param message message
+     * @return address the message was sent to
+     * @throws IOException if the message could not be sent
+     */
+    public InetSocketAddress send(String host, int port, ByteBuffer message) throws IOException {
+        String destination = host + ":" + port;
+
+        PooledChannel pooledChannel = getChannel(destination, host, port);
+        try {
+            pooledChannel.write(message.duplicate());
+        } catch (IOException e) {
+            Log.e("UDP channel to " + destination + " broken, reconnecting", e);
+            release(destination);
+            synchronized (addressCache) {
+                addressCache.remove(host);
+            }
+
+            pooledChannel = getChannel(destination, host, port);
+            pooledChannel.write(message.duplicate());
+        }
+
+        scheduleRelease();
+        return pooledChannel.address;
+    }
+
+    private PooledChannel getChannel(String destination, String host, int port) throws IOException {
+        synchronized (channels) {
+            PooledChannel pooledChannel = channels.get(destination);
+            if (pooledChannel == null || !pooledChannel.channel.isOpen()) {
+                InetSocketAddress address = new InetSocketAddress(resolve(host), port);
+
+                DatagramChannel channel = DatagramChannel.open();
+                channel.socket().setReuseAddress(true);
+                channel.connect(address);
+
+                pooledChannel = new PooledChannel(channel, address);
+                channels.put(destination, pooledChannel);
+            }
+            return pooledChannel;
+        }
+    }
+
+    /**
+     * Resolve host name using the address cache
+     *
+     * @param host host name
+     * @return resolved address
+     * @throws java.net.UnknownHostException if host could not be resolved
+     */
+    private InetAddress resolve(String host) throws IOException {
+        synchronized (addressCache) {
+            InetAddress address = addressCache.get(host);
+            if (address == null) {
+                address = InetAddress.getByName(host);
+                addressCache.put(host, address);
+            }
+            return address;
+        }
+    }
+
+    /**
+     * Close all channels and forget all resolved addresses
+     * <p/>
+     * This should be called whenever the network connection changes.
+     */
+    public void invalidate() {
+        synchronized (channels) {
+            for (PooledChannel pooledChannel : channels.values()) {
+                pooledChannel.close();
+            }
+            channels.clear();
+        }
+        synchronized (addressCache) {
+            addressCache.clear();
+        }
+        Log.d(this, "invalidated all UDP channels");
+    }
+
+    /**
+     * Close the channel to a single destination
+     *
+     * @param destination destination ("host:port")
+     */
+    private void release(String destination) {
+        synchronized (channels) {
+            PooledChannel pooledChannel = channels.remove(destination);
+            if (pooledChannel != null) {
+                pooledChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Close all channels that have not been used within {@link #IDLE_TIMEOUT}
+     */
+    protected void releaseIdleChannels() {
+        synchronized (this) {
+            releaseFuture = null;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        boolean channelsLeft;
+
+        synchronized (channels) {
+            Iterator<Map.Entry<String, PooledChannel>> iterator = channels.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, PooledChannel> entry = iterator.next();
+                if (now - entry.getValue().lastUsed >= IDLE_TIMEOUT) {
+                    Log.d(this, "releasing idle UDP channel to " + entry.getKey());
+                    entry.getValue().close();
+                    iterator.remove();
+                }
+            }
+            channelsLeft = !channels.isEmpty();
+        }
+
+        if (channelsLeft) {
+            scheduleRelease();
+        }
+    }
+
+    /**
+     * Get number of currently open channels
+     *
+     * @return number of open channels
+     */
+    public int getOpenChannelCount() {
+        synchronized (channels) {
+            return channels.size();
+        }
+    }
+
+    private synchronized void scheduleRelease() {
+        if (releaseFuture != null && !releaseFuture.isDone()) {
+            return;
+        }
+
+        releaseFuture = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                releaseIdleChannels();
+            }
+        }, IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A connected channel and the time it was last used
+     */
+    private static class PooledChannel {
+        private final DatagramChannel channel;
+        private final InetSocketAddress address;
+        private long lastUsed;
+
+        private PooledChannel(DatagramChannel channel, InetSocketAddress address) {
+            this.channel = channel;
+            this.address = address;
+            this.lastUsed = SystemClock.elapsedRealtime();
+        }
+
+        private void write(ByteBuffer message) throws IOException {
+            synchronized (this) {
+                channel.write(message);
+                lastUsed = SystemClock.elapsedRealtime();
+            }
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.e(e);
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import android.nfc.NfcAdapter;
 import android.os.Parcelable;
 
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.obj.Apartment;
@@ -87,6 +88,7 @@ public class HiddenReceiverActivity extends Activity {
             return;
         }
 
+        ActionTracer.markTrigger(ActionTracer.Source.NFC);
         try {
             if (content.contains(KEY_APARTMENT)) {
                 int start;
@@ -149,6 +151,8 @@ public class HiddenReceiverActivity extends Activity {
             }
         } catch (Exception e) {
             StatusMessageHandler.showErrorMessage(this, e);
+        } finally {
+            ActionTracer.clearTrigger();
         }
     }
 }
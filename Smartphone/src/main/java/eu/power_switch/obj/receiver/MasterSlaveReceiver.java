@@ -18,7 +18,7 @@
 
 package eu.power_switch.obj.receiver;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Interface all MasterSlave Receivers have to implement
@@ -42,14 +42,14 @@ public interface MasterSlaveReceiver {
     /**
      * Get a list of all possible Master channels
      *
-     * @return list of Master channels
+     * @return unmodifiable list of Master channels, shared between all instances
      */
-    ArrayList<String> getMasterNames();
+    List<String> getMasterNames();
 
     /**
      * Get a list of all possible slave channels
      *
-     * @return list of Slave channels
+     * @return unmodifiable list of Slave channels, shared between all instances
      */
-    ArrayList<String> getSlaveNames();
+    List<String> getSlaveNames();
 }
@@ -22,13 +22,15 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
-import eu.power_switch.network.NetworkHandler;
+import eu.power_switch.network.ConnectivityStateHandler;
 import eu.power_switch.network.NetworkPackage;
 import eu.power_switch.obj.button.Button;
 import eu.power_switch.obj.gateway.Gateway;
@@ -161,6 +163,27 @@ public abstract class Receiver {
      */
     protected Long lastActivatedButtonId = (long) -1;
 
+    /**
+     * ID of the Gateway this Receiver is sent to, null to send to all active Gateways of the Apartment
+     */
+    protected Long preferredGatewayId;
+
+    /**
+     * Send to all active Gateways of the Apartment if the preferred Gateway is unavailable
+     */
+    protected boolean broadcastFallback = true;
+
+    /**
+     * Cache of already generated network signals of this Receiver
+     * <p/>
+     * Map <Gateway class> -> (<Action name> -> <Signal>)
+     * <p/>
+     * Signals only depend on the configuration of this Receiver instance (dips, channels, seed, buttons),
+     * the gateway type and the action, so they can be reused for every following button press.
+     * Edited receivers are always reloaded from database as new instances, which starts a new cache.
+     */
+    private final Map<Class<? extends Gateway>, Map<String, CachedSignal>> signalCache = new HashMap<>();
+
     /**
      * Constructor
      *
@@ -311,6 +334,43 @@ public abstract class Receiver {
         this.lastActivatedButtonId = lastActivatedButtonId;
     }
 
+    /**
+     * Get ID of the preferred Gateway of this Receiver
+     *
+     * @return ID of preferred Gateway, null if this Receiver is sent to all active Gateways
+     */
+    @Nullable
+    public Long getPreferredGatewayId() {
+        return preferredGatewayId;
+    }
+
+    /**
+     * Set ID of the preferred Gateway of this Receiver
+     *
+     * @param preferredGatewayId ID of preferred Gateway, null to send to all active Gateways
+     */
+    public void setPreferredGatewayId(@Nullable Long preferredGatewayId) {
+        this.preferredGatewayId = preferredGatewayId;
+    }
+
+    /**
+     * Check if this Receiver is sent to all active Gateways if its preferred Gateway is unavailable
+     *
+     * @return true if broadcast fallback is enabled
+     */
+    public boolean isBroadcastFallback() {
+        return broadcastFallback;
+    }
+
+    /**
+     * Set if this Receiver is sent to all active Gateways if its preferred Gateway is unavailable
+     *
+     * @param broadcastFallback true to enable broadcast fallback
+     */
+    public void setBroadcastFallback(boolean broadcastFallback) {
+        this.broadcastFallback = broadcastFallback;
+    }
+
     /**
      * Get NetworkPackage for a Gateway/Action combination for this Receiver
      *
@@ -321,23 +381,26 @@ public abstract class Receiver {
      * @throws ActionNotSupportedException  thrown if this Receiver doesn't support the given Action
      */
     public NetworkPackage getNetworkPackage(Gateway gateway, String action) throws GatewayNotSupportedException, ActionNotSupportedException {
-        String signal = getSignal(gateway, action);
+        ByteBuffer signal = getEncodedSignal(gateway, action);
+        NetworkPackage networkPackage;
         if (gateway.hasValidLocalAddress()) {
 
-            if (NetworkHandler.isWifiConnected()) {
+            if (ConnectivityStateHandler.isWifiConnected()) {
                 Log.d("Using local address");
-                return new NetworkPackage(gateway.getCommunicationType(), gateway.getLocalHost(), gateway.getLocalPort(), signal,
+                networkPackage = new NetworkPackage(gateway.getCommunicationType(), gateway.getLocalHost(), gateway.getLocalPort(), signal,
                         gateway.getTimeout());
             } else {
                 Log.d("Using WAN address");
-                return new NetworkPackage(gateway.getCommunicationType(), gateway.getWanHost(), gateway.getWanPort(), signal,
+                networkPackage = new NetworkPackage(gateway.getCommunicationType(), gateway.getWanHost(), gateway.getWanPort(), signal,
                         gateway.getTimeout());
             }
         } else {
             Log.d("Using WAN address");
-            return new NetworkPackage(gateway.getCommunicationType(), gateway.getWanHost(), gateway.getWanPort(), signal,
+            networkPackage = new NetworkPackage(gateway.getCommunicationType(), gateway.getWanHost(), gateway.getWanPort(), signal,
                     gateway.getTimeout());
         }
+        networkPackage.setReceiverId(id);
+        return networkPackage;
     }
 
     /**
@@ -352,6 +415,64 @@ public abstract class Receiver {
 
     public abstract String getSignal(Gateway gateway, String action) throws GatewayNotSupportedException, ActionNotSupportedException;
 
+    /**
+     * Get network signal for a given Gateway/Action combination.
+     * The signal is only generated on first request and taken from cache afterwards.
+     *
+     * @param gateway Gateway
+     * @param action  Action name (Button name)
+     * @return Network signal
+     * @throws GatewayNotSupportedException thrown if this Receiver doesn't support the given Gateway
+     * @throws ActionNotSupportedException  thrown if this Receiver doesn't support the given Action
+     */
+    public String getCachedSignal(Gateway gateway, String action) throws GatewayNotSupportedException, ActionNotSupportedException {
+        return getCachedSignalEntry(gateway, action).signal;
+    }
+
+    /**
+     * Get encoded network signal for a given Gateway/Action combination.
+     * The signal is only generated and encoded on first request and taken from cache afterwards.
+     * <p/>
+     * The returned buffer is a read-only view on the cached signal, so it can be sent without copying.
+     *
+     * @param gateway Gateway
+     * @param action  Action name (Button name)
+     * @return encoded Network signal
+     * @throws GatewayNotSupportedException thrown if this Receiver doesn't support the given Gateway
+     * @throws ActionNotSupportedException  thrown if this Receiver doesn't support the given Action
+     */
+    public ByteBuffer getEncodedSignal(Gateway gateway, String action) throws GatewayNotSupportedException, ActionNotSupportedException {
+        return getCachedSignalEntry(gateway, action).payload.duplicate();
+    }
+
+    private CachedSignal getCachedSignalEntry(Gateway gateway, String action) throws GatewayNotSupportedException, ActionNotSupportedException {
+        synchronized (signalCache) {
+            Map<String, CachedSignal> signals = signalCache.get(gateway.getClass());
+            if (signals == null) {
+                signals = new HashMap<>();
+                signalCache.put(gateway.getClass(), signals);
+            }
+
+            CachedSignal cachedSignal = signals.get(action);
+            if (cachedSignal == null) {
+                // unsupported combinations are not cached, the exception is thrown again on every request
+                cachedSignal = new CachedSignal(getSignal(gateway, action));
+                signals.put(action, cachedSignal);
+            }
+            return cachedSignal;
+        }
+    }
+
+    /**
+     * Clears all cached network signals of this Receiver.
+     * Has to be called when the configuration of this instance is modified in place.
+     */
+    public void clearSignalCache() {
+        synchronized (signalCache) {
+            signalCache.clear();
+        }
+    }
+
     /**
      * Get a Button of this Receiver by its name
      *
@@ -408,6 +529,29 @@ public abstract class Receiver {
         return getBrand().toString() + " " + getModel() + ": " + getName() + "(" + getId() + ")";
     }
 
+    /**
+     * A generated signal together with its encoded form
+     */
+    private static class CachedSignal {
+        private static final Charset CHARSET = Charset.forName("UTF-8");
+
+        private final String signal;
+        /**
+         * Direct buffer, so sockets can read it without copying it to native memory first
+         */
+        private final ByteBuffer payload;
+
+        private CachedSignal(String signal) {
+            this.signal = signal;
+
+            byte[] bytes = signal.getBytes(CHARSET);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            this.payload = buffer.asReadOnlyBuffer();
+        }
+    }
+
     /**
      * Type constants
      */
@@ -20,7 +20,9 @@ package eu.power_switch.obj.receiver.device.intertechno;
 
 import android.content.Context;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import eu.power_switch.R;
 import eu.power_switch.obj.button.OffButton;
@@ -40,6 +42,11 @@ public class CMR1000 extends Receiver implements MasterSlaveReceiver {
     private static final Brand BRAND = Brand.INTERTECHNO;
     private static final String MODEL = Receiver.getModelName(CMR1000.class.getCanonicalName());
 
+    private static final List<String> MASTER_NAMES = Collections.unmodifiableList(
+            Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O", "P"));
+    private static final List<String> SLAVE_NAMES = Collections.unmodifiableList(
+            Arrays.asList("1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16"));
+
     private String tx433version = "1,";
 
     private String sSpeedConnAir = "140";
@@ -62,47 +69,13 @@ public class CMR1000 extends Receiver implements MasterSlaveReceiver {
     }
 
     @Override
-    public ArrayList<String> getMasterNames() {
-        ArrayList<String> m = new ArrayList<>();
-        m.add("A");
-        m.add("B");
-        m.add("C");
-        m.add("D");
-        m.add("E");
-        m.add("F");
-        m.add("G");
-        m.add("H");
-        m.add("I");
-        m.add("J");
-        m.add("K");
-        m.add("L");
-        m.add("M");
-        m.add("N");
-        m.add("O");
-        m.add("P");
-        return m;
+    public List<String> getMasterNames() {
+        return MASTER_NAMES;
     }
 
     @Override
-    public ArrayList<String> getSlaveNames() {
-        ArrayList<String> s = new ArrayList<>();
-        s.add("1");
-        s.add("2");
-        s.add("3");
-        s.add("4");
-        s.add("5");
-        s.add("6");
-        s.add("7");
-        s.add("8");
-        s.add("9");
-        s.add("10");
-        s.add("11");
-        s.add("12");
-        s.add("13");
-        s.add("14");
-        s.add("15");
-        s.add("16");
-        return s;
+    public List<String> getSlaveNames() {
+        return SLAVE_NAMES;
     }
 
     @Override
@@ -20,7 +20,9 @@ package eu.power_switch.obj.receiver.device.rev;
 
 import android.content.Context;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import eu.power_switch.R;
 import eu.power_switch.obj.button.Button;
@@ -41,6 +43,9 @@ public class Telecontrol extends Receiver implements MasterSlaveReceiver {
     private static final Brand BRAND = Brand.REV;
     static String MODEL = Receiver.getModelName(Telecontrol.class.getCanonicalName());
 
+    private static final List<String> MASTER_NAMES = Collections.unmodifiableList(Arrays.asList("A", "B", "C", "D"));
+    private static final List<String> SLAVE_NAMES = Collections.unmodifiableList(Arrays.asList("1", "2", "3"));
+
     private String tx433version = "1,";
 
     private String sSpeedConnAir = "16";
@@ -62,21 +67,12 @@ public class Telecontrol extends Receiver implements MasterSlaveReceiver {
         this.channelSlave = channelSlave;
     }
 
-    public ArrayList<String> getMasterNames() {
-        ArrayList<String> m = new ArrayList<>();
-        m.add("A");
-        m.add("B");
-        m.add("C");
-        m.add("D");
-        return m;
+    public List<String> getMasterNames() {
+        return MASTER_NAMES;
     }
 
-    public ArrayList<String> getSlaveNames() {
-        ArrayList<String> s = new ArrayList<>();
-        s.add("1");
-        s.add("2");
-        s.add("3");
-        return s;
+    public List<String> getSlaveNames() {
+        return SLAVE_NAMES;
     }
 
     @Override
@@ -0,0 +1,264 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.timer;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+
+/**
+ * Schedule of the next execution times of a set of Timers
+ * <p/>
+ * The next execution time of every Timer is computed in closed form and kept in a min-heap, so the earliest due
+ * Timer is always known and only a single wakeup alarm for it is needed. Timers that are due within a coalescing
+ * window are returned as one batch.
+ * <p/>
+ * This class has no Android dependencies so it can be simulated on the JVM.
+ */
+public class TimerSchedule {
+
+    /**
+     * Returned if a Timer (or the whole schedule) will not execute anymore
+     */
+    public static final long NO_EXECUTION = -1;
+
+    private final TimeZone timeZone;
+    private final PriorityQueue<Entry> queue;
+    private long executedUntil;
+
+    /**
+     * Constructor
+     *
+     * @param timers active Timers
+     * @param from   earliest time (in millis) that should be considered
+     */
+    public TimerSchedule(Collection<? extends Timer> timers, long from) {
+        this(timers, from, TimeZone.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timers   active Timers
+     * @param from     earliest time (in millis) that should be considered
+     * @param timeZone time zone the execution times of the Timers refer to
+     */
+    public TimerSchedule(Collection<? extends Timer> timers, long from, TimeZone timeZone) {
+        this.timeZone = timeZone;
+        this.queue = new PriorityQueue<>(Math.max(1, timers.size()));
+        this.executedUntil = from - 1;
+        for (Timer timer : timers) {
+            schedule(timer, from);
+        }
+    }
+
+    private void schedule(Timer timer, long from) {
+        long executionTime = getNextExecutionTime(timer, from, timeZone);
+        if (executionTime != NO_EXECUTION) {
+            queue.add(new Entry(executionTime, timer));
+        }
+    }
+
+    /**
+     * Get the earliest execution time of all Timers in this schedule
+     *
+     * @return time in millis, {@link #NO_EXECUTION} if no Timer will execute anymore
+     */
+    public long getNextExecutionTime() {
+        Entry entry = queue.peek();
+        if (entry == null) {
+            return NO_EXECUTION;
+        }
+        return entry.executionTime;
+    }
+
+    /**
+     * Removes all Timers that are due until {@code now + coalescingWindow} and schedules their next execution after
+     * that window, so every Timer is contained at most once in the returned batch.
+     *
+     * @param now              current time in millis
+     * @param coalescingWindow time in millis Timers may be executed early to be part of this batch
+     * @return due Timers, ordered by their execution time
+     */
+    public List<Timer> pollDue(long now, long coalescingWindow) {
+        long until = now + coalescingWindow;
+
+        List<Timer> dueTimers = new ArrayList<>();
+        executedUntil = Math.max(executedUntil, now);
+        while (!queue.isEmpty() && queue.peek().executionTime <= until) {
+            Entry entry = queue.poll();
+            dueTimers.add(entry.timer);
+            executedUntil = Math.max(executedUntil, entry.executionTime);
+        }
+
+        for (Timer timer : dueTimers) {
+            schedule(timer, until + 1);
+        }
+        return dueTimers;
+    }
+
+    /**
+     * Get the time until which all executions have been returned by {@link #pollDue(long, long)}
+     * <p/>
+     * This only covers the execution times of the returned Timers (and everything until now), not the whole
+     * coalescing window, so Timers that are added or changed to execute shortly after a batch are not skipped.
+     *
+     * @return time in millis
+     */
+    public long getExecutedUntil() {
+        return executedUntil;
+    }
+
+    /**
+     * Computes the earliest time a rebuilt schedule has to consider
+     * <p/>
+     * There are no executions between the persisted progress and the armed wakeup alarm, as the alarm is always
+     * armed for the earliest execution. If the alarm is overdue (e.g. delayed by Doze) the executions from its time on
+     * have not happened yet and must not be skipped.
+     *
+     * @param executedUntil time (in millis) until which all executions have happened
+     * @param nextWakeup    time (in millis) the wakeup alarm is armed for, {@link #NO_EXECUTION} if it isn't armed
+     * @param now           current time in millis
+     * @return time in millis
+     */
+    public static long getScheduleStart(long executedUntil, long nextWakeup, long now) {
+        long pending = nextWakeup == NO_EXECUTION ? now : Math.min(nextWakeup, now);
+        return Math.max(executedUntil + 1, pending);
+    }
+
+    /**
+     * Get the number of Timers that will still execute
+     *
+     * @return number of Timers
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Computes the next execution time of a Timer
+     *
+     * @param timer Timer
+     * @param from  earliest time (in millis) that should be considered
+     * @return time in millis, {@link #NO_EXECUTION} if the Timer will not execute anymore
+     */
+    public static long getNextExecutionTime(Timer timer, long from) {
+        return getNextExecutionTime(timer, from, TimeZone.getDefault());
+    }
+
+    /**
+     * Computes the next execution time of a Timer
+     *
+     * @param timer    Timer
+     * @param from     earliest time (in millis) that should be considered
+     * @param timeZone time zone the execution time of the Timer refers to
+     * @return time in millis, {@link #NO_EXECUTION} if the Timer will not execute anymore
+     */
+    public static long getNextExecutionTime(Timer timer, long from, TimeZone timeZone) {
+        if (timer.getExecutionInterval() <= 0) {
+            // one time execution
+            long executionTime = timer.getExecutionTime().getTimeInMillis();
+            return executionTime >= from ? executionTime : NO_EXECUTION;
+        }
+
+        if (Timer.EXECUTION_TYPE_WEEKDAY.equals(timer.getExecutionType())) {
+            return getNextExecutionTime((WeekdayTimer) timer, from, timeZone);
+        } else {
+            return getNextExecutionTime((IntervalTimer) timer, from, timeZone);
+        }
+    }
+
+    private static long getNextExecutionTime(WeekdayTimer timer, long from, TimeZone timeZone) {
+        // a week and a day cover every weekday, even if today's execution time has already passed
+        for (int dayOffset = 0; dayOffset <= 7; dayOffset++) {
+            Calendar candidate = getExecutionTimeOfDay(timer, from, dayOffset, timeZone);
+            if (candidate.getTimeInMillis() >= from &&
+                    timer.containsExecutionDay(candidate.get(Calendar.DAY_OF_WEEK))) {
+                return candidate.getTimeInMillis();
+            }
+        }
+
+        // no execution days
+        return NO_EXECUTION;
+    }
+
+    private static long getNextExecutionTime(IntervalTimer timer, long from, TimeZone timeZone) {
+        // intervals start at the execution time of every day and last until the execution time of the next day
+        long start = getExecutionTimeOfDay(timer, from, 0, timeZone).getTimeInMillis();
+        long nextStart;
+        if (start > from) {
+            nextStart = start;
+            start = getExecutionTimeOfDay(timer, from, -1, timeZone).getTimeInMillis();
+        } else {
+            nextStart = getExecutionTimeOfDay(timer, from, 1, timeZone).getTimeInMillis();
+        }
+
+        long interval = timer.getExecutionInterval();
+        long intervals = (from - start + interval - 1) / interval;
+        return Math.min(start + intervals * interval, nextStart);
+    }
+
+    /**
+     * Get the execution time of a Timer on a specific day
+     * <p/>
+     * The Calendar is built from the date fields instead of being shifted day by day, so a time that does not exist
+     * on a daylight saving time change does not affect the following days.
+     *
+     * @param timer     Timer
+     * @param time      time in millis of the reference day
+     * @param dayOffset offset in days to the reference day
+     * @param timeZone  time zone
+     * @return execution time
+     */
+    private static Calendar getExecutionTimeOfDay(Timer timer, long time, int dayOffset, TimeZone timeZone) {
+        Calendar day = Calendar.getInstance(timeZone);
+        day.setTimeInMillis(time);
+
+        Calendar executionTime = Calendar.getInstance(timeZone);
+        executionTime.clear();
+        executionTime.set(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH) + dayOffset,
+                timer.getExecutionTime().get(Calendar.HOUR_OF_DAY), timer.getExecutionTime().get(Calendar.MINUTE), 0);
+        return executionTime;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        private final long executionTime;
+        private final Timer timer;
+
+        private Entry(long executionTime, Timer timer) {
+            this.executionTime = executionTime;
+            this.timer = timer;
+        }
+
+        @Override
+        public int compareTo(Entry another) {
+            if (executionTime != another.executionTime) {
+                return executionTime < another.executionTime ? -1 : 1;
+            }
+            if (timer.getId() != another.timer.getId()) {
+                return timer.getId() < another.timer.getId() ? -1 : 1;
+            }
+            return 0;
+        }
+    }
+}
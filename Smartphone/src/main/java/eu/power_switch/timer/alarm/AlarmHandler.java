@@ -22,24 +22,37 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Build;
 
-import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
 
+import eu.power_switch.action.ActionHandler;
+import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.shared.constants.TimerConstants;
 import eu.power_switch.shared.log.Log;
-import eu.power_switch.timer.IntervalTimer;
 import eu.power_switch.timer.Timer;
-import eu.power_switch.timer.WeekdayTimer;
+import eu.power_switch.timer.TimerSchedule;
 
 /**
  * Class to handle Android Alarms
  * <p/>
+ * A single wakeup alarm is armed for the earliest execution time of all active Timers (see {@link TimerSchedule}).
+ * When it goes off, all Timers that are due within {@link #COALESCING_WINDOW} are executed as one batch.
+ * The time until which Timers have been executed is persisted after each batch, so no execution is skipped, even if
+ * the process is killed in between (a batch that was interrupted is executed again).
+ * <p/>
  * Created by Markus on 12.09.2015.
  */
 public abstract class AlarmHandler {
 
+    /**
+     * Time in milliseconds Timers may be executed early to be part of the current batch
+     */
+    public static final long COALESCING_WINDOW = 30 * 1000;
+
     /**
      * Private Constructor
      *
@@ -50,129 +63,106 @@ public abstract class AlarmHandler {
     }
 
     /**
-     * Creates an Intent that will be sent when a Timer alarm goes off
+     * Creates the Intent that will be sent when the Timer wakeup alarm goes off
      *
-     * @param timer Timer this intent will activate
      * @return Intent
      */
-    public static Intent createAlarmIntent(Timer timer) {
+    public static Intent createAlarmIntent() {
         Intent intent = new Intent();
         intent.setAction(TimerConstants.TIMER_ACTIVATION_INTENT);
-        intent.setData(Uri.parse(TimerConstants.TIMER_URI_SCHEME + "://" + timer.getId()));
+        intent.setData(Uri.parse(TimerConstants.TIMER_URI_SCHEME + "://" + TimerConstants.TIMER_SCHEDULE_URI_HOST));
 
         return intent;
     }
 
     /**
-     * Creates a one time/repeating alarm
+     * Recomputes the schedule of all active Timers and arms the wakeup alarm for the earliest one
+     * <p/>
+     * This has to be called whenever Timers are added, changed, enabled, disabled or removed and after device boot.
+     * Timers that were due before now will not be executed anymore, unless the wakeup alarm for them is overdue
+     * (e.g. delayed by Doze or missed during a reboot), then they are executed right away.
      *
      * @param context any suitable context
-     * @param timer   Timer that this alarm will activate
      */
-    public static void createAlarm(Context context, Timer timer) {
-        Log.d("AlarmHandler", "activating alarm of timer: " + timer.getId());
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, createAlarmIntent(timer), PendingIntent
-                .FLAG_UPDATE_CURRENT);
-
-        Log.d("AlarmHandler", "intent: " + createAlarmIntent(timer));
-        Log.d("AlarmHandler", "time: " + timer.getExecutionTime().getTime().toLocaleString());
-
-        if (Timer.EXECUTION_TYPE_WEEKDAY.equals(timer.getExecutionType())) {
-            createAlarm(context, (WeekdayTimer) timer, pendingIntent);
-        } else {
-            createAlarm(context, (IntervalTimer) timer, pendingIntent);
-        }
+    public static synchronized void reschedule(Context context) throws Exception {
+        long now = System.currentTimeMillis();
+
+        SharedPreferences sharedPreferences = getSharedPreferences(context);
+        long executedUntil = sharedPreferences.getLong(TimerConstants.EXECUTED_UNTIL_KEY, 0);
+        long nextWakeup = sharedPreferences.getLong(TimerConstants.NEXT_WAKEUP_KEY, TimerSchedule.NO_EXECUTION);
+
+        TimerSchedule timerSchedule = new TimerSchedule(DatabaseHandler.getAllTimers(true),
+                TimerSchedule.getScheduleStart(executedUntil, nextWakeup, now));
+        setWakeupAlarm(context, timerSchedule.getNextExecutionTime());
+        sharedPreferences.edit()
+                .putLong(TimerConstants.NEXT_WAKEUP_KEY, timerSchedule.getNextExecutionTime())
+                .commit();
     }
 
-    private static void createAlarm(Context context, WeekdayTimer timer, PendingIntent pendingIntent) {
-        AlarmManager alarmMgr = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        if (timer.getExecutionInterval() == -1) {
-            // one time alarm
-            alarmMgr.set(AlarmManager.RTC_WAKEUP, timer.getExecutionTime().getTimeInMillis(), pendingIntent);
-        } else {
-            // repeating alarm
-            Calendar currentTime = Calendar.getInstance();
-            Calendar exactExecutionTime = Calendar.getInstance();
-            exactExecutionTime.set(Calendar.HOUR_OF_DAY, timer.getExecutionTime().get(Calendar.HOUR_OF_DAY));
-            exactExecutionTime.set(Calendar.MINUTE, timer.getExecutionTime().get(Calendar.MINUTE));
-            exactExecutionTime.set(Calendar.SECOND, 0);
-            exactExecutionTime.set(Calendar.MILLISECOND, 0);
-
-            int i = 0;
-            while (true) {
-                if (!timer.containsExecutionDay(exactExecutionTime.get(Calendar.DAY_OF_WEEK)) || exactExecutionTime.before(currentTime)) {
-                    exactExecutionTime.add(Calendar.DAY_OF_WEEK, 1);
-                    i++;
-
-                    if (i > 100) {
-                        Log.e("AlarmHandler", "Endlosschleife beim finden der nächsten Alarmzeit!");
-                        return;
-                    }
-                } else {
-                    break;
-                }
-            }
-
-            Log.d("AlarmHandler", "next exactExecutionTime: " + exactExecutionTime.getTime().toLocaleString());
-
-            if (Build.VERSION.SDK_INT >= 23) {
-                alarmMgr.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else if (Build.VERSION.SDK_INT >= 19 && Build.VERSION.SDK_INT < 23) {
-                alarmMgr.setExact(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else if (Build.VERSION.SDK_INT < 19) {
-                alarmMgr.set(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else {
-                Log.e("AlarmHandler", "Unknown SDK Version!");
-            }
+    /**
+     * Executes all Timers that are due (including the ones due within {@link #COALESCING_WINDOW}) and arms the
+     * wakeup alarm for the next one
+     *
+     * @param context any suitable context
+     */
+    public static synchronized void executeDueTimers(Context context) throws Exception {
+        long now = System.currentTimeMillis();
+
+        SharedPreferences sharedPreferences = getSharedPreferences(context);
+        // without a previous execution (or an alarm of a previous version) only the current window is considered
+        long executedUntil = sharedPreferences.getLong(TimerConstants.EXECUTED_UNTIL_KEY, now - COALESCING_WINDOW - 1);
+        long nextWakeup = sharedPreferences.getLong(TimerConstants.NEXT_WAKEUP_KEY, now - COALESCING_WINDOW);
+
+        TimerSchedule timerSchedule = new TimerSchedule(DatabaseHandler.getAllTimers(true),
+                TimerSchedule.getScheduleStart(executedUntil, nextWakeup, now));
+        List<Timer> dueTimers = timerSchedule.pollDue(now, COALESCING_WINDOW);
+        setWakeupAlarm(context, timerSchedule.getNextExecutionTime());
+
+        Log.d("AlarmHandler", "executing " + dueTimers.size() + " due timer(s)");
+        for (Timer timer : dueTimers) {
+            ActionHandler.execute(context, timer);
         }
-    }
 
-    private static void createAlarm(Context context, IntervalTimer timer, PendingIntent pendingIntent) {
-        AlarmManager alarmMgr = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        // only persist progress once the Timers have been executed, so they are not skipped if the process dies
+        sharedPreferences.edit()
+                .putLong(TimerConstants.EXECUTED_UNTIL_KEY, timerSchedule.getExecutedUntil())
+                .putLong(TimerConstants.NEXT_WAKEUP_KEY, timerSchedule.getNextExecutionTime())
+                .commit();
+    }
 
-        if (timer.getExecutionInterval() == -1) {
-            // one time alarm
-            alarmMgr.set(AlarmManager.RTC_WAKEUP, timer.getExecutionTime().getTimeInMillis(), pendingIntent);
-        } else {
-            // repeating alarm
-            Calendar currentTime = Calendar.getInstance();
-            Calendar exactExecutionTime = Calendar.getInstance();
-            exactExecutionTime.set(Calendar.HOUR_OF_DAY, timer.getExecutionTime().get(Calendar.HOUR_OF_DAY));
-            exactExecutionTime.set(Calendar.MINUTE, timer.getExecutionTime().get(Calendar.MINUTE));
-            exactExecutionTime.set(Calendar.SECOND, 0);
-            exactExecutionTime.set(Calendar.MILLISECOND, 0);
-
-            while (exactExecutionTime.before(currentTime)) {
-                exactExecutionTime.add(Calendar.MILLISECOND, (int) timer.getExecutionInterval());
-            }
-
-            if (Build.VERSION.SDK_INT >= 23) {
-                alarmMgr.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else if (Build.VERSION.SDK_INT >= 19 && Build.VERSION.SDK_INT < 23) {
-                alarmMgr.setExact(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else if (Build.VERSION.SDK_INT < 19) {
-                alarmMgr.set(AlarmManager.RTC_WAKEUP, exactExecutionTime.getTimeInMillis(), pendingIntent);
-            } else {
-                Log.e("AlarmHandler", "Unknown SDK Version!");
-            }
-        }
+    private static SharedPreferences getSharedPreferences(Context context) {
+        return context.getSharedPreferences(TimerConstants.TIMER_SCHEDULE_SHARED_PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     /**
-     * Cancels an existing Alarm
+     * Arms (or replaces) the wakeup alarm
      *
-     * @param context any suitable context
-     * @param timer   Timer that this alarm would activate
+     * @param context       any suitable context
+     * @param executionTime time in millis, {@link TimerSchedule#NO_EXECUTION} to cancel the alarm
      */
-
-    public static void cancelAlarm(Context context, Timer timer) {
-        Log.d("AlarmHandler", "cancelling alarm of timer: " + timer.getId());
+    private static void setWakeupAlarm(Context context, long executionTime) {
         AlarmManager alarmMgr = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, createAlarmIntent(timer), PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, createAlarmIntent(), PendingIntent
+                .FLAG_UPDATE_CURRENT);
+
+        if (executionTime == TimerSchedule.NO_EXECUTION) {
+            Log.d("AlarmHandler", "no active timers, cancelling wakeup alarm");
+            alarmMgr.cancel(pendingIntent);
+            return;
+        }
 
-        Log.d("AlarmHandler", "intent: " + createAlarmIntent(timer));
-        Log.d("AlarmHandler", "time: " + timer.getExecutionTime().getTime().toLocaleString());
-        alarmMgr.cancel(pendingIntent);
+        if (Log.isDebugEnabled()) {
+            Log.d("AlarmHandler", "next wakeup: " + new Date(executionTime).toLocaleString());
+        }
+
+        if (Build.VERSION.SDK_INT >= 23) {
+            alarmMgr.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, executionTime, pendingIntent);
+        } else if (Build.VERSION.SDK_INT >= 19 && Build.VERSION.SDK_INT < 23) {
+            alarmMgr.setExact(AlarmManager.RTC_WAKEUP, executionTime, pendingIntent);
+        } else if (Build.VERSION.SDK_INT < 19) {
+            alarmMgr.set(AlarmManager.RTC_WAKEUP, executionTime, pendingIntent);
+        } else {
+            Log.e("AlarmHandler", "Unknown SDK Version!");
+        }
     }
 }
@@ -21,23 +21,17 @@ package eu.power_switch.timer.alarm;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 
-import java.util.Calendar;
-
-import eu.power_switch.action.ActionHandler;
-import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.gui.StatusMessageHandler;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.shared.constants.TimerConstants;
 import eu.power_switch.shared.log.Log;
 import eu.power_switch.shared.log.LogHandler;
-import eu.power_switch.timer.Timer;
-import eu.power_switch.timer.WeekdayTimer;
 
 /**
  * IntentReceiver to handle any Alarm/Timer related Intents
- * This Class is responsible for restarting all Alarms on device boot
- * and also contains the logic whether a timer should be triggered or not.
+ * This Class is responsible for restarting the Timer schedule on device boot
+ * and for executing due Timers when the schedule wakeup alarm goes off.
  * <p/>
  * Created by Markus on 21.09.2015.
  */
@@ -62,65 +56,24 @@ public class AlarmIntentReceiver extends BroadcastReceiver {
             }
         } catch (Exception e) {
             Log.e(e);
+        } finally {
+            HistoryHelper.flush(context, goAsync());
         }
     }
 
     private void parseActionIntent(Context context, Intent intent) {
+        // alarms of previous versions carry the ID of a single Timer, they are handled
+        // the same way as the schedule wakeup alarm so every due Timer is executed exactly once
         try {
-            long id = Long.valueOf(intent.getData().getHost());
-            Timer timer = DatabaseHandler.getTimer(id);
-
-            Calendar currentTime = Calendar.getInstance();
-            if (Build.VERSION.SDK_INT < 19) {
-                int currentHour = currentTime.get(Calendar.HOUR_OF_DAY);
-                int executionHour = timer.getExecutionTime().get(Calendar.HOUR_OF_DAY);
-                if (currentHour != executionHour) {
-                    Log.d(this, "Timer hour doesnt match: " + currentHour + " != " + timer
-                            .getExecutionTime().get(Calendar.HOUR_OF_DAY));
-                    return;
-                }
-
-                int currentMinute = currentTime.get(Calendar.MINUTE);
-                int executionMinute = timer.getExecutionTime().get(Calendar.MINUTE);
-                if (!(currentMinute >= executionMinute && currentMinute <= executionMinute + 3)) {
-                    Log.d(this, "Timer minute not in valid range: currentMinute: " + currentMinute + " ; executionMinute: " +
-                            executionMinute);
-                    return;
-                }
-            }
-
-            Log.d(this, "executing timer...");
-            switch (timer.getExecutionType()) {
-                case Timer.EXECUTION_TYPE_WEEKDAY:
-                    WeekdayTimer weekdayTimer = (WeekdayTimer) timer;
-
-                    if (weekdayTimer.containsExecutionDay(currentTime.get(Calendar.DAY_OF_WEEK))) {
-                        ActionHandler.execute(context, timer);
-                    } else {
-                        Log.d(this, "timer executionDays doesn't contain current day, not executing timer");
-                    }
-                    break;
-                case Timer.EXECUTION_TYPE_INTERVAL:
-                    ActionHandler.execute(context, timer);
-                    break;
-                default:
-                    Log.e(this, "Unknown Timer executionType: " + timer.getExecutionType());
-                    break;
-            }
-
+            AlarmHandler.executeDueTimers(context);
         } catch (Exception e) {
             StatusMessageHandler.showErrorMessage(context, e);
         }
-
-        reinitializeAlarms(context);
     }
 
     private void reinitializeAlarms(Context context) {
         try {
-            for (Timer timer : DatabaseHandler.getAllTimers(true)) {
-                AlarmHandler.cancelAlarm(context, timer);
-                AlarmHandler.createAlarm(context, timer);
-            }
+            AlarmHandler.reschedule(context);
         } catch (Exception e) {
             StatusMessageHandler.showErrorMessage(context, e);
         }
@@ -20,11 +20,15 @@ package eu.power_switch.wear.service;
 
 import android.support.design.widget.Snackbar;
 
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.wearable.MessageApi;
 import com.google.android.gms.wearable.MessageEvent;
+import com.google.android.gms.wearable.Wearable;
 import com.google.android.gms.wearable.WearableListenerService;
 
 import eu.power_switch.R;
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
 import eu.power_switch.gui.StatusMessageHandler;
 import eu.power_switch.obj.Room;
@@ -34,6 +38,8 @@ import eu.power_switch.obj.receiver.Receiver;
 import eu.power_switch.shared.constants.WearableConstants;
 import eu.power_switch.shared.log.Log;
 import eu.power_switch.shared.log.LogHandler;
+import eu.power_switch.shared.wear.WearActionAck;
+import eu.power_switch.shared.wear.WearActionMessage;
 
 /**
  * A Wear listener service, used to receive inbound messages from
@@ -52,74 +58,77 @@ public class ListenerService extends WearableListenerService {
     public void onMessageReceived(MessageEvent messageEvent) {
         LogHandler.configureLogger();
 
-        if (messageEvent.getPath().equals(WearableConstants.RECEIVER_ACTION_TRIGGER_PATH)) {
-
-            String messageData = new String(messageEvent.getData());
-            Log.d("Wear_ListenerService", "Message received: " + messageData);
+        if (messageEvent.getPath().equals(WearableConstants.ACTION_PATH)) {
+            WearActionMessage message;
+            try {
+                message = WearActionMessage.fromBytes(messageEvent.getData());
+            } catch (IllegalArgumentException e) {
+                Log.e("Invalid action message", e);
+                return;
+            }
+            Log.d("Wear_ListenerService", "Message received: " + message);
 
-            // trigger api intent
-            parseMessage(messageData);
+            boolean success = execute(message);
+            sendAck(messageEvent.getSourceNodeId(), new WearActionAck(message.getSequence(), success));
         } else if (messageEvent.getPath().equals(WearableConstants.REQUEST_DATA_UPDATE_PATH)) {
-            UtilityService.forceWearDataUpdate(this);
+            // the Wearable app lost its data, so send everything
+            UtilityService.forceWearDataUpdate(this, true);
         } else if (messageEvent.getPath().equals(WearableConstants.REQUEST_SETTINGS_UPDATE_PATH)) {
             UtilityService.forceWearSettingsUpdate(this);
         }
     }
 
     /**
-     * Parse message string
+     * Execute the action of a message
+     * <p/>
+     * Receivers and Rooms are resolved by ID via the model cache, without loading the whole containing Room.
      *
-     * @param messageData
+     * @param message action message
+     * @return true if the action was executed successfully
      */
-    private void parseMessage(String messageData) {
+    private boolean execute(WearActionMessage message) {
+        ActionTracer.markTrigger(ActionTracer.Source.WEAR);
         try {
-            Long roomId;
-            Long receiverId;
-            Long buttonId;
-
-            if (messageData.contains(WearableConstants.ROOM_ID_KEY) &&
-                    messageData.contains(WearableConstants.RECEIVER_ID_KEY) &&
-                    messageData.contains(WearableConstants.BUTTON_ID_KEY)) {
-                int start = messageData.indexOf(WearableConstants.ROOM_ID_KEY) + WearableConstants.ROOM_ID_KEY.length();
-                int stop = messageData.indexOf(WearableConstants.RECEIVER_ID_KEY);
-                roomId = Long.valueOf(messageData.substring(start, stop));
-                start = stop + WearableConstants.RECEIVER_ID_KEY.length();
-                stop = messageData.indexOf(WearableConstants.BUTTON_ID_KEY);
-                receiverId = Long.valueOf(messageData.substring(start, stop));
-                start = stop + WearableConstants.BUTTON_ID_KEY.length();
-                stop = messageData.indexOf(";;");
-                buttonId = Long.valueOf(messageData.substring(start, stop));
-
-                Room room = DatabaseHandler.getRoom(roomId);
-                Receiver receiver = room.getReceiver(receiverId);
-                Button button = receiver.getButton(buttonId);
-
-                ActionHandler.execute(getApplicationContext(), receiver, button);
-            } else if (messageData.contains(WearableConstants.ROOM_ID_KEY) &&
-                    messageData.contains(WearableConstants.BUTTON_ID_KEY)) {
-                int start = messageData.indexOf(WearableConstants.ROOM_ID_KEY) + WearableConstants.ROOM_ID_KEY.length();
-                int stop = messageData.indexOf(WearableConstants.BUTTON_ID_KEY);
-                roomId = Long.valueOf(messageData.substring(start, stop));
-                start = stop + WearableConstants.BUTTON_ID_KEY.length();
-                stop = messageData.indexOf(";;");
-                buttonId = Long.valueOf(messageData.substring(start, stop));
-
-                Room room = DatabaseHandler.getRoom(roomId);
-
-                ActionHandler.execute(getApplicationContext(), room, buttonId);
-            } else if (messageData.contains(WearableConstants.SCENE_ID_KEY)) {
-                int start = messageData.indexOf(WearableConstants.SCENE_ID_KEY) + WearableConstants.SCENE_ID_KEY.length();
-                int stop = messageData.indexOf(";;");
-                Long sceneId = Long.valueOf(messageData.substring(start, stop));
-
-                Scene scene = DatabaseHandler.getScene(sceneId);
-
-                ActionHandler.execute(getApplicationContext(), scene);
+            switch (message.getType()) {
+                case WearActionMessage.TYPE_RECEIVER:
+                    Receiver receiver = DatabaseHandler.getReceiver(message.getId());
+                    Button button = receiver.getButton(message.getButtonId());
+                    return ActionHandler.execute(getApplicationContext(), receiver, button);
+                case WearActionMessage.TYPE_ROOM:
+                    Room room = DatabaseHandler.getRoom(message.getId());
+                    return ActionHandler.execute(getApplicationContext(), room, message.getButtonId());
+                case WearActionMessage.TYPE_SCENE:
+                    Scene scene = DatabaseHandler.getScene(message.getId());
+                    return ActionHandler.execute(getApplicationContext(), scene);
+                default:
+                    return false;
             }
         } catch (Exception e) {
-            Log.e("parseMessage", e);
+            Log.e("execute", e);
             StatusMessageHandler.showInfoMessage(getApplicationContext(),
                     R.string.error_executing_wear_action, Snackbar.LENGTH_LONG);
+            return false;
+        } finally {
+            ActionTracer.clearTrigger();
+        }
+    }
+
+    /**
+     * Send the result of an action back to the Wearable it came from
+     *
+     * @param nodeId ID of the Wearable node
+     * @param ack    acknowledgement
+     */
+    private void sendAck(String nodeId, WearActionAck ack) {
+        GoogleApiClient googleApiClient = UtilityService.getConnectedApiClient(this);
+        if (googleApiClient == null) {
+            return;
+        }
+
+        MessageApi.SendMessageResult result = Wearable.MessageApi.sendMessage(googleApiClient, nodeId,
+                WearableConstants.ACTION_ACK_PATH, ack.toBytes()).await();
+        if (!result.getStatus().isSuccess()) {
+            Log.e("Error sending action acknowledgement (error code = " + result.getStatus().getStatusCode() + ")");
         }
     }
 }
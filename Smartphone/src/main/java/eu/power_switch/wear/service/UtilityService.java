@@ -31,7 +31,9 @@ import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import eu.power_switch.database.handler.DatabaseHandler;
@@ -56,6 +58,14 @@ import eu.power_switch.shared.settings.WearablePreferencesHandler;
  */
 public class UtilityService extends IntentService {
 
+    private static final String EXTRA_FORCE_SNAPSHOT = "force_snapshot";
+
+    /**
+     * Shared between service instances, so the connection and sync state survive between requests
+     */
+    private static GoogleApiClient googleApiClient;
+    private static final WearDataSyncState syncState = new WearDataSyncState();
+
     /**
      * Creates an IntentService.  Invoked by your subclass's constructor.
      */
@@ -69,9 +79,20 @@ public class UtilityService extends IntentService {
      * @param context any suitable context
      */
     public static void forceWearDataUpdate(Context context) {
+        forceWearDataUpdate(context, false);
+    }
+
+    /**
+     * Create Intent to update Wear Data via background service
+     *
+     * @param context       any suitable context
+     * @param forceSnapshot true to send all data instead of only the changes since the last update
+     */
+    public static void forceWearDataUpdate(Context context, boolean forceSnapshot) {
         Log.d("Updating Data for Wearable");
         Intent intent = new Intent(context, UtilityService.class);
         intent.setAction(WearableConstants.REQUEST_DATA_UPDATE_PATH);
+        intent.putExtra(EXTRA_FORCE_SNAPSHOT, forceSnapshot);
         context.startService(intent);
     }
 
@@ -88,83 +109,108 @@ public class UtilityService extends IntentService {
     }
 
     /**
-     * Transfer the required data over to the wearable
+     * Returns a connected GoogleApiClient, connecting it first if necessary
+     * <p/>
+     * The client is kept connected and shared by all Wearable communication of the app.
+     * Must not be called from the main thread.
      *
-     * @param rooms     List containing Rooms from Database
-     * @param receivers List containing Receivers from Database
+     * @param context any suitable context
+     * @return connected GoogleApiClient or null if the connection failed
      */
-    private void sendDataToWearable(List<Room> rooms, List<Receiver> receivers, List<Button> buttons, List<Scene>
-            scenes) {
-        Log.d("Sending new Data to Wearable...");
-        GoogleApiClient googleApiClient = new GoogleApiClient.Builder(this)
-                .addApi(Wearable.API).build();
-
-        // It's OK to use blockingConnect() here as we are running in an
-        // IntentService that executes work on a separate (background) thread.
+    static synchronized GoogleApiClient getConnectedApiClient(Context context) {
+        if (googleApiClient == null) {
+            googleApiClient = new GoogleApiClient.Builder(context.getApplicationContext())
+                    .addApi(Wearable.API).build();
+        }
+        if (googleApiClient.isConnected()) {
+            return googleApiClient;
+        }
+
+        // It's OK to use blockingConnect() here as we are running on a background thread
         ConnectionResult connectionResult = googleApiClient.blockingConnect(
                 SettingsConstants.GOOGLE_API_CLIENT_TIMEOUT, TimeUnit.SECONDS);
 
-        ArrayList<DataMap> data = new ArrayList<>();
-
-        ArrayList<DataMap> roomData = new ArrayList<>();
-        ArrayList<DataMap> receiverData = new ArrayList<>();
-        ArrayList<DataMap> buttonData = new ArrayList<>();
-        ArrayList<DataMap> sceneData = new ArrayList<>();
+        if (!connectionResult.isSuccess() || !googleApiClient.isConnected()) {
+            // GoogleApiClient connection error
+            Log.e("Error connecting GoogleApiClient");
+            return null;
+        }
+        return googleApiClient;
+    }
 
+    /**
+     * Transfer the required data over to the wearable
+     * <p/>
+     * Only entities that changed since the last transfer are sent, see {@link WearDataSyncState}.
+     *
+     * @param rooms         List containing Rooms from Database
+     * @param scenes        List containing Scenes from Database
+     * @param forceSnapshot true to send all data, regardless of what the Wearable app already knows
+     */
+    private void sendDataToWearable(List<Room> rooms, List<Scene> scenes, boolean forceSnapshot) {
+        // entity key -> entity, in the order they are displayed
+        Map<String, DataMap> entities = new LinkedHashMap<>();
+        int roomPosition = 0;
         for (Room room : rooms) {
-            roomData.add(convertToDataMap(room));
-            data.add(convertToDataMap(room));
+            putEntity(entities, convertToDataMap(room, roomPosition++));
+            for (Receiver receiver : room.getReceivers()) {
+                putEntity(entities, convertToDataMap(receiver));
+                int buttonPosition = 0;
+                for (Button button : receiver.getButtons()) {
+                    putEntity(entities, convertToDataMap(button, buttonPosition++));
+                }
+            }
         }
-
-        for (Receiver receiver : receivers) {
-            receiverData.add(convertToDataMap(receiver));
-            data.add(convertToDataMap(receiver));
+        int scenePosition = 0;
+        for (Scene scene : scenes) {
+            putEntity(entities, convertToDataMap(scene, scenePosition++));
         }
 
-        for (Button button : buttons) {
-            buttonData.add(convertToDataMap(button));
-            data.add(convertToDataMap(button));
+        GoogleApiClient googleApiClient = getConnectedApiClient(this);
+        if (googleApiClient == null) {
+            syncState.reset();
+            return;
         }
 
-        for (Scene scene : scenes) {
-            sceneData.add(convertToDataMap(scene));
-            data.add(convertToDataMap(scene));
+        PutDataMapRequest dataMap = syncState.createRequest(entities, forceSnapshot);
+        if (dataMap == null) {
+            Log.d("Wearable data is up to date");
+            return;
         }
 
-        if (connectionResult.isSuccess() && googleApiClient.isConnected() && data.size() > 0) {
-
-            PutDataMapRequest dataMap = PutDataMapRequest.create(WearableConstants.DATA_PATH);
-            dataMap.getDataMap().putDataMapArrayList(WearableConstants.EXTRA_DATA, data);
-            PutDataRequest request = dataMap.asPutDataRequest();
+        Log.d("Sending new Data to Wearable: " + dataMap.getUri().getPath());
+        PutDataRequest request = dataMap.asPutDataRequest();
 
-            // Send the data over
-            DataApi.DataItemResult result = Wearable.DataApi.putDataItem(googleApiClient, request).await();
-
-            if (!result.getStatus().isSuccess()) {
-                Log.e("", String.format("Error sending data using DataApi (error code = %d)",
-                        result.getStatus().getStatusCode()));
-            } else {
-                Log.d("Update data sent");
-            }
+        // Send the data over
+        DataApi.DataItemResult result = Wearable.DataApi.putDataItem(googleApiClient, request).await();
 
+        if (!result.getStatus().isSuccess()) {
+            Log.e("", String.format("Error sending data using DataApi (error code = %d)",
+                    result.getStatus().getStatusCode()));
+            syncState.reset();
         } else {
-            // GoogleApiClient connection error
-            Log.e("Error connecting GoogleApiClient");
+            Log.d("Update data sent");
         }
+    }
 
+    private void putEntity(Map<String, DataMap> entities, DataMap entity) {
+        entities.put(entity.getString(WearableConstants.ENTITY_KEY_DATAMAP_KEY), entity);
     }
 
     /**
      * Puts a Room into a DataMap
      *
-     * @param room Room to convert
+     * @param room     Room to convert
+     * @param position position of the Room in the Apartment
      * @return DataMap
      */
-    private DataMap convertToDataMap(Room room) {
+    private DataMap convertToDataMap(Room room, int position) {
         DataMap roomDataMap = new DataMap();
 
+        roomDataMap.putString(WearableConstants.ENTITY_KEY_DATAMAP_KEY, "room:" + room.getId());
         roomDataMap.putLong(WearableConstants.ROOM_ID_DATAMAP_KEY, room.getId());
         roomDataMap.putString(WearableConstants.ROOM_NAME_DATAMAP_KEY, room.getName());
+        roomDataMap.putInt(WearableConstants.ROOM_POSITION_DATAMAP_KEY, position);
 
         return roomDataMap;
     }
@@ -178,6 +224,7 @@ public class UtilityService extends IntentService {
     private DataMap convertToDataMap(Receiver receiver) {
         DataMap receiverDataMap = new DataMap();
 
+        receiverDataMap.putString(WearableConstants.ENTITY_KEY_DATAMAP_KEY, "receiver:" + receiver.getId());
         receiverDataMap.putLong(WearableConstants.RECEIVER_ID_DATAMAP_KEY, receiver.getId());
         receiverDataMap.putString(WearableConstants.RECEIVER_NAME_DATAMAP_KEY, receiver.getName());
         receiverDataMap.putLong(WearableConstants.RECEIVER_ROOM_ID_DATAMAP_KEY, receiver.getRoomId());
@@ -190,15 +237,18 @@ public class UtilityService extends IntentService {
     /**
      * Puts a Button into a DataMap
      *
-     * @param button Button to convert
+     * @param button   Button to convert
+     * @param position position of the Button in the Receiver
      * @return DataMap
      */
-    private DataMap convertToDataMap(Button button) {
+    private DataMap convertToDataMap(Button button, int position) {
         DataMap buttonDataMap = new DataMap();
 
+        buttonDataMap.putString(WearableConstants.ENTITY_KEY_DATAMAP_KEY, "button:" + button.getId());
         buttonDataMap.putLong(WearableConstants.BUTTON_ID_DATAMAP_KEY, button.getId());
         buttonDataMap.putString(WearableConstants.BUTTON_NAME_DATAMAP_KEY, button.getName());
         buttonDataMap.putLong(WearableConstants.BUTTON_RECEIVER_ID_DATAMAP_KEY, button.getReceiverId());
+        buttonDataMap.putInt(WearableConstants.BUTTON_POSITION_DATAMAP_KEY, position);
 
         return buttonDataMap;
     }
@@ -206,16 +256,19 @@ public class UtilityService extends IntentService {
     /**
      * Puts a Scene into a DataMap
      *
-     * @param scene Scene to convert
+     * @param scene    Scene to convert
+     * @param position position of the Scene in the Apartment
      * @return DataMap
      */
-    private DataMap convertToDataMap(Scene scene) {
-        DataMap roomDataMap = new DataMap();
+    private DataMap convertToDataMap(Scene scene, int position) {
+        DataMap sceneDataMap = new DataMap();
 
-        roomDataMap.putLong(WearableConstants.SCENE_ID_DATAMAP_KEY, scene.getId());
-        roomDataMap.putString(WearableConstants.SCENE_NAME_DATAMAP_KEY, scene.getName());
+        sceneDataMap.putString(WearableConstants.ENTITY_KEY_DATAMAP_KEY, "scene:" + scene.getId());
+        sceneDataMap.putLong(WearableConstants.SCENE_ID_DATAMAP_KEY, scene.getId());
+        sceneDataMap.putString(WearableConstants.SCENE_NAME_DATAMAP_KEY, scene.getName());
+        sceneDataMap.putInt(WearableConstants.SCENE_POSITION_DATAMAP_KEY, position);
 
-        return roomDataMap;
+        return sceneDataMap;
     }
 
     /**
@@ -231,41 +284,23 @@ public class UtilityService extends IntentService {
         if (WearableConstants.REQUEST_DATA_UPDATE_PATH.equals(intent.getAction())) {
             Log.d("Getting Data from Database to send to Wearable...");
 
+            boolean forceSnapshot = intent.getBooleanExtra(EXTRA_FORCE_SNAPSHOT, false);
+
             if (DeveloperPreferencesHandler.getPlayStoreMode()) {
                 PlayStoreModeDataModel playStoreModeDataModel = new PlayStoreModeDataModel(getApplicationContext());
 
                 List<Room> rooms = playStoreModeDataModel.getActiveApartment().getRooms();
-                List<Receiver> receivers = new ArrayList<>();
-                for (Room room : rooms) {
-                    receivers.addAll(room.getReceivers());
-                }
-
-                List<Button> buttons = new ArrayList<>();
-                for (Receiver receiver : receivers) {
-                    buttons.addAll(receiver.getButtons());
-                }
-
                 List<Scene> scenes = playStoreModeDataModel.getActiveApartment().getScenes();
 
-                sendDataToWearable(rooms, receivers, buttons, scenes);
+                sendDataToWearable(rooms, scenes, forceSnapshot);
                 return;
             }
 
             try {
                 List<Room> rooms = DatabaseHandler.getRooms(SmartphonePreferencesHandler.getCurrentApartmentId());
-
-                List<Receiver> receivers = new ArrayList<>();
-                for (Room room : rooms) {
-                    receivers.addAll(room.getReceivers());
-                }
-
-                List<Button> buttons = new ArrayList<>();
-                for (Receiver receiver : receivers) {
-                    buttons.addAll(receiver.getButtons());
-                }
                 List<Scene> scenes = DatabaseHandler.getScenes(SmartphonePreferencesHandler.getCurrentApartmentId());
 
-                sendDataToWearable(rooms, receivers, buttons, scenes);
+                sendDataToWearable(rooms, scenes, forceSnapshot);
             } catch (Exception e) {
                 StatusMessageHandler.showErrorMessage(getApplicationContext(), e);
             }
@@ -283,37 +318,27 @@ public class UtilityService extends IntentService {
      */
     private void sendSettingsToWearable() {
         Log.d("Sending Settings to Wearable...");
-        GoogleApiClient googleApiClient = new GoogleApiClient.Builder(this)
-                .addApi(Wearable.API).build();
-
-        // It's OK to use blockingConnect() here as we are running in an
-        // IntentService that executes work on a separate (background) thread.
-        ConnectionResult connectionResult = googleApiClient.blockingConnect(
-                SettingsConstants.GOOGLE_API_CLIENT_TIMEOUT, TimeUnit.SECONDS);
+        GoogleApiClient googleApiClient = getConnectedApiClient(this);
+        if (googleApiClient == null) {
+            return;
+        }
 
         ArrayList<DataMap> settings = new ArrayList<>();
         DataMap settingsDataMap = getSettingsDataMap();
         settings.add(settingsDataMap);
 
-        if (connectionResult.isSuccess() && googleApiClient.isConnected() && settings.size() > 0) {
-
-            PutDataMapRequest dataMap = PutDataMapRequest.create(WearableConstants.SETTINGS_PATH);
-            dataMap.getDataMap().putDataMapArrayList(WearableConstants.EXTRA_SETTINGS, settings);
-            PutDataRequest request = dataMap.asPutDataRequest();
-
-            // Send the data over
-            DataApi.DataItemResult result = Wearable.DataApi.putDataItem(googleApiClient, request).await();
+        PutDataMapRequest dataMap = PutDataMapRequest.create(WearableConstants.SETTINGS_PATH);
+        dataMap.getDataMap().putDataMapArrayList(WearableConstants.EXTRA_SETTINGS, settings);
+        PutDataRequest request = dataMap.asPutDataRequest();
 
-            if (!result.getStatus().isSuccess()) {
-                Log.e("", String.format("Error sending settings using DataApi (error code = %d)",
-                        result.getStatus().getStatusCode()));
-            } else {
-                Log.d("Updated settings sent");
-            }
+        // Send the data over
+        DataApi.DataItemResult result = Wearable.DataApi.putDataItem(googleApiClient, request).await();
 
+        if (!result.getStatus().isSuccess()) {
+            Log.e("", String.format("Error sending settings using DataApi (error code = %d)",
+                    result.getStatus().getStatusCode()));
         } else {
-            // GoogleApiClient connection error
-            Log.e("Error connecting GoogleApiClient");
+            Log.d("Updated settings sent");
         }
     }
 
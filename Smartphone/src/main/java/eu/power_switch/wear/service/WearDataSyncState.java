@@ -0,0 +1,152 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.wear.service;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.PutDataMapRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import eu.power_switch.shared.constants.WearableConstants;
+
+/**
+ * Keeps track of the data that was sent to the Wearable app and decides what has to be sent next
+ * <p/>
+ * The Wearable app holds a full snapshot ({@link WearableConstants#DATA_PATH}) and a cumulative delta
+ * ({@link WearableConstants#DATA_DELTA_PATH}) containing every entity that changed since that snapshot.
+ * Because each delta replaces the previous one, a watch that misses an update still ends up with the correct state.
+ * A new snapshot is sent when the delta has grown too large compared to it.
+ */
+class WearDataSyncState {
+
+    /**
+     * Maximum size of a delta relative to the snapshot before a new snapshot is sent instead
+     */
+    private static final float MAX_DELTA_RATIO = 0.5f;
+
+    private long version = System.currentTimeMillis();
+    private long snapshotVersion = -1;
+
+    /**
+     * Entity key -> entity contained in the last snapshot
+     */
+    private Map<String, DataMap> snapshotEntities = new HashMap<>();
+
+    /**
+     * Entity key -> entity as the Wearable app knows it after the last request
+     */
+    private Map<String, DataMap> sentEntities = new HashMap<>();
+
+    /**
+     * Keys of all entities that changed since the last snapshot
+     */
+    private Set<String> deltaKeys = new HashSet<>();
+
+    /**
+     * Creates the request to bring the Wearable app up to date
+     *
+     * @param entities      current entities, in display order
+     * @param forceSnapshot true to send a complete snapshot even if a delta would suffice
+     * @return request, or null if the Wearable app is already up to date
+     */
+    @Nullable
+    PutDataMapRequest createRequest(@NonNull Map<String, DataMap> entities, boolean forceSnapshot) {
+        if (forceSnapshot || snapshotVersion == -1) {
+            return createSnapshotRequest(entities);
+        }
+
+        boolean changed = false;
+        for (Map.Entry<String, DataMap> entry : entities.entrySet()) {
+            if (!entry.getValue().equals(sentEntities.get(entry.getKey()))) {
+                deltaKeys.add(entry.getKey());
+                changed = true;
+            }
+        }
+        for (String key : sentEntities.keySet()) {
+            if (!entities.containsKey(key)) {
+                deltaKeys.add(key);
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return null;
+        }
+
+        ArrayList<DataMap> updatedEntities = new ArrayList<>();
+        ArrayList<String> removedKeys = new ArrayList<>();
+        Iterator<String> iterator = deltaKeys.iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            DataMap entity = entities.get(key);
+            if (entity != null) {
+                updatedEntities.add(entity);
+            } else if (snapshotEntities.containsKey(key)) {
+                removedKeys.add(key);
+            } else {
+                // added and removed again since the last snapshot
+                iterator.remove();
+            }
+        }
+
+        if (updatedEntities.size() + removedKeys.size() > snapshotEntities.size() * MAX_DELTA_RATIO) {
+            return createSnapshotRequest(entities);
+        }
+
+        PutDataMapRequest request = PutDataMapRequest.create(WearableConstants.DATA_DELTA_PATH);
+        DataMap dataMap = request.getDataMap();
+        dataMap.putLong(WearableConstants.DATA_BASE_VERSION_KEY, snapshotVersion);
+        dataMap.putLong(WearableConstants.DATA_VERSION_KEY, ++version);
+        dataMap.putDataMapArrayList(WearableConstants.EXTRA_DATA, updatedEntities);
+        dataMap.putStringArrayList(WearableConstants.EXTRA_REMOVED_KEYS, removedKeys);
+
+        sentEntities = new HashMap<>(entities);
+        return request;
+    }
+
+    private PutDataMapRequest createSnapshotRequest(Map<String, DataMap> entities) {
+        snapshotVersion = ++version;
+        snapshotEntities = new HashMap<>(entities);
+        sentEntities = snapshotEntities;
+        deltaKeys.clear();
+
+        PutDataMapRequest request = PutDataMapRequest.create(WearableConstants.DATA_PATH);
+        DataMap dataMap = request.getDataMap();
+        dataMap.putLong(WearableConstants.DATA_VERSION_KEY, snapshotVersion);
+        dataMap.putDataMapArrayList(WearableConstants.EXTRA_DATA, new ArrayList<>(entities.values()));
+        return request;
+    }
+
+    /**
+     * Forgets what was sent, so the next request will be a complete snapshot
+     */
+    void reset() {
+        snapshotVersion = -1;
+        snapshotEntities = new HashMap<>();
+        sentEntities = snapshotEntities;
+        deltaKeys.clear();
+    }
+}
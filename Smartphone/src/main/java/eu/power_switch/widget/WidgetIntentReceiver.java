@@ -27,7 +27,9 @@ import android.widget.Toast;
 
 import eu.power_switch.R;
 import eu.power_switch.action.ActionHandler;
+import eu.power_switch.action.tracing.ActionTracer;
 import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.history.HistoryHelper;
 import eu.power_switch.obj.Apartment;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
@@ -125,6 +127,7 @@ public class WidgetIntentReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         Log.d(this, intent);
 
+        ActionTracer.markTrigger(ActionTracer.Source.WIDGET);
         try {
             if (intent.getAction().equals(WidgetConstants.WIDGET_ACTION_INTENT)) {
                 // vibrate
@@ -138,6 +141,9 @@ public class WidgetIntentReceiver extends BroadcastReceiver {
             }
         } catch (Exception e) {
             Log.e(e);
+        } finally {
+            ActionTracer.clearTrigger();
+            HistoryHelper.flush(context, goAsync());
         }
     }
 
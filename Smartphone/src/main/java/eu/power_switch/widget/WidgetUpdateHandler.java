@@ -0,0 +1,432 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.widget;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.graphics.Typeface;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.content.ContextCompat;
+import android.text.SpannableString;
+import android.text.style.StyleSpan;
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.RemoteViews;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import eu.power_switch.R;
+import eu.power_switch.database.handler.DatabaseHandler;
+import eu.power_switch.obj.Apartment;
+import eu.power_switch.obj.Room;
+import eu.power_switch.obj.Scene;
+import eu.power_switch.obj.button.Button;
+import eu.power_switch.obj.receiver.Receiver;
+import eu.power_switch.settings.SmartphonePreferencesHandler;
+import eu.power_switch.shared.log.Log;
+import eu.power_switch.widget.activity.ConfigureRoomWidgetActivity;
+import eu.power_switch.widget.activity.ConfigureSceneWidgetActivity;
+import eu.power_switch.widget.provider.ReceiverWidgetProvider;
+import eu.power_switch.widget.provider.RoomWidgetProvider;
+import eu.power_switch.widget.provider.SceneWidgetProvider;
+
+/**
+ * Renders Receiver, Room and Scene widgets in the background
+ * <p/>
+ * Update requests that arrive within {@link #BATCH_DELAY} of each other are merged into a single pass,
+ * which loads the widget bindings of each widget type with one query.
+ * A widget is only pushed to the AppWidgetManager if its visible state differs from the one that was pushed last,
+ * unless the system explicitly asked for it (e.g. after the widget was added or the launcher restarted).
+ */
+public abstract class WidgetUpdateHandler {
+
+    /**
+     * Time in milliseconds to wait for further update requests before rendering
+     */
+    public static final long BATCH_DELAY = 250;
+
+    private static final String STATE_RECEIVER_NOT_FOUND = "receiver_not_found";
+    private static final String STATE_ROOM_NOT_FOUND = "room_not_found";
+    private static final String STATE_SCENE_NOT_FOUND = "scene_not_found";
+    private static final String STATE_UNKNOWN_ERROR = "unknown_error";
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    /**
+     * Widget providers whose widgets have to be checked in the next pass
+     */
+    private static final Set<Class<? extends AppWidgetProvider>> pendingProviders = new LinkedHashSet<>();
+
+    /**
+     * Widget IDs that have to be pushed in the next pass, regardless of their state
+     */
+    private static final Set<Integer> pendingForcedWidgetIds = new HashSet<>();
+
+    private static boolean updateScheduled = false;
+
+    /**
+     * Widget ID -> visible state that was pushed last, only accessed on the executor thread
+     */
+    private static final SparseArray<String> renderedStates = new SparseArray<>();
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private WidgetUpdateHandler() {
+        throw new UnsupportedOperationException("This class is non-instantiable");
+    }
+
+    /**
+     * Requests an update of all widgets of a provider
+     * <p/>
+     * Only widgets whose visible state has changed are redrawn.
+     *
+     * @param context  any suitable context
+     * @param provider widget provider class
+     */
+    public static void requestUpdate(@NonNull Context context, @NonNull Class<? extends AppWidgetProvider> provider) {
+        requestUpdate(context, provider, null);
+    }
+
+    /**
+     * Requests an update of all widgets of a provider
+     *
+     * @param context         any suitable context
+     * @param provider        widget provider class
+     * @param forcedWidgetIds IDs of widgets that are redrawn even if their visible state has not changed
+     */
+    public static void requestUpdate(@NonNull Context context, @NonNull Class<? extends AppWidgetProvider> provider,
+                                     @Nullable int[] forcedWidgetIds) {
+        final Context applicationContext = context.getApplicationContext();
+
+        synchronized (pendingProviders) {
+            pendingProviders.add(provider);
+            if (forcedWidgetIds != null) {
+                for (int widgetId : forcedWidgetIds) {
+                    pendingForcedWidgetIds.add(widgetId);
+                }
+            }
+            if (updateScheduled) {
+                return;
+            }
+            updateScheduled = true;
+        }
+
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush(applicationContext);
+            }
+        }, BATCH_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forgets the rendered state of deleted widgets
+     *
+     * @param appWidgetIds IDs of deleted widgets
+     */
+    public static void onWidgetsDeleted(final int[] appWidgetIds) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int appWidgetId : appWidgetIds) {
+                    renderedStates.delete(appWidgetId);
+                }
+            }
+        });
+    }
+
+    private static void flush(Context context) {
+        Set<Class<? extends AppWidgetProvider>> providers;
+        Set<Integer> forcedWidgetIds;
+        synchronized (pendingProviders) {
+            providers = new LinkedHashSet<>(pendingProviders);
+            forcedWidgetIds = new HashSet<>(pendingForcedWidgetIds);
+            pendingProviders.clear();
+            pendingForcedWidgetIds.clear();
+            updateScheduled = false;
+        }
+
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        for (Class<? extends AppWidgetProvider> provider : providers) {
+            try {
+                int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, provider));
+                if (appWidgetIds.length == 0) {
+                    continue;
+                }
+
+                if (provider == ReceiverWidgetProvider.class) {
+                    updateReceiverWidgets(context, appWidgetManager, appWidgetIds, forcedWidgetIds);
+                } else if (provider == RoomWidgetProvider.class) {
+                    updateRoomWidgets(context, appWidgetManager, appWidgetIds, forcedWidgetIds);
+                } else if (provider == SceneWidgetProvider.class) {
+                    updateSceneWidgets(context, appWidgetManager, appWidgetIds, forcedWidgetIds);
+                }
+            } catch (Exception e) {
+                Log.e(e);
+            }
+        }
+    }
+
+    /**
+     * Checks if a widget has to be redrawn and remembers the new state if so
+     */
+    private static boolean needsUpdate(int appWidgetId, String state, Set<Integer> forcedWidgetIds) {
+        if (!forcedWidgetIds.contains(appWidgetId) && state.equals(renderedStates.get(appWidgetId))) {
+            return false;
+        }
+        renderedStates.put(appWidgetId, state);
+        return true;
+    }
+
+    private static RemoteViews createRemoteViews(Context context, int layout) {
+        return new RemoteViews(context.getResources().getString(eu.power_switch.shared.R.string.PACKAGE_NAME), layout);
+    }
+
+    @WorkerThread
+    private static void updateReceiverWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                              Set<Integer> forcedWidgetIds) throws Exception {
+        SparseArray<ReceiverWidget> receiverWidgets = new SparseArray<>();
+        for (ReceiverWidget receiverWidget : DatabaseHandler.getAllReceiverWidgets()) {
+            receiverWidgets.put(receiverWidget.getWidgetId(), receiverWidget);
+        }
+        boolean highlightLastActivatedButton = SmartphonePreferencesHandler.getHighlightLastActivatedButton();
+
+        int updated = 0;
+        for (int appWidgetId : appWidgetIds) {
+            Apartment apartment = null;
+            Room room = null;
+            Receiver receiver = null;
+            String state;
+            try {
+                ReceiverWidget receiverWidget = receiverWidgets.get(appWidgetId);
+                if (receiverWidget == null) {
+                    throw new IllegalStateException("no receiver bound to widget " + appWidgetId);
+                }
+                room = DatabaseHandler.getRoom(receiverWidget.getRoomId());
+                if (room == null) {
+                    state = STATE_ROOM_NOT_FOUND;
+                } else {
+                    receiver = DatabaseHandler.getReceiver(receiverWidget.getReceiverId());
+                    if (receiver == null) {
+                        state = STATE_RECEIVER_NOT_FOUND;
+                    } else {
+                        apartment = DatabaseHandler.getApartment(room.getApartmentId());
+                        state = getReceiverWidgetState(apartment, room, receiver, highlightLastActivatedButton);
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(e);
+                state = STATE_UNKNOWN_ERROR;
+            }
+
+            if (!needsUpdate(appWidgetId, state, forcedWidgetIds)) {
+                continue;
+            }
+
+            RemoteViews remoteViews = createRemoteViews(context, R.layout.widget_receiver);
+            remoteViews.removeAllViews(R.id.linearlayout_receiver_widget);
+            if (apartment != null) {
+                // update UI
+                remoteViews.setTextViewText(R.id.textView_receiver_widget_name,
+                        apartment.getName() + ": " + room.getName() + ": " + receiver.getName());
+
+                // add buttons from database
+                int buttonOffset = 0;
+                for (Button button : receiver.getButtons()) {
+                    // set button action
+                    RemoteViews buttonView = createRemoteViews(context, R.layout.widget_receiver_button_layout);
+                    SpannableString s = new SpannableString(button.getName());
+                    s.setSpan(new StyleSpan(Typeface.BOLD), 0, button.getName().length(), 0);
+                    buttonView.setTextViewText(R.id.button_widget_universal, s);
+                    if (highlightLastActivatedButton && button.getId().equals(receiver.getLastActivatedButtonId())) {
+                        buttonView.setTextColor(R.id.button_widget_universal,
+                                ContextCompat.getColor(context, R.color.color_light_blue_a700));
+                    }
+
+                    PendingIntent intent = WidgetIntentReceiver.buildReceiverWidgetActionPendingIntent(context, apartment, room,
+                            receiver, button, appWidgetId * 15 + buttonOffset);
+                    buttonView.setOnClickPendingIntent(R.id.button_widget_universal, intent);
+
+                    remoteViews.addView(R.id.linearlayout_receiver_widget, buttonView);
+                    buttonOffset++;
+                }
+                remoteViews.setViewVisibility(R.id.linearlayout_receiver_widget, View.VISIBLE);
+            } else {
+                remoteViews.setTextViewText(R.id.textView_receiver_widget_name, getErrorText(context, state));
+                remoteViews.setViewVisibility(R.id.linearlayout_receiver_widget, View.GONE);
+            }
+            appWidgetManager.updateAppWidget(appWidgetId, remoteViews);
+            updated++;
+        }
+        Log.d(WidgetUpdateHandler.class, "Receiver Widgets redrawn: %d/%d", updated, appWidgetIds.length);
+    }
+
+    @WorkerThread
+    private static void updateRoomWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                          Set<Integer> forcedWidgetIds) throws Exception {
+        SparseArray<RoomWidget> roomWidgets = new SparseArray<>();
+        for (RoomWidget roomWidget : DatabaseHandler.getAllRoomWidgets()) {
+            roomWidgets.put(roomWidget.getWidgetId(), roomWidget);
+        }
+
+        int updated = 0;
+        for (int appWidgetId : appWidgetIds) {
+            Apartment apartment = null;
+            Room room = null;
+            String state;
+            try {
+                RoomWidget roomWidget = roomWidgets.get(appWidgetId);
+                if (roomWidget == null) {
+                    throw new IllegalStateException("no room bound to widget " + appWidgetId);
+                }
+                room = DatabaseHandler.getRoom(roomWidget.getRoomId());
+                if (room == null) {
+                    state = STATE_ROOM_NOT_FOUND;
+                } else {
+                    apartment = DatabaseHandler.getApartment(room.getApartmentId());
+                    state = "room:" + apartment.getId() + ":" + apartment.getName() + ":" + room.getId() + ":" + room.getName();
+                }
+            } catch (Exception e) {
+                Log.e(e);
+                state = STATE_UNKNOWN_ERROR;
+            }
+
+            if (!needsUpdate(appWidgetId, state, forcedWidgetIds)) {
+                continue;
+            }
+
+            RemoteViews remoteViews = createRemoteViews(context, R.layout.widget_room);
+            if (apartment != null) {
+                // update UI
+                remoteViews.setTextViewText(R.id.textView_room_widget_name, apartment.getName() + ": " + room.getName());
+
+                // set button action
+                remoteViews.setOnClickPendingIntent(R.id.button_on,
+                        WidgetIntentReceiver.buildRoomWidgetButtonPendingIntent(context, apartment, room, context.getString(R.string.on),
+                                ConfigureRoomWidgetActivity.ROOM_INTENT_ID_OFFSET + appWidgetId));
+                remoteViews.setOnClickPendingIntent(R.id.button_off,
+                        WidgetIntentReceiver.buildRoomWidgetButtonPendingIntent(context, apartment, room, context.getString(R.string.off),
+                                ConfigureRoomWidgetActivity.ROOM_INTENT_ID_OFFSET + appWidgetId + 1));
+                remoteViews.setViewVisibility(R.id.linearlayout_room_widget, View.VISIBLE);
+            } else {
+                remoteViews.setTextViewText(R.id.textView_room_widget_name, getErrorText(context, state));
+                remoteViews.setViewVisibility(R.id.linearlayout_room_widget, View.GONE);
+            }
+            appWidgetManager.updateAppWidget(appWidgetId, remoteViews);
+            updated++;
+        }
+        Log.d(WidgetUpdateHandler.class, "Room Widgets redrawn: %d/%d", updated, appWidgetIds.length);
+    }
+
+    @WorkerThread
+    private static void updateSceneWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                           Set<Integer> forcedWidgetIds) throws Exception {
+        SparseArray<SceneWidget> sceneWidgets = new SparseArray<>();
+        for (SceneWidget sceneWidget : DatabaseHandler.getAllSceneWidgets()) {
+            sceneWidgets.put(sceneWidget.getWidgetId(), sceneWidget);
+        }
+
+        int updated = 0;
+        for (int appWidgetId : appWidgetIds) {
+            Apartment apartment = null;
+            Scene scene = null;
+            String state;
+            try {
+                SceneWidget sceneWidget = sceneWidgets.get(appWidgetId);
+                if (sceneWidget == null) {
+                    throw new IllegalStateException("no scene bound to widget " + appWidgetId);
+                }
+                scene = DatabaseHandler.getScene(sceneWidget.getSceneId());
+                if (scene == null) {
+                    state = STATE_SCENE_NOT_FOUND;
+                } else {
+                    apartment = DatabaseHandler.getApartment(scene.getApartmentId());
+                    state = "scene:" + apartment.getId() + ":" + apartment.getName() + ":" + scene.getId() + ":" + scene.getName();
+                }
+            } catch (Exception e) {
+                Log.e(e);
+                state = STATE_UNKNOWN_ERROR;
+            }
+
+            if (!needsUpdate(appWidgetId, state, forcedWidgetIds)) {
+                continue;
+            }
+
+            RemoteViews remoteViews = createRemoteViews(context, R.layout.widget_scene);
+            if (apartment != null) {
+                remoteViews.setTextViewText(R.id.textView_scene_widget_name, apartment.getName() + ": " + scene.getName());
+                // set button action
+                remoteViews.setOnClickPendingIntent(R.id.buttonActivate_scene_widget,
+                        WidgetIntentReceiver.buildSceneWidgetPendingIntent(context, apartment, scene,
+                                ConfigureSceneWidgetActivity.SCENE_INTENT_ID_OFFSET + appWidgetId));
+                remoteViews.setViewVisibility(R.id.buttonActivate_scene_widget, View.VISIBLE);
+            } else {
+                remoteViews.setTextViewText(R.id.textView_scene_widget_name, getErrorText(context, state));
+                remoteViews.setViewVisibility(R.id.buttonActivate_scene_widget, View.GONE);
+            }
+            appWidgetManager.updateAppWidget(appWidgetId, remoteViews);
+            updated++;
+        }
+        Log.d(WidgetUpdateHandler.class, "Scene Widgets redrawn: %d/%d", updated, appWidgetIds.length);
+    }
+
+    /**
+     * Describes everything a Receiver widget shows, including the highlighted Button
+     */
+    private static String getReceiverWidgetState(Apartment apartment, Room room, Receiver receiver,
+                                                 boolean highlightLastActivatedButton) {
+        StringBuilder state = new StringBuilder("receiver:")
+                .append(apartment.getId()).append(':').append(apartment.getName()).append(':')
+                .append(room.getId()).append(':').append(room.getName()).append(':')
+                .append(receiver.getId()).append(':').append(receiver.getName());
+        for (Button button : receiver.getButtons()) {
+            state.append(':').append(button.getId()).append('=').append(button.getName());
+        }
+        if (highlightLastActivatedButton) {
+            state.append(":highlighted=").append(receiver.getLastActivatedButtonId());
+        }
+        return state.toString();
+    }
+
+    private static String getErrorText(Context context, String state) {
+        switch (state) {
+            case STATE_RECEIVER_NOT_FOUND:
+                return context.getString(R.string.receiver_not_found);
+            case STATE_ROOM_NOT_FOUND:
+                return context.getString(R.string.room_not_found);
+            case STATE_SCENE_NOT_FOUND:
+                return context.getString(R.string.scene_not_found);
+            default:
+                return context.getString(R.string.unknown_error);
+        }
+    }
+}
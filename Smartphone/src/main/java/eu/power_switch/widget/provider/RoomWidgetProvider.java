@@ -20,22 +20,13 @@ package eu.power_switch.widget.provider;
 
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
-import android.content.ComponentName;
 import android.content.Context;
-import android.content.Intent;
-import android.view.View;
-import android.widget.RemoteViews;
 
 import java.util.Arrays;
 
-import eu.power_switch.R;
 import eu.power_switch.database.handler.DatabaseHandler;
-import eu.power_switch.obj.Apartment;
-import eu.power_switch.obj.Room;
 import eu.power_switch.shared.log.Log;
-import eu.power_switch.widget.RoomWidget;
-import eu.power_switch.widget.WidgetIntentReceiver;
-import eu.power_switch.widget.activity.ConfigureRoomWidgetActivity;
+import eu.power_switch.widget.WidgetUpdateHandler;
 
 /**
  * This class is responsible for updating existing Room widgets
@@ -43,59 +34,20 @@ import eu.power_switch.widget.activity.ConfigureRoomWidgetActivity;
 public class RoomWidgetProvider extends AppWidgetProvider {
 
     /**
-     * Forces an Update of all Room Widgets
+     * Requests an Update of all Room Widgets
+     * <p/>
+     * Requests are batched and only widgets whose content has changed are redrawn.
      *
      * @param context any suitable context
      */
     public static void forceWidgetUpdate(Context context) {
-        // update room widgets
-        Intent intent = new Intent(context, RoomWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-        int ids[] = AppWidgetManager.getInstance(context.getApplicationContext())
-                .getAppWidgetIds(new ComponentName(context.getApplicationContext(),
-                        RoomWidgetProvider.class));
-        intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids);
-        context.sendBroadcast(intent);
+        WidgetUpdateHandler.requestUpdate(context, RoomWidgetProvider.class);
     }
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        Log.d("Updating Room Widgets...");
-        // Perform this loop procedure for each App Widget that belongs to this provider
-        for (int i = 0; i < appWidgetIds.length; i++) {
-            int appWidgetId = appWidgetIds[i];
-            RemoteViews remoteViews = new RemoteViews(context.getResources()
-                    .getString(eu.power_switch.shared.R.string.PACKAGE_NAME), R.layout.widget_room);
-
-            try {
-                RoomWidget roomWidget = DatabaseHandler.getRoomWidget(appWidgetId);
-                Room room = DatabaseHandler.getRoom(roomWidget.getRoomId());
-                if (room != null) {
-                    Apartment apartment = DatabaseHandler.getApartment(room.getApartmentId());
-
-                    // update UI
-                    remoteViews.setTextViewText(R.id.textView_room_widget_name, apartment.getName() + ": " + room.getName());
-
-                    // set button action
-                    remoteViews.setOnClickPendingIntent(R.id.button_on,
-                            WidgetIntentReceiver.buildRoomWidgetButtonPendingIntent(context, apartment, room, context.getString(R.string.on),
-                                    ConfigureRoomWidgetActivity.ROOM_INTENT_ID_OFFSET + appWidgetId));
-                    remoteViews.setOnClickPendingIntent(R.id.button_off,
-                            WidgetIntentReceiver.buildRoomWidgetButtonPendingIntent(context, apartment, room, context.getString(R
-                                            .string.off),
-                                    ConfigureRoomWidgetActivity.ROOM_INTENT_ID_OFFSET + appWidgetId + 1));
-                    remoteViews.setViewVisibility(R.id.linearlayout_room_widget, View.VISIBLE);
-                } else {
-                    remoteViews.setTextViewText(R.id.textView_room_widget_name, context.getString(R.string.room_not_found));
-                    remoteViews.setViewVisibility(R.id.linearlayout_room_widget, View.GONE);
-                }
-            } catch (Exception e) {
-                Log.e(e);
-                remoteViews.setTextViewText(R.id.textView_room_widget_name, context.getString(R.string.unknown_error));
-                remoteViews.setViewVisibility(R.id.linearlayout_room_widget, View.GONE);
-            }
-            appWidgetManager.updateAppWidget(appWidgetId, remoteViews);
-        }
+        Log.d("Updating Room Widgets: " + Arrays.toString(appWidgetIds));
+        WidgetUpdateHandler.requestUpdate(context, RoomWidgetProvider.class, appWidgetIds);
         super.onUpdate(context, appWidgetManager, appWidgetIds);
     }
 
@@ -109,6 +61,7 @@ public class RoomWidgetProvider extends AppWidgetProvider {
                 Log.e(e);
             }
         }
+        WidgetUpdateHandler.onWidgetsDeleted(appWidgetIds);
         super.onDeleted(context, appWidgetIds);
     }
 }
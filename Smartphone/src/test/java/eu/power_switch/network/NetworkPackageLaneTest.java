@@ -0,0 +1,147 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * JVM harness for the supersede semantics of {@link NetworkPackageLane}
+ * <p/>
+ * Lanes are worked off synchronously by a recording queue handler instead of sending anything.
+ */
+public class NetworkPackageLaneTest {
+
+    private static final int BURST_SIZE = 1000;
+    private static final int RECEIVER_COUNT = 10;
+
+    @Test
+    public void testNewerPackageSupersedesQueuedPackage() throws Exception {
+        RecordingQueueHandler queueHandler = new RecordingQueueHandler();
+        NetworkPackageLane lane = new NetworkPackageLane(queueHandler, "localhost:49880");
+
+        lane.add(Arrays.asList(createPackage(1L, "1:on"), createPackage(2L, "2:on")));
+        lane.add(Collections.singletonList(createPackage(1L, "1:off")));
+        lane.add(Collections.singletonList(createPackage(1L, "1:on again")));
+
+        Assert.assertEquals(2, lane.getQueueSize());
+        Assert.assertEquals(2, lane.getElidedCount());
+
+        lane.run();
+
+        // receiver 1 keeps its position in the lane
+        Assert.assertEquals(Arrays.asList("1:on again", "2:on"), queueHandler.sentMessages);
+        Assert.assertEquals(2, lane.getSentCount());
+    }
+
+    @Test
+    public void testDuplicatesAreCoalesced() throws Exception {
+        RecordingQueueHandler queueHandler = new RecordingQueueHandler();
+        NetworkPackageLane lane = new NetworkPackageLane(queueHandler, "localhost:49880");
+
+        for (int i = 0; i < 5; i++) {
+            lane.add(Collections.singletonList(createPackage(1L, "1:on")));
+        }
+        lane.run();
+
+        Assert.assertEquals(Collections.singletonList("1:on"), queueHandler.sentMessages);
+        Assert.assertEquals(4, lane.getElidedCount());
+    }
+
+    @Test
+    public void testPackagesWithoutReceiverAreNeverElided() throws Exception {
+        RecordingQueueHandler queueHandler = new RecordingQueueHandler();
+        NetworkPackageLane lane = new NetworkPackageLane(queueHandler, "localhost:49880");
+
+        for (int i = 0; i < 3; i++) {
+            lane.add(Collections.singletonList(createPackage(null, "raw")));
+        }
+        lane.run();
+
+        Assert.assertEquals(Arrays.asList("raw", "raw", "raw"), queueHandler.sentMessages);
+        Assert.assertEquals(0, lane.getElidedCount());
+    }
+
+    @Test
+    public void testBurstIsBoundedByDistinctReceivers() throws Exception {
+        RecordingQueueHandler queueHandler = new RecordingQueueHandler();
+        NetworkPackageLane lane = new NetworkPackageLane(queueHandler, "localhost:49880");
+
+        Random random = new Random(42);
+        Map<Long, String> lastMessages = new HashMap<>();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            long receiverId = random.nextInt(RECEIVER_COUNT);
+            String message = receiverId + ":" + i;
+            lastMessages.put(receiverId, message);
+            lane.add(Collections.singletonList(createPackage(receiverId, message)));
+        }
+
+        Assert.assertEquals(lastMessages.size(), lane.getQueueSize());
+        Assert.assertEquals(BURST_SIZE - lastMessages.size(), lane.getElidedCount());
+
+        lane.run();
+
+        // only the last command of every receiver is sent
+        List<String> expected = new ArrayList<>(lastMessages.values());
+        List<String> sent = new ArrayList<>(queueHandler.sentMessages);
+        Collections.sort(expected);
+        Collections.sort(sent);
+        Assert.assertEquals(expected, sent);
+    }
+
+    private static NetworkPackage createPackage(Long receiverId, String message) {
+        NetworkPackage networkPackage = new NetworkPackage(NetworkPackage.CommunicationType.UDP, "localhost", 49880, message, 0);
+        networkPackage.setReceiverId(receiverId);
+        return networkPackage;
+    }
+
+    /**
+     * Queue handler that records sent packages instead of sending them
+     */
+    private static class RecordingQueueHandler extends NetworkPackageQueueHandler {
+
+        private final List<String> sentMessages = new ArrayList<>();
+
+        public RecordingQueueHandler() {
+            super(null);
+        }
+
+        @Override
+        protected void onLaneStarted(NetworkPackageLane lane) {
+        }
+
+        @Override
+        protected void onLaneFinished(NetworkPackageLane lane) {
+        }
+
+        @Override
+        protected boolean send(NetworkPackageLane lane, NetworkPackage networkPackage) {
+            sentMessages.add(networkPackage.getMessage());
+            return true;
+        }
+    }
+}
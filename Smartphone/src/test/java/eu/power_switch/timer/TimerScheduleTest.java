@@ -0,0 +1,330 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.timer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import eu.power_switch.action.Action;
+
+/**
+ * JVM harness for {@link TimerSchedule}
+ * <p/>
+ * Compares the closed form next execution times against an iterative computation and simulates weeks of
+ * schedules for hundreds of Timers with a single wakeup alarm, checking that every occurrence is executed exactly
+ * once.
+ */
+public class TimerScheduleTest {
+
+    // includes a daylight saving time change
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("Europe/Berlin");
+
+    private static final int TIMER_COUNT = 400;
+    private static final int SIMULATED_DAYS = 28;
+    private static final long COALESCING_WINDOW = 30 * 1000;
+    private static final long MAX_ALARM_DELAY = 5 * 1000;
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    @Test
+    public void testWeekdayTimer() throws Exception {
+        // Monday 14.03.2016 10:00
+        long monday = getTime(2016, Calendar.MARCH, 14, 10, 0);
+        WeekdayTimer timer = createWeekdayTimer(1, 8, 30, WeekdayTimer.Day.WEDNESDAY, WeekdayTimer.Day.MONDAY);
+
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 16, 8, 30), TimerSchedule.getNextExecutionTime(timer, monday, TIME_ZONE));
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 14, 8, 30),
+                TimerSchedule.getNextExecutionTime(timer, getTime(2016, Calendar.MARCH, 14, 8, 30), TIME_ZONE));
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 21, 8, 30),
+                TimerSchedule.getNextExecutionTime(timer, getTime(2016, Calendar.MARCH, 16, 8, 31), TIME_ZONE));
+
+        WeekdayTimer noDays = createWeekdayTimer(2, 8, 30);
+        Assert.assertEquals(TimerSchedule.NO_EXECUTION, TimerSchedule.getNextExecutionTime(noDays, monday, TIME_ZONE));
+    }
+
+    @Test
+    public void testIntervalTimer() throws Exception {
+        long time = getTime(2016, Calendar.MARCH, 14, 10, 7);
+        IntervalTimer timer = createIntervalTimer(1, 9, 0, 15 * MINUTE);
+
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 14, 10, 15), TimerSchedule.getNextExecutionTime(timer, time, TIME_ZONE));
+
+        // 9:00, 16:00, 23:00, 6:00 and again 9:00 on the next day
+        IntervalTimer sevenHours = createIntervalTimer(2, 9, 0, 7 * 60 * MINUTE);
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 15, 6, 0),
+                TimerSchedule.getNextExecutionTime(sevenHours, getTime(2016, Calendar.MARCH, 15, 3, 0), TIME_ZONE));
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 15, 9, 0),
+                TimerSchedule.getNextExecutionTime(sevenHours, getTime(2016, Calendar.MARCH, 15, 6, 1), TIME_ZONE));
+    }
+
+    @Test
+    public void testClosedFormMatchesIterativeComputation() throws Exception {
+        Random random = new Random(42);
+        List<Timer> timers = createRandomTimers(random, TIMER_COUNT);
+        long start = getTime(2016, Calendar.MARCH, 14, 0, 0);
+
+        for (int i = 0; i < 20000; i++) {
+            Timer timer = timers.get(random.nextInt(timers.size()));
+            long from = start + (long) (random.nextDouble() * SIMULATED_DAYS * DAY);
+
+            Assert.assertEquals(timer.toString(), getNextExecutionTimeIteratively(timer, from),
+                    TimerSchedule.getNextExecutionTime(timer, from, TIME_ZONE));
+        }
+    }
+
+    @Test
+    public void testSimulateWeeksOfSchedules() throws Exception {
+        Random random = new Random(7);
+        List<Timer> timers = createRandomTimers(random, TIMER_COUNT);
+        long start = getTime(2016, Calendar.MARCH, 14, 0, 0);
+        long end = start + SIMULATED_DAYS * DAY;
+
+        // expected occurrences per Timer
+        Map<Long, List<Long>> expected = new HashMap<>();
+        int expectedCount = 0;
+        for (Timer timer : timers) {
+            List<Long> occurrences = new ArrayList<>();
+            long time = TimerSchedule.getNextExecutionTime(timer, start, TIME_ZONE);
+            while (time != TimerSchedule.NO_EXECUTION && time <= end) {
+                occurrences.add(time);
+                time = TimerSchedule.getNextExecutionTime(timer, time + 1, TIME_ZONE);
+            }
+            expected.put(timer.getId(), occurrences);
+            expectedCount += occurrences.size();
+        }
+
+        // simulate the wakeup alarm, rebuilding the schedule from the persisted progress on every wakeup
+        Map<Long, List<Long>> executed = new HashMap<>();
+        for (Timer timer : timers) {
+            executed.put(timer.getId(), new ArrayList<Long>());
+        }
+        long executedUntil = start - 1;
+        int wakeups = 0;
+        int executions = 0;
+        long nanos = 0;
+
+        while (true) {
+            long startNanos = System.nanoTime();
+            TimerSchedule schedule = new TimerSchedule(timers, executedUntil + 1, TIME_ZONE);
+            long alarmTime = schedule.getNextExecutionTime();
+            nanos += System.nanoTime() - startNanos;
+
+            if (alarmTime == TimerSchedule.NO_EXECUTION || alarmTime > end) {
+                break;
+            }
+
+            long now = alarmTime + (long) (random.nextDouble() * MAX_ALARM_DELAY);
+            startNanos = System.nanoTime();
+            List<Timer> dueTimers = schedule.pollDue(now, COALESCING_WINDOW);
+            nanos += System.nanoTime() - startNanos;
+
+            Assert.assertFalse(dueTimers.isEmpty());
+            for (Timer timer : dueTimers) {
+                executed.get(timer.getId()).add(now);
+            }
+            executedUntil = schedule.getExecutedUntil();
+            wakeups++;
+            executions += dueTimers.size();
+        }
+
+        for (Timer timer : timers) {
+            List<Long> occurrences = expected.get(timer.getId());
+            List<Long> executionTimes = executed.get(timer.getId());
+
+            // the last occurrences might be executed by a wakeup after the end of the simulation
+            while (occurrences.size() > executionTimes.size() &&
+                    occurrences.get(occurrences.size() - 1) > end - COALESCING_WINDOW - MAX_ALARM_DELAY) {
+                occurrences.remove(occurrences.size() - 1);
+            }
+            Assert.assertEquals(timer.toString(), occurrences.size(), executionTimes.size());
+
+            for (int i = 0; i < occurrences.size(); i++) {
+                long occurrence = occurrences.get(i);
+                long execution = executionTimes.get(i);
+                Assert.assertTrue(timer.toString(), execution >= occurrence - COALESCING_WINDOW);
+                Assert.assertTrue(timer.toString(), execution <= occurrence + MAX_ALARM_DELAY);
+            }
+        }
+
+        System.out.println("TimerSchedule: " + TIMER_COUNT + " timers, " + SIMULATED_DAYS + " days, " +
+                expectedCount + " occurrences, " + executions + " executions in " + wakeups + " wakeups, " +
+                (nanos / Math.max(1, wakeups)) + " ns/wakeup");
+        // previously every execution armed its own alarm and re-armed the alarms of all active timers
+        Assert.assertTrue(wakeups < executions);
+    }
+
+    @Test
+    public void testTimerEditedRightAfterWakeup() throws Exception {
+        WeekdayTimer timer = createWeekdayTimer(1, 10, 0, WeekdayTimer.Day.MONDAY);
+        List<Timer> timers = new ArrayList<>();
+        timers.add(timer);
+
+        // delayed wakeup for the 10:00 execution, no other Timer is due within the coalescing window
+        long wakeup = getTime(2016, Calendar.MARCH, 14, 10, 0) + 50 * 1000;
+        TimerSchedule schedule = new TimerSchedule(timers, getTime(2016, Calendar.MARCH, 14, 0, 0), TIME_ZONE);
+        Assert.assertEquals(1, schedule.pollDue(wakeup, COALESCING_WINDOW).size());
+        long executedUntil = schedule.getExecutedUntil();
+        Assert.assertEquals(wakeup, executedUntil);
+
+        // a new Timer is added one second later to execute in 10 seconds, at 10:01
+        Timer editedTimer = createWeekdayTimer(2, 10, 1, WeekdayTimer.Day.MONDAY);
+        timers.add(editedTimer);
+        long editTime = wakeup + 1000;
+
+        schedule = new TimerSchedule(timers,
+                TimerSchedule.getScheduleStart(executedUntil, schedule.getNextExecutionTime(), editTime), TIME_ZONE);
+        long nextExecution = getTime(2016, Calendar.MARCH, 14, 10, 1);
+        Assert.assertEquals(nextExecution, schedule.getNextExecutionTime());
+
+        List<Timer> dueTimers = schedule.pollDue(nextExecution, COALESCING_WINDOW);
+        Assert.assertEquals(1, dueTimers.size());
+        Assert.assertSame(editedTimer, dueTimers.get(0));
+    }
+
+    @Test
+    public void testTimerEditedBeforeDelayedWakeup() throws Exception {
+        WeekdayTimer timer = createWeekdayTimer(1, 10, 0, WeekdayTimer.Day.MONDAY);
+        List<Timer> timers = new ArrayList<>();
+        timers.add(timer);
+
+        long executedUntil = getTime(2016, Calendar.MARCH, 14, 0, 0) - 1;
+        TimerSchedule schedule = new TimerSchedule(timers, executedUntil + 1, TIME_ZONE);
+        long nextWakeup = schedule.getNextExecutionTime();
+        Assert.assertEquals(getTime(2016, Calendar.MARCH, 14, 10, 0), nextWakeup);
+
+        // the wakeup alarm is delayed (e.g. by Doze) and another Timer is added before it goes off
+        Timer addedTimer = createWeekdayTimer(2, 12, 0, WeekdayTimer.Day.MONDAY);
+        timers.add(addedTimer);
+        long editTime = nextWakeup + 5 * 60 * 1000;
+
+        long from = TimerSchedule.getScheduleStart(executedUntil, nextWakeup, editTime);
+        Assert.assertEquals(nextWakeup, from);
+        schedule = new TimerSchedule(timers, from, TIME_ZONE);
+        Assert.assertEquals(nextWakeup, schedule.getNextExecutionTime());
+
+        // the overdue Timer is executed by the rescheduled alarm
+        List<Timer> dueTimers = schedule.pollDue(editTime + 1000, COALESCING_WINDOW);
+        Assert.assertEquals(1, dueTimers.size());
+        Assert.assertSame(timer, dueTimers.get(0));
+
+        // without an overdue alarm, executions before the edit are not considered
+        Assert.assertEquals(editTime, TimerSchedule.getScheduleStart(executedUntil, editTime + 1000, editTime));
+        Assert.assertEquals(editTime, TimerSchedule.getScheduleStart(executedUntil, TimerSchedule.NO_EXECUTION,
+                editTime));
+    }
+
+    /**
+     * Next execution time computed by walking forward day by day (weekday timers) or interval by interval
+     * (interval timers)
+     */
+    private static long getNextExecutionTimeIteratively(Timer timer, long from) {
+        if (timer instanceof WeekdayTimer) {
+            for (int day = 0; day <= 100; day++) {
+                Calendar executionTime = getExecutionTimeOfDay(timer, from, day);
+                if (((WeekdayTimer) timer).containsExecutionDay(executionTime.get(Calendar.DAY_OF_WEEK)) &&
+                        executionTime.getTimeInMillis() >= from) {
+                    return executionTime.getTimeInMillis();
+                }
+            }
+            return TimerSchedule.NO_EXECUTION;
+        } else {
+            // start with the intervals of the previous day
+            int day = -1;
+            long time = getExecutionTimeOfDay(timer, from, day).getTimeInMillis();
+            while (time < from) {
+                time += timer.getExecutionInterval();
+                long nextStart = getExecutionTimeOfDay(timer, from, day + 1).getTimeInMillis();
+                if (time >= nextStart) {
+                    // intervals restart at the execution time of the next day
+                    time = nextStart;
+                    day++;
+                }
+            }
+            return time;
+        }
+    }
+
+    private static Calendar getExecutionTimeOfDay(Timer timer, long time, int dayOffset) {
+        Calendar day = Calendar.getInstance(TIME_ZONE);
+        day.setTimeInMillis(time);
+
+        Calendar executionTime = Calendar.getInstance(TIME_ZONE);
+        executionTime.clear();
+        executionTime.set(day.get(Calendar.YEAR), day.get(Calendar.MONTH), day.get(Calendar.DAY_OF_MONTH) + dayOffset,
+                timer.getExecutionTime().get(Calendar.HOUR_OF_DAY), timer.getExecutionTime().get(Calendar.MINUTE), 0);
+        return executionTime;
+    }
+
+    private static List<Timer> createRandomTimers(Random random, int count) {
+        List<Timer> timers = new ArrayList<>();
+        WeekdayTimer.Day[] allDays = WeekdayTimer.Day.values();
+        long[] intervals = {5 * MINUTE, 15 * MINUTE, 30 * MINUTE, 60 * MINUTE, 90 * MINUTE, 6 * 60 * MINUTE};
+
+        for (int i = 0; i < count; i++) {
+            int hour = random.nextInt(24);
+            int minute = random.nextInt(4) * 15;
+            if (random.nextInt(4) == 0) {
+                timers.add(createIntervalTimer(i, hour, minute, intervals[random.nextInt(intervals.length)]));
+            } else {
+                List<WeekdayTimer.Day> days = new ArrayList<>();
+                Collections.addAll(days, allDays);
+                Collections.shuffle(days, random);
+                timers.add(createWeekdayTimer(i, hour, minute,
+                        days.subList(0, 1 + random.nextInt(allDays.length)).toArray(new WeekdayTimer.Day[0])));
+            }
+        }
+        return timers;
+    }
+
+    private static WeekdayTimer createWeekdayTimer(long id, int hour, int minute, WeekdayTimer.Day... days) {
+        ArrayList<WeekdayTimer.Day> executionDays = new ArrayList<>();
+        Collections.addAll(executionDays, days);
+        return new WeekdayTimer(id, true, "Timer " + id, getExecutionTime(hour, minute), executionDays,
+                new ArrayList<Action>());
+    }
+
+    private static IntervalTimer createIntervalTimer(long id, int hour, int minute, long interval) {
+        return new IntervalTimer(id, true, "Timer " + id, getExecutionTime(hour, minute), interval,
+                new ArrayList<Action>());
+    }
+
+    private static Calendar getExecutionTime(int hour, int minute) {
+        Calendar executionTime = Calendar.getInstance(TIME_ZONE);
+        executionTime.set(Calendar.HOUR_OF_DAY, hour);
+        executionTime.set(Calendar.MINUTE, minute);
+        return executionTime;
+    }
+
+    private static long getTime(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TIME_ZONE);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -20,6 +20,7 @@ package eu.power_switch.application;
 
 import android.app.Application;
 
+import eu.power_switch.network.WearDataModel;
 import eu.power_switch.shared.log.Log;
 import eu.power_switch.shared.settings.WearablePreferencesHandler;
 
@@ -60,5 +61,6 @@ public class PowerSwitchWear extends Application {
 
         // One time initialization of handlers for static access
         WearablePreferencesHandler.init(this);
+        WearDataModel.init(this);
     }
 }
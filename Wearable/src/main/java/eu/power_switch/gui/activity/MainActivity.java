@@ -42,6 +42,7 @@ import java.util.ArrayList;
 import eu.power_switch.R;
 import eu.power_switch.gui.ThemeHelper;
 import eu.power_switch.network.DataApiHandler;
+import eu.power_switch.network.WearDataModel;
 import eu.power_switch.network.service.ListenerService;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
@@ -260,19 +261,22 @@ public class MainActivity extends WearableActivity {
     /**
      * A background task to load the room, receiver and scene data via the Wear DataApi.
      * <p/>
+     * Data persisted on the watch is shown first, before the Smartphone app is contacted.
+     * <p/>
      * Created by Markus on 07.06.2015.
      */
     private class FetchDataAsyncTask extends
-            AsyncTask<Uri, Void, ArrayList<Object>> {
+            AsyncTask<Uri, ArrayList<Object>, ArrayList<Object>> {
 
         @Override
         protected ArrayList<Object> doInBackground(Uri... params) {
+            // Show persisted data right away
+            if (WearDataModel.isInitialized()) {
+                publishProgress(createResult(WearDataModel.getRooms(), WearDataModel.getScenes()));
+            }
+
             // Get Room Data from Smartphone App
             ArrayList<Room> rooms = dataApiHandler.getRoomData();
-            boolean autoCollapseRooms = WearablePreferencesHandler.getAutoCollapseRooms();
-            for (Room room : rooms) {
-                room.setCollapsed(autoCollapseRooms);
-            }
 
             // Get Scene Data from Smartphone App
             ArrayList<Scene> scenes = dataApiHandler.getSceneData();
@@ -280,13 +284,29 @@ public class MainActivity extends WearableActivity {
             // Get Wearable Settings from Smartphone App
             dataApiHandler.updateSettings(getApplicationContext());
 
+            if (rooms == null || scenes == null) {
+                return null;
+            }
+            return createResult(rooms, scenes);
+        }
+
+        private ArrayList<Object> createResult(ArrayList<Room> rooms, ArrayList<Scene> scenes) {
+            boolean autoCollapseRooms = WearablePreferencesHandler.getAutoCollapseRooms();
+            for (Room room : rooms) {
+                room.setCollapsed(autoCollapseRooms);
+            }
+
             ArrayList<Object> result = new ArrayList<>();
             result.add(rooms);
             result.add(scenes);
-
             return result;
         }
 
+        @Override
+        protected void onProgressUpdate(ArrayList<Object>... values) {
+            onPostExecute(values[0]);
+        }
+
         @Override
         protected void onPostExecute(ArrayList<Object> result) {
             if (result != null) {
@@ -297,4 +317,4 @@ public class MainActivity extends WearableActivity {
             refreshUI();
         }
     }
-}
\ No newline at end of file
+}
@@ -128,8 +128,7 @@ public class RoomRecyclerViewAdapter extends RecyclerView.Adapter<RoomRecyclerVi
                     buttonId = -1;
                 }
 
-                String actionString = DataApiHandler.buildRoomActionString(room, buttonId);
-                dataApiHandler.sendRoomActionTrigger(actionString);
+                dataApiHandler.sendRoomActionTrigger(room, buttonId);
 
                 for (Receiver receiver : room.getReceivers()) {
                     for (Button currentButton : receiver.getButtons()) {
@@ -193,9 +192,7 @@ public class RoomRecyclerViewAdapter extends RecyclerView.Adapter<RoomRecyclerVi
                         }
 
                         // Send Action to Smartphone app
-                        String actionString = DataApiHandler.buildReceiverActionString(room,
-                                receiver, button);
-                        dataApiHandler.sendReceiverActionTrigger(actionString);
+                        dataApiHandler.sendReceiverActionTrigger(receiver, button);
 
                         receiver.setLastActivatedButtonId(button.getId());
                         if (WearablePreferencesHandler.getHighlightLastActivatedButton()) {
@@ -80,8 +80,7 @@ public class SceneRecyclerViewAdapter extends RecyclerView.Adapter<SceneRecycler
                     VibrationHandler.vibrate(context, WearablePreferencesHandler.getVibrationDuration());
                 }
 
-                String actionString = DataApiHandler.buildSceneActionString(scene);
-                dataApiHandler.sendSceneActionTrigger(actionString);
+                dataApiHandler.sendSceneActionTrigger(scene);
             }
         });
 
@@ -41,6 +41,7 @@ import eu.power_switch.obj.Scene;
 import eu.power_switch.shared.constants.SettingsConstants;
 import eu.power_switch.shared.constants.WearableConstants;
 import eu.power_switch.shared.log.Log;
+import eu.power_switch.shared.wear.WearActionMessage;
 
 /**
  * Created by Markus on 03.06.2015.
@@ -57,21 +58,6 @@ public class DataApiHandler {
         initPlayServices();
     }
 
-    public static String buildReceiverActionString(Room room, Receiver receiver, Button button) {
-        return WearableConstants.ROOM_ID_KEY + room.getId() +
-                WearableConstants.RECEIVER_ID_KEY + receiver.getId() +
-                WearableConstants.BUTTON_ID_KEY + button.getId() + ";;";
-    }
-
-    public static String buildRoomActionString(Room room, Long buttonId) {
-        return WearableConstants.ROOM_ID_KEY + room.getId() +
-                WearableConstants.BUTTON_ID_KEY + buttonId + ";;";
-    }
-
-    public static String buildSceneActionString(Scene scene) {
-        return WearableConstants.SCENE_ID_KEY + scene.getId() + ";;";
-    }
-
     private void initPlayServices() {
         googleApiClient = new GoogleApiClient.Builder(context)
                 .addConnectionCallbacks(new GoogleApiClient.ConnectionCallbacks() {
@@ -123,43 +109,39 @@ public class DataApiHandler {
     /**
      * Send Receiver Action Trigger to Smartphone App
      *
-     * @param actionString Receiver actionString, see {buildReceiverActionString] for more info
+     * @param receiver Receiver to act on
+     * @param button   Button to activate
      */
-    public void sendReceiverActionTrigger(String actionString) {
-        if (!googleApiClientIsConnected) {
-            ActionResponse.showFailureAnimation(context, "GooglePlayServices not connected");
-            return;
-        }
-        Log.d("", "sending receiver trigger: " + actionString);
-        messageApiHandler.sendAction(actionString);
+    public void sendReceiverActionTrigger(Receiver receiver, Button button) {
+        sendAction(WearActionMessage.createReceiverAction(MessageApiHandler.nextSequence(), receiver.getId(), button.getId()));
     }
 
     /**
      * Send Room Action Trigger to Smartphone App
      *
-     * @param actionString Room actionString, see {buildRoomActionString] for more info
+     * @param room     Room to act on
+     * @param buttonId ID of Button to activate on all Receivers of the Room
      */
-    public void sendRoomActionTrigger(String actionString) {
-        if (!googleApiClientIsConnected) {
-            ActionResponse.showFailureAnimation(context, "GooglePlayServices not connected");
-            return;
-        }
-        Log.d("", "sending receiver trigger: " + actionString);
-        messageApiHandler.sendAction(actionString);
+    public void sendRoomActionTrigger(Room room, long buttonId) {
+        sendAction(WearActionMessage.createRoomAction(MessageApiHandler.nextSequence(), room.getId(), buttonId));
     }
 
     /**
      * Send Scene Action Trigger to Smartphone App
      *
-     * @param actionString Scene actionString, see {buildSceneActionString] for more info
+     * @param scene Scene to activate
      */
-    public void sendSceneActionTrigger(String actionString) {
+    public void sendSceneActionTrigger(Scene scene) {
+        sendAction(WearActionMessage.createSceneAction(MessageApiHandler.nextSequence(), scene.getId()));
+    }
+
+    private void sendAction(WearActionMessage message) {
         if (!googleApiClientIsConnected) {
             ActionResponse.showFailureAnimation(context, "GooglePlayServices not connected");
             return;
         }
-        Log.d("", "sending scene trigger: " + actionString);
-        messageApiHandler.sendAction(actionString);
+        Log.d("", "sending action: " + message);
+        messageApiHandler.sendAction(message);
     }
 
     /**
@@ -183,67 +165,68 @@ public class DataApiHandler {
     }
 
     /**
-     * Retrieve room data from Wear cloud storage
+     * Load the latest data snapshot and delta from Wear cloud storage into the {@link WearDataModel}
      *
-     * @return List of Rooms
+     * @return true if the data items could be retrieved
      */
-    public ArrayList<Room> getRoomData() {
-        ArrayList<Room> rooms = new ArrayList<>();
-
+    private boolean loadDataModel() {
         if (!googleApiClient.isConnected()) {
             if (!blockingConnect()) {
-                return null;
+                return false;
             }
         }
 
-        ArrayList<DataMap> data;
+        DataMap snapshot = null;
+        DataMap delta = null;
         DataItemBuffer dataItemBuffer = Wearable.DataApi.getDataItems(googleApiClient).await();
 
-        if (dataItemBuffer.getStatus().isSuccess()) {
+        boolean success = dataItemBuffer.getStatus().isSuccess();
+        if (success) {
             for (DataItem dataItem : dataItemBuffer) {
-                DataMapItem dataMapItem = DataMapItem.fromDataItem(dataItem);
-                data = dataMapItem.getDataMap().getDataMapArrayList(WearableConstants.EXTRA_DATA);
-                if (data != null) {
-                    rooms = ListenerService.extractRoomDataMapItems(data);
-                    break;
+                String path = dataItem.getUri().getPath();
+                if (WearableConstants.DATA_PATH.equals(path)) {
+                    snapshot = DataMapItem.fromDataItem(dataItem).getDataMap();
+                } else if (WearableConstants.DATA_DELTA_PATH.equals(path)) {
+                    delta = DataMapItem.fromDataItem(dataItem).getDataMap();
                 }
             }
         }
         dataItemBuffer.release();
 
-        return rooms;
+        // the delta is based on the snapshot, so it has to be applied last
+        if (snapshot != null) {
+            WearDataModel.applySnapshot(snapshot);
+        }
+        if (delta != null) {
+            WearDataModel.applyDelta(delta);
+        }
+        return success;
+    }
+
+    /**
+     * Retrieve room data from Wear cloud storage
+     *
+     * @return List of Rooms
+     */
+    public ArrayList<Room> getRoomData() {
+        if (!loadDataModel() && !WearDataModel.isInitialized()) {
+            return null;
+        }
+        return WearDataModel.getRooms();
     }
 
     /**
      * Retrieve scene data from Wear cloud storage
+     * <p/>
+     * Data is only loaded if it has not been loaded before, it is kept up to date by the {@link ListenerService}.
      *
      * @return List of Scenes
      */
     public ArrayList<Scene> getSceneData() {
-        ArrayList<Scene> scenes = new ArrayList<>();
-
-        if (!googleApiClient.isConnected()) {
-            if (!blockingConnect()) {
-                return null;
-            }
+        if (!WearDataModel.isInitialized() && !loadDataModel()) {
+            return null;
         }
-
-        ArrayList<DataMap> data;
-        DataItemBuffer dataItemBuffer = Wearable.DataApi.getDataItems(googleApiClient).await();
-
-        if (dataItemBuffer.getStatus().isSuccess()) {
-            for (DataItem dataItem : dataItemBuffer) {
-                DataMapItem dataMapItem = DataMapItem.fromDataItem(dataItem);
-                data = dataMapItem.getDataMap().getDataMapArrayList(WearableConstants.EXTRA_DATA);
-                if (data != null) {
-                    scenes = ListenerService.extractSceneDataMapItems(data);
-                    break;
-                }
-            }
-        }
-        dataItemBuffer.release();
-
-        return scenes;
+        return WearDataModel.getScenes();
     }
 
     /**
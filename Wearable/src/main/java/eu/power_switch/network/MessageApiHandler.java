@@ -19,6 +19,9 @@
 package eu.power_switch.network;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.widget.Toast;
 
 import com.google.android.gms.common.api.GoogleApiClient;
@@ -29,18 +32,41 @@ import com.google.android.gms.wearable.MessageApi;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.Wearable;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eu.power_switch.R;
 import eu.power_switch.gui.animation.ActionResponse;
 import eu.power_switch.shared.constants.WearableConstants;
 import eu.power_switch.shared.log.Log;
+import eu.power_switch.shared.wear.WearActionAck;
+import eu.power_switch.shared.wear.WearActionMessage;
 
 /**
  * Created by Markus on 03.06.2015.
  */
 public class MessageApiHandler {
 
+    /**
+     * Time in milliseconds to wait for the acknowledgement of an action
+     */
+    public static final long ACK_TIMEOUT = 5000;
+
+    /**
+     * Starts at a random value, so acknowledgements meant for a previous process are not mistaken for new ones
+     */
+    private static final AtomicInteger sequenceCounter = new AtomicInteger(new Random().nextInt());
+
+    /**
+     * Sequence number -> send time (elapsed realtime) of actions waiting for an acknowledgement
+     */
+    private static final Map<Integer, Long> pendingActions = new HashMap<>();
+
+    private static final Handler timeoutHandler = new Handler(Looper.getMainLooper());
+
     private Context context;
     private GoogleApiClient googleApiClient;
     private Set<Node> connectedNodes;
@@ -51,45 +77,100 @@ public class MessageApiHandler {
     }
 
     /**
-     * Send action string to capable node (Smartphone) which will then send the network package to the Gateway
+     * Send an action message to capable node (Smartphone) which will then send the network package to the Gateway
+     * <p/>
+     * Success or failure is shown once the Smartphone has acknowledged the action,
+     * or if it did not respond within {@link #ACK_TIMEOUT}.
      *
-     * @param actionString Action String containing infromation about what Receiver and Button to act on
+     * @param message action message containing information about what Receiver, Room or Scene to act on
      */
-    public void sendAction(final String actionString) {
+    public void sendAction(final WearActionMessage message) {
         new Thread(new Runnable() {
             @Override
             public void run() {
-                String path = WearableConstants.RECEIVER_ACTION_TRIGGER_PATH;
-
                 setupReachableReceiverActionTrigger();
 
                 String nodeId = pickBestNode(connectedNodes);
-                if (nodeId != null) {
-                    Wearable.MessageApi.sendMessage(googleApiClient, nodeId,
-                            path, actionString.getBytes()).setResultCallback(
-                            new ResultCallback<MessageApi.SendMessageResult>() {
-                                @Override
-                                public void onResult(MessageApi.SendMessageResult sendMessageResult) {
-                                    if (!sendMessageResult.getStatus().isSuccess()) {
-                                        // Failed to send message
-                                        Log.e("", "Failed to send Message");
-                                        ActionResponse.showFailureAnimation(context, R.string.unknown_error);
-                                    } else {
-                                        Log.d("", "Message sent");
-                                        ActionResponse.showSuccessAnimation(context);
-                                    }
-                                }
-                            }
-                    );
-                } else {
+                if (nodeId == null) {
                     // Unable to retrieve node with transcription capability
                     Log.d("", "Unable to retrieve node with transcription capability");
                     ActionResponse.showFailureAnimation(context, R.string.smartphone_not_connected);
+                    return;
                 }
+
+                final int sequence = message.getSequence();
+                synchronized (pendingActions) {
+                    pendingActions.put(sequence, SystemClock.elapsedRealtime());
+                }
+
+                Wearable.MessageApi.sendMessage(googleApiClient, nodeId,
+                        WearableConstants.ACTION_PATH, message.toBytes()).setResultCallback(
+                        new ResultCallback<MessageApi.SendMessageResult>() {
+                            @Override
+                            public void onResult(MessageApi.SendMessageResult sendMessageResult) {
+                                if (!sendMessageResult.getStatus().isSuccess()) {
+                                    // Failed to send message
+                                    Log.e("", "Failed to send Message");
+                                    if (removePendingAction(sequence) != null) {
+                                        ActionResponse.showFailureAnimation(context, R.string.unknown_error);
+                                    }
+                                } else {
+                                    Log.d("", "Message sent, waiting for acknowledgement of " + sequence);
+                                    timeoutHandler.postDelayed(new Runnable() {
+                                        @Override
+                                        public void run() {
+                                            if (removePendingAction(sequence) != null) {
+                                                Log.e("No acknowledgement for action " + sequence);
+                                                ActionResponse.showFailureAnimation(context, R.string.smartphone_did_not_respond);
+                                            }
+                                        }
+                                    }, ACK_TIMEOUT);
+                                }
+                            }
+                        }
+                );
             }
         }).start();
     }
 
+    /**
+     * Create the next sequence number for an action message
+     *
+     * @return sequence number
+     */
+    public static int nextSequence() {
+        return sequenceCounter.incrementAndGet();
+    }
+
+    /**
+     * Handle an acknowledgement of the Smartphone app
+     *
+     * @param context any suitable context
+     * @param ack     acknowledgement
+     */
+    public static void onActionAck(Context context, WearActionAck ack) {
+        Long sendTime = removePendingAction(ack.getSequence());
+        if (sendTime == null) {
+            // timed out already or sent by another process
+            Log.d("Ignoring acknowledgement for unknown action " + ack.getSequence());
+            return;
+        }
+
+        long latency = SystemClock.elapsedRealtime() - sendTime;
+        Log.d("Action " + ack.getSequence() + " acknowledged after " + latency + "ms, success: " + ack.isSuccess());
+        if (ack.isSuccess()) {
+            ActionResponse.showSuccessAnimation(context);
+        } else {
+            ActionResponse.showFailureAnimation(context, R.string.unknown_error);
+        }
+    }
+
+    private static Long removePendingAction(int sequence) {
+        synchronized (pendingActions) {
+            return pendingActions.remove(sequence);
+        }
+    }
+
     public void sendUpdateRequest() {
         String updateRequest = "Update";
         String path = WearableConstants.REQUEST_DATA_UPDATE_PATH;
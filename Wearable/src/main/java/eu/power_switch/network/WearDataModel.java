@@ -0,0 +1,312 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.network;
+
+import android.content.Context;
+
+import com.google.android.gms.wearable.DataMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.power_switch.network.service.ListenerService;
+import eu.power_switch.obj.Room;
+import eu.power_switch.obj.Scene;
+import eu.power_switch.shared.constants.WearableConstants;
+import eu.power_switch.shared.log.Log;
+
+/**
+ * Local copy of the Room/Receiver/Button/Scene data of the Smartphone app
+ * <p/>
+ * The Smartphone app sends a versioned snapshot ({@link WearableConstants#DATA_PATH}) and, after that,
+ * deltas ({@link WearableConstants#DATA_DELTA_PATH}) that contain all entities changed since that snapshot.
+ * Both are applied as patches to this model, so only the changed entities have to be transferred.
+ * <p/>
+ * The model is persisted to a small binary file after every change, so the UI can be shown
+ * from it right away after a cold start, before the Smartphone app has been reached.
+ */
+public abstract class WearDataModel {
+
+    private static final long NO_VERSION = -1;
+
+    private static final String MODEL_FILE_NAME = "data_model.bin";
+
+    private static File modelFile;
+    private static boolean loaded = false;
+
+    private static long snapshotVersion = NO_VERSION;
+    private static long deltaVersion = NO_VERSION;
+
+    /**
+     * Entity key -> entity
+     */
+    private static final Map<String, DataMap> entities = new HashMap<>();
+
+    /**
+     * Delta that arrived before the snapshot it is based on
+     */
+    private static DataMap pendingDelta;
+
+    /**
+     * Private Constructor
+     *
+     * @throws UnsupportedOperationException because this class cannot be instantiated.
+     */
+    private WearDataModel() {
+        throw new UnsupportedOperationException("This class is non-instantiable. Use static one time initialization via init() method instead.");
+    }
+
+    /**
+     * One time initialization
+     * <p/>
+     * The persisted model is loaded lazily on first access, so this does not touch the disk.
+     *
+     * @param context any suitable context
+     */
+    public static synchronized void init(Context context) {
+        modelFile = new File(context.getFilesDir(), MODEL_FILE_NAME);
+    }
+
+    /**
+     * @return true if a snapshot has been applied, either received or loaded from disk
+     */
+    public static synchronized boolean isInitialized() {
+        loadIfNecessary();
+        return snapshotVersion != NO_VERSION;
+    }
+
+    /**
+     * Loads the persisted model, if it has not been loaded yet
+     */
+    private static void loadIfNecessary() {
+        if (loaded || modelFile == null) {
+            return;
+        }
+        loaded = true;
+
+        if (!modelFile.exists()) {
+            return;
+        }
+
+        try {
+            byte[] bytes = new byte[(int) modelFile.length()];
+            FileInputStream inputStream = new FileInputStream(modelFile);
+            try {
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int read = inputStream.read(bytes, offset, bytes.length - offset);
+                    if (read < 0) {
+                        throw new IOException("unexpected end of " + modelFile);
+                    }
+                    offset += read;
+                }
+            } finally {
+                inputStream.close();
+            }
+
+            DataMap dataMap = DataMap.fromByteArray(bytes);
+            putEntities(dataMap.getDataMapArrayList(WearableConstants.EXTRA_DATA));
+            snapshotVersion = dataMap.getLong(WearableConstants.DATA_BASE_VERSION_KEY, NO_VERSION);
+            deltaVersion = dataMap.getLong(WearableConstants.DATA_VERSION_KEY, NO_VERSION);
+            Log.d("Loaded data model " + snapshotVersion + "/" + deltaVersion + " with " + entities.size() + " entities");
+        } catch (Exception e) {
+            Log.e("Error loading data model", e);
+            entities.clear();
+            snapshotVersion = NO_VERSION;
+            deltaVersion = NO_VERSION;
+        }
+    }
+
+    /**
+     * Persists the current model
+     * <p/>
+     * The file is written next to the old one and renamed afterwards, so an interrupted write cannot corrupt it.
+     */
+    private static void save() {
+        if (modelFile == null) {
+            return;
+        }
+
+        DataMap dataMap = new DataMap();
+        dataMap.putLong(WearableConstants.DATA_BASE_VERSION_KEY, snapshotVersion);
+        dataMap.putLong(WearableConstants.DATA_VERSION_KEY, deltaVersion);
+        dataMap.putDataMapArrayList(WearableConstants.EXTRA_DATA, new ArrayList<>(entities.values()));
+
+        File tempFile = new File(modelFile.getPath() + ".tmp");
+        try {
+            FileOutputStream outputStream = new FileOutputStream(tempFile);
+            try {
+                outputStream.write(dataMap.toByteArray());
+            } finally {
+                outputStream.close();
+            }
+            if (!tempFile.renameTo(modelFile)) {
+                throw new IOException("could not rename " + tempFile);
+            }
+        } catch (Exception e) {
+            Log.e("Error saving data model", e);
+        }
+    }
+
+    /**
+     * Replaces all entities with the ones of a snapshot
+     *
+     * @param dataMap content of a {@link WearableConstants#DATA_PATH} data item
+     * @return true if the model has changed
+     */
+    public static synchronized boolean applySnapshot(DataMap dataMap) {
+        loadIfNecessary();
+
+        long version = dataMap.getLong(WearableConstants.DATA_VERSION_KEY, NO_VERSION);
+        if (version != NO_VERSION && version == snapshotVersion) {
+            return false;
+        }
+
+        entities.clear();
+        putEntities(dataMap.getDataMapArrayList(WearableConstants.EXTRA_DATA));
+        snapshotVersion = version;
+        deltaVersion = version;
+        Log.d("Applied data snapshot " + version + " with " + entities.size() + " entities");
+
+        if (pendingDelta != null) {
+            DataMap delta = pendingDelta;
+            pendingDelta = null;
+            if (applyDelta(delta)) {
+                // already saved
+                return true;
+            }
+        }
+        save();
+        return true;
+    }
+
+    /**
+     * Applies the changes of a delta to the current snapshot
+     *
+     * @param dataMap content of a {@link WearableConstants#DATA_DELTA_PATH} data item
+     * @return true if the model has changed
+     */
+    public static synchronized boolean applyDelta(DataMap dataMap) {
+        loadIfNecessary();
+
+        long baseVersion = dataMap.getLong(WearableConstants.DATA_BASE_VERSION_KEY, NO_VERSION);
+        long version = dataMap.getLong(WearableConstants.DATA_VERSION_KEY, NO_VERSION);
+
+        if (baseVersion != snapshotVersion) {
+            if (baseVersion > snapshotVersion) {
+                // snapshot has not arrived yet
+                pendingDelta = dataMap;
+            }
+            return false;
+        }
+        if (version <= deltaVersion) {
+            return false;
+        }
+
+        ArrayList<DataMap> updatedEntities = dataMap.getDataMapArrayList(WearableConstants.EXTRA_DATA);
+        putEntities(updatedEntities);
+        ArrayList<String> removedKeys = dataMap.getStringArrayList(WearableConstants.EXTRA_REMOVED_KEYS);
+        if (removedKeys != null) {
+            for (String key : removedKeys) {
+                entities.remove(key);
+            }
+        }
+        deltaVersion = version;
+        Log.d("Applied data delta " + version + " (" + (updatedEntities != null ? updatedEntities.size() : 0) +
+                " updated, " + (removedKeys != null ? removedKeys.size() : 0) + " removed)");
+        save();
+        return true;
+    }
+
+    private static void putEntities(List<DataMap> dataMaps) {
+        if (dataMaps == null) {
+            return;
+        }
+        for (DataMap dataMap : dataMaps) {
+            entities.put(dataMap.getString(WearableConstants.ENTITY_KEY_DATAMAP_KEY), dataMap);
+        }
+    }
+
+    /**
+     * @return List of Rooms containing the appropriate Receivers and Buttons
+     */
+    public static synchronized ArrayList<Room> getRooms() {
+        loadIfNecessary();
+
+        List<DataMap> rooms = new ArrayList<>();
+        List<DataMap> receivers = new ArrayList<>();
+        List<DataMap> buttons = new ArrayList<>();
+        for (DataMap dataMap : entities.values()) {
+            if (dataMap.containsKey(WearableConstants.ROOM_NAME_DATAMAP_KEY)) {
+                rooms.add(dataMap);
+            } else if (dataMap.containsKey(WearableConstants.RECEIVER_NAME_DATAMAP_KEY)) {
+                receivers.add(dataMap);
+            } else if (dataMap.containsKey(WearableConstants.BUTTON_NAME_DATAMAP_KEY)) {
+                buttons.add(dataMap);
+            }
+        }
+        Collections.sort(rooms, new PositionComparator(WearableConstants.ROOM_POSITION_DATAMAP_KEY));
+        Collections.sort(buttons, new PositionComparator(WearableConstants.BUTTON_POSITION_DATAMAP_KEY));
+
+        // the order of rooms and buttons is kept by the assembler, receivers are sorted by their position in the room
+        ArrayList<DataMap> data = new ArrayList<>(rooms.size() + receivers.size() + buttons.size());
+        data.addAll(rooms);
+        data.addAll(receivers);
+        data.addAll(buttons);
+        return ListenerService.extractRoomDataMapItems(data);
+    }
+
+    /**
+     * @return List of Scenes
+     */
+    public static synchronized ArrayList<Scene> getScenes() {
+        loadIfNecessary();
+
+        ArrayList<DataMap> scenes = new ArrayList<>();
+        for (DataMap dataMap : entities.values()) {
+            if (dataMap.containsKey(WearableConstants.SCENE_NAME_DATAMAP_KEY)) {
+                scenes.add(dataMap);
+            }
+        }
+        Collections.sort(scenes, new PositionComparator(WearableConstants.SCENE_POSITION_DATAMAP_KEY));
+        return ListenerService.extractSceneDataMapItems(scenes);
+    }
+
+    private static class PositionComparator implements Comparator<DataMap> {
+
+        private final String positionKey;
+
+        PositionComparator(String positionKey) {
+            this.positionKey = positionKey;
+        }
+
+        @Override
+        public int compare(DataMap lhs, DataMap rhs) {
+            return lhs.getInt(positionKey) - rhs.getInt(positionKey);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import eu.power_switch.obj.Button;
+import eu.power_switch.obj.Receiver;
+import eu.power_switch.obj.Room;
+
+/**
+ * Assembles the Room -> Receiver -> Button model of the wearable from flat entities received from the smartphone
+ * <p/>
+ * Entities can be added in any order, they are indexed by ID and linked to their parents in a single pass in
+ * {@link #assemble()}, so assembling takes linear time regardless of how entities arrive.
+ * The relative order of Rooms and of Buttons within a Receiver is the order they were added in, Receivers are
+ * sorted by their position in their Room.
+ * <p/>
+ * This class does not depend on Android and can be used on the JVM.
+ */
+public class WearModelAssembler {
+
+    private static final Comparator<Receiver> RECEIVER_POSITION_COMPARATOR = new Comparator<Receiver>() {
+        @Override
+        public int compare(Receiver lhs, Receiver rhs) {
+            return lhs.getPositionInRoom() - rhs.getPositionInRoom();
+        }
+    };
+
+    private final LinkedHashMap<Long, Room> rooms;
+    private final ArrayList<Receiver> receivers;
+    private final ArrayList<Button> buttons;
+
+    private int orphanCount = 0;
+
+    /**
+     * Create a new Assembler, the expected sizes are used to pre-size internal collections only
+     *
+     * @param expectedRooms     expected number of Rooms
+     * @param expectedReceivers expected number of Receivers
+     * @param expectedButtons   expected number of Buttons
+     */
+    public WearModelAssembler(int expectedRooms, int expectedReceivers, int expectedButtons) {
+        rooms = new LinkedHashMap<>(capacityFor(expectedRooms));
+        receivers = new ArrayList<>(expectedReceivers);
+        buttons = new ArrayList<>(expectedButtons);
+    }
+
+    public void addRoom(long id, String name) {
+        rooms.put(id, new Room(id, name));
+    }
+
+    public void addReceiver(long id, String name, long roomId, long lastActivatedButtonId, int positionInRoom) {
+        receivers.add(new Receiver(id, name, roomId, lastActivatedButtonId, positionInRoom));
+    }
+
+    public void addButton(long id, String name, long receiverId) {
+        buttons.add(new Button(id, name, receiverId));
+    }
+
+    /**
+     * Link all added entities to their parents
+     * <p/>
+     * Receivers and Buttons whose parent has not been added are dropped, see {@link #getOrphanCount()}.
+     * This must only be called once per Assembler.
+     *
+     * @return List of Rooms containing the appropriate Receivers and Buttons
+     */
+    public ArrayList<Room> assemble() {
+        orphanCount = 0;
+
+        HashMap<Long, Receiver> receiversById = new HashMap<>(capacityFor(receivers.size()));
+        for (Receiver receiver : receivers) {
+            Room room = rooms.get(receiver.getRoomId());
+            if (room == null) {
+                orphanCount++;
+                continue;
+            }
+            room.addReceiver(receiver);
+            receiversById.put(receiver.getId(), receiver);
+        }
+
+        for (Button button : buttons) {
+            Receiver receiver = receiversById.get(button.getReceiverId());
+            if (receiver == null) {
+                orphanCount++;
+                continue;
+            }
+            receiver.addButton(button);
+        }
+
+        ArrayList<Room> result = new ArrayList<>(rooms.values());
+        for (Room room : result) {
+            Collections.sort(room.getReceivers(), RECEIVER_POSITION_COMPARATOR);
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of Receivers and Buttons dropped by the last call of {@link #assemble()} because their parent
+     * was missing
+     *
+     * @return number of dropped entities
+     */
+    public int getOrphanCount() {
+        return orphanCount;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        return (int) (expectedSize / 0.75f) + 1;
+    }
+}
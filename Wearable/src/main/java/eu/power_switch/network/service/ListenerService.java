@@ -31,17 +31,18 @@ import com.google.android.gms.wearable.MessageEvent;
 import com.google.android.gms.wearable.WearableListenerService;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
-import eu.power_switch.obj.Button;
-import eu.power_switch.obj.Receiver;
+import eu.power_switch.network.MessageApiHandler;
+import eu.power_switch.network.WearDataModel;
+import eu.power_switch.network.WearModelAssembler;
 import eu.power_switch.obj.Room;
 import eu.power_switch.obj.Scene;
 import eu.power_switch.shared.constants.WearableConstants;
 import eu.power_switch.shared.constants.WearableSettingsConstants;
+import eu.power_switch.shared.log.Log;
 import eu.power_switch.shared.settings.WearablePreferencesHandler;
+import eu.power_switch.shared.wear.WearActionAck;
 
 /**
  * Created by Markus on 05.06.2015.
@@ -57,64 +58,50 @@ public class ListenerService extends WearableListenerService {
 
     /**
      * This method converts received data contained in a DataMap Array back to Rooms, Receivers and Buttons.
+     * <p/>
+     * Items can be in any order, Buttons are kept in the order they are contained in the list.
      *
      * @param dataMapArrayList received data
      * @return List of Rooms containing the appropriate Receivers and Buttons
      */
-    public static ArrayList<Room> extractRoomDataMapItems(ArrayList<DataMap> dataMapArrayList) {
-        ArrayList<Room> rooms = new ArrayList<>();
-
+    public static ArrayList<Room> extractRoomDataMapItems(List<DataMap> dataMapArrayList) {
+        int roomCount = 0;
+        int receiverCount = 0;
         for (DataMap dataMapItem : dataMapArrayList) {
             if (dataMapItem.containsKey(WearableConstants.ROOM_NAME_DATAMAP_KEY)) {
-                long roomId = dataMapItem.getLong(WearableConstants.ROOM_ID_DATAMAP_KEY);
-                String roomName = dataMapItem.getString(WearableConstants.ROOM_NAME_DATAMAP_KEY);
+                roomCount++;
+            } else if (dataMapItem.containsKey(WearableConstants.RECEIVER_NAME_DATAMAP_KEY)) {
+                receiverCount++;
+            }
+        }
 
-                rooms.add(new Room(roomId, roomName));
+        WearModelAssembler assembler = new WearModelAssembler(roomCount, receiverCount,
+                dataMapArrayList.size() - roomCount - receiverCount);
 
+        for (DataMap dataMapItem : dataMapArrayList) {
+            if (dataMapItem.containsKey(WearableConstants.ROOM_NAME_DATAMAP_KEY)) {
+                assembler.addRoom(
+                        dataMapItem.getLong(WearableConstants.ROOM_ID_DATAMAP_KEY),
+                        dataMapItem.getString(WearableConstants.ROOM_NAME_DATAMAP_KEY));
             } else if (dataMapItem.containsKey(WearableConstants.RECEIVER_NAME_DATAMAP_KEY)) {
-                long receiverId = dataMapItem.getLong(WearableConstants.RECEIVER_ID_DATAMAP_KEY);
-                String receiverName = dataMapItem.getString(WearableConstants.RECEIVER_NAME_DATAMAP_KEY);
-                long receiverRoomId = dataMapItem.getLong(WearableConstants.RECEIVER_ROOM_ID_DATAMAP_KEY);
-                int positionInRoom = dataMapItem.getInt(WearableConstants.RECEIVER_POSITION_IN_ROOM_DATAMAP_KEY);
-                long lastActivatedButtonId = dataMapItem.getLong(WearableConstants.RECEIVER_LAST_ACTIVATED_BUTTON_ID_DATAMAP_KEY);
-
-                Receiver receiver = new Receiver(receiverId, receiverName, receiverRoomId,
-                        lastActivatedButtonId, positionInRoom);
-
-                for (Room room : rooms) {
-                    if (room.getId() == receiver.getRoomId()) {
-                        room.addReceiver(receiver);
-                        break;
-                    }
-                }
+                assembler.addReceiver(
+                        dataMapItem.getLong(WearableConstants.RECEIVER_ID_DATAMAP_KEY),
+                        dataMapItem.getString(WearableConstants.RECEIVER_NAME_DATAMAP_KEY),
+                        dataMapItem.getLong(WearableConstants.RECEIVER_ROOM_ID_DATAMAP_KEY),
+                        dataMapItem.getLong(WearableConstants.RECEIVER_LAST_ACTIVATED_BUTTON_ID_DATAMAP_KEY),
+                        dataMapItem.getInt(WearableConstants.RECEIVER_POSITION_IN_ROOM_DATAMAP_KEY));
             } else if (dataMapItem.containsKey(WearableConstants.BUTTON_NAME_DATAMAP_KEY)) {
-                long buttonId = dataMapItem.getLong(WearableConstants.BUTTON_ID_DATAMAP_KEY);
-                String buttonName = dataMapItem.getString(WearableConstants.BUTTON_NAME_DATAMAP_KEY);
-                long buttonReceiverId = dataMapItem.getLong(WearableConstants.BUTTON_RECEIVER_ID_DATAMAP_KEY);
-
-                Button button = new Button(buttonId, buttonName, buttonReceiverId);
-
-                for (Room room : rooms) {
-                    for (Receiver receiver : room.getReceivers()) {
-                        if (receiver.getId() == button.getReceiverId()) {
-                            receiver.addButton(button);
-                            break;
-                        }
-                    }
-                }
+                assembler.addButton(
+                        dataMapItem.getLong(WearableConstants.BUTTON_ID_DATAMAP_KEY),
+                        dataMapItem.getString(WearableConstants.BUTTON_NAME_DATAMAP_KEY),
+                        dataMapItem.getLong(WearableConstants.BUTTON_RECEIVER_ID_DATAMAP_KEY));
             }
         }
 
-        // sort receivers
-        for (Room room : rooms) {
-            Collections.sort(room.getReceivers(), new Comparator<Receiver>() {
-                @Override
-                public int compare(Receiver t0, Receiver t1) {
-                    return t0.getPositionInRoom() - t1.getPositionInRoom();
-                }
-            });
+        ArrayList<Room> rooms = assembler.assemble();
+        if (assembler.getOrphanCount() > 0) {
+            Log.d(ListenerService.class, "dropped " + assembler.getOrphanCount() + " receivers/buttons without parent");
         }
-
         return rooms;
     }
 
@@ -122,17 +109,16 @@ public class ListenerService extends WearableListenerService {
      * This method converts received data contained in a DataMap Array back to Scenes.
      *
      * @param dataMapArrayList received data
-     * @return List of Rooms containing the appropriate Receivers and Buttons
+     * @return List of Scenes
      */
-    public static ArrayList<Scene> extractSceneDataMapItems(ArrayList<DataMap> dataMapArrayList) {
-        ArrayList<Scene> scenes = new ArrayList<>();
+    public static ArrayList<Scene> extractSceneDataMapItems(List<DataMap> dataMapArrayList) {
+        ArrayList<Scene> scenes = new ArrayList<>(dataMapArrayList.size());
 
         for (DataMap dataMapItem : dataMapArrayList) {
             if (dataMapItem.containsKey(WearableConstants.SCENE_NAME_DATAMAP_KEY)) {
                 long sceneId = dataMapItem.getLong(WearableConstants.SCENE_ID_DATAMAP_KEY);
                 String sceneName = dataMapItem.getString(WearableConstants.SCENE_NAME_DATAMAP_KEY);
-                Scene scene = new Scene(sceneId, sceneName);
-                scenes.add(scene);
+                scenes.add(new Scene(sceneId, sceneName));
             }
         }
 
@@ -183,26 +169,18 @@ public class ListenerService extends WearableListenerService {
     public void onDataChanged(DataEventBuffer dataEvents) {
         final List<DataEvent> events = FreezableUtils.freezeIterable(dataEvents);
 
+        boolean dataChanged = false;
         for (DataEvent event : events) {
             if (event.getDataItem() != null) {
                 if (event.getType() == DataEvent.TYPE_CHANGED
                         && WearableConstants.DATA_PATH.equals(event.getDataItem().getUri().getPath())) {
-
                     DataMapItem dataMapItem = DataMapItem.fromDataItem(event.getDataItem());
-                    ArrayList<DataMap> data = dataMapItem.getDataMap()
-                            .getDataMapArrayList(WearableConstants.EXTRA_DATA);
-
-                    boolean autoCollapseRooms = WearablePreferencesHandler.getAutoCollapseRooms();
-
-                    // convert received data to room/receiver/button objects
-                    ArrayList<Room> rooms = extractRoomDataMapItems(data);
-                    for (Room room : rooms) {
-                        room.setCollapsed(autoCollapseRooms);
-                    }
-                    ArrayList<Scene> scenes = extractSceneDataMapItems(data);
-
-                    // send data to Activity
-                    sendDataUpdatedBroadcast(rooms, scenes);
+                    dataChanged |= WearDataModel.applySnapshot(dataMapItem.getDataMap());
+                }
+                if (event.getType() == DataEvent.TYPE_CHANGED
+                        && WearableConstants.DATA_DELTA_PATH.equals(event.getDataItem().getUri().getPath())) {
+                    DataMapItem dataMapItem = DataMapItem.fromDataItem(event.getDataItem());
+                    dataChanged |= WearDataModel.applyDelta(dataMapItem.getDataMap());
                 }
                 if (event.getType() == DataEvent.TYPE_CHANGED
                         && WearableConstants.SETTINGS_PATH.equals(event.getDataItem().getUri().getPath())) {
@@ -216,6 +194,17 @@ public class ListenerService extends WearableListenerService {
                 }
             }
         }
+
+        if (dataChanged) {
+            ArrayList<Room> rooms = WearDataModel.getRooms();
+            boolean autoCollapseRooms = WearablePreferencesHandler.getAutoCollapseRooms();
+            for (Room room : rooms) {
+                room.setCollapsed(autoCollapseRooms);
+            }
+
+            // send data to Activity
+            sendDataUpdatedBroadcast(rooms, WearDataModel.getScenes());
+        }
     }
 
     /**
@@ -225,6 +214,15 @@ public class ListenerService extends WearableListenerService {
      */
     @Override
     public void onMessageReceived(MessageEvent messageEvent) {
+        if (WearableConstants.ACTION_ACK_PATH.equals(messageEvent.getPath())) {
+            try {
+                MessageApiHandler.onActionAck(getApplicationContext(), WearActionAck.fromBytes(messageEvent.getData()));
+            } catch (IllegalArgumentException e) {
+                Log.e("Invalid action acknowledgement", e);
+            }
+            return;
+        }
+
         Toast.makeText(getApplicationContext(), "Message received: " + convertEventDataToString(messageEvent.getData()), Toast.LENGTH_LONG)
                 .show();
 
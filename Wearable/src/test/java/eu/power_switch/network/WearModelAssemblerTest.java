@@ -0,0 +1,239 @@
+/*
+ *     PowerSwitch by Max Rosin & Markus Ressel
+ *     Copyright (C) 2015  Markus Ressel
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package eu.power_switch.network;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import eu.power_switch.obj.Button;
+import eu.power_switch.obj.Receiver;
+import eu.power_switch.obj.Room;
+
+/**
+ * JVM harness and benchmark for {@link WearModelAssembler}
+ * <p/>
+ * Feeds synthetic payloads in random order and checks that the assembled model is complete. The benchmark checking
+ * that the time per entity does not grow with the size of the payload depends on the machine, so it has to be run
+ * manually.
+ */
+public class WearModelAssemblerTest {
+
+    private static final int RECEIVERS_PER_ROOM = 8;
+    private static final int BUTTONS_PER_RECEIVER = 3;
+
+    private static final int[] ENTITY_COUNTS = {1000, 2500, 5000, 10000};
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 15;
+
+    /**
+     * Maximum allowed ratio between the time per entity of the largest and the smallest payload
+     */
+    private static final double MAX_GROWTH = 4;
+
+    @Test
+    public void testOrderIndependence() throws Exception {
+        List<Entity> entities = createPayload(1000, new Random(42));
+        // children before their parents
+        Collections.reverse(entities);
+
+        WearModelAssembler assembler = feed(entities);
+        ArrayList<Room> rooms = assembler.assemble();
+
+        Assert.assertEquals(0, assembler.getOrphanCount());
+        assertComplete(entities, rooms);
+    }
+
+    @Test
+    public void testOrphansAreDropped() throws Exception {
+        WearModelAssembler assembler = new WearModelAssembler(1, 2, 2);
+        assembler.addButton(100, "On", 10);
+        assembler.addReceiver(10, "Lamp", 1, 100, 1);
+        assembler.addReceiver(11, "Heater", 2, 100, 0);
+        assembler.addButton(101, "Off", 11);
+        assembler.addRoom(1, "Kitchen");
+
+        ArrayList<Room> rooms = assembler.assemble();
+
+        Assert.assertEquals(2, assembler.getOrphanCount());
+        Assert.assertEquals(1, rooms.size());
+        Assert.assertEquals(1, rooms.get(0).getReceivers().size());
+        Assert.assertEquals(1, rooms.get(0).getReceivers().get(0).getButtons().size());
+    }
+
+    @Test
+    public void testReceiversAreSortedByPosition() throws Exception {
+        WearModelAssembler assembler = new WearModelAssembler(1, 3, 0);
+        assembler.addReceiver(12, "C", 1, -1, 2);
+        assembler.addReceiver(10, "A", 1, -1, 0);
+        assembler.addRoom(1, "Kitchen");
+        assembler.addReceiver(11, "B", 1, -1, 1);
+
+        List<Receiver> receivers = assembler.assemble().get(0).getReceivers();
+
+        Assert.assertEquals(10, receivers.get(0).getId());
+        Assert.assertEquals(11, receivers.get(1).getId());
+        Assert.assertEquals(12, receivers.get(2).getId());
+    }
+
+    @Ignore("wall-clock benchmark, run manually")
+    @Test
+    public void benchmarkLinearScaling() throws Exception {
+        Random random = new Random(1);
+        double[] nanosPerEntity = new double[ENTITY_COUNTS.length];
+
+        for (int i = 0; i < ENTITY_COUNTS.length; i++) {
+            List<Entity> entities = createPayload(ENTITY_COUNTS[i], random);
+
+            for (int run = 0; run < WARMUP_RUNS; run++) {
+                feed(entities).assemble();
+            }
+
+            long[] durations = new long[MEASURED_RUNS];
+            for (int run = 0; run < MEASURED_RUNS; run++) {
+                long start = System.nanoTime();
+                feed(entities).assemble();
+                durations[run] = System.nanoTime() - start;
+            }
+            Arrays.sort(durations);
+
+            long median = durations[MEASURED_RUNS / 2];
+            nanosPerEntity[i] = (double) median / entities.size();
+        }
+
+        double growth = nanosPerEntity[nanosPerEntity.length - 1] / nanosPerEntity[0];
+        Assert.assertTrue("time per entity grew by factor " + growth, growth < MAX_GROWTH);
+    }
+
+    private static WearModelAssembler feed(List<Entity> entities) {
+        int roomCount = 0;
+        int receiverCount = 0;
+        for (Entity entity : entities) {
+            if (entity.type == Entity.ROOM) {
+                roomCount++;
+            } else if (entity.type == Entity.RECEIVER) {
+                receiverCount++;
+            }
+        }
+
+        WearModelAssembler assembler = new WearModelAssembler(roomCount, receiverCount,
+                entities.size() - roomCount - receiverCount);
+        for (Entity entity : entities) {
+            switch (entity.type) {
+                case Entity.ROOM:
+                    assembler.addRoom(entity.id, entity.name);
+                    break;
+                case Entity.RECEIVER:
+                    assembler.addReceiver(entity.id, entity.name, entity.parentId, -1, entity.position);
+                    break;
+                case Entity.BUTTON:
+                    assembler.addButton(entity.id, entity.name, entity.parentId);
+                    break;
+            }
+        }
+        return assembler;
+    }
+
+    /**
+     * Create a shuffled payload of about the given number of Rooms, Receivers and Buttons
+     */
+    private static List<Entity> createPayload(int entityCount, Random random) {
+        int entitiesPerRoom = 1 + RECEIVERS_PER_ROOM * (1 + BUTTONS_PER_RECEIVER);
+        int roomCount = Math.max(1, entityCount / entitiesPerRoom);
+
+        List<Entity> entities = new ArrayList<>(roomCount * entitiesPerRoom);
+        long nextId = 1;
+        for (int r = 0; r < roomCount; r++) {
+            long roomId = nextId++;
+            entities.add(new Entity(Entity.ROOM, roomId, 0, 0));
+
+            for (int position = 0; position < RECEIVERS_PER_ROOM; position++) {
+                long receiverId = nextId++;
+                entities.add(new Entity(Entity.RECEIVER, receiverId, roomId, position));
+
+                for (int b = 0; b < BUTTONS_PER_RECEIVER; b++) {
+                    entities.add(new Entity(Entity.BUTTON, nextId++, receiverId, b));
+                }
+            }
+        }
+
+        Collections.shuffle(entities, random);
+        return entities;
+    }
+
+    private static void assertComplete(List<Entity> entities, List<Room> rooms) {
+        int roomCount = 0;
+        int receiverCount = 0;
+        int buttonCount = 0;
+        for (Room room : rooms) {
+            roomCount++;
+            int lastPosition = -1;
+            for (Receiver receiver : room.getReceivers()) {
+                receiverCount++;
+                Assert.assertEquals(room.getId(), receiver.getRoomId());
+                Assert.assertTrue(receiver.getPositionInRoom() > lastPosition);
+                lastPosition = receiver.getPositionInRoom();
+
+                for (Button button : receiver.getButtons()) {
+                    buttonCount++;
+                    Assert.assertEquals(receiver.getId(), button.getReceiverId());
+                }
+            }
+        }
+
+        int expectedRooms = 0;
+        int expectedReceivers = 0;
+        for (Entity entity : entities) {
+            if (entity.type == Entity.ROOM) {
+                expectedRooms++;
+            } else if (entity.type == Entity.RECEIVER) {
+                expectedReceivers++;
+            }
+        }
+        Assert.assertEquals(expectedRooms, roomCount);
+        Assert.assertEquals(expectedReceivers, receiverCount);
+        Assert.assertEquals(entities.size() - expectedRooms - expectedReceivers, buttonCount);
+    }
+
+    private static class Entity {
+        static final int ROOM = 0;
+        static final int RECEIVER = 1;
+        static final int BUTTON = 2;
+
+        final int type;
+        final long id;
+        final long parentId;
+        final int position;
+        final String name;
+
+        Entity(int type, long id, long parentId, int position) {
+            this.type = type;
+            this.id = id;
+            this.parentId = parentId;
+            this.position = position;
+            this.name = "Entity " + id;
+        }
+    }
+}